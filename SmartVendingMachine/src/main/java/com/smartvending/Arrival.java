@@ -0,0 +1,57 @@
+package com.smartvending;
+
+/**
+ * Represents a simulated customer arriving at a vending machine.
+ */
+public class Arrival {
+    private final double delaySeconds;
+    private final String productName;
+    private final double amount;
+
+    /**
+     * Constructs a new Arrival.
+     *
+     * @param delaySeconds the time since the previous arrival in seconds (must not be negative)
+     * @param productName the product the customer wants, or null to let the simulator choose
+     * @param amount the money the customer inserts, or 0 to let the simulator choose
+     * @throws IllegalArgumentException if delaySeconds or amount is negative
+     */
+    public Arrival(double delaySeconds, String productName, double amount) {
+        if (delaySeconds < 0) {
+            throw new IllegalArgumentException("Delay cannot be negative");
+        }
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount cannot be negative");
+        }
+        this.delaySeconds = delaySeconds;
+        this.productName = productName;
+        this.amount = amount;
+    }
+
+    /**
+     * Gets the time since the previous arrival.
+     *
+     * @return the delay in seconds
+     */
+    public double getDelaySeconds() {
+        return delaySeconds;
+    }
+
+    /**
+     * Gets the product the customer wants.
+     *
+     * @return the product name, or null if the simulator chooses
+     */
+    public String getProductName() {
+        return productName;
+    }
+
+    /**
+     * Gets the money the customer inserts.
+     *
+     * @return the amount, or 0 if the simulator chooses
+     */
+    public double getAmount() {
+        return amount;
+    }
+}
@@ -0,0 +1,19 @@
+package com.smartvending;
+
+import java.util.Random;
+
+/**
+ * Generates a stream of customer arrivals for the load simulator.
+ * Implementations must draw all randomness from the given generator so that
+ * runs with the same seed are reproducible.
+ */
+public interface ArrivalProcess {
+
+    /**
+     * Generates the next arrival.
+     *
+     * @param random the random number generator of the simulation
+     * @return the next arrival, or null if the stream is exhausted
+     */
+    Arrival next(Random random);
+}
@@ -0,0 +1,170 @@
+package com.smartvending;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Factory methods for the arrival processes used by the load simulator.
+ */
+public final class ArrivalProcesses {
+
+    private ArrivalProcesses() {
+    }
+
+    /**
+     * Creates a Poisson arrival process with exponentially distributed gaps between customers.
+     *
+     * @param ratePerSecond the mean number of arrivals per second (must be positive)
+     * @return the arrival process
+     * @throws IllegalArgumentException if ratePerSecond is not positive
+     */
+    public static ArrivalProcess poisson(double ratePerSecond) {
+        requirePositive(ratePerSecond, "Rate");
+        return random -> new Arrival(exponential(random, ratePerSecond), null, 0.0);
+    }
+
+    /**
+     * Creates a bursty arrival process that switches between a quiet and a busy Poisson rate.
+     * The time spent in each state is exponentially distributed.
+     *
+     * @param quietRatePerSecond the arrival rate outside bursts (must be positive)
+     * @param burstRatePerSecond the arrival rate during bursts (must be positive)
+     * @param meanQuietSeconds the mean length of a quiet period (must be positive)
+     * @param meanBurstSeconds the mean length of a burst (must be positive)
+     * @return the arrival process
+     * @throws IllegalArgumentException if any argument is not positive
+     */
+    public static ArrivalProcess bursty(double quietRatePerSecond, double burstRatePerSecond,
+                                        double meanQuietSeconds, double meanBurstSeconds) {
+        requirePositive(quietRatePerSecond, "Quiet rate");
+        requirePositive(burstRatePerSecond, "Burst rate");
+        requirePositive(meanQuietSeconds, "Quiet period");
+        requirePositive(meanBurstSeconds, "Burst period");
+        return new BurstyProcess(quietRatePerSecond, burstRatePerSecond, meanQuietSeconds, meanBurstSeconds);
+    }
+
+    /**
+     * Creates a process that replays recorded transactions with their original timing.
+     * Each customer asks for the recorded product and inserts the recorded total amount.
+     * Refunds, and the sales they refund, are left out.
+     *
+     * @param transactions the transactions to replay, in chronological order
+     * @return the arrival process
+     * @throws IllegalArgumentException if transactions is null
+     */
+    public static ArrivalProcess replay(List<Transaction> transactions) {
+        if (transactions == null) {
+            throw new IllegalArgumentException("Transactions cannot be null");
+        }
+        return new ReplayProcess(standingSales(transactions));
+    }
+
+    /**
+     * Creates a process that replays a binary transaction export.
+     * Refunds, and the sales they refund, are left out.
+     *
+     * @param binaryExport a file written by {@link TransactionExporter#exportBinary}
+     * @return the arrival process
+     * @throws IOException if the file cannot be read
+     */
+    public static ArrivalProcess replay(Path binaryExport) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        TransactionExporter.readBinary(binaryExport, transactions::add);
+        return new ReplayProcess(standingSales(transactions));
+    }
+
+    /**
+     * Keeps the sales that were not refunded, in their original order.
+     */
+    private static List<Transaction> standingSales(List<Transaction> transactions) {
+        Set<Long> refunded = new HashSet<>();
+        for (Transaction transaction : transactions) {
+            if (transaction.isRefund()) {
+                refunded.add(transaction.getRefundedId());
+            }
+        }
+        List<Transaction> sales = new ArrayList<>(transactions.size() - refunded.size());
+        for (Transaction transaction : transactions) {
+            if (!transaction.isRefund() && !refunded.contains(transaction.getId())) {
+                sales.add(transaction);
+            }
+        }
+        return sales;
+    }
+
+    private static double exponential(Random random, double rate) {
+        return -Math.log(1.0 - random.nextDouble()) / rate;
+    }
+
+    private static void requirePositive(double value, String name) {
+        if (!(value > 0)) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+    }
+
+    /**
+     * Two-state Markov-modulated Poisson process.
+     */
+    private static final class BurstyProcess implements ArrivalProcess {
+        private final double quietRate;
+        private final double burstRate;
+        private final double meanQuietSeconds;
+        private final double meanBurstSeconds;
+        private boolean bursting;
+        private double stateRemaining = Double.NaN;
+
+        BurstyProcess(double quietRate, double burstRate, double meanQuietSeconds, double meanBurstSeconds) {
+            this.quietRate = quietRate;
+            this.burstRate = burstRate;
+            this.meanQuietSeconds = meanQuietSeconds;
+            this.meanBurstSeconds = meanBurstSeconds;
+        }
+
+        @Override
+        public Arrival next(Random random) {
+            if (Double.isNaN(stateRemaining)) {
+                stateRemaining = exponential(random, 1.0 / meanQuietSeconds);
+            }
+            double delay = 0.0;
+            while (true) {
+                double gap = exponential(random, bursting ? burstRate : quietRate);
+                if (gap <= stateRemaining) {
+                    stateRemaining -= gap;
+                    return new Arrival(delay + gap, null, 0.0);
+                }
+                // Memorylessness lets the gap restart in the next state
+                delay += stateRemaining;
+                bursting = !bursting;
+                stateRemaining = exponential(random, 1.0 / (bursting ? meanBurstSeconds : meanQuietSeconds));
+            }
+        }
+    }
+
+    /**
+     * Replays recorded transactions.
+     */
+    private static final class ReplayProcess implements ArrivalProcess {
+        private final List<Transaction> transactions;
+        private int position;
+        private LocalDateTime previous;
+
+        ReplayProcess(List<Transaction> transactions) {
+            this.transactions = transactions;
+        }
+
+        @Override
+        public Arrival next(Random random) {
+            if (position >= transactions.size()) {
+                return null;
+            }
+            Transaction transaction = transactions.get(position++);
+            double delay = previous == null ? 0.0
+                    : Math.max(0L, Duration.between(previous, transaction.getDate()).toNanos()) / 1e9;
+            previous = transaction.getDate();
+            return new Arrival(delay, transaction.getProductName(), transaction.getTotalAmountInserted());
+        }
+    }
+}
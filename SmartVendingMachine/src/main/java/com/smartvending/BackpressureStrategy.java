@@ -0,0 +1,14 @@
+package com.smartvending;
+
+/**
+ * Decides what a {@link TransactionPublisher} does when a subscriber falls a
+ * full buffer behind the transactions being published.
+ */
+public enum BackpressureStrategy {
+    /** Skip the oldest transactions the subscriber has not received; sales never wait. */
+    DROP,
+    /** Make the selling thread wait until the subscriber catches up; nothing is lost. */
+    BLOCK,
+    /** Buffer up to the publisher's capacity, then fail the subscriber with an error; sales never wait. */
+    BUFFER
+}
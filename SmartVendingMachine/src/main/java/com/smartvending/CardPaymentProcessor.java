@@ -0,0 +1,212 @@
+package com.smartvending;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sells products against card or mobile payments without blocking.
+ * A purchase authorizes the product price with the gateway and vends when
+ * the authorization completes. If the vend fails, the authorization is
+ * voided; if the price dropped in the meantime, only the new price is
+ * charged and captured. Approved sales are captured in batches, either when a batch fills
+ * up or when the capture interval elapses.
+ * No thread waits on the gateway, so a slow gateway does not delay other sessions.
+ */
+public class CardPaymentProcessor implements AutoCloseable {
+    /** Default number of authorizations captured together. */
+    public static final int DEFAULT_CAPTURE_BATCH_SIZE = 50;
+    /** Default longest time an approved sale waits to be captured. */
+    public static final Duration DEFAULT_CAPTURE_INTERVAL = Duration.ofSeconds(1);
+
+    private final VendingMachine machine;
+    private final PaymentGateway gateway;
+    private final int captureBatchSize;
+    private final Queue<PaymentAuthorization> pendingCaptures = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicLong declined = new AtomicLong();
+    private final AtomicLong captureFailures = new AtomicLong();
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs a new CardPaymentProcessor with the default capture batching.
+     *
+     * @param machine the machine that vends the products
+     * @param gateway the payment gateway
+     * @throws IllegalArgumentException if machine or gateway is null
+     */
+    public CardPaymentProcessor(VendingMachine machine, PaymentGateway gateway) {
+        this(machine, gateway, DEFAULT_CAPTURE_BATCH_SIZE, DEFAULT_CAPTURE_INTERVAL);
+    }
+
+    /**
+     * Constructs a new CardPaymentProcessor.
+     *
+     * @param machine the machine that vends the products
+     * @param gateway the payment gateway
+     * @param captureBatchSize the number of authorizations captured together (must be positive)
+     * @param captureInterval the longest time an approved sale waits to be captured (must be positive)
+     * @throws IllegalArgumentException if any argument is null or not positive
+     */
+    public CardPaymentProcessor(VendingMachine machine, PaymentGateway gateway, int captureBatchSize,
+                                Duration captureInterval) {
+        if (machine == null || gateway == null) {
+            throw new IllegalArgumentException("Machine and gateway cannot be null");
+        }
+        if (captureBatchSize <= 0) {
+            throw new IllegalArgumentException("Capture batch size must be positive");
+        }
+        if (captureInterval == null || captureInterval.isNegative() || captureInterval.isZero()) {
+            throw new IllegalArgumentException("Capture interval must be positive");
+        }
+        this.machine = machine;
+        this.gateway = gateway;
+        this.captureBatchSize = captureBatchSize;
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "payment-captures");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler = executor;
+        long intervalNanos = captureInterval.toNanos();
+        scheduler.scheduleWithFixedDelay(this::flushCaptures, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Buys a product with a card or mobile payment.
+     * The product price is authorized and, once approved, the product is vended.
+     *
+     * @param productName the name of the product to purchase
+     * @param paymentToken the token of the card or wallet to charge
+     * @return a future completed with the transaction, or completed exceptionally with an
+     *         IllegalStateException if the product cannot be sold or the payment is declined
+     * @throws IllegalArgumentException if productName or paymentToken is null or empty
+     */
+    public CompletableFuture<Transaction> purchase(String productName, String paymentToken) {
+        if (productName == null || productName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Product name cannot be null or empty");
+        }
+        if (paymentToken == null || paymentToken.isEmpty()) {
+            throw new IllegalArgumentException("Payment token cannot be null or empty");
+        }
+        Product product = machine.getProduct(productName.trim());
+        if (product == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Product not found: " + productName));
+        }
+        if (!product.isAvailable()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Product is out of stock: " + productName));
+        }
+        double price = product.getPrice();
+        return gateway.authorize(paymentToken, price).thenApply(authorization -> {
+            if (!authorization.isApproved()) {
+                declined.incrementAndGet();
+                throw new CompletionException(new IllegalStateException(
+                        "Payment declined: " + authorization.getDeclineReason()));
+            }
+            Transaction transaction;
+            try {
+                // Charge the price at vend time, which may have dropped while the payment was in flight
+                synchronized (machine) {
+                    Product current = machine.getProduct(productName.trim());
+                    double salePrice = current == null ? authorization.getAmount() : current.getPrice();
+                    transaction = machine.selectProductPrepaid(productName,
+                                                               Math.min(salePrice, authorization.getAmount()));
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // The product sold out or its price went up while the payment was in flight
+                gateway.voidAuthorization(authorization);
+                throw new CompletionException(e);
+            }
+            PaymentAuthorization capture = transaction.getAmountPaid() < authorization.getAmount()
+                    ? new PaymentAuthorization(authorization.getId(), authorization.getPaymentToken(),
+                                               transaction.getAmountPaid(), true, null)
+                    : authorization;
+            pendingCaptures.add(capture);
+            if (pendingCount.incrementAndGet() >= captureBatchSize) {
+                flush(captureBatchSize);
+            }
+            return transaction;
+        });
+    }
+
+    /**
+     * Sends every approved sale that has not been captured yet to the gateway.
+     */
+    public void flushCaptures() {
+        flush(1);
+    }
+
+    private void flush(int minBatchSize) {
+        AtomicBoolean failed = new AtomicBoolean();
+        // A gateway that fails synchronously puts the batch back at once; leave the retry to the timer
+        while (!failed.get()) {
+            // Reserve the sales before taking them, so concurrent flushes never split a batch
+            int pending = pendingCount.get();
+            if (pending < minBatchSize || pending == 0) {
+                return;
+            }
+            int size = Math.min(pending, captureBatchSize);
+            if (!pendingCount.compareAndSet(pending, pending - size)) {
+                continue;
+            }
+            // Every counted sale was queued before it was counted, so the queue holds enough
+            List<PaymentAuthorization> batch = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                batch.add(pendingCaptures.poll());
+            }
+            gateway.capture(batch).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    // Keep the sales so the next flush retries them
+                    captureFailures.incrementAndGet();
+                    failed.set(true);
+                    pendingCaptures.addAll(batch);
+                    pendingCount.addAndGet(batch.size());
+                }
+            });
+        }
+    }
+
+    /**
+     * Gets the number of approved sales waiting to be captured.
+     *
+     * @return the pending capture count
+     */
+    public int getPendingCaptureCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Gets the number of declined payments.
+     *
+     * @return the declined count
+     */
+    public long getDeclinedCount() {
+        return declined.get();
+    }
+
+    /**
+     * Gets the number of capture batches the gateway rejected.
+     *
+     * @return the capture failure count
+     */
+    public long getCaptureFailureCount() {
+        return captureFailures.get();
+    }
+
+    /**
+     * Captures the remaining sales and stops the capture timer.
+     */
+    @Override
+    public void close() {
+        flushCaptures();
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,86 @@
+package com.smartvending;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes the changes a {@link CatalogLoader} applied to a machine in one reload.
+ */
+public class CatalogDiff {
+    private final List<String> added;
+    private final List<String> updated;
+    private final List<String> removed;
+    private final long applyNanos;
+
+    CatalogDiff(List<String> added, List<String> updated, List<String> removed, long applyNanos) {
+        this.added = Collections.unmodifiableList(added);
+        this.updated = Collections.unmodifiableList(updated);
+        this.removed = Collections.unmodifiableList(removed);
+        this.applyNanos = applyNanos;
+    }
+
+    /**
+     * Gets the products that were added to the machine.
+     *
+     * @return the names of the added products
+     */
+    public List<String> getAdded() {
+        return added;
+    }
+
+    /**
+     * Gets the products whose price or category changed.
+     *
+     * @return the names of the updated products
+     */
+    public List<String> getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Gets the products that were removed from the machine.
+     *
+     * @return the names of the removed products
+     */
+    public List<String> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Gets the number of products changed.
+     *
+     * @return the number of added, updated and removed products
+     */
+    public int size() {
+        return added.size() + updated.size() + removed.size();
+    }
+
+    /**
+     * Checks whether the reload changed nothing.
+     *
+     * @return true if no product was added, updated or removed
+     */
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Gets how long the machine was locked while the changes were applied.
+     *
+     * @return the time in nanoseconds
+     */
+    public long getApplyNanos() {
+        return applyNanos;
+    }
+
+    /**
+     * Returns a string representation of the diff.
+     *
+     * @return a string containing the number of changes of each kind
+     */
+    @Override
+    public String toString() {
+        return String.format("CatalogDiff{added=%d, updated=%d, removed=%d}",
+                           added.size(), updated.size(), removed.size());
+    }
+}
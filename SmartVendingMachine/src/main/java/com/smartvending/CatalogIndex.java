@@ -0,0 +1,282 @@
+package com.smartvending;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Secondary index over the products of a vending machine, ordered by price.
+ * The index answers price-range queries, optionally within a category and
+ * limited to available products, without scanning the catalog. Products are
+ * kept in skip lists keyed by price and name, one for the whole catalog and
+ * one per category, each split into all and available products. A query
+ * walks a sub-map, so it costs O(log n + k) and its results are produced lazily.
+ * The index follows the machine's operations for added and removed products
+ * and each product's listener for price changes and for stock changes that
+ * make it available or unavailable; other stock changes cost nothing.
+ * Queries are weakly consistent while the catalog is being changed.
+ */
+public class CatalogIndex implements AutoCloseable {
+    private final VendingMachine machine;
+    private final PriceTree catalog = new PriceTree();
+    private final Map<String, PriceTree> categories = new ConcurrentHashMap<>();
+    private final Map<String, IndexedProduct> indexed = new ConcurrentHashMap<>();
+    private final Consumer<MachineOperation> operationListener = this::operationApplied;
+
+    /**
+     * Constructs a new CatalogIndex over the current and future products of a machine.
+     *
+     * @param machine the machine whose products are indexed
+     * @throws IllegalArgumentException if machine is null
+     */
+    public CatalogIndex(VendingMachine machine) {
+        if (machine == null) {
+            throw new IllegalArgumentException("Machine cannot be null");
+        }
+        this.machine = machine;
+        synchronized (machine) {
+            for (Product product : machine.getAllProducts()) {
+                index(product);
+            }
+            machine.addOperationListener(operationListener);
+        }
+    }
+
+    /**
+     * Finds the products whose price is at least min and below max, cheapest first.
+     *
+     * @param min the lowest price to include
+     * @param max the price to stay below
+     * @param availableOnly true to leave out products that are out of stock
+     * @return a lazy stream of the matching products
+     * @throws IllegalArgumentException if min is greater than max
+     */
+    public Stream<Product> findByPrice(double min, double max, boolean availableOnly) {
+        return catalog.range(min, max, availableOnly);
+    }
+
+    /**
+     * Finds the products of a category whose price is at least min and below max, cheapest first.
+     *
+     * @param category the category to search
+     * @param min the lowest price to include
+     * @param max the price to stay below
+     * @param availableOnly true to leave out products that are out of stock
+     * @return a lazy stream of the matching products, empty if the category is unknown
+     * @throws IllegalArgumentException if min is greater than max
+     */
+    public Stream<Product> findByPrice(String category, double min, double max, boolean availableOnly) {
+        PriceTree tree = categories.get(category);
+        if (tree == null) {
+            checkRange(min, max);
+            return Stream.empty();
+        }
+        return tree.range(min, max, availableOnly);
+    }
+
+    /**
+     * Gets the categories of the indexed products.
+     *
+     * @return a sorted set of the category names
+     */
+    public SortedSet<String> getCategories() {
+        return new TreeSet<>(categories.keySet());
+    }
+
+    /**
+     * Gets the number of indexed products.
+     *
+     * @return the product count
+     */
+    public int size() {
+        return indexed.size();
+    }
+
+    /**
+     * Stops following the machine and its products.
+     */
+    @Override
+    public void close() {
+        machine.removeOperationListener(operationListener);
+        for (IndexedProduct entry : indexed.values()) {
+            entry.product.removeProductListener(entry);
+        }
+        indexed.clear();
+    }
+
+    private void operationApplied(MachineOperation operation) {
+        switch (operation.getType()) {
+            case ADD_PRODUCT:
+            case SET_CATEGORY:
+                // Runs under the machine lock, so the product cannot be replaced meanwhile
+                Product product = machine.getProduct(operation.getProductName());
+                if (product != null) {
+                    unindex(product.getName());
+                    index(product);
+                }
+                break;
+            case REMOVE_PRODUCT:
+                unindex(operation.getProductName());
+                break;
+            case CLEAR_PRODUCTS:
+                for (String name : new ArrayList<>(indexed.keySet())) {
+                    unindex(name);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void index(Product product) {
+        IndexedProduct entry = new IndexedProduct(product);
+        // Registering and reading the price under the product lock keeps the entry in step with its listener
+        synchronized (product) {
+            product.addProductListener(entry);
+            entry.key = new PriceKey(product.getPrice(), product.getName());
+            entry.available = product.isAvailable();
+            indexed.put(product.getName(), entry);
+            for (PriceTree tree : entry.trees()) {
+                tree.put(entry.key, product, entry.available);
+            }
+        }
+    }
+
+    private void unindex(String productName) {
+        IndexedProduct entry = indexed.remove(productName);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry.product) {
+            entry.product.removeProductListener(entry);
+            for (PriceTree tree : entry.trees()) {
+                tree.remove(entry.key);
+            }
+        }
+    }
+
+    private static void checkRange(double min, double max) {
+        if (min > max) {
+            throw new IllegalArgumentException("Minimum price cannot be greater than maximum price");
+        }
+    }
+
+    /**
+     * An indexed product; also the listener that keeps its entries up to date.
+     * Callbacks run under the product lock, so updates of one product never interleave.
+     */
+    private final class IndexedProduct implements ProductListener {
+        private final Product product;
+        private final PriceTree categoryTree;
+        private PriceKey key;
+        private boolean available;
+
+        IndexedProduct(Product product) {
+            this.product = product;
+            String category = product.getCategory();
+            this.categoryTree = category == null ? null : categories.computeIfAbsent(category, name -> new PriceTree());
+        }
+
+        List<PriceTree> trees() {
+            return categoryTree == null ? Collections.singletonList(catalog) : Arrays.asList(catalog, categoryTree);
+        }
+
+        @Override
+        public void stockChanged(Product changed, int oldStock, int newStock) {
+            boolean nowAvailable = newStock > 0;
+            if (nowAvailable == available) {
+                return;
+            }
+            available = nowAvailable;
+            for (PriceTree tree : trees()) {
+                tree.setAvailable(key, product, nowAvailable);
+            }
+        }
+
+        @Override
+        public void priceChanged(Product changed, double oldPrice, double newPrice) {
+            PriceKey newKey = new PriceKey(newPrice, product.getName());
+            if (newKey.equals(key)) {
+                return;
+            }
+            for (PriceTree tree : trees()) {
+                tree.put(newKey, product, available);
+                tree.remove(key);
+            }
+            key = newKey;
+        }
+    }
+
+    /**
+     * The products of the catalog or of one category, ordered by price.
+     */
+    private static final class PriceTree {
+        private final ConcurrentSkipListMap<PriceKey, Product> all = new ConcurrentSkipListMap<>();
+        private final ConcurrentSkipListMap<PriceKey, Product> available = new ConcurrentSkipListMap<>();
+
+        void put(PriceKey key, Product product, boolean isAvailable) {
+            all.put(key, product);
+            if (isAvailable) {
+                available.put(key, product);
+            }
+        }
+
+        void remove(PriceKey key) {
+            all.remove(key);
+            available.remove(key);
+        }
+
+        void setAvailable(PriceKey key, Product product, boolean isAvailable) {
+            if (isAvailable) {
+                available.put(key, product);
+            } else {
+                available.remove(key);
+            }
+        }
+
+        Stream<Product> range(double min, double max, boolean availableOnly) {
+            checkRange(min, max);
+            // The empty name sorts before every product name, so these keys bound whole price points
+            PriceKey from = new PriceKey(min, "");
+            PriceKey to = new PriceKey(max, "");
+            ConcurrentNavigableMap<PriceKey, Product> source = availableOnly ? available : all;
+            return source.subMap(from, true, to, false).values().stream();
+        }
+    }
+
+    /**
+     * Orders products by price in cents, then by name.
+     */
+    private static final class PriceKey implements Comparable<PriceKey> {
+        private final long cents;
+        private final String name;
+
+        PriceKey(double price, String name) {
+            this.cents = Math.round(price * 100);
+            this.name = name;
+        }
+
+        @Override
+        public int compareTo(PriceKey other) {
+            int byPrice = Long.compare(cents, other.cents);
+            return byPrice != 0 ? byPrice : name.compareTo(other.name);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof PriceKey)) {
+                return false;
+            }
+            PriceKey key = (PriceKey) other;
+            return cents == key.cents && name.equals(key.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(cents) * 31 + name.hashCode();
+        }
+    }
+}
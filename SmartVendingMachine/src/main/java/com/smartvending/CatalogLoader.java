@@ -0,0 +1,342 @@
+package com.smartvending;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the products of a vending machine in line with a CSV catalog file.
+ * <p>
+ * Each line of the file holds {@code name,price,stock[,category]}; fields
+ * containing commas or quotes are quoted as in {@link TransactionExporter}.
+ * Blank lines, lines starting with {@code #} and a {@code name,...} header
+ * are ignored. The stock of a line is only used when the product is new to
+ * the machine; the stock of a product already in the machine is left alone.
+ * <p>
+ * The first reload makes the machine match the file. Later reloads compare
+ * every line with the line read for the same product last time and only
+ * parse and apply the lines that changed, so the machine is locked for a
+ * time proportional to the number of changes rather than the catalog size.
+ * A file that fails to parse changes nothing. Products that stay in the
+ * catalog are updated in place, so listeners registered on them keep working.
+ */
+public class CatalogLoader implements AutoCloseable {
+    /** Time to wait for further file events before reloading. */
+    static final long SETTLE_MILLIS = 50;
+
+    private static final String HEADER_PREFIX = "name,";
+
+    private final VendingMachine machine;
+    private final Path file;
+
+    // Guarded by this
+    private Map<String, String> lines = new HashMap<>();
+    private boolean loaded;
+    private int reloadCount;
+    private IOException lastError;
+    private WatchService watchService;
+    private Thread watcher;
+
+    /**
+     * A parsed catalog line.
+     */
+    private static final class Entry {
+        final String name;
+        final double price;
+        final int stock;
+        final String category;
+
+        Entry(String name, double price, int stock, String category) {
+            this.name = name;
+            this.price = price;
+            this.stock = stock;
+            this.category = category;
+        }
+    }
+
+    /**
+     * Constructs a new CatalogLoader. Nothing is loaded until {@link #reload()}
+     * or {@link #startWatching()} is called.
+     *
+     * @param machine the machine to keep in line with the file
+     * @param file the catalog file
+     * @throws IllegalArgumentException if machine or file is null
+     */
+    public CatalogLoader(VendingMachine machine, Path file) {
+        if (machine == null) {
+            throw new IllegalArgumentException("Machine cannot be null");
+        }
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        this.machine = machine;
+        this.file = file.toAbsolutePath();
+    }
+
+    /**
+     * Reads the catalog file and applies the products that changed since the
+     * last reload. The changes are applied while the machine is locked, so
+     * no vend sees half of them.
+     *
+     * @return the changes applied
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    public synchronized CatalogDiff reload() throws IOException {
+        Map<String, String> newLines = new HashMap<>(lines.size() * 4 / 3 + 16);
+        List<Entry> changed = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty() || line.startsWith("#")
+                        || (lineNumber == 1 && line.startsWith(HEADER_PREFIX))) {
+                    continue;
+                }
+                List<String> fields = parseFields(line, lineNumber);
+                // Products trim their names, so the machine knows the product by the trimmed name
+                String name = fields.get(0).trim();
+                if (newLines.put(name, line) != null) {
+                    throw new IOException("Line " + lineNumber + ": duplicate product " + name);
+                }
+                if (!line.equals(lines.get(name))) {
+                    changed.add(parseEntry(fields, lineNumber));
+                }
+            }
+        }
+
+        // Found before locking the machine, which is then held only for the removals themselves
+        List<String> gone = new ArrayList<>();
+        for (String name : loaded ? lines.keySet() : productNames()) {
+            if (!newLines.containsKey(name)) {
+                gone.add(name);
+            }
+        }
+
+        List<String> added = new ArrayList<>();
+        List<String> updated = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        long start = System.nanoTime();
+        synchronized (machine) {
+            for (String name : gone) {
+                if (machine.removeProduct(name) != null) {
+                    removed.add(name);
+                }
+            }
+            for (Entry entry : changed) {
+                Product live = machine.getProduct(entry.name);
+                if (live == null) {
+                    machine.addProduct(new Product(entry.name, entry.price, entry.stock, entry.category));
+                    added.add(entry.name);
+                    continue;
+                }
+                boolean update = false;
+                if (!Objects.equals(live.getCategory(), entry.category)) {
+                    machine.setCategory(entry.name, entry.category);
+                    update = true;
+                }
+                if (Math.round(live.getPrice() * 100) != Math.round(entry.price * 100)) {
+                    machine.setPrice(entry.name, entry.price);
+                    update = true;
+                }
+                if (update) {
+                    updated.add(entry.name);
+                }
+            }
+        }
+        long applyNanos = System.nanoTime() - start;
+
+        lines = newLines;
+        loaded = true;
+        reloadCount++;
+        return new CatalogDiff(added, updated, removed, applyNanos);
+    }
+
+    private List<String> productNames() {
+        List<String> names = new ArrayList<>();
+        for (Product product : machine.getAllProducts()) {
+            names.add(product.getName());
+        }
+        return names;
+    }
+
+    private static Entry parseEntry(List<String> fields, int lineNumber) throws IOException {
+        if (fields.size() < 3 || fields.size() > 4) {
+            throw new IOException("Line " + lineNumber + ": expected name,price,stock[,category]");
+        }
+        String name = fields.get(0).trim();
+        if (name.isEmpty()) {
+            throw new IOException("Line " + lineNumber + ": product name cannot be empty");
+        }
+        double price;
+        int stock;
+        try {
+            price = Double.parseDouble(fields.get(1).trim());
+            stock = Integer.parseInt(fields.get(2).trim());
+        } catch (NumberFormatException e) {
+            throw new IOException("Line " + lineNumber + ": " + e.getMessage(), e);
+        }
+        if (!(price >= 0) || Double.isInfinite(price)) {
+            throw new IOException("Line " + lineNumber + ": invalid price " + fields.get(1));
+        }
+        if (stock < 0) {
+            throw new IOException("Line " + lineNumber + ": stock cannot be negative");
+        }
+        String category = fields.size() == 4 && !fields.get(3).isEmpty() ? fields.get(3) : null;
+        return new Entry(name, price, stock, category);
+    }
+
+    private static List<String> parseFields(String line, int lineNumber) throws IOException {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            field.setLength(0);
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw new IOException("Line " + lineNumber + ": unterminated quote");
+                    }
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < line.length() && line.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+                if (i < line.length() && line.charAt(i) != ',') {
+                    throw new IOException("Line " + lineNumber + ": unexpected text after quoted field");
+                }
+            } else {
+                int comma = line.indexOf(',', i);
+                int end = comma < 0 ? line.length() : comma;
+                field.append(line, i, end);
+                i = end;
+            }
+            fields.add(field.toString());
+            if (i >= line.length()) {
+                return fields;
+            }
+            i++; // Skip the comma
+        }
+    }
+
+    /**
+     * Loads the catalog and reloads it whenever the file is created or
+     * modified. Reloads run on a background thread; a reload that fails
+     * leaves the machine unchanged and is reported by {@link #getLastError()}.
+     *
+     * @throws IOException if the file cannot be watched or the first load fails
+     * @throws IllegalStateException if the loader is already watching
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watchService != null) {
+            throw new IllegalStateException("Loader is already watching");
+        }
+        WatchService service = file.getFileSystem().newWatchService();
+        try {
+            file.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                                      StandardWatchEventKinds.ENTRY_MODIFY);
+            reload();
+        } catch (IOException e) {
+            service.close();
+            throw e;
+        }
+        watchService = service;
+        watcher = new Thread(() -> watch(service), "catalog-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watch(WatchService service) {
+        Path fileName = file.getFileName();
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                do {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        changed |= fileName.equals(event.context());
+                    }
+                    key.reset();
+                    // Editors write in several steps; reload once they settle
+                } while ((key = service.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+                if (changed) {
+                    try {
+                        reload();
+                        setLastError(null);
+                    } catch (IOException e) {
+                        setLastError(e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Closed
+        }
+    }
+
+    private synchronized void setLastError(IOException error) {
+        lastError = error;
+    }
+
+    /**
+     * Gets the error of the last background reload.
+     *
+     * @return the error, or null if the last background reload succeeded
+     */
+    public synchronized IOException getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Gets the number of successful reloads.
+     *
+     * @return the reload count
+     */
+    public synchronized int getReloadCount() {
+        return reloadCount;
+    }
+
+    /**
+     * Gets the number of products in the last catalog loaded.
+     *
+     * @return the catalog size
+     */
+    public synchronized int size() {
+        return lines.size();
+    }
+
+    /**
+     * Stops watching the file. The products stay in the machine.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        WatchService service;
+        Thread thread;
+        synchronized (this) {
+            service = watchService;
+            thread = watcher;
+            watchService = null;
+            watcher = null;
+        }
+        if (service != null) {
+            service.close();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
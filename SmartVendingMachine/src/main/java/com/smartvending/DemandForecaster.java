@@ -0,0 +1,238 @@
+package com.smartvending;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Forecasts product demand for a vending machine from its transactions.
+ * For every product the forecaster keeps an exponentially weighted moving
+ * average of the time between sales and a time-of-day profile of when sales
+ * happen. Both are updated in constant time per transaction, and are combined
+ * to predict when each product will run out of stock.
+ */
+public class DemandForecaster {
+    /** Default smoothing factor of the moving average. */
+    public static final double DEFAULT_ALPHA = 0.2;
+    /** How far ahead stockouts are predicted. */
+    public static final Duration HORIZON = Duration.ofDays(30);
+
+    private static final int HOURS_PER_DAY = 24;
+    // Hourly counts are halved once their total reaches this, so old days fade out
+    private static final double PROFILE_DECAY_THRESHOLD = 24 * 7 * 4;
+    // The profile is only trusted once this many sales have been seen
+    private static final double MIN_PROFILE_SAMPLES = 24;
+
+    private final VendingMachine machine;
+    private final double alpha;
+    private final Map<String, ProductDemand> demand = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new DemandForecaster for the given machine with the default smoothing factor.
+     *
+     * @param machine the machine to forecast
+     * @throws IllegalArgumentException if machine is null
+     */
+    public DemandForecaster(VendingMachine machine) {
+        this(machine, DEFAULT_ALPHA);
+    }
+
+    /**
+     * Constructs a new DemandForecaster for the given machine.
+     * The forecaster learns from the existing history and then listens for new transactions.
+     *
+     * @param machine the machine to forecast
+     * @param alpha the smoothing factor of the moving average, between 0 (exclusive) and 1 (inclusive)
+     * @throws IllegalArgumentException if machine is null or alpha is out of range
+     */
+    public DemandForecaster(VendingMachine machine, double alpha) {
+        if (machine == null) {
+            throw new IllegalArgumentException("Machine cannot be null");
+        }
+        if (alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("Alpha must be in (0, 1]");
+        }
+        this.machine = machine;
+        this.alpha = alpha;
+        // Replay and subscribe under the machine lock so no sale falls in between
+        synchronized (machine) {
+            for (Transaction transaction : machine.getTransactionHistory()) {
+                record(transaction);
+            }
+            machine.addTransactionListener(this::record);
+        }
+    }
+
+    /**
+     * Updates the forecast with a new transaction. A refund takes its sale
+     * back out of the time-of-day profile; the interval between sales is
+     * left as it was.
+     *
+     * @param transaction the transaction to learn from
+     * @throws IllegalArgumentException if transaction is null
+     */
+    public void record(Transaction transaction) {
+        if (transaction == null) {
+            throw new IllegalArgumentException("Transaction cannot be null");
+        }
+        if (transaction.isRefund()) {
+            Transaction sale = machine.getTransaction(transaction.getRefundedId());
+            ProductDemand productDemand = demand.get(transaction.getProductName());
+            if (sale != null && productDemand != null) {
+                productDemand.unrecord(sale.getDate());
+            }
+            return;
+        }
+        demand.computeIfAbsent(transaction.getProductName(), name -> new ProductDemand())
+              .record(transaction.getDate(), alpha);
+    }
+
+    /**
+     * Gets the expected number of sales per hour of a product at the given time.
+     *
+     * @param productName the name of the product
+     * @param time the time of day to forecast
+     * @return the expected sales per hour, or 0 if no demand has been observed
+     */
+    public double getHourlyRate(String productName, LocalDateTime time) {
+        ProductDemand productDemand = demand.get(productName);
+        return productDemand == null ? 0.0 : productDemand.hourlyRate(time.getHour());
+    }
+
+    /**
+     * Predicts when a product will run out of stock.
+     *
+     * @param productName the name of the product
+     * @param now the time to predict from
+     * @return the predicted stockout time, or null if the product is unknown, has
+     *         no observed demand, or is not expected to run out within the horizon
+     */
+    public LocalDateTime predictStockout(String productName, LocalDateTime now) {
+        Product product = machine.getProduct(productName);
+        if (product == null) {
+            return null;
+        }
+        return predictStockout(productName, product.getStock(), now);
+    }
+
+    /**
+     * Predicts when every product in the machine will run out of stock.
+     *
+     * @param now the time to predict from
+     * @return a list of predictions, one per product
+     */
+    public List<StockoutPrediction> predictStockouts(LocalDateTime now) {
+        List<StockoutPrediction> predictions = new ArrayList<>();
+        for (Product product : machine.getAllProducts()) {
+            int stock = product.getStock();
+            predictions.add(new StockoutPrediction(machine, product.getName(), stock,
+                    predictStockout(product.getName(), stock, now)));
+        }
+        return predictions;
+    }
+
+    /**
+     * Predicts stockouts across a fleet of machines in parallel.
+     *
+     * @param forecasters the forecasters of the machines in the fleet
+     * @param now the time to predict from
+     * @return a list of predictions for every product of every machine
+     */
+    public static List<StockoutPrediction> predictFleetStockouts(Collection<DemandForecaster> forecasters,
+                                                                  LocalDateTime now) {
+        return forecasters.parallelStream()
+                .flatMap(forecaster -> forecaster.predictStockouts(now).stream())
+                .collect(Collectors.toList());
+    }
+
+    private LocalDateTime predictStockout(String productName, int stock, LocalDateTime now) {
+        if (stock <= 0) {
+            return now;
+        }
+        ProductDemand productDemand = demand.get(productName);
+        if (productDemand == null) {
+            return null;
+        }
+        double[] rates = productDemand.hourlyRates();
+        double remaining = stock;
+        LocalDateTime time = now;
+        LocalDateTime end = now.plus(HORIZON);
+        while (time.isBefore(end)) {
+            LocalDateTime nextHour = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            double rate = rates[time.getHour()];
+            double hours = Duration.between(time, nextHour).toNanos() / 3_600_000_000_000.0;
+            double sold = rate * hours;
+            if (sold >= remaining) {
+                long nanos = (long) (remaining / rate * 3_600_000_000_000.0);
+                return time.plusNanos(nanos);
+            }
+            remaining -= sold;
+            time = nextHour;
+        }
+        return null;
+    }
+
+    /**
+     * Demand state of a single product.
+     */
+    private static final class ProductDemand {
+        private final double[] hourCounts = new double[HOURS_PER_DAY];
+        private double totalCount;
+        private double lastSaleSeconds = Double.NaN;
+        private double meanIntervalSeconds = Double.NaN;
+
+        synchronized void record(LocalDateTime date, double alpha) {
+            double seconds = date.toEpochSecond(ZoneOffset.UTC) + date.getNano() / 1e9;
+            if (!Double.isNaN(lastSaleSeconds)) {
+                double interval = Math.max(seconds - lastSaleSeconds, 0.0);
+                meanIntervalSeconds = Double.isNaN(meanIntervalSeconds)
+                        ? interval
+                        : alpha * interval + (1 - alpha) * meanIntervalSeconds;
+            }
+            lastSaleSeconds = Math.max(seconds, Double.isNaN(lastSaleSeconds) ? seconds : lastSaleSeconds);
+            hourCounts[date.getHour()]++;
+            totalCount++;
+            if (totalCount >= PROFILE_DECAY_THRESHOLD) {
+                for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+                    hourCounts[hour] /= 2;
+                }
+                totalCount /= 2;
+            }
+        }
+
+        synchronized void unrecord(LocalDateTime date) {
+            // Decay may already have halved the sale away
+            int hour = date.getHour();
+            double removed = Math.min(hourCounts[hour], 1.0);
+            hourCounts[hour] -= removed;
+            totalCount -= removed;
+        }
+
+        synchronized double hourlyRate(int hour) {
+            if (Double.isNaN(meanIntervalSeconds)) {
+                return 0.0;
+            }
+            double baseRate = 3600.0 / Math.max(meanIntervalSeconds, 1.0);
+            return baseRate * seasonalIndex(hour);
+        }
+
+        synchronized double[] hourlyRates() {
+            double[] rates = new double[HOURS_PER_DAY];
+            for (int hour = 0; hour < HOURS_PER_DAY; hour++) {
+                rates[hour] = hourlyRate(hour);
+            }
+            return rates;
+        }
+
+        private double seasonalIndex(int hour) {
+            if (totalCount < MIN_PROFILE_SAMPLES) {
+                return 1.0;
+            }
+            return hourCounts[hour] / totalCount * HOURS_PER_DAY;
+        }
+    }
+}
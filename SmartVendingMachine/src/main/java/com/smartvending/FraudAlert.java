@@ -0,0 +1,86 @@
+package com.smartvending;
+
+import java.time.Instant;
+
+/**
+ * Represents suspicious activity detected by a {@link FraudDetector}.
+ */
+public class FraudAlert {
+
+    /**
+     * The kinds of suspicious activity.
+     */
+    public enum Type {
+        /** Cash was inserted and returned without a purchase too often, as when testing bills. */
+        CASH_CYCLING,
+        /** Product selections failed too often, as when probing the machine. */
+        FAILED_SELECTIONS
+    }
+
+    private final Type type;
+    private final long count;
+    private final Instant time;
+    private final Instant suspendedUntil;
+
+    /**
+     * Constructs a new FraudAlert.
+     *
+     * @param type the kind of activity
+     * @param count the number of suspicious events in the detection window
+     * @param time when the activity was detected
+     * @param suspendedUntil when the suspended operation is accepted again
+     */
+    public FraudAlert(Type type, long count, Instant time, Instant suspendedUntil) {
+        this.type = type;
+        this.count = count;
+        this.time = time;
+        this.suspendedUntil = suspendedUntil;
+    }
+
+    /**
+     * Gets the kind of activity.
+     *
+     * @return the alert type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the number of suspicious events in the detection window.
+     *
+     * @return the event count
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Gets when the activity was detected.
+     *
+     * @return the detection time
+     */
+    public Instant getTime() {
+        return time;
+    }
+
+    /**
+     * Gets when the suspended operation is accepted again.
+     *
+     * @return the end of the suspension
+     */
+    public Instant getSuspendedUntil() {
+        return suspendedUntil;
+    }
+
+    /**
+     * Returns a string representation of the alert.
+     *
+     * @return a string containing the alert type, count and times
+     */
+    @Override
+    public String toString() {
+        return String.format("FraudAlert{type=%s, count=%d, time=%s, suspendedUntil=%s}",
+                           type, count, time, suspendedUntil);
+    }
+}
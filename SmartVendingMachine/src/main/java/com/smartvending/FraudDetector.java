@@ -0,0 +1,241 @@
+package com.smartvending;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * Detects cash cycling and selection probing on a vending machine and
+ * throttles them inline.
+ * <p>
+ * Every inserted payment that is handed back by {@link VendingMachine#getChange()}
+ * without a purchase counts as a cash cycle. When more than {@code maxCashCycles}
+ * cycles happen within the window, cash is refused for the cooldown. Failed
+ * product selections take a token from a {@link TokenBucket}; when the bucket
+ * runs dry, selections are refused for the cooldown. Each suspension raises a
+ * {@link FraudAlert}.
+ * <p>
+ * All state is held in atomics, so a detector can be shared by several
+ * machines to throttle them together. While nothing is suspended, a
+ * legitimate insert or selection costs one volatile read.
+ */
+public class FraudDetector {
+    /** Default number of cash cycles tolerated within the window. */
+    public static final int DEFAULT_MAX_CASH_CYCLES = 5;
+    /** Default length of the cash cycling window. */
+    public static final Duration DEFAULT_WINDOW = Duration.ofMinutes(1);
+    /** Default number of failed selections tolerated in a burst. */
+    public static final int DEFAULT_FAILED_SELECTION_BURST = 5;
+    /** Default number of failed selections tolerated per second after a burst. */
+    public static final double DEFAULT_FAILED_SELECTION_RATE = 0.2;
+    /** Default time an operation is refused after suspicious activity. */
+    public static final Duration DEFAULT_COOLDOWN = Duration.ofMinutes(2);
+
+    private static final int WINDOW_BUCKETS = 12;
+
+    private final Clock clock;
+    private final int maxCashCycles;
+    private final long cooldownMillis;
+    private final SlidingWindowCounter cashCycles;
+    private final SlidingWindowCounter failedSelections;
+    private final TokenBucket selectionFailures;
+    private final AtomicLongArray alertCounts = new AtomicLongArray(FraudAlert.Type.values().length);
+    private final List<Consumer<FraudAlert>> listeners = new CopyOnWriteArrayList<>();
+    // Zero while never suspended, so the fast path skips reading the clock
+    private volatile long cashSuspendedUntil;
+    private volatile long selectionSuspendedUntil;
+
+    /**
+     * Constructs a new FraudDetector with the default limits.
+     *
+     * @param clock the clock used to time events
+     * @throws IllegalArgumentException if clock is null
+     */
+    public FraudDetector(Clock clock) {
+        this(clock, DEFAULT_MAX_CASH_CYCLES, DEFAULT_WINDOW, DEFAULT_FAILED_SELECTION_BURST,
+             DEFAULT_FAILED_SELECTION_RATE, DEFAULT_COOLDOWN);
+    }
+
+    /**
+     * Constructs a new FraudDetector.
+     *
+     * @param clock the clock used to time events
+     * @param maxCashCycles the number of cash cycles tolerated within the window (must not be negative)
+     * @param window the length of the cash cycling window (at least 12 milliseconds)
+     * @param failedSelectionBurst the number of failed selections tolerated in a burst (must be positive)
+     * @param failedSelectionRate the failed selections tolerated per second after a burst (must be positive)
+     * @param cooldown the time an operation is refused after suspicious activity (must be positive)
+     * @throws IllegalArgumentException if clock is null or a limit is out of range
+     */
+    public FraudDetector(Clock clock, int maxCashCycles, Duration window, int failedSelectionBurst,
+                         double failedSelectionRate, Duration cooldown) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null");
+        }
+        if (maxCashCycles < 0) {
+            throw new IllegalArgumentException("Maximum cash cycles cannot be negative");
+        }
+        if (cooldown == null || cooldown.isNegative() || cooldown.isZero()) {
+            throw new IllegalArgumentException("Cooldown must be positive");
+        }
+        this.clock = clock;
+        this.maxCashCycles = maxCashCycles;
+        this.cooldownMillis = cooldown.toMillis();
+        this.cashCycles = new SlidingWindowCounter(window, WINDOW_BUCKETS);
+        this.failedSelections = new SlidingWindowCounter(window, WINDOW_BUCKETS);
+        this.selectionFailures = new TokenBucket(failedSelectionRate, failedSelectionBurst);
+    }
+
+    /**
+     * Refuses cash while cash cycling is suspended.
+     *
+     * @throws IllegalStateException if cash is suspended
+     */
+    void checkInsertMoney() {
+        long until = cashSuspendedUntil;
+        if (until != 0 && clock.millis() < until) {
+            throw new IllegalStateException("Cash is not accepted until " + Instant.ofEpochMilli(until));
+        }
+    }
+
+    /**
+     * Refuses selections while selection probing is suspended.
+     *
+     * @throws IllegalStateException if selections are suspended
+     */
+    void checkSelection() {
+        long until = selectionSuspendedUntil;
+        if (until != 0 && clock.millis() < until) {
+            throw new IllegalStateException("Selections are not accepted until " + Instant.ofEpochMilli(until));
+        }
+    }
+
+    /**
+     * Records cash handed back without a purchase.
+     *
+     * @param payments the number of payments inserted since the last purchase or refund
+     */
+    void cashReturned(int payments) {
+        if (payments <= 0) {
+            return;
+        }
+        long now = clock.millis();
+        cashCycles.add(now, payments);
+        long count = cashCycles.sum(now);
+        if (count > maxCashCycles && now >= cashSuspendedUntil) {
+            cashSuspendedUntil = now + cooldownMillis;
+            alert(FraudAlert.Type.CASH_CYCLING, count, now, now + cooldownMillis);
+        }
+    }
+
+    /**
+     * Records a failed product selection.
+     */
+    void selectionFailed() {
+        long now = clock.millis();
+        failedSelections.add(now, 1);
+        if (!selectionFailures.tryAcquire(now * 1_000_000L) && now >= selectionSuspendedUntil) {
+            selectionSuspendedUntil = now + cooldownMillis;
+            alert(FraudAlert.Type.FAILED_SELECTIONS, failedSelections.sum(now), now, now + cooldownMillis);
+        }
+    }
+
+    private void alert(FraudAlert.Type type, long count, long now, long until) {
+        alertCounts.incrementAndGet(type.ordinal());
+        FraudAlert alert = new FraudAlert(type, count, Instant.ofEpochMilli(now), Instant.ofEpochMilli(until));
+        for (Consumer<FraudAlert> listener : listeners) {
+            listener.accept(alert);
+        }
+    }
+
+    /**
+     * Registers a listener that is called with every alert. Listeners run on
+     * the thread that triggered the alert, usually while a machine is locked,
+     * so they should return quickly.
+     *
+     * @param listener the listener to add
+     * @throws IllegalArgumentException if listener is null
+     */
+    public void addAlertListener(Consumer<FraudAlert> listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters an alert listener.
+     *
+     * @param listener the listener to remove
+     * @return true if the listener was registered
+     */
+    public boolean removeAlertListener(Consumer<FraudAlert> listener) {
+        return listeners.remove(listener);
+    }
+
+    /**
+     * Checks whether cash is currently refused.
+     *
+     * @return true if cash is suspended
+     */
+    public boolean isCashSuspended() {
+        return clock.millis() < cashSuspendedUntil;
+    }
+
+    /**
+     * Checks whether selections are currently refused.
+     *
+     * @return true if selections are suspended
+     */
+    public boolean isSelectionSuspended() {
+        return clock.millis() < selectionSuspendedUntil;
+    }
+
+    /**
+     * Gets the number of cash cycles within the window.
+     *
+     * @return the cash cycle count
+     */
+    public long getCashCycleCount() {
+        return cashCycles.sum(clock.millis());
+    }
+
+    /**
+     * Gets the number of failed selections within the window.
+     *
+     * @return the failed selection count
+     */
+    public long getFailedSelectionCount() {
+        return failedSelections.sum(clock.millis());
+    }
+
+    /**
+     * Gets the number of alerts raised of a kind.
+     *
+     * @param type the kind of alert
+     * @return the alert count
+     * @throws IllegalArgumentException if type is null
+     */
+    public long getAlertCount(FraudAlert.Type type) {
+        if (type == null) {
+            throw new IllegalArgumentException("Alert type cannot be null");
+        }
+        return alertCounts.get(type.ordinal());
+    }
+
+    /**
+     * Lifts any suspension and forgets the counted events, for example after
+     * an operator has inspected the machine. Alert counts are kept.
+     */
+    public void reset() {
+        cashSuspendedUntil = 0;
+        selectionSuspendedUntil = 0;
+        cashCycles.clear();
+        failedSelections.clear();
+        selectionFailures.reset();
+    }
+}
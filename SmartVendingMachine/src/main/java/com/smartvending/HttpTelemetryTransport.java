@@ -0,0 +1,60 @@
+package com.smartvending;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+/**
+ * Uploads telemetry frames with an HTTP POST each.
+ * Any response other than 2xx counts as a failed delivery.
+ */
+public class HttpTelemetryTransport implements TelemetryTransport {
+    /** Content type of the uploaded frames. */
+    public static final String CONTENT_TYPE = "application/x-vending-telemetry";
+
+    private final HttpClient client;
+    private final URI endpoint;
+    private final Duration timeout;
+
+    /**
+     * Constructs a new HttpTelemetryTransport.
+     *
+     * @param endpoint the URI frames are posted to
+     * @param timeout the longest time to wait for a connection or a response (must be positive)
+     * @throws IllegalArgumentException if endpoint is null or timeout is null or not positive
+     */
+    public HttpTelemetryTransport(URI endpoint, Duration timeout) {
+        if (endpoint == null) {
+            throw new IllegalArgumentException("Endpoint cannot be null");
+        }
+        if (timeout == null || timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("Timeout must be positive");
+        }
+        this.endpoint = endpoint;
+        this.timeout = timeout;
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public void send(byte[] frame) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .timeout(timeout)
+                .header("Content-Type", CONTENT_TYPE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(frame))
+                .build();
+        HttpResponse<Void> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while uploading telemetry");
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Telemetry upload failed with HTTP status " + response.statusCode());
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.smartvending;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Drives one or more vending machines with synthetic customer traffic in virtual time.
+ * Every machine is fed by its own arrival process. Events are processed in
+ * time order on the calling thread, and all randomness comes from generators
+ * derived from the seed, so two runs with the same seed and configuration
+ * produce the same sequence of purchases.
+ */
+public class LoadSimulator {
+    // Offsets from the price that a simulated customer inserts, in dollars
+    private static final double[] AMOUNT_OFFSETS = {-0.50, -0.25, 0.0, 0.0, 0.25, 0.50, 1.00};
+    private static final double DEFAULT_AMOUNT = 1.00;
+
+    private final long seed;
+    private final Instant start;
+    private final VirtualClock clock;
+    private final List<Source> sources = new ArrayList<>();
+    private int machinesCreated;
+    private boolean finished;
+
+    /**
+     * Constructs a new LoadSimulator.
+     *
+     * @param seed the seed of all random choices
+     * @param start the virtual time at which the simulation starts
+     * @throws IllegalArgumentException if start is null
+     */
+    public LoadSimulator(long seed, Instant start) {
+        if (start == null) {
+            throw new IllegalArgumentException("Start cannot be null");
+        }
+        this.seed = seed;
+        this.start = start;
+        this.clock = new VirtualClock(start);
+    }
+
+    /**
+     * Gets the virtual clock of the simulation.
+     * Machines should be created with this clock so their transactions carry virtual time.
+     *
+     * @return the virtual clock
+     */
+    public VirtualClock getClock() {
+        return clock;
+    }
+
+    /**
+     * Creates a new empty machine that runs on the virtual clock.
+     * Each machine gets its own id generator on the virtual clock, so transaction
+     * ids are reproducible as well.
+     *
+     * @return the new machine
+     */
+    public VendingMachine newMachine() {
+        int nodeId = machinesCreated++ % (TransactionIdGenerator.MAX_NODE_ID + 1);
+        return new VendingMachine(clock, new TransactionIdGenerator(nodeId, clock));
+    }
+
+    /**
+     * Adds a machine to the simulation.
+     *
+     * @param machine the machine to drive
+     * @param arrivals the customer arrivals for the machine
+     * @throws IllegalArgumentException if machine or arrivals is null
+     * @throws IllegalStateException if the simulation has already run
+     */
+    public void addMachine(VendingMachine machine, ArrivalProcess arrivals) {
+        if (machine == null || arrivals == null) {
+            throw new IllegalArgumentException("Machine and arrivals cannot be null");
+        }
+        if (finished) {
+            throw new IllegalStateException("Simulation has already run");
+        }
+        int index = sources.size();
+        sources.add(new Source(index, machine, arrivals, new Random(seed * 0x9E3779B97F4A7C15L + index)));
+    }
+
+    /**
+     * Runs the simulation.
+     *
+     * @param duration the virtual time to simulate
+     * @return a report of the run
+     * @throws IllegalArgumentException if duration is null or negative
+     * @throws IllegalStateException if the simulation has already run
+     */
+    public SimulationReport run(Duration duration) {
+        if (duration == null || duration.isNegative()) {
+            throw new IllegalArgumentException("Duration cannot be null or negative");
+        }
+        if (finished) {
+            throw new IllegalStateException("Simulation has already run");
+        }
+        finished = true;
+
+        long endNanos = duration.toNanos();
+        PriorityQueue<Source> queue = new PriorityQueue<>(
+                Comparator.comparingLong((Source source) -> source.nextNanos).thenComparingInt(source -> source.index));
+        for (Source source : sources) {
+            source.productNames = new ArrayList<>();
+            for (Product product : source.machine.getAllProducts()) {
+                source.productNames.add(product.getName());
+            }
+            Collections.sort(source.productNames);
+            if (source.advance(0L)) {
+                queue.add(source);
+            }
+        }
+
+        Counters counters = new Counters();
+        while (!queue.isEmpty()) {
+            Source source = queue.poll();
+            if (source.nextNanos > endNanos) {
+                break;
+            }
+            clock.setInstant(start.plusNanos(source.nextNanos));
+            serve(source, counters);
+            if (source.advance(source.nextNanos)) {
+                queue.add(source);
+            }
+        }
+        clock.setInstant(start.plusNanos(endNanos));
+        return new SimulationReport(counters.arrivals, counters.sales, counters.outOfStock,
+                counters.insufficientFunds, counters.notFound, counters.revenueCents / 100.0,
+                endNanos / 1e9, Arrays.copyOf(counters.latencies, (int) counters.arrivals));
+    }
+
+    private void serve(Source source, Counters counters) {
+        Arrival arrival = source.pending;
+        String productName = arrival.getProductName();
+        if (productName == null) {
+            productName = source.productNames.isEmpty() ? "" : source.productNames.get(
+                    source.random.nextInt(source.productNames.size()));
+        }
+        double amount = arrival.getAmount();
+        if (amount <= 0) {
+            amount = chooseAmount(source, productName);
+        }
+
+        long begin = System.nanoTime();
+        source.machine.insertMoney(amount);
+        try {
+            Transaction transaction = source.machine.selectProduct(productName);
+            counters.sales++;
+            counters.revenueCents += Math.round(transaction.getAmountPaid() * 100.0);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            classify(e, counters);
+            source.machine.getChange();
+        }
+        counters.recordLatency(System.nanoTime() - begin);
+    }
+
+    private static double chooseAmount(Source source, String productName) {
+        double offset = AMOUNT_OFFSETS[source.random.nextInt(AMOUNT_OFFSETS.length)];
+        Product product = source.machine.getProduct(productName);
+        if (product == null) {
+            return DEFAULT_AMOUNT;
+        }
+        // Round to whole quarters as a coin-fed customer would
+        double amount = Math.round((product.getPrice() + offset) * 4.0) / 4.0;
+        return Math.max(0.25, amount);
+    }
+
+    private static void classify(RuntimeException e, Counters counters) {
+        String message = e.getMessage() == null ? "" : e.getMessage();
+        if (message.startsWith("Product is out of stock")) {
+            counters.outOfStock++;
+        } else if (message.startsWith("Insufficient funds")) {
+            counters.insufficientFunds++;
+        } else {
+            counters.notFound++;
+        }
+    }
+
+    /**
+     * A machine together with its arrival stream and random generator.
+     */
+    private static final class Source {
+        private final int index;
+        private final VendingMachine machine;
+        private final ArrivalProcess arrivals;
+        private final Random random;
+        private List<String> productNames;
+        private Arrival pending;
+        private long nextNanos;
+
+        Source(int index, VendingMachine machine, ArrivalProcess arrivals, Random random) {
+            this.index = index;
+            this.machine = machine;
+            this.arrivals = arrivals;
+            this.random = random;
+        }
+
+        boolean advance(long fromNanos) {
+            pending = arrivals.next(random);
+            if (pending == null) {
+                return false;
+            }
+            nextNanos = fromNanos + (long) (pending.getDelaySeconds() * 1e9);
+            return true;
+        }
+    }
+
+    /**
+     * Running totals of a simulation.
+     */
+    private static final class Counters {
+        private long arrivals;
+        private long sales;
+        private long outOfStock;
+        private long insufficientFunds;
+        private long notFound;
+        private long revenueCents;
+        private long[] latencies = new long[1024];
+
+        void recordLatency(long nanos) {
+            if (arrivals == latencies.length) {
+                latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            }
+            latencies[(int) arrivals++] = nanos;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.smartvending;
+
+import java.time.LocalDate;
+
+/**
+ * Represents a batch of units of a product that share an expiry date.
+ * Lot quantities are maintained by the owning {@link LotTracker}.
+ */
+public class Lot {
+    private final String productName;
+    private final LocalDate expiry;
+    private int quantity;
+
+    /**
+     * Constructs a new Lot.
+     *
+     * @param productName the name of the product
+     * @param quantity the number of units in the lot (must be positive)
+     * @param expiry the last day the units may be sold
+     * @throws IllegalArgumentException if productName or expiry is null or quantity is not positive
+     */
+    public Lot(String productName, int quantity, LocalDate expiry) {
+        if (productName == null) {
+            throw new IllegalArgumentException("Product name cannot be null");
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Lot quantity must be positive");
+        }
+        if (expiry == null) {
+            throw new IllegalArgumentException("Expiry cannot be null");
+        }
+        this.productName = productName;
+        this.quantity = quantity;
+        this.expiry = expiry;
+    }
+
+    /**
+     * Gets the name of the product.
+     *
+     * @return the product name
+     */
+    public String getProductName() {
+        return productName;
+    }
+
+    /**
+     * Gets the last day the units may be sold.
+     *
+     * @return the expiry date
+     */
+    public LocalDate getExpiry() {
+        return expiry;
+    }
+
+    /**
+     * Gets the number of units left in the lot.
+     *
+     * @return the quantity
+     */
+    public synchronized int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Checks whether the lot has expired on a given day.
+     *
+     * @param today the current day
+     * @return true if the expiry date is before today, false otherwise
+     */
+    public boolean isExpired(LocalDate today) {
+        return expiry.isBefore(today);
+    }
+
+    synchronized int take(int units) {
+        int taken = Math.min(units, quantity);
+        quantity -= taken;
+        return taken;
+    }
+
+    /**
+     * Returns a string representation of the lot.
+     *
+     * @return a string containing the product, quantity and expiry date
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("Lot{product='%s', quantity=%d, expiry=%s}", productName, quantity, expiry);
+    }
+}
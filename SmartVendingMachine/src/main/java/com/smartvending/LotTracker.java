@@ -0,0 +1,313 @@
+package com.smartvending;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks the lots and expiry dates of the products in a vending machine.
+ * Each tracked product keeps its lots in a priority queue ordered by expiry,
+ * and sales consume the lot that expires first, so a vend costs O(log lots).
+ * Units that entered the machine without a lot, such as the stock a product
+ * had when tracking started, are undated and sold after all dated lots.
+ * The tracker attaches itself to the machine, which writes a product's
+ * expired lots off before selling it; that check peeks at the first lot to
+ * expire, so it adds O(log lots) to a vend. An optional background sweeper
+ * writes expired lots off the machine, one write-off per product and sweep.
+ */
+public class LotTracker {
+    private static final Comparator<Lot> BY_EXPIRY = Comparator.comparing(Lot::getExpiry);
+
+    private final VendingMachine machine;
+    private final Clock clock;
+    private final Map<String, ProductLots> lotsByProduct = new ConcurrentHashMap<>();
+    // Set while receive() restocks a product, so the listener records the new lot
+    private final ThreadLocal<LocalDate> receivingExpiry = new ThreadLocal<>();
+    // Set while sweep() writes stock off, so the listener leaves the lots alone
+    private final ThreadLocal<Boolean> writingOff = new ThreadLocal<>();
+    private ScheduledThreadPoolExecutor sweeper;
+
+    /**
+     * Constructs a new LotTracker that tells the date with the system clock.
+     *
+     * @param machine the machine whose products are tracked
+     * @throws IllegalArgumentException if machine is null
+     */
+    public LotTracker(VendingMachine machine) {
+        this(machine, Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructs a new LotTracker.
+     *
+     * @param machine the machine whose products are tracked
+     * @param clock the clock that tells the current date
+     * @throws IllegalArgumentException if machine or clock is null
+     */
+    public LotTracker(VendingMachine machine, Clock clock) {
+        if (machine == null || clock == null) {
+            throw new IllegalArgumentException("Machine and clock cannot be null");
+        }
+        this.machine = machine;
+        this.clock = clock;
+        machine.setLotTracker(this);
+    }
+
+    /**
+     * Restocks a product with a lot of units that share an expiry date.
+     *
+     * @param productName the name of the product
+     * @param quantity the number of units received (must be positive)
+     * @param expiry the last day the units may be sold
+     * @throws IllegalStateException if the product is not found
+     * @throws IllegalArgumentException if expiry is null or quantity is not positive
+     */
+    public void receive(String productName, int quantity, LocalDate expiry) {
+        if (expiry == null) {
+            throw new IllegalArgumentException("Expiry cannot be null");
+        }
+        track(productName);
+        receivingExpiry.set(expiry);
+        try {
+            machine.restock(productName, quantity);
+        } finally {
+            receivingExpiry.remove();
+        }
+    }
+
+    /**
+     * Starts tracking a product. Its current stock is recorded as undated.
+     * Tracking a product twice has no effect.
+     *
+     * @param productName the name of the product
+     * @throws IllegalStateException if the product is not found
+     */
+    public void track(String productName) {
+        Product product = machine.getProduct(productName);
+        if (product == null) {
+            throw new IllegalStateException("Product not found: " + productName);
+        }
+        lotsByProduct.compute(product.getName(), (name, existing) -> {
+            if (existing != null && existing.product == product) {
+                return existing;
+            }
+            if (existing != null) {
+                // The product was replaced since it was tracked
+                existing.product.removeProductListener(existing);
+            }
+            ProductLots created = new ProductLots(product);
+            product.addProductListener(created);
+            return created;
+        });
+    }
+
+    /**
+     * Gets the lots of a product, the first to expire first.
+     *
+     * @param productName the name of the product
+     * @return a list of the product's lots, empty if it is not tracked
+     */
+    public List<Lot> getLots(String productName) {
+        ProductLots lots = lotsByProduct.get(productName);
+        return lots == null ? new ArrayList<>() : lots.sortedLots();
+    }
+
+    /**
+     * Gets the number of units of a product that are not part of a lot.
+     *
+     * @param productName the name of the product
+     * @return the undated stock, or 0 if the product is not tracked
+     */
+    public int getUndatedStock(String productName) {
+        ProductLots lots = lotsByProduct.get(productName);
+        return lots == null ? 0 : lots.getUndated();
+    }
+
+    /**
+     * Gets the expired units that are still in the machine, per product.
+     *
+     * @return a map from product name to expired units; products without expired units are left out
+     */
+    public Map<String, Integer> getExpiredStock() {
+        LocalDate today = LocalDate.now(clock);
+        Map<String, Integer> expired = new HashMap<>();
+        for (Map.Entry<String, ProductLots> entry : lotsByProduct.entrySet()) {
+            int units = entry.getValue().expiredUnits(today);
+            if (units > 0) {
+                expired.put(entry.getKey(), units);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Writes every expired lot off the machine.
+     *
+     * @return the number of units written off
+     */
+    public int sweep() {
+        LocalDate today = LocalDate.now(clock);
+        int total = 0;
+        for (Map.Entry<String, ProductLots> entry : lotsByProduct.entrySet()) {
+            ProductLots lots = entry.getValue();
+            // Pop and write off under the machine lock, so no vend can take the units in between
+            synchronized (machine) {
+                Product product = machine.getProduct(entry.getKey());
+                if (product != lots.product) {
+                    // The product was removed or replaced; its lots went with it
+                    lots.product.removeProductListener(lots);
+                    lotsByProduct.remove(entry.getKey(), lots);
+                    continue;
+                }
+                total += writeOff(product, lots.removeExpired(today));
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Writes the expired lots of a product off before it is sold.
+     * Called by the machine with its lock held.
+     */
+    void expireBeforeSale(Product product) {
+        ProductLots lots = lotsByProduct.get(product.getName());
+        if (lots != null && lots.product == product) {
+            writeOff(product, lots.removeExpired(LocalDate.now(clock)));
+        }
+    }
+
+    // Called with the machine lock held
+    private int writeOff(Product product, int units) {
+        units = Math.min(units, product.getStock());
+        if (units == 0) {
+            return 0;
+        }
+        writingOff.set(Boolean.TRUE);
+        try {
+            machine.writeOffStock(product.getName(), units);
+        } finally {
+            writingOff.remove();
+        }
+        return units;
+    }
+
+    /**
+     * Starts sweeping expired lots in the background.
+     *
+     * @param interval the time between two sweeps (must be positive)
+     * @throws IllegalArgumentException if interval is null or not positive
+     * @throws IllegalStateException if the sweeper is already running
+     */
+    public synchronized void startSweeper(Duration interval) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        if (sweeper != null) {
+            throw new IllegalStateException("Sweeper is already running");
+        }
+        sweeper = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "lot-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = interval.toNanos();
+        sweeper.scheduleWithFixedDelay(this::sweep, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops the background sweeper, if it is running.
+     */
+    public synchronized void shutdown() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            sweeper = null;
+        }
+    }
+
+    /**
+     * Reports the expired units still in a fleet of machines, per product.
+     * The trackers are inspected in parallel.
+     *
+     * @param trackers the trackers of the machines in the fleet
+     * @return a map from product name to expired units across the fleet
+     */
+    public static Map<String, Integer> fleetExpiredStock(Collection<LotTracker> trackers) {
+        return trackers.parallelStream()
+                .flatMap(tracker -> tracker.getExpiredStock().entrySet().stream())
+                .collect(Collectors.toConcurrentMap(Map.Entry::getKey, Map.Entry::getValue, Integer::sum));
+    }
+
+    /**
+     * The lots of one product; also the listener that follows its stock.
+     */
+    private final class ProductLots implements ProductListener {
+        private final PriorityQueue<Lot> lots = new PriorityQueue<>(BY_EXPIRY);
+        private final Product product;
+        private final String productName;
+        private int undated;
+
+        ProductLots(Product product) {
+            this.product = product;
+            this.productName = product.getName();
+            this.undated = product.getStock();
+        }
+
+        synchronized List<Lot> sortedLots() {
+            List<Lot> sorted = new ArrayList<>(lots);
+            sorted.sort(BY_EXPIRY);
+            return sorted;
+        }
+
+        synchronized int getUndated() {
+            return undated;
+        }
+
+        synchronized int expiredUnits(LocalDate today) {
+            int units = 0;
+            for (Lot lot : lots) {
+                if (lot.isExpired(today)) {
+                    units += lot.getQuantity();
+                }
+            }
+            return units;
+        }
+
+        synchronized int removeExpired(LocalDate today) {
+            int units = 0;
+            while (!lots.isEmpty() && lots.peek().isExpired(today)) {
+                units += lots.poll().getQuantity();
+            }
+            return units;
+        }
+
+        @Override
+        public synchronized void stockChanged(Product product, int oldStock, int newStock) {
+            if (newStock > oldStock) {
+                LocalDate expiry = receivingExpiry.get();
+                if (expiry != null) {
+                    lots.add(new Lot(productName, newStock - oldStock, expiry));
+                } else {
+                    undated += newStock - oldStock;
+                }
+            } else if (writingOff.get() == null) {
+                consume(oldStock - newStock);
+            }
+        }
+
+        private void consume(int units) {
+            while (units > 0 && !lots.isEmpty()) {
+                Lot oldest = lots.peek();
+                units -= oldest.take(units);
+                if (oldest.getQuantity() == 0) {
+                    lots.poll();
+                }
+            }
+            undated = Math.max(0, undated - units);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.smartvending;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Represents a state-changing operation applied to a vending machine.
+ * Machines publish an operation after every successful state change, in the
+ * order the changes were applied, so that applying the same operations to
+ * another machine reproduces its state.
+ */
+public class MachineOperation {
+
+    /**
+     * The kinds of state-changing operation.
+     */
+    public enum Type {
+        /** A product was added; amount is its price, quantity its stock and category its category. */
+        ADD_PRODUCT,
+        /** A product was removed. */
+        REMOVE_PRODUCT,
+        /** All products were removed. */
+        CLEAR_PRODUCTS,
+        /** Money was inserted; amount is the money inserted. */
+        INSERT_MONEY,
+        /** A product was sold; the transaction describes the sale. */
+        SELECT_PRODUCT,
+        /** The balance was returned; amount is the change returned. */
+        GET_CHANGE,
+        /** A product was restocked; quantity is the amount added. */
+        RESTOCK,
+        /** A product was repriced; amount is the new price. */
+        SET_PRICE,
+        /** A product was sold against an external payment; the balance is untouched. */
+        PREPAID_SALE,
+        /** Unsold units were removed; quantity is the amount removed. */
+        WRITE_OFF,
+        /** A sale was refunded and its unit returned to stock; the transaction is the refund. */
+        REFUND,
+        /** A product was moved to another category; category is the new category. */
+        SET_CATEGORY
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    private final Type type;
+    private final String productName;
+    private final double amount;
+    private final int quantity;
+    private final Transaction transaction;
+    private final String category;
+
+    /**
+     * Constructs a new MachineOperation.
+     *
+     * @param type the type of the operation
+     * @param productName the product the operation applies to, or null if none
+     * @param amount the money or price of the operation, or 0 if none
+     * @param quantity the stock quantity of the operation, or 0 if none
+     * @param transaction the sale of a SELECT_PRODUCT or PREPAID_SALE operation, the refund of a REFUND
+     *        operation, or null otherwise
+     * @throws IllegalArgumentException if type is null, or a sale or refund has no transaction
+     */
+    public MachineOperation(Type type, String productName, double amount, int quantity, Transaction transaction) {
+        this(type, productName, amount, quantity, transaction, null);
+    }
+
+    /**
+     * Constructs a new MachineOperation that carries a product category.
+     *
+     * @param type the type of the operation
+     * @param productName the product the operation applies to, or null if none
+     * @param amount the money or price of the operation, or 0 if none
+     * @param quantity the stock quantity of the operation, or 0 if none
+     * @param transaction the sale of a SELECT_PRODUCT or PREPAID_SALE operation, the refund of a REFUND
+     *        operation, or null otherwise
+     * @param category the category of an added or recategorized product, or null if none
+     * @throws IllegalArgumentException if type is null, or a sale or refund has no transaction
+     */
+    public MachineOperation(Type type, String productName, double amount, int quantity, Transaction transaction,
+                            String category) {
+        if (type == null) {
+            throw new IllegalArgumentException("Operation type cannot be null");
+        }
+        if ((type == Type.SELECT_PRODUCT || type == Type.PREPAID_SALE || type == Type.REFUND)
+                && transaction == null) {
+            throw new IllegalArgumentException("A sale or refund must have a transaction");
+        }
+        this.type = type;
+        this.productName = productName;
+        this.amount = amount;
+        this.quantity = quantity;
+        this.transaction = transaction;
+        this.category = category;
+    }
+
+    /**
+     * Gets the type of the operation.
+     *
+     * @return the operation type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the product the operation applies to.
+     *
+     * @return the product name, or null if none
+     */
+    public String getProductName() {
+        return productName;
+    }
+
+    /**
+     * Gets the money or price of the operation.
+     *
+     * @return the amount
+     */
+    public double getAmount() {
+        return amount;
+    }
+
+    /**
+     * Gets the stock quantity of the operation.
+     *
+     * @return the quantity
+     */
+    public int getQuantity() {
+        return quantity;
+    }
+
+    /**
+     * Gets the sale of a SELECT_PRODUCT or PREPAID_SALE operation.
+     *
+     * @return the transaction, or null for other operation types
+     */
+    public Transaction getTransaction() {
+        return transaction;
+    }
+
+    /**
+     * Gets the category of the product of an ADD_PRODUCT or SET_CATEGORY operation.
+     *
+     * @return the category, or null if none
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * Writes the operation in a compact binary form.
+     *
+     * @param out the output to write to
+     * @throws IOException if the output cannot be written
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeBoolean(productName != null);
+        if (productName != null) {
+            out.writeUTF(productName);
+        }
+        out.writeDouble(amount);
+        out.writeInt(quantity);
+        if (type == Type.ADD_PRODUCT || type == Type.SET_CATEGORY) {
+            out.writeBoolean(category != null);
+            if (category != null) {
+                out.writeUTF(category);
+            }
+        }
+        if (type == Type.SELECT_PRODUCT || type == Type.PREPAID_SALE || type == Type.REFUND) {
+            LocalDateTime date = transaction.getDate();
+            out.writeLong(transaction.getId());
+            out.writeUTF(transaction.getProductName());
+            out.writeDouble(transaction.getAmountPaid());
+            out.writeDouble(transaction.getChangeGiven());
+            out.writeLong(date.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(date.getNano());
+        }
+        if (type == Type.REFUND) {
+            out.writeLong(transaction.getRefundedId());
+        }
+    }
+
+    /**
+     * Reads an operation written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in the input to read from
+     * @return the operation
+     * @throws IOException if the input cannot be read or is malformed
+     */
+    public static MachineOperation readFrom(DataInput in) throws IOException {
+        int ordinal = in.readUnsignedByte();
+        if (ordinal >= TYPES.length) {
+            throw new IOException("Unknown operation type: " + ordinal);
+        }
+        Type type = TYPES[ordinal];
+        String productName = in.readBoolean() ? in.readUTF() : null;
+        double amount = in.readDouble();
+        int quantity = in.readInt();
+        String category = null;
+        if ((type == Type.ADD_PRODUCT || type == Type.SET_CATEGORY) && in.readBoolean()) {
+            category = in.readUTF();
+        }
+        Transaction transaction = null;
+        if (type == Type.SELECT_PRODUCT || type == Type.PREPAID_SALE || type == Type.REFUND) {
+            long id = in.readLong();
+            String name = in.readUTF();
+            double paid = in.readDouble();
+            double change = in.readDouble();
+            LocalDateTime date = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+            if (type == Type.REFUND) {
+                transaction = Transaction.refund(id, in.readLong(), name, paid, date);
+            } else if (type == Type.PREPAID_SALE) {
+                transaction = Transaction.prepaid(id, name, paid, change, date);
+            } else {
+                transaction = new Transaction(id, name, paid, change, date);
+            }
+        }
+        return new MachineOperation(type, productName, amount, quantity, transaction, category);
+    }
+
+    /**
+     * Returns a string representation of the operation.
+     *
+     * @return a string containing the operation type and arguments
+     */
+    @Override
+    public String toString() {
+        return String.format("MachineOperation{type=%s, product='%s', amount=%.2f, quantity=%d}",
+                           type, productName, amount, quantity);
+    }
+}
@@ -0,0 +1,91 @@
+package com.smartvending;
+
+/**
+ * Represents the answer of a payment gateway to an authorization request.
+ */
+public class PaymentAuthorization {
+    private final String id;
+    private final String paymentToken;
+    private final double amount;
+    private final boolean approved;
+    private final String declineReason;
+
+    /**
+     * Constructs a new PaymentAuthorization.
+     *
+     * @param id the gateway's id for the authorization
+     * @param paymentToken the token of the card or wallet that was charged
+     * @param amount the authorized amount
+     * @param approved true if the payment was approved
+     * @param declineReason the reason for a decline, or null if approved
+     * @throws IllegalArgumentException if id or paymentToken is null, or amount is negative
+     */
+    public PaymentAuthorization(String id, String paymentToken, double amount, boolean approved, String declineReason) {
+        if (id == null || paymentToken == null) {
+            throw new IllegalArgumentException("Id and payment token cannot be null");
+        }
+        if (amount < 0) {
+            throw new IllegalArgumentException("Amount cannot be negative");
+        }
+        this.id = id;
+        this.paymentToken = paymentToken;
+        this.amount = amount;
+        this.approved = approved;
+        this.declineReason = declineReason;
+    }
+
+    /**
+     * Gets the gateway's id for the authorization.
+     *
+     * @return the authorization id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the token of the card or wallet that was charged.
+     *
+     * @return the payment token
+     */
+    public String getPaymentToken() {
+        return paymentToken;
+    }
+
+    /**
+     * Gets the authorized amount.
+     *
+     * @return the amount
+     */
+    public double getAmount() {
+        return amount;
+    }
+
+    /**
+     * Checks whether the payment was approved.
+     *
+     * @return true if approved, false if declined
+     */
+    public boolean isApproved() {
+        return approved;
+    }
+
+    /**
+     * Gets the reason the payment was declined.
+     *
+     * @return the decline reason, or null if approved
+     */
+    public String getDeclineReason() {
+        return declineReason;
+    }
+
+    /**
+     * Returns a string representation of the authorization.
+     *
+     * @return a string containing the id, amount and outcome
+     */
+    @Override
+    public String toString() {
+        return String.format("PaymentAuthorization{id='%s', amount=%.2f, approved=%b}", id, amount, approved);
+    }
+}
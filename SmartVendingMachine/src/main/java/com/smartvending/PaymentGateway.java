@@ -0,0 +1,37 @@
+package com.smartvending;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A card or mobile payment provider.
+ * All methods must return immediately and complete their futures when the
+ * provider answers, so a slow provider never holds a caller's thread.
+ */
+public interface PaymentGateway {
+
+    /**
+     * Requests authorization to charge a payment token.
+     *
+     * @param paymentToken the token of the card or wallet to charge
+     * @param amount the amount to authorize
+     * @return a future completed with the gateway's answer
+     */
+    CompletableFuture<PaymentAuthorization> authorize(String paymentToken, double amount);
+
+    /**
+     * Captures a batch of approved authorizations, moving the money.
+     *
+     * @param authorizations the authorizations to capture
+     * @return a future completed when the batch has been captured
+     */
+    CompletableFuture<Void> capture(List<PaymentAuthorization> authorizations);
+
+    /**
+     * Releases an approved authorization that will not be captured.
+     *
+     * @param authorization the authorization to void
+     * @return a future completed when the authorization has been voided
+     */
+    CompletableFuture<Void> voidAuthorization(PaymentAuthorization authorization);
+}
@@ -0,0 +1,257 @@
+package com.smartvending;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps the physical slots of a vending machine to its products.
+ * A product may be stocked in several slots. The product's own stock stays
+ * the O(1) availability counter, so {@link Product#reduceStock()} and
+ * {@link Product#isAvailable()} keep their meaning. The planogram follows
+ * every stock change of an assigned product. A sale dispenses from the slot
+ * chosen by the selection policy. A restock that bypasses
+ * {@link #load(int, int, int)} fills the emptiest slots; any units that do
+ * not fit are counted as unslotted.
+ */
+public class Planogram {
+    private final VendingMachine machine;
+    private final SlotSelectionPolicy policy;
+    private final Map<String, Slot> slotsByCode = new ConcurrentHashMap<>();
+    private final Map<String, ProductSlots> slotsByProduct = new ConcurrentHashMap<>();
+    // Set while load() restocks a product, so the listener credits the loaded slot
+    private final ThreadLocal<Slot> loadingSlot = new ThreadLocal<>();
+
+    /**
+     * Constructs a new empty Planogram for a machine.
+     *
+     * @param machine the machine whose slots are described
+     * @param policy the policy that picks the slot to dispense from
+     * @throws IllegalArgumentException if machine or policy is null
+     */
+    public Planogram(VendingMachine machine, SlotSelectionPolicy policy) {
+        if (machine == null || policy == null) {
+            throw new IllegalArgumentException("Machine and policy cannot be null");
+        }
+        this.machine = machine;
+        this.policy = policy;
+    }
+
+    /**
+     * Assigns an empty slot to a product of the machine.
+     *
+     * @param row the row of the slot, starting at 0 for row "A"
+     * @param column the column of the slot, starting at 1
+     * @param productName the name of the product to hold
+     * @param capacity the number of units the slot holds (must be positive)
+     * @return the new slot
+     * @throws IllegalStateException if the product is not in the machine or the slot is already assigned
+     * @throws IllegalArgumentException if row, column or capacity is out of range
+     */
+    public Slot assign(int row, int column, String productName, int capacity) {
+        Product product = machine.getProduct(productName);
+        if (product == null) {
+            throw new IllegalStateException("Product not found: " + productName);
+        }
+        Slot slot = new Slot(row, column, product, capacity);
+        if (slotsByCode.putIfAbsent(slot.getCode(), slot) != null) {
+            throw new IllegalStateException("Slot already assigned: " + slot.getCode());
+        }
+        ProductSlots group = slotsByProduct.computeIfAbsent(product.getName(), name -> {
+            ProductSlots created = new ProductSlots(product);
+            product.addProductListener(created);
+            return created;
+        });
+        group.add(slot);
+        return slot;
+    }
+
+    /**
+     * Loads units into a slot and adds them to the product's stock.
+     *
+     * @param row the row of the slot
+     * @param column the column of the slot
+     * @param quantity the number of units to load (must be positive)
+     * @throws IllegalStateException if the slot is not assigned or the units do not fit
+     * @throws IllegalArgumentException if quantity is not positive
+     */
+    public void load(int row, int column, int quantity) {
+        Slot slot = getSlot(row, column);
+        if (slot == null) {
+            throw new IllegalStateException("Slot not assigned: " + Slot.code(row, column));
+        }
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Load quantity must be positive");
+        }
+        if (quantity > slot.getFreeCapacity()) {
+            throw new IllegalStateException("Slot " + slot.getCode() + " cannot hold " + quantity + " more units");
+        }
+        loadingSlot.set(slot);
+        try {
+            machine.restock(slot.getProduct().getName(), quantity);
+        } finally {
+            loadingSlot.remove();
+        }
+    }
+
+    /**
+     * Gets a slot by its position.
+     *
+     * @param row the row of the slot
+     * @param column the column of the slot
+     * @return the slot, or null if it is not assigned
+     */
+    public Slot getSlot(int row, int column) {
+        return slotsByCode.get(Slot.code(row, column));
+    }
+
+    /**
+     * Gets a slot by its keypad code.
+     *
+     * @param code the slot code, such as "A1"
+     * @return the slot, or null if it is not assigned
+     */
+    public Slot getSlot(String code) {
+        return slotsByCode.get(code);
+    }
+
+    /**
+     * Gets the slots that hold a product.
+     *
+     * @param productName the name of the product
+     * @return a list of the product's slots, empty if none
+     */
+    public List<Slot> getSlots(String productName) {
+        ProductSlots group = slotsByProduct.get(productName);
+        return group == null ? new ArrayList<>() : group.snapshot();
+    }
+
+    /**
+     * Gets the number of units of a product that are in the machine but not in any slot.
+     *
+     * @param productName the name of the product
+     * @return the unslotted stock
+     */
+    public int getUnslottedStock(String productName) {
+        ProductSlots group = slotsByProduct.get(productName);
+        return group == null ? 0 : group.getUnslotted();
+    }
+
+    /**
+     * Gets the slot the product was most recently dispensed from.
+     *
+     * @param productName the name of the product
+     * @return the slot, or null if the product has not been dispensed from a slot
+     */
+    public Slot getLastDispensedSlot(String productName) {
+        ProductSlots group = slotsByProduct.get(productName);
+        return group == null ? null : group.getLastDispensed();
+    }
+
+    /**
+     * Gets the selection policy of the planogram.
+     *
+     * @return the selection policy
+     */
+    public SlotSelectionPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * The slots of one product; also the listener that follows its stock.
+     */
+    private final class ProductSlots implements ProductListener {
+        private final List<Slot> slots = new ArrayList<>();
+        private int unslotted;
+        private int nextIndex;
+        private Slot lastDispensed;
+
+        ProductSlots(Product product) {
+            // Units already in the machine have not been placed in a slot yet
+            this.unslotted = product.getStock();
+        }
+
+        synchronized void add(Slot slot) {
+            slots.add(slot);
+        }
+
+        synchronized List<Slot> snapshot() {
+            return new ArrayList<>(slots);
+        }
+
+        synchronized int getUnslotted() {
+            return unslotted;
+        }
+
+        synchronized Slot getLastDispensed() {
+            return lastDispensed;
+        }
+
+        @Override
+        public synchronized void stockChanged(Product product, int oldStock, int newStock) {
+            if (newStock > oldStock) {
+                stocked(newStock - oldStock);
+            } else {
+                for (int i = newStock; i < oldStock; i++) {
+                    dispenseOne();
+                }
+            }
+        }
+
+        private void stocked(int quantity) {
+            Slot target = loadingSlot.get();
+            if (target != null && slots.contains(target)) {
+                target.add(quantity);
+                return;
+            }
+            int remaining = quantity;
+            while (remaining > 0) {
+                Slot emptiest = null;
+                for (Slot slot : slots) {
+                    if (slot.getFreeCapacity() > 0
+                            && (emptiest == null || slot.getStock() < emptiest.getStock())) {
+                        emptiest = slot;
+                    }
+                }
+                if (emptiest == null) {
+                    break;
+                }
+                int placed = Math.min(remaining, emptiest.getFreeCapacity());
+                emptiest.add(placed);
+                remaining -= placed;
+            }
+            unslotted += remaining;
+        }
+
+        private void dispenseOne() {
+            Slot chosen = choose();
+            if (chosen == null) {
+                if (unslotted > 0) {
+                    unslotted--;
+                }
+                return;
+            }
+            chosen.dispense();
+            lastDispensed = chosen;
+        }
+
+        private Slot choose() {
+            if (policy == SlotSelectionPolicy.ROUND_ROBIN) {
+                for (int i = 0; i < slots.size(); i++) {
+                    Slot slot = slots.get((nextIndex + i) % slots.size());
+                    if (slot.getStock() > 0) {
+                        nextIndex = (nextIndex + i + 1) % slots.size();
+                        return slot;
+                    }
+                }
+                return null;
+            }
+            Slot fullest = null;
+            for (Slot slot : slots) {
+                if (slot.getStock() > 0 && (fullest == null || slot.getStock() > fullest.getStock())) {
+                    fullest = slot;
+                }
+            }
+            return fullest;
+        }
+    }
+}
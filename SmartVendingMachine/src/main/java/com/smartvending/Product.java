@@ -1,14 +1,21 @@
 package com.smartvending;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 /**
  * Represents a product in the vending machine.
  * Contains product information including name, price, and stock quantity.
  * Provides methods to manage stock levels and check availability.
+ * Stock and price updates are synchronized so a product can be shared safely
+ * between threads.
  */
 public class Product {
     private String name;
+    private volatile String category;
     private double price;
     private int stock;
+    private final List<ProductListener> listeners = new CopyOnWriteArrayList<>();
     
     /**
      * Constructs a new Product with the specified name, price, and initial stock.
@@ -19,6 +26,19 @@ public class Product {
      * @throws IllegalArgumentException if price is negative or stock is negative
      */
     public Product(String name, double price, int stock) {
+        this(name, price, stock, null);
+    }
+    
+    /**
+     * Constructs a new Product that belongs to a category, such as "Drinks".
+     * 
+     * @param name the name of the product
+     * @param price the price of the product (must be positive)
+     * @param stock the initial stock quantity (must be non-negative)
+     * @param category the category of the product, or null if it has none
+     * @throws IllegalArgumentException if price is negative or stock is negative
+     */
+    public Product(String name, double price, int stock, String category) {
         if (price < 0) {
             throw new IllegalArgumentException("Price cannot be negative");
         }
@@ -30,6 +50,7 @@ public class Product {
         }
         
         this.name = name.trim();
+        this.category = category;
         this.price = price;
         this.stock = stock;
     }
@@ -39,11 +60,12 @@ public class Product {
      * 
      * @throws IllegalStateException if the product is out of stock
      */
-    public void reduceStock() {
+    public synchronized void reduceStock() {
         if (stock <= 0) {
             throw new IllegalStateException("Cannot reduce stock: product is out of stock");
         }
         stock--;
+        fireStockChanged(stock + 1);
     }
     
     /**
@@ -52,11 +74,65 @@ public class Product {
      * @param quantity the amount to add to stock (must be positive)
      * @throws IllegalArgumentException if quantity is not positive
      */
-    public void restock(int quantity) {
+    public synchronized void restock(int quantity) {
         if (quantity <= 0) {
             throw new IllegalArgumentException("Restock quantity must be positive");
         }
         stock += quantity;
+        fireStockChanged(stock - quantity);
+    }
+    
+    /**
+     * Removes units from stock without selling them, for example because they expired.
+     * 
+     * @param quantity the amount to remove (must be positive)
+     * @throws IllegalArgumentException if quantity is not positive
+     * @throws IllegalStateException if quantity exceeds the stock
+     */
+    public synchronized void removeStock(int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Removal quantity must be positive");
+        }
+        if (quantity > stock) {
+            throw new IllegalStateException("Cannot remove " + quantity + " units: only " + stock + " in stock");
+        }
+        stock -= quantity;
+        fireStockChanged(stock + quantity);
+    }
+    
+    /**
+     * Registers a listener that is notified when this product changes.
+     * 
+     * @param listener the listener to add
+     * @throws IllegalArgumentException if listener is null
+     */
+    public void addProductListener(ProductListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        listeners.add(listener);
+    }
+    
+    /**
+     * Removes a previously registered listener.
+     * 
+     * @param listener the listener to remove
+     * @return true if the listener was registered, false otherwise
+     */
+    public boolean removeProductListener(ProductListener listener) {
+        return listeners.remove(listener);
+    }
+    
+    private void fireStockChanged(int oldStock) {
+        for (ProductListener listener : listeners) {
+            listener.stockChanged(this, oldStock, stock);
+        }
+    }
+    
+    private void firePriceChanged(double oldPrice) {
+        for (ProductListener listener : listeners) {
+            listener.priceChanged(this, oldPrice, price);
+        }
     }
     
     /**
@@ -64,7 +140,7 @@ public class Product {
      * 
      * @return true if the product is available, false otherwise
      */
-    public boolean isAvailable() {
+    public synchronized boolean isAvailable() {
         return stock > 0;
     }
     
@@ -77,12 +153,31 @@ public class Product {
         return name;
     }
     
+    /**
+     * Gets the category of the product.
+     * 
+     * @return the category, or null if the product has none
+     */
+    public String getCategory() {
+        return category;
+    }
+    
+    /**
+     * Moves the product to another category. Only the machine does this, so
+     * that it can tell its listeners.
+     *
+     * @param category the new category, or null for none
+     */
+    void setCategory(String category) {
+        this.category = category;
+    }
+    
     /**
      * Gets the price of the product.
      * 
      * @return the product price
      */
-    public double getPrice() {
+    public synchronized double getPrice() {
         return price;
     }
     
@@ -91,7 +186,7 @@ public class Product {
      * 
      * @return the stock quantity
      */
-    public int getStock() {
+    public synchronized int getStock() {
         return stock;
     }
     
@@ -101,11 +196,15 @@ public class Product {
      * @param price the new price (must be non-negative)
      * @throws IllegalArgumentException if price is negative
      */
-    public void setPrice(double price) {
+    public synchronized void setPrice(double price) {
         if (price < 0) {
             throw new IllegalArgumentException("Price cannot be negative");
         }
+        double oldPrice = this.price;
         this.price = price;
+        if (oldPrice != price) {
+            firePriceChanged(oldPrice);
+        }
     }
     
     /**
@@ -114,7 +213,7 @@ public class Product {
      * @return a string containing product name, price, and stock
      */
     @Override
-    public String toString() {
+    public synchronized String toString() {
         return String.format("Product{name='%s', price=%.2f, stock=%d}", 
                            name, price, stock);
     }
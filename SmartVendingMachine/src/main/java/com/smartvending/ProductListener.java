@@ -0,0 +1,29 @@
+package com.smartvending;
+
+/**
+ * Listener that is notified when the state of a product changes.
+ * Callbacks run on the thread that changed the product while the product is
+ * locked, so implementations should return quickly and hand longer work off
+ * to another thread.
+ */
+public interface ProductListener {
+
+    /**
+     * Called after the stock of a product has changed.
+     *
+     * @param product the product whose stock changed
+     * @param oldStock the stock before the change
+     * @param newStock the stock after the change
+     */
+    void stockChanged(Product product, int oldStock, int newStock);
+
+    /**
+     * Called after the price of a product has changed.
+     *
+     * @param product the product whose price changed
+     * @param oldPrice the price before the change
+     * @param newPrice the price after the change
+     */
+    default void priceChanged(Product product, double oldPrice, double newPrice) {
+    }
+}
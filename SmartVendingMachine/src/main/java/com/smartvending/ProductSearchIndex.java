@@ -0,0 +1,409 @@
+package com.smartvending;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Name index for type-ahead and typo-tolerant product search.
+ * Prefix search uses a sorted map holding every word suffix of every name,
+ * so "co" finds "Coca Cola" and "cola" finds it too; a lookup walks a
+ * sub-map and stops after k available products. Fuzzy search uses posting
+ * lists of character trigrams and ranks names by how many trigrams they share
+ * with the query, so "pepsy" still finds "Pepsi". Matching ignores case.
+ * The index is updated incrementally from the machine's operations for added
+ * and removed products. Queries never lock the machine.
+ */
+public class ProductSearchIndex implements AutoCloseable {
+    /** Default lowest similarity, from 0 to 1, of a fuzzy match. */
+    public static final double DEFAULT_MIN_SIMILARITY = 0.3;
+
+    // Separates the indexed word suffix from the product name in prefix keys
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final VendingMachine machine;
+    private final double minSimilarity;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<String, Entry> prefixes = new ConcurrentSkipListMap<>();
+    private final Map<String, Postings> trigrams = new ConcurrentHashMap<>();
+    // Fuzzy search counts shared trigrams per entry id, so ids index these arrays
+    private volatile Entry[] byId = new Entry[64];
+    private volatile int[] trigramCounts = new int[64];
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    // Ids of removed entries wait here until no fuzzy search that may still see them is running
+    private final List<Integer> retiredIds = new ArrayList<>();
+    private final AtomicInteger activeFuzzySearches = new AtomicInteger();
+    private int nextId;
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private final Consumer<MachineOperation> operationListener = this::operationApplied;
+
+    /**
+     * Constructs a new ProductSearchIndex with the default fuzzy similarity.
+     *
+     * @param machine the machine whose products are indexed
+     * @throws IllegalArgumentException if machine is null
+     */
+    public ProductSearchIndex(VendingMachine machine) {
+        this(machine, DEFAULT_MIN_SIMILARITY);
+    }
+
+    /**
+     * Constructs a new ProductSearchIndex over the current and future products of a machine.
+     *
+     * @param machine the machine whose products are indexed
+     * @param minSimilarity the lowest similarity, from 0 to 1, of a fuzzy match
+     * @throws IllegalArgumentException if machine is null or minSimilarity is out of range
+     */
+    public ProductSearchIndex(VendingMachine machine, double minSimilarity) {
+        if (machine == null) {
+            throw new IllegalArgumentException("Machine cannot be null");
+        }
+        if (minSimilarity < 0 || minSimilarity > 1) {
+            throw new IllegalArgumentException("Minimum similarity must be between 0 and 1");
+        }
+        this.machine = machine;
+        this.minSimilarity = minSimilarity;
+        synchronized (machine) {
+            for (Product product : machine.getAllProducts()) {
+                index(product);
+            }
+            machine.addOperationListener(operationListener);
+        }
+    }
+
+    /**
+     * Finds available products with a word that starts with the given prefix.
+     *
+     * @param prefix the typed prefix
+     * @param limit the maximum number of products to return (must be positive)
+     * @return a list of at most limit products, ordered by the matching word
+     * @throws IllegalArgumentException if prefix is null or limit is not positive
+     */
+    public List<Product> searchPrefix(String prefix, int limit) {
+        checkQuery(prefix, limit);
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Set<Product> matches = new LinkedHashSet<>();
+        for (Entry entry : prefixes.subMap(normalized, true, normalized + Character.MAX_VALUE, false).values()) {
+            if (entry.product.isAvailable()) {
+                matches.add(entry.product);
+                if (matches.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(matches);
+    }
+
+    /**
+     * Finds available products whose name resembles the query, most similar first.
+     *
+     * @param query the typed text, possibly misspelled
+     * @param limit the maximum number of products to return (must be positive)
+     * @return a list of at most limit products
+     * @throws IllegalArgumentException if query is null or limit is not positive
+     */
+    public List<Product> searchFuzzy(String query, int limit) {
+        checkQuery(query, limit);
+        // Registered before any posting list is read, so no id seen here is reused until we finish
+        activeFuzzySearches.incrementAndGet();
+        try {
+            return fuzzyMatches(trigramsOf(normalize(query)), limit);
+        } finally {
+            activeFuzzySearches.decrementAndGet();
+        }
+    }
+
+    private List<Product> fuzzyMatches(Set<String> queryGrams, int limit) {
+        Entry[] table = byId;
+        int[] gramCounts = trigramCounts;
+        Scratch counters = scratch.get();
+        counters.ensureCapacity(table.length);
+        int[] counts = counters.counts;
+        int touched = 0;
+        for (String gram : queryGrams) {
+            Postings postings = trigrams.get(gram);
+            if (postings == null) {
+                continue;
+            }
+            Postings.Snapshot snapshot = postings.snapshot;
+            for (int i = 0; i < snapshot.size; i++) {
+                int id = snapshot.ids[i];
+                if (id < table.length && counts[id]++ == 0) {
+                    counters.touched[touched++] = id;
+                }
+            }
+        }
+        // Keep the best limit matches in a min-heap, ties broken by name
+        Comparator<Match> order = Comparator.comparingDouble((Match match) -> match.similarity)
+                .thenComparing(match -> match.entry.product.getName(), Comparator.reverseOrder());
+        PriorityQueue<Match> best = new PriorityQueue<>(order);
+        for (int i = 0; i < touched; i++) {
+            int id = counters.touched[i];
+            int shared = counts[id];
+            counts[id] = 0;
+            // Most candidates share a single trigram; reject them without touching their entries
+            double similarity = 2.0 * shared / (queryGrams.size() + gramCounts[id]);
+            Entry entry = table[id];
+            if (similarity < minSimilarity || entry == null) {
+                continue;
+            }
+            // Check the heap before the product, whose availability check takes its lock
+            Match match = new Match(entry, similarity);
+            if (best.size() == limit && order.compare(best.peek(), match) >= 0) {
+                continue;
+            }
+            if (!entry.product.isAvailable()) {
+                continue;
+            }
+            best.add(match);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Product> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(best.poll().entry.product);
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Finds available products for a search box: prefix matches first,
+     * followed by fuzzy matches if there are fewer than limit of them.
+     *
+     * @param query the typed text
+     * @param limit the maximum number of products to return (must be positive)
+     * @return a list of at most limit distinct products
+     * @throws IllegalArgumentException if query is null or limit is not positive
+     */
+    public List<Product> search(String query, int limit) {
+        Set<Product> matches = new LinkedHashSet<>(searchPrefix(query, limit));
+        if (matches.size() < limit) {
+            for (Product product : searchFuzzy(query, limit)) {
+                matches.add(product);
+                if (matches.size() == limit) {
+                    break;
+                }
+            }
+        }
+        return new ArrayList<>(matches);
+    }
+
+    /**
+     * Gets the number of indexed products.
+     *
+     * @return the product count
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Stops following the machine.
+     */
+    @Override
+    public void close() {
+        machine.removeOperationListener(operationListener);
+    }
+
+    private void operationApplied(MachineOperation operation) {
+        switch (operation.getType()) {
+            case ADD_PRODUCT:
+                Product product = machine.getProduct(operation.getProductName());
+                if (product != null) {
+                    unindex(product.getName());
+                    index(product);
+                }
+                break;
+            case REMOVE_PRODUCT:
+                unindex(operation.getProductName());
+                break;
+            case CLEAR_PRODUCTS:
+                for (String name : new ArrayList<>(entries.keySet())) {
+                    unindex(name);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private synchronized void index(Product product) {
+        String name = product.getName();
+        String normalized = normalize(name);
+        Set<String> grams = trigramsOf(normalized);
+        Entry entry = new Entry(product, allocateId(), grams.size());
+        entries.put(name, entry);
+        for (int start : wordStarts(normalized)) {
+            prefixes.put(normalized.substring(start) + KEY_SEPARATOR + name, entry);
+        }
+        trigramCounts[entry.id] = entry.trigramCount;
+        byId[entry.id] = entry;
+        for (String gram : grams) {
+            trigrams.computeIfAbsent(gram, key -> new Postings()).add(entry.id);
+        }
+    }
+
+    private synchronized void unindex(String name) {
+        Entry entry = entries.remove(name);
+        if (entry == null) {
+            return;
+        }
+        String normalized = normalize(name);
+        for (int start : wordStarts(normalized)) {
+            prefixes.remove(normalized.substring(start) + KEY_SEPARATOR + name);
+        }
+        for (String gram : trigramsOf(normalized)) {
+            Postings postings = trigrams.get(gram);
+            if (postings != null && postings.remove(entry.id)) {
+                trigrams.remove(gram);
+            }
+        }
+        byId[entry.id] = null;
+        retiredIds.add(entry.id);
+    }
+
+    private int allocateId() {
+        // A search that started before the removal could credit its matches to the id's next owner
+        if (!retiredIds.isEmpty() && activeFuzzySearches.get() == 0) {
+            freeIds.addAll(retiredIds);
+            retiredIds.clear();
+        }
+        if (!freeIds.isEmpty()) {
+            return freeIds.pop();
+        }
+        if (nextId == byId.length) {
+            trigramCounts = Arrays.copyOf(trigramCounts, byId.length * 2);
+            byId = Arrays.copyOf(byId, byId.length * 2);
+        }
+        return nextId++;
+    }
+
+    private static void checkQuery(String query, int limit) {
+        if (query == null) {
+            throw new IllegalArgumentException("Query cannot be null");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+    }
+
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static List<Integer> wordStarts(String normalized) {
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < normalized.length(); i++) {
+            if (normalized.charAt(i) != ' ' && (i == 0 || normalized.charAt(i - 1) == ' ')) {
+                starts.add(i);
+            }
+        }
+        return starts;
+    }
+
+    private static Set<String> trigramsOf(String normalized) {
+        // Padding gives the first and last letters trigrams of their own
+        String padded = "  " + normalized + " ";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams;
+    }
+
+    /**
+     * An indexed product with its id and the number of distinct trigrams in its name.
+     */
+    private static final class Entry {
+        private final Product product;
+        private final int id;
+        private final int trigramCount;
+
+        Entry(Product product, int id, int trigramCount) {
+            this.product = product;
+            this.id = id;
+            this.trigramCount = trigramCount;
+        }
+    }
+
+    /**
+     * The ids of the entries whose names contain a trigram.
+     * Writers are serialized by the index; readers take an immutable snapshot,
+     * so they never lock and never see a slot being rewritten.
+     */
+    private static final class Postings {
+        private volatile Snapshot snapshot = new Snapshot(new int[4], 0);
+
+        void add(int id) {
+            Snapshot current = snapshot;
+            int[] ids = current.ids;
+            if (current.size == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            // Slots past the published size are invisible to readers, so writing one is safe
+            ids[current.size] = id;
+            snapshot = new Snapshot(ids, current.size + 1);
+        }
+
+        boolean remove(int id) {
+            Snapshot current = snapshot;
+            int[] ids = new int[current.ids.length];
+            int size = 0;
+            for (int i = 0; i < current.size; i++) {
+                if (current.ids[i] != id) {
+                    ids[size++] = current.ids[i];
+                }
+            }
+            snapshot = new Snapshot(ids, size);
+            return size == 0;
+        }
+
+        /**
+         * A published prefix of a posting array.
+         */
+        private static final class Snapshot {
+            private final int[] ids;
+            private final int size;
+
+            Snapshot(int[] ids, int size) {
+                this.ids = ids;
+                this.size = size;
+            }
+        }
+    }
+
+    /**
+     * Per-thread counters reused by fuzzy searches.
+     */
+    private static final class Scratch {
+        private int[] counts = new int[0];
+        private int[] touched = new int[0];
+
+        void ensureCapacity(int capacity) {
+            if (counts.length < capacity) {
+                counts = new int[capacity];
+                touched = new int[capacity];
+            }
+        }
+    }
+
+    /**
+     * A fuzzy search candidate.
+     */
+    private static final class Match {
+        private final Entry entry;
+        private final double similarity;
+
+        Match(Entry entry, double similarity) {
+            this.entry = entry;
+            this.similarity = similarity;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.smartvending;
+
+import java.time.Duration;
+import java.util.*;
+
+/**
+ * Remembers recent purchases by client request key so that retried requests
+ * return the original transaction instead of charging twice.
+ * Entries expire after a fixed window and the cache never holds more than a
+ * fixed number of keys; the oldest entries are dropped first. Lookups are a
+ * single hash probe. The cache is not thread-safe on its own and is guarded
+ * by the owning machine.
+ */
+public class PurchaseDedupeCache {
+    /** Default time a request key is remembered. */
+    public static final Duration DEFAULT_WINDOW = Duration.ofMinutes(5);
+    /** Default maximum number of remembered request keys. */
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final long windowMillis;
+    private final int maxEntries;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Constructs a new PurchaseDedupeCache.
+     *
+     * @param window how long a request key is remembered (must be positive)
+     * @param maxEntries the maximum number of remembered keys (must be positive)
+     * @throws IllegalArgumentException if window is null or not positive, or maxEntries is not positive
+     */
+    public PurchaseDedupeCache(Duration window, int maxEntries) {
+        if (window == null || window.isNegative() || window.isZero()) {
+            throw new IllegalArgumentException("Window must be positive");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive");
+        }
+        this.windowMillis = window.toMillis();
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Gets the transaction recorded for a request key.
+     *
+     * @param requestKey the client request key
+     * @param nowMillis the current time in milliseconds
+     * @return the original transaction, or null if the key is unknown or expired
+     */
+    public Transaction get(String requestKey, long nowMillis) {
+        Entry entry = entries.get(requestKey);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAtMillis <= nowMillis) {
+            entries.remove(requestKey);
+            return null;
+        }
+        return entry.transaction;
+    }
+
+    /**
+     * Records the transaction produced for a request key.
+     *
+     * @param requestKey the client request key
+     * @param transaction the transaction to return for retries
+     * @param nowMillis the current time in milliseconds
+     */
+    public void put(String requestKey, Transaction transaction, long nowMillis) {
+        entries.put(requestKey, new Entry(transaction, nowMillis + windowMillis));
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            Entry oldest = iterator.next();
+            if (entries.size() <= maxEntries && oldest.expiresAtMillis > nowMillis) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Gets the number of remembered request keys, including expired keys not yet evicted.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * A remembered transaction and its expiry time.
+     */
+    private static final class Entry {
+        private final Transaction transaction;
+        private final long expiresAtMillis;
+
+        Entry(Transaction transaction, long expiresAtMillis) {
+            this.transaction = transaction;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.smartvending;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Streams the state changes of a vending machine to a {@link ReplicationStandby}.
+ * On connect the primary sends a snapshot of the catalog and balance, then
+ * every operation the machine publishes. Operations are queued on the vend
+ * path and written in pipelined batches by a sender thread, with one flush
+ * per batch. The standby acknowledges each batch.
+ * In asynchronous mode the vend path never waits on the network. In
+ * synchronous mode every operation waits for its acknowledgement, up to a
+ * timeout, before the machine call returns.
+ * <p>
+ * Operations are queued under the machine lock, so the vend path never
+ * blocks on a full queue: if the standby falls {@value #QUEUE_CAPACITY}
+ * operations behind, for instance because it stays connected but stops
+ * reading, replication fails as if the connection had broken and the
+ * machine carries on without it.
+ */
+public class ReplicationPrimary implements AutoCloseable {
+    /** Maximum number of operations waiting to be sent before replication fails. */
+    public static final int QUEUE_CAPACITY = 65_536;
+    /** Maximum number of operations written in one batch. */
+    public static final int MAX_BATCH_SIZE = 1024;
+    /** Default time a synchronous operation waits for its acknowledgement. */
+    public static final Duration DEFAULT_SYNC_TIMEOUT = Duration.ofSeconds(5);
+
+    private final VendingMachine machine;
+    private final boolean synchronous;
+    private final long syncTimeoutNanos;
+    private final Socket socket;
+    private final DataOutputStream out;
+    private final DataInputStream in;
+    private final BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Queue<long[]> unackedBatches = new ConcurrentLinkedQueue<>();
+    private final Consumer<MachineOperation> listener = this::enqueue;
+    private final AtomicLong sentSequence = new AtomicLong();
+    private final AtomicLong ackedSequence = new AtomicLong();
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong syncTimeouts = new AtomicLong();
+    private final Object ackMonitor = new Object();
+    private final Thread sender;
+    private final Thread ackReader;
+    private volatile long enqueuedSequence;
+    private volatile long lastAckLatencyNanos;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new asynchronous ReplicationPrimary and connects it to a standby.
+     *
+     * @param machine the machine to replicate
+     * @param host the host of the standby
+     * @param port the port of the standby
+     * @throws IOException if the standby cannot be reached
+     */
+    public ReplicationPrimary(VendingMachine machine, String host, int port) throws IOException {
+        this(machine, host, port, false, DEFAULT_SYNC_TIMEOUT);
+    }
+
+    /**
+     * Constructs a new ReplicationPrimary and connects it to a standby.
+     *
+     * @param machine the machine to replicate
+     * @param host the host of the standby
+     * @param port the port of the standby
+     * @param synchronous true to make every operation wait for the standby's acknowledgement
+     * @param syncTimeout how long a synchronous operation waits before giving up
+     * @throws IOException if the standby cannot be reached
+     * @throws IllegalArgumentException if machine or host is null, or syncTimeout is null or negative
+     */
+    public ReplicationPrimary(VendingMachine machine, String host, int port, boolean synchronous,
+                              Duration syncTimeout) throws IOException {
+        if (machine == null || host == null) {
+            throw new IllegalArgumentException("Machine and host cannot be null");
+        }
+        if (syncTimeout == null || syncTimeout.isNegative()) {
+            throw new IllegalArgumentException("Sync timeout cannot be null or negative");
+        }
+        this.machine = machine;
+        this.synchronous = synchronous;
+        this.syncTimeoutNanos = syncTimeout.toNanos();
+        this.socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.connect(new InetSocketAddress(host, port));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 64 * 1024));
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+
+        this.sender = new Thread(this::sendLoop, "replication-sender");
+        this.ackReader = new Thread(this::ackLoop, "replication-acks");
+        sender.setDaemon(true);
+        ackReader.setDaemon(true);
+        sender.start();
+        ackReader.start();
+
+        // Holding the machine lock keeps the snapshot and the live stream gap-free
+        synchronized (machine) {
+            for (MachineOperation operation : machine.snapshotOperations()) {
+                enqueue(operation);
+            }
+            machine.addOperationListener(listener);
+        }
+    }
+
+    private void enqueue(MachineOperation operation) {
+        if (closed) {
+            return;
+        }
+        // Operations are published under the machine lock, so sequence numbers follow apply order
+        long sequence = enqueuedSequence + 1;
+        enqueuedSequence = sequence;
+        if (!queue.offer(new Pending(sequence, operation))) {
+            // Waiting here would hold the machine lock for as long as the standby stalls
+            fail(new IOException("Replication queue is full: the standby stopped reading"));
+            return;
+        }
+        if (synchronous && !awaitAcknowledged(sequence, syncTimeoutNanos)) {
+            syncTimeouts.incrementAndGet();
+        }
+    }
+
+    private void sendLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                out.writeInt(batch.size());
+                for (Pending pending : batch) {
+                    out.writeLong(pending.sequence);
+                    pending.operation.writeTo(out);
+                }
+                long last = batch.get(batch.size() - 1).sequence;
+                unackedBatches.add(new long[] {last, System.nanoTime()});
+                out.flush();
+                sentSequence.set(last);
+                batchesSent.incrementAndGet();
+                batch.clear();
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void ackLoop() {
+        try {
+            while (true) {
+                long acked = in.readLong();
+                long now = System.nanoTime();
+                long[] batch;
+                while ((batch = unackedBatches.peek()) != null && batch[0] <= acked) {
+                    unackedBatches.poll();
+                    lastAckLatencyNanos = now - batch[1];
+                }
+                ackedSequence.set(acked);
+                synchronized (ackMonitor) {
+                    ackMonitor.notifyAll();
+                }
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                fail(e);
+            }
+        }
+    }
+
+    private void fail(IOException e) {
+        failure = e;
+        closed = true;
+        machine.removeOperationListener(listener);
+        queue.clear();
+        try {
+            // Unblocks a sender stuck writing to a standby that stopped reading
+            socket.close();
+        } catch (IOException ignored) {
+            // The connection is being abandoned anyway
+        }
+        synchronized (ackMonitor) {
+            ackMonitor.notifyAll();
+        }
+    }
+
+    private boolean awaitAcknowledged(long sequence, long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        synchronized (ackMonitor) {
+            while (ackedSequence.get() < sequence && failure == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.timedWait(ackMonitor, remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return ackedSequence.get() >= sequence;
+    }
+
+    /**
+     * Waits until the standby has acknowledged every operation published so far.
+     *
+     * @param timeout the maximum time to wait
+     * @return true if the standby caught up, false on timeout or failure
+     */
+    public boolean awaitReplication(Duration timeout) {
+        return awaitAcknowledged(enqueuedSequence, timeout.toNanos());
+    }
+
+    /**
+     * Gets the sequence number of the last operation queued for replication.
+     *
+     * @return the last queued sequence number
+     */
+    public long getEnqueuedSequence() {
+        return enqueuedSequence;
+    }
+
+    /**
+     * Gets the sequence number of the last operation written to the standby.
+     *
+     * @return the last sent sequence number
+     */
+    public long getSentSequence() {
+        return sentSequence.get();
+    }
+
+    /**
+     * Gets the sequence number of the last operation acknowledged by the standby.
+     *
+     * @return the last acknowledged sequence number
+     */
+    public long getAcknowledgedSequence() {
+        return ackedSequence.get();
+    }
+
+    /**
+     * Gets the number of operations the standby has not acknowledged yet.
+     *
+     * @return the replication lag in operations
+     */
+    public long getLag() {
+        return enqueuedSequence - ackedSequence.get();
+    }
+
+    /**
+     * Gets the time between sending the most recently acknowledged batch and receiving its acknowledgement.
+     *
+     * @return the latest round-trip latency in nanoseconds, or 0 if nothing was acknowledged
+     */
+    public long getLastAckLatencyNanos() {
+        return lastAckLatencyNanos;
+    }
+
+    /**
+     * Gets the number of batches written to the standby.
+     *
+     * @return the batch count
+     */
+    public long getBatchesSent() {
+        return batchesSent.get();
+    }
+
+    /**
+     * Gets the number of synchronous operations that gave up waiting for an acknowledgement.
+     *
+     * @return the timeout count
+     */
+    public long getSyncTimeouts() {
+        return syncTimeouts.get();
+    }
+
+    /**
+     * Checks whether replication has stopped because of a connection failure
+     * or because the standby fell too far behind.
+     *
+     * @return true if replication failed, false otherwise
+     */
+    public boolean isFailed() {
+        return failure != null;
+    }
+
+    /**
+     * Stops replicating, sends the operations still queued and closes the connection.
+     *
+     * @throws IOException if the connection cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        machine.removeOperationListener(listener);
+        closed = true;
+        try {
+            sender.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        socket.close();
+    }
+
+    /**
+     * An operation waiting to be sent.
+     */
+    private static final class Pending {
+        private final long sequence;
+        private final MachineOperation operation;
+
+        Pending(long sequence, MachineOperation operation) {
+            this.sequence = sequence;
+            this.operation = operation;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.smartvending;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Receives the operation stream of a {@link ReplicationPrimary} and applies it,
+ * in order, to a replica machine.
+ * The standby accepts a single primary connection on the loopback interface.
+ * Each received batch is applied and then acknowledged with its last
+ * sequence number. Calling {@link #promote()} stops replication and hands the
+ * up-to-date replica to the caller, which can then serve customers.
+ */
+public class ReplicationStandby implements AutoCloseable {
+    private final VendingMachine replica;
+    private final ServerSocket serverSocket;
+    private final Thread receiver;
+    private final AtomicLong appliedSequence = new AtomicLong();
+    private final AtomicLong rejectedOperations = new AtomicLong();
+    private volatile Socket socket;
+    private volatile boolean connected;
+    private volatile boolean stopped;
+
+    /**
+     * Constructs a new ReplicationStandby and starts listening for a primary.
+     *
+     * @param replica the machine that receives the replicated state, normally empty
+     * @param port the port to listen on, or 0 to pick a free port
+     * @throws IOException if the port cannot be opened
+     * @throws IllegalArgumentException if replica is null
+     */
+    public ReplicationStandby(VendingMachine replica, int port) throws IOException {
+        if (replica == null) {
+            throw new IllegalArgumentException("Replica cannot be null");
+        }
+        this.replica = replica;
+        this.serverSocket = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+        this.receiver = new Thread(this::receiveLoop, "replication-standby");
+        receiver.setDaemon(true);
+        receiver.start();
+    }
+
+    private void receiveLoop() {
+        try (Socket accepted = serverSocket.accept()) {
+            socket = accepted;
+            accepted.setTcpNoDelay(true);
+            connected = true;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(accepted.getInputStream(), 64 * 1024));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(accepted.getOutputStream()));
+            while (!stopped) {
+                int count = in.readInt();
+                long sequence = appliedSequence.get();
+                for (int i = 0; i < count; i++) {
+                    sequence = in.readLong();
+                    MachineOperation operation = MachineOperation.readFrom(in);
+                    try {
+                        replica.applyOperation(operation);
+                    } catch (IllegalArgumentException | IllegalStateException e) {
+                        // The replica has diverged from the primary; keep the stream going
+                        rejectedOperations.incrementAndGet();
+                    }
+                    appliedSequence.set(sequence);
+                }
+                out.writeLong(sequence);
+                out.flush();
+            }
+        } catch (EOFException e) {
+            // The primary closed the connection
+        } catch (IOException e) {
+            // Closed by promote() or a broken connection
+        } finally {
+            connected = false;
+        }
+    }
+
+    /**
+     * Gets the port the standby listens on.
+     *
+     * @return the local port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Gets the sequence number of the last operation applied to the replica.
+     *
+     * @return the last applied sequence number
+     */
+    public long getAppliedSequence() {
+        return appliedSequence.get();
+    }
+
+    /**
+     * Gets the number of operations that could not be applied to the replica.
+     *
+     * @return the number of rejected operations
+     */
+    public long getRejectedOperations() {
+        return rejectedOperations.get();
+    }
+
+    /**
+     * Checks whether a primary is currently connected.
+     *
+     * @return true if a primary is connected, false otherwise
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /**
+     * Gets the replica machine without stopping replication.
+     * Reads are safe, but the replica must not be changed while replication runs.
+     *
+     * @return the replica
+     */
+    public VendingMachine getReplica() {
+        return replica;
+    }
+
+    /**
+     * Stops replication and returns the replica so it can take over from the primary.
+     * Operations that were received but not yet applied are discarded.
+     *
+     * @return the replica, ready to serve
+     */
+    public VendingMachine promote() {
+        close();
+        try {
+            receiver.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return replica;
+    }
+
+    /**
+     * Stops listening and closes the connection to the primary.
+     */
+    @Override
+    public void close() {
+        stopped = true;
+        try {
+            serverSocket.close();
+            Socket current = socket;
+            if (current != null) {
+                current.close();
+            }
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+}
@@ -0,0 +1,403 @@
+package com.smartvending;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Holds the sales of one or more vending machines in columns for reporting.
+ * <p>
+ * Every sale is stored as five ints in parallel arrays: product id, machine
+ * id, amount paid in cents, change in cents and the minute of the sale since
+ * the epoch (in the machine's local time). A refund is stored as a negative
+ * sale at the time of the refund: its product id is complemented and its
+ * amount negated, so rollups count it as minus one unit and subtract the
+ * amount refunded. Product and machine names are
+ * kept once in dictionaries. {@link #rollup} aggregates the columns into a
+ * product by hour-of-day by machine {@link SalesRollup}, splitting the rows
+ * into segments that are summed in parallel on a fork/join pool.
+ * <p>
+ * Appends are synchronized; a rollup works on the rows present when it starts
+ * and does not block further appends.
+ */
+public class SalesCube {
+    /** Fewest rows summed by one fork/join task. */
+    static final int SEGMENT_SIZE = 1 << 16;
+
+    private static final int INITIAL_CAPACITY = 1024;
+    // Largest array the VM reliably allocates
+    private static final int MAX_CELLS = Integer.MAX_VALUE - 8;
+
+    private final Map<String, Integer> productIds = new HashMap<>();
+    private final List<String> productNames = new ArrayList<>();
+    private final Map<String, Integer> machineIds = new HashMap<>();
+    private final List<String> machineNames = new ArrayList<>();
+
+    // Guarded by this; arrays are replaced, never shrunk, so a snapshot of them stays valid
+    private int[] products = new int[INITIAL_CAPACITY];
+    private int[] machines = new int[INITIAL_CAPACITY];
+    private int[] amountCents = new int[INITIAL_CAPACITY];
+    private int[] changeCents = new int[INITIAL_CAPACITY];
+    private int[] minutes = new int[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Adds a sale or refund.
+     *
+     * @param machineName the machine that made the sale
+     * @param transaction the sale or refund
+     * @throws IllegalArgumentException if machineName or transaction is null
+     */
+    public synchronized void add(String machineName, Transaction transaction) {
+        if (machineName == null) {
+            throw new IllegalArgumentException("Machine name cannot be null");
+        }
+        if (transaction == null) {
+            throw new IllegalArgumentException("Transaction cannot be null");
+        }
+        append(machineId(machineName), transaction);
+    }
+
+    /**
+     * Adds the transaction history of a machine.
+     *
+     * @param machineName the name the machine is reported under
+     * @param machine the machine
+     * @return the number of transactions added
+     * @throws IllegalArgumentException if machineName or machine is null
+     */
+    public synchronized int addHistory(String machineName, VendingMachine machine) {
+        if (machineName == null || machine == null) {
+            throw new IllegalArgumentException("Machine name and machine cannot be null");
+        }
+        int machineId = machineId(machineName);
+        List<Transaction> history = machine.getTransactionHistory();
+        ensureCapacity(size + history.size());
+        for (Transaction transaction : history) {
+            append(machineId, transaction);
+        }
+        return history.size();
+    }
+
+    /**
+     * Adds the sales of a binary export written by {@link TransactionExporter#exportBinary}.
+     *
+     * @param machineName the name the machine is reported under
+     * @param file the export file, optionally gzip-compressed
+     * @return the number of transactions added
+     * @throws IOException if the file cannot be read or is not a binary export
+     * @throws IllegalArgumentException if machineName or file is null
+     */
+    public synchronized int addExport(String machineName, Path file) throws IOException {
+        if (machineName == null || file == null) {
+            throw new IllegalArgumentException("Machine name and file cannot be null");
+        }
+        int machineId = machineId(machineName);
+        return TransactionExporter.readBinary(file, transaction -> append(machineId, transaction));
+    }
+
+    private int machineId(String machineName) {
+        return machineIds.computeIfAbsent(machineName, name -> {
+            machineNames.add(name);
+            return machineNames.size() - 1;
+        });
+    }
+
+    private void append(int machineId, Transaction transaction) {
+        if (size == products.length) {
+            ensureCapacity(size + 1);
+        }
+        int productId = productIds.computeIfAbsent(transaction.getProductName(), name -> {
+            productNames.add(name);
+            return productNames.size() - 1;
+        });
+        int amount = Math.toIntExact(Math.round(transaction.getAmountPaid() * 100));
+        products[size] = transaction.isRefund() ? ~productId : productId;
+        machines[size] = machineId;
+        amountCents[size] = transaction.isRefund() ? -amount : amount;
+        changeCents[size] = Math.toIntExact(Math.round(transaction.getChangeGiven() * 100));
+        minutes[size] = toMinute(transaction.getDate());
+        size++;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= products.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, products.length * 2);
+        products = Arrays.copyOf(products, newCapacity);
+        machines = Arrays.copyOf(machines, newCapacity);
+        amountCents = Arrays.copyOf(amountCents, newCapacity);
+        changeCents = Arrays.copyOf(changeCents, newCapacity);
+        minutes = Arrays.copyOf(minutes, newCapacity);
+    }
+
+    private static int toMinute(LocalDateTime time) {
+        return Math.toIntExact(Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60));
+    }
+
+    /**
+     * Gets the number of sales stored.
+     *
+     * @return the row count
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Aggregates every sale by product, hour of day and machine.
+     *
+     * @return the rollup
+     * @throws IllegalStateException if the rollup has more cells than can be allocated
+     */
+    public SalesRollup rollup() {
+        return rollup(Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Aggregates the sales made in a time range by product, hour of day and machine.
+     * The range is resolved to the minute.
+     *
+     * @param from the start of the range, inclusive
+     * @param to the end of the range, exclusive
+     * @return the rollup
+     * @throws IllegalArgumentException if from or to is null
+     * @throws IllegalStateException if the rollup has more cells than can be allocated
+     */
+    public SalesRollup rollup(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Range cannot be null");
+        }
+        return rollup(toMinute(from), toMinute(to));
+    }
+
+    private SalesRollup rollup(int fromMinute, int toMinute) {
+        Segment root;
+        List<String> productList;
+        List<String> machineList;
+        synchronized (this) {
+            productList = new ArrayList<>(productNames);
+            machineList = new ArrayList<>(machineNames);
+            root = new Segment(products, machines, amountCents, changeCents, minutes, 0, size,
+                               productList.size(), machineList.size(), fromMinute, toMinute);
+        }
+        // Checked before summing, so cell numbers below fit in an int
+        int cells = cellCount(productList.size(), machineList.size());
+        Partial sums = ForkJoinPool.commonPool().invoke(root);
+        // Only the result is dense; the tasks hold at most one cell per row they scanned
+        long[] counts = new long[cells];
+        long[] amounts = new long[cells];
+        long[] changes = new long[cells];
+        for (int i = 0; i < sums.size; i++) {
+            counts[sums.cells[i]] = sums.counts[i];
+            amounts[sums.cells[i]] = sums.amounts[i];
+            changes[sums.cells[i]] = sums.changes[i];
+        }
+        return new SalesRollup(productList, machineList, counts, amounts, changes);
+    }
+
+    /**
+     * Gets the number of cells of a dense rollup, or throws if its three
+     * columns cannot be allocated.
+     */
+    private static int cellCount(int productCount, int machineCount) {
+        long cells;
+        try {
+            cells = Math.multiplyExact((long) productCount * SalesRollup.HOURS, machineCount);
+        } catch (ArithmeticException e) {
+            cells = Long.MAX_VALUE;
+        }
+        if (cells > MAX_CELLS || cells > Runtime.getRuntime().maxMemory() / (3 * Long.BYTES)) {
+            throw new IllegalStateException(String.format(
+                    "A rollup of %d products by %d hours by %d machines has more cells than can be allocated",
+                    productCount, SalesRollup.HOURS, machineCount));
+        }
+        return (int) cells;
+    }
+
+    /**
+     * Sums a range of rows into the cells (product * 24 + hour) * machines + machine
+     * they touch, splitting large ranges.
+     */
+    private static final class Segment extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] products;
+        private final int[] machines;
+        private final int[] amountCents;
+        private final int[] changeCents;
+        private final int[] minutes;
+        private final int start;
+        private final int end;
+        private final int productCount;
+        private final int machineCount;
+        private final int fromMinute;
+        private final int toMinute;
+
+        Segment(int[] products, int[] machines, int[] amountCents, int[] changeCents, int[] minutes,
+                int start, int end, int productCount, int machineCount, int fromMinute, int toMinute) {
+            this.products = products;
+            this.machines = machines;
+            this.amountCents = amountCents;
+            this.changeCents = changeCents;
+            this.minutes = minutes;
+            this.start = start;
+            this.end = end;
+            this.productCount = productCount;
+            this.machineCount = machineCount;
+            this.fromMinute = fromMinute;
+            this.toMinute = toMinute;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (end - start > SEGMENT_SIZE) {
+                int middle = (start + end) >>> 1;
+                Segment left = split(start, middle);
+                Segment right = split(middle, end);
+                left.fork();
+                Partial sums = right.compute();
+                return left.join().merge(sums);
+            }
+            long cells = (long) productCount * SalesRollup.HOURS * machineCount;
+            // A small cube is summed densely; a large one in a table sized by the rows, not the cells
+            return cells <= end - start ? sumDense((int) cells) : sumSparse();
+        }
+
+        private int cell(int row) {
+            int hour = Math.floorMod(Math.floorDiv(minutes[row], 60), SalesRollup.HOURS);
+            int product = products[row] < 0 ? ~products[row] : products[row];
+            return (product * SalesRollup.HOURS + hour) * machineCount + machines[row];
+        }
+
+        private int units(int row) {
+            return products[row] < 0 ? -1 : 1;
+        }
+
+        private boolean inRange(int row) {
+            return minutes[row] >= fromMinute && minutes[row] < toMinute;
+        }
+
+        private Partial sumDense(int cells) {
+            long[] counts = new long[cells];
+            long[] amounts = new long[cells];
+            long[] changes = new long[cells];
+            for (int i = start; i < end; i++) {
+                if (inRange(i)) {
+                    int cell = cell(i);
+                    counts[cell] += units(i);
+                    amounts[cell] += amountCents[i];
+                    changes[cell] += changeCents[i];
+                }
+            }
+            Partial sums = new Partial(cells);
+            for (int cell = 0; cell < cells; cell++) {
+                if (counts[cell] != 0 || amounts[cell] != 0 || changes[cell] != 0) {
+                    sums.add(cell, counts[cell], amounts[cell], changes[cell]);
+                }
+            }
+            return sums;
+        }
+
+        private Partial sumSparse() {
+            // Open addressing on the cell number, at most half full
+            int capacity = Integer.highestOneBit(Math.max(end - start, 1) * 2 - 1) << 1;
+            int mask = capacity - 1;
+            int[] keys = new int[capacity];
+            Arrays.fill(keys, -1);
+            long[] counts = new long[capacity];
+            long[] amounts = new long[capacity];
+            long[] changes = new long[capacity];
+            int used = 0;
+            for (int i = start; i < end; i++) {
+                if (!inRange(i)) {
+                    continue;
+                }
+                int cell = cell(i);
+                int slot = (cell * 0x9E3779B9) >>> 1 & mask;
+                while (keys[slot] != cell && keys[slot] != -1) {
+                    slot = (slot + 1) & mask;
+                }
+                if (keys[slot] == -1) {
+                    keys[slot] = cell;
+                    used++;
+                }
+                counts[slot] += units(i);
+                amounts[slot] += amountCents[i];
+                changes[slot] += changeCents[i];
+            }
+            // Partials are kept in cell order so that merging them is a linear walk
+            long[] order = new long[used];
+            int n = 0;
+            for (int slot = 0; slot < capacity; slot++) {
+                if (keys[slot] != -1) {
+                    order[n++] = (long) keys[slot] << 32 | slot;
+                }
+            }
+            Arrays.sort(order);
+            Partial sums = new Partial(used);
+            for (long entry : order) {
+                int slot = (int) entry;
+                sums.add(keys[slot], counts[slot], amounts[slot], changes[slot]);
+            }
+            return sums;
+        }
+
+        private Segment split(int from, int to) {
+            return new Segment(products, machines, amountCents, changeCents, minutes, from, to,
+                               productCount, machineCount, fromMinute, toMinute);
+        }
+    }
+
+    /**
+     * The non-empty cells of a segment in ascending order, with their sums.
+     */
+    private static final class Partial {
+        private final int[] cells;
+        private final long[] counts;
+        private final long[] amounts;
+        private final long[] changes;
+        private int size;
+
+        Partial(int capacity) {
+            cells = new int[capacity];
+            counts = new long[capacity];
+            amounts = new long[capacity];
+            changes = new long[capacity];
+        }
+
+        void add(int cell, long count, long amount, long change) {
+            cells[size] = cell;
+            counts[size] = count;
+            amounts[size] = amount;
+            changes[size] = change;
+            size++;
+        }
+
+        Partial merge(Partial other) {
+            Partial merged = new Partial(size + other.size);
+            int i = 0;
+            int j = 0;
+            while (i < size || j < other.size) {
+                if (j == other.size || (i < size && cells[i] < other.cells[j])) {
+                    merged.add(cells[i], counts[i], amounts[i], changes[i]);
+                    i++;
+                } else if (i == size || other.cells[j] < cells[i]) {
+                    merged.add(other.cells[j], other.counts[j], other.amounts[j], other.changes[j]);
+                    j++;
+                } else {
+                    merged.add(cells[i], counts[i] + other.counts[j], amounts[i] + other.amounts[j],
+                               changes[i] + other.changes[j]);
+                    i++;
+                    j++;
+                }
+            }
+            return merged;
+        }
+    }
+}
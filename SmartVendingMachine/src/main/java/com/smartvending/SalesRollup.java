@@ -0,0 +1,186 @@
+package com.smartvending;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sales aggregated by product, hour of day and machine, as computed by
+ * {@link SalesCube#rollup()}. Amounts are in cents. Unknown product or
+ * machine names aggregate to zero.
+ */
+public class SalesRollup {
+    /** Number of hour-of-day buckets. */
+    public static final int HOURS = 24;
+
+    private final List<String> products;
+    private final List<String> machines;
+    private final Map<String, Integer> productIndex = new HashMap<>();
+    private final Map<String, Integer> machineIndex = new HashMap<>();
+    private final long[] counts;
+    private final long[] amounts;
+    private final long[] changes;
+
+    SalesRollup(List<String> products, List<String> machines, long[] counts, long[] amounts, long[] changes) {
+        this.products = Collections.unmodifiableList(products);
+        this.machines = Collections.unmodifiableList(machines);
+        this.counts = counts;
+        this.amounts = amounts;
+        this.changes = changes;
+        for (int i = 0; i < products.size(); i++) {
+            productIndex.put(products.get(i), i);
+        }
+        for (int i = 0; i < machines.size(); i++) {
+            machineIndex.put(machines.get(i), i);
+        }
+    }
+
+    /**
+     * Gets the products of the rollup.
+     *
+     * @return the product names
+     */
+    public List<String> getProductNames() {
+        return products;
+    }
+
+    /**
+     * Gets the machines of the rollup.
+     *
+     * @return the machine names
+     */
+    public List<String> getMachineNames() {
+        return machines;
+    }
+
+    /**
+     * Gets the number of sales of a product in an hour of day on a machine.
+     *
+     * @param productName the product
+     * @param hour the hour of day, 0 to 23
+     * @param machineName the machine
+     * @return the sale count
+     * @throws IllegalArgumentException if hour is out of range
+     */
+    public long getCount(String productName, int hour, String machineName) {
+        return cell(counts, productName, hour, machineName);
+    }
+
+    /**
+     * Gets the amount paid for a product in an hour of day on a machine.
+     *
+     * @param productName the product
+     * @param hour the hour of day, 0 to 23
+     * @param machineName the machine
+     * @return the amount in cents
+     * @throws IllegalArgumentException if hour is out of range
+     */
+    public long getRevenueCents(String productName, int hour, String machineName) {
+        return cell(amounts, productName, hour, machineName);
+    }
+
+    /**
+     * Gets the change given for a product in an hour of day on a machine.
+     *
+     * @param productName the product
+     * @param hour the hour of day, 0 to 23
+     * @param machineName the machine
+     * @return the change in cents
+     * @throws IllegalArgumentException if hour is out of range
+     */
+    public long getChangeCents(String productName, int hour, String machineName) {
+        return cell(changes, productName, hour, machineName);
+    }
+
+    /**
+     * Gets the number of sales of a product across all hours and machines.
+     *
+     * @param productName the product
+     * @return the sale count
+     */
+    public long getCount(String productName) {
+        return productTotal(counts, productName);
+    }
+
+    /**
+     * Gets the amount paid for a product across all hours and machines.
+     *
+     * @param productName the product
+     * @return the amount in cents
+     */
+    public long getRevenueCents(String productName) {
+        return productTotal(amounts, productName);
+    }
+
+    /**
+     * Gets the amount paid on a machine in each hour of day, across all products.
+     *
+     * @param machineName the machine
+     * @return the amounts in cents, indexed by hour of day
+     */
+    public long[] getHourlyRevenueCents(String machineName) {
+        long[] hourly = new long[HOURS];
+        int machine = machineIndex.getOrDefault(machineName, -1);
+        if (machine < 0) {
+            return hourly;
+        }
+        for (int product = 0; product < products.size(); product++) {
+            for (int hour = 0; hour < HOURS; hour++) {
+                hourly[hour] += amounts[(product * HOURS + hour) * machines.size() + machine];
+            }
+        }
+        return hourly;
+    }
+
+    /**
+     * Gets the number of sales in the rollup.
+     *
+     * @return the total sale count
+     */
+    public long getTotalCount() {
+        return sum(counts);
+    }
+
+    /**
+     * Gets the amount paid across the whole rollup.
+     *
+     * @return the total amount in cents
+     */
+    public long getTotalRevenueCents() {
+        return sum(amounts);
+    }
+
+    private long cell(long[] values, String productName, int hour, String machineName) {
+        if (hour < 0 || hour >= HOURS) {
+            throw new IllegalArgumentException("Hour must be between 0 and 23");
+        }
+        int product = productIndex.getOrDefault(productName, -1);
+        int machine = machineIndex.getOrDefault(machineName, -1);
+        if (product < 0 || machine < 0) {
+            return 0;
+        }
+        return values[(product * HOURS + hour) * machines.size() + machine];
+    }
+
+    private long productTotal(long[] values, String productName) {
+        int product = productIndex.getOrDefault(productName, -1);
+        if (product < 0) {
+            return 0;
+        }
+        int width = HOURS * machines.size();
+        long total = 0;
+        for (int i = product * width; i < (product + 1) * width; i++) {
+            total += values[i];
+        }
+        return total;
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
+    }
+}
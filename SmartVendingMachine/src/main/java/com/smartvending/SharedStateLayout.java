@@ -0,0 +1,100 @@
+package com.smartvending;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Offsets and helpers for the memory-mapped region shared by a
+ * {@link SharedStateRegion} and its {@link SharedStateView}s.
+ * <p>
+ * The region starts with a header of the magic, version and capacities,
+ * followed by the snapshot sequence, the ring tail and the ring head on
+ * separate cache lines. The snapshot is the balance in cents, the product
+ * count and one 64-byte entry per product. The command ring follows, with
+ * one 64-byte slot per command. All values are in native byte order.
+ */
+final class SharedStateLayout {
+    static final int MAGIC = 0x5356534D; // "SVSM"
+    static final int VERSION = 1;
+
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int PRODUCT_CAPACITY_OFFSET = 8;
+    static final int RING_CAPACITY_OFFSET = 12;
+    static final int SEQUENCE_OFFSET = 64;
+    static final int TAIL_OFFSET = 128;
+    static final int HEAD_OFFSET = 192;
+    static final int BALANCE_OFFSET = 256;
+    static final int PRODUCT_COUNT_OFFSET = 264;
+    static final int PRODUCTS_OFFSET = 320;
+
+    static final int ENTRY_SIZE = 64;
+    /** Longest product name, in UTF-8 bytes, that fits in an entry or slot. */
+    static final int NAME_BYTES = 46;
+
+    // Product entry: price in cents, stock, name
+    static final int PRICE = 0;
+    static final int STOCK = 8;
+    static final int PRODUCT_NAME = 12;
+
+    // Command slot: opcode, result, amount in cents, product name
+    static final int OPCODE = 0;
+    static final int RESULT = 4;
+    static final int AMOUNT = 8;
+    static final int COMMAND_NAME = 16;
+
+    static final int INSERT_MONEY = 1;
+    static final int SELECT_PRODUCT = 2;
+
+    static final int PENDING = 0;
+    static final int ACCEPTED = 1;
+    static final int REJECTED = 2;
+
+    static final VarHandle INTS = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+    static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private SharedStateLayout() {
+    }
+
+    static int ringOffset(int productCapacity) {
+        return PRODUCTS_OFFSET + productCapacity * ENTRY_SIZE;
+    }
+
+    static int size(int productCapacity, int ringCapacity) {
+        return ringOffset(productCapacity) + ringCapacity * ENTRY_SIZE;
+    }
+
+    /**
+     * Encodes a product name, or returns null if it does not fit.
+     */
+    static byte[] encodeName(String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        return bytes.length <= NAME_BYTES ? bytes : null;
+    }
+
+    /**
+     * Writes a length-prefixed name at an absolute offset.
+     */
+    static void putName(ByteBuffer buffer, int offset, byte[] name) {
+        buffer.putShort(offset, (short) name.length);
+        for (int i = 0; i < name.length; i++) {
+            buffer.put(offset + 2 + i, name[i]);
+        }
+    }
+
+    /**
+     * Reads a length-prefixed name at an absolute offset. A torn length is
+     * clamped, since the reader discards the result anyway.
+     */
+    static String getName(ByteBuffer buffer, int offset) {
+        int length = Math.min(Math.max(buffer.getShort(offset), 0), NAME_BYTES);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + 2 + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
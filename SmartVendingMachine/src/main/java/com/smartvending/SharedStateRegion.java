@@ -0,0 +1,357 @@
+package com.smartvending;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static com.smartvending.SharedStateLayout.*;
+
+/**
+ * Shares the state of a vending machine with other processes, such as a
+ * touchscreen UI, through a memory-mapped file.
+ * <p>
+ * After every state change the machine's balance and the entry of the product
+ * that changed are rewritten under a sequence lock: the sequence is odd while
+ * the snapshot is being written, so a {@link SharedStateView} can read it
+ * without locking and retry if it changed underneath. The snapshot is written
+ * by the thread that changed the machine while it holds the machine lock, so
+ * there is a single writer. A product keeps its entry until it is removed;
+ * the entry is then taken by a product that did not fit before, or by the
+ * last entry.
+ * <p>
+ * The file also holds a ring of commands submitted by a single
+ * {@link SharedStateView}. A daemon thread applies them to the machine in
+ * order, spinning briefly and then parking while the ring is empty, and marks
+ * each one accepted or rejected; a command that fails for any reason is
+ * rejected without stopping the thread. Products whose names are longer than
+ * {@value SharedStateLayout#NAME_BYTES} UTF-8 bytes, and products beyond the
+ * capacity of the region, are left out of the snapshot.
+ */
+public class SharedStateRegion implements AutoCloseable {
+    /** Default number of product entries in the snapshot. */
+    public static final int DEFAULT_PRODUCT_CAPACITY = 64;
+    /** Default number of command slots in the ring. */
+    public static final int DEFAULT_RING_CAPACITY = 256;
+
+    private static final int SPIN_LIMIT = 1_000;
+    private static final long IDLE_PARK_NANOS = 50_000;
+
+    private final VendingMachine machine;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int productCapacity;
+    private final int ringCapacity;
+    private final int ringOffset;
+    private final Consumer<MachineOperation> listener = this::publish;
+    private final Thread commandLoop;
+    private final AtomicLong processedCommands = new AtomicLong();
+    private final AtomicLong rejectedCommands = new AtomicLong();
+    private volatile boolean closed;
+
+    // Guarded by the machine lock: the product in each snapshot entry, and the products left out
+    private final String[] entryNames;
+    private final Map<String, Integer> entryIndexes = new HashMap<>();
+    private int entryCount;
+    private final Set<String> omitted = new LinkedHashSet<>();
+
+    /**
+     * Constructs a new SharedStateRegion with the default capacities.
+     *
+     * @param machine the machine to share
+     * @param file the file to map, created if it does not exist
+     * @throws IOException if the file cannot be mapped
+     * @throws IllegalArgumentException if machine or file is null
+     */
+    public SharedStateRegion(VendingMachine machine, Path file) throws IOException {
+        this(machine, file, DEFAULT_PRODUCT_CAPACITY, DEFAULT_RING_CAPACITY);
+    }
+
+    /**
+     * Constructs a new SharedStateRegion, publishes the current state and starts
+     * applying commands.
+     *
+     * @param machine the machine to share
+     * @param file the file to map, created if it does not exist
+     * @param productCapacity the most products the snapshot holds
+     * @param ringCapacity the most commands waiting to be applied, a power of two
+     * @throws IOException if the file cannot be mapped
+     * @throws IllegalArgumentException if machine or file is null, productCapacity is
+     *         not positive or ringCapacity is not a power of two
+     */
+    public SharedStateRegion(VendingMachine machine, Path file, int productCapacity, int ringCapacity)
+            throws IOException {
+        if (machine == null || file == null) {
+            throw new IllegalArgumentException("Machine and file cannot be null");
+        }
+        if (productCapacity <= 0) {
+            throw new IllegalArgumentException("Product capacity must be positive");
+        }
+        if (ringCapacity <= 0 || Integer.bitCount(ringCapacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two");
+        }
+        this.machine = machine;
+        this.productCapacity = productCapacity;
+        this.ringCapacity = ringCapacity;
+        this.ringOffset = ringOffset(productCapacity);
+        this.entryNames = new String[productCapacity];
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                        StandardOpenOption.WRITE);
+        try {
+            int size = size(productCapacity, ringCapacity);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.nativeOrder());
+            INTS.setRelease(buffer, MAGIC_OFFSET, 0);
+            for (int offset = VERSION_OFFSET; offset < size; offset += 4) {
+                buffer.putInt(offset, 0);
+            }
+            buffer.putInt(VERSION_OFFSET, VERSION);
+            buffer.putInt(PRODUCT_CAPACITY_OFFSET, productCapacity);
+            buffer.putInt(RING_CAPACITY_OFFSET, ringCapacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        synchronized (machine) {
+            long sequence = beginWrite();
+            writeAll();
+            endWrite(sequence);
+            machine.addOperationListener(listener);
+        }
+        INTS.setRelease(buffer, MAGIC_OFFSET, MAGIC);
+        commandLoop = new Thread(this::commandLoop, "shared-state-commands");
+        commandLoop.setDaemon(true);
+        commandLoop.start();
+    }
+
+    // Called with the machine lock held, so there is one writer at a time
+    private void publish(MachineOperation operation) {
+        long sequence = beginWrite();
+        switch (operation.getType()) {
+            case INSERT_MONEY:
+            case GET_CHANGE:
+            case SET_CATEGORY:
+                break;
+            case ADD_PRODUCT:
+            case SELECT_PRODUCT:
+            case PREPAID_SALE:
+            case RESTOCK:
+            case SET_PRICE:
+            case WRITE_OFF:
+            case REFUND:
+                writeProduct(operation.getProductName());
+                break;
+            case REMOVE_PRODUCT:
+                removeProduct(operation.getProductName());
+                break;
+            case CLEAR_PRODUCTS:
+                entryIndexes.clear();
+                omitted.clear();
+                entryCount = 0;
+                break;
+            default:
+                writeAll();
+                break;
+        }
+        buffer.putLong(BALANCE_OFFSET, Math.round(machine.getCurrentBalance() * 100));
+        buffer.putInt(PRODUCT_COUNT_OFFSET, entryCount);
+        endWrite(sequence);
+    }
+
+    private long beginWrite() {
+        long sequence = (long) LONGS.get(buffer, SEQUENCE_OFFSET);
+        LONGS.setOpaque(buffer, SEQUENCE_OFFSET, sequence + 1);
+        VarHandle.storeStoreFence();
+        return sequence;
+    }
+
+    private void endWrite(long sequence) {
+        LONGS.setRelease(buffer, SEQUENCE_OFFSET, sequence + 2);
+    }
+
+    /**
+     * Rewrites every entry, with the products ordered by name.
+     */
+    private void writeAll() {
+        entryIndexes.clear();
+        omitted.clear();
+        entryCount = 0;
+        List<Product> products = machine.getAllProducts();
+        products.sort(Comparator.comparing(Product::getName));
+        for (Product product : products) {
+            writeProduct(product.getName());
+        }
+        buffer.putLong(BALANCE_OFFSET, Math.round(machine.getCurrentBalance() * 100));
+        buffer.putInt(PRODUCT_COUNT_OFFSET, entryCount);
+    }
+
+    /**
+     * Rewrites the entry of a product, giving it the next free entry if it has none.
+     */
+    private void writeProduct(String productName) {
+        Product product = machine.getProduct(productName);
+        if (product == null) {
+            removeProduct(productName);
+            return;
+        }
+        Integer index = entryIndexes.get(productName);
+        if (index == null) {
+            byte[] name = encodeName(productName);
+            if (name == null || entryCount == productCapacity) {
+                omitted.add(productName);
+                return;
+            }
+            index = entryCount++;
+            entryNames[index] = productName;
+            entryIndexes.put(productName, index);
+            putName(buffer, PRODUCTS_OFFSET + index * ENTRY_SIZE + PRODUCT_NAME, name);
+        }
+        int entry = PRODUCTS_OFFSET + index * ENTRY_SIZE;
+        buffer.putLong(entry + PRICE, Math.round(product.getPrice() * 100));
+        buffer.putInt(entry + STOCK, product.getStock());
+    }
+
+    /**
+     * Frees the entry of a removed product for the first product left out
+     * that fits, or else moves the last entry into it.
+     */
+    private void removeProduct(String productName) {
+        if (omitted.remove(productName)) {
+            return;
+        }
+        Integer index = entryIndexes.remove(productName);
+        if (index == null) {
+            return;
+        }
+        for (Iterator<String> waiting = omitted.iterator(); waiting.hasNext();) {
+            String name = waiting.next();
+            byte[] encoded = encodeName(name);
+            if (encoded != null) {
+                waiting.remove();
+                entryNames[index] = name;
+                entryIndexes.put(name, index);
+                putName(buffer, PRODUCTS_OFFSET + index * ENTRY_SIZE + PRODUCT_NAME, encoded);
+                writeProduct(name);
+                return;
+            }
+        }
+        int last = --entryCount;
+        if (index != last) {
+            int from = PRODUCTS_OFFSET + last * ENTRY_SIZE;
+            int to = PRODUCTS_OFFSET + index * ENTRY_SIZE;
+            for (int offset = 0; offset < ENTRY_SIZE; offset += Long.BYTES) {
+                buffer.putLong(to + offset, buffer.getLong(from + offset));
+            }
+            entryNames[index] = entryNames[last];
+            entryIndexes.put(entryNames[index], index);
+        }
+        entryNames[last] = null;
+    }
+
+    private void commandLoop() {
+        int idle = 0;
+        while (!closed) {
+            if (processCommands() > 0) {
+                idle = 0;
+            } else if (++idle < SPIN_LIMIT) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private int processCommands() {
+        long head = (long) LONGS.getOpaque(buffer, HEAD_OFFSET);
+        long tail = (long) LONGS.getAcquire(buffer, TAIL_OFFSET);
+        int processed = 0;
+        for (; head < tail; head++) {
+            int slot = ringOffset + (int) (head & (ringCapacity - 1)) * ENTRY_SIZE;
+            int result = ACCEPTED;
+            try {
+                int opcode = buffer.getInt(slot + OPCODE);
+                if (opcode == INSERT_MONEY) {
+                    machine.insertMoney(buffer.getLong(slot + AMOUNT) / 100.0);
+                } else if (opcode == SELECT_PRODUCT) {
+                    machine.selectProduct(getName(buffer, slot + COMMAND_NAME));
+                } else {
+                    throw new IllegalArgumentException("Unknown command: " + opcode);
+                }
+            } catch (RuntimeException e) {
+                // Refused by the machine, or failed in a listener: either way the loop must keep going
+                result = REJECTED;
+                rejectedCommands.incrementAndGet();
+            }
+            INTS.setRelease(buffer, slot + RESULT, result);
+            LONGS.setRelease(buffer, HEAD_OFFSET, head + 1);
+            processedCommands.incrementAndGet();
+            processed++;
+        }
+        return processed;
+    }
+
+    /**
+     * Gets the number of commands applied, including rejected ones.
+     *
+     * @return the processed command count
+     */
+    public long getProcessedCommandCount() {
+        return processedCommands.get();
+    }
+
+    /**
+     * Gets the number of commands the machine rejected, such as purchases with
+     * insufficient funds.
+     *
+     * @return the rejected command count
+     */
+    public long getRejectedCommandCount() {
+        return rejectedCommands.get();
+    }
+
+    /**
+     * Gets the products left out of the snapshot because their names are too
+     * long or the region was full when they were added.
+     *
+     * @return the names of the omitted products, ordered by name
+     */
+    public List<String> getOmittedProducts() {
+        List<String> names;
+        synchronized (machine) {
+            names = new ArrayList<>(omitted);
+        }
+        names.sort(Comparator.naturalOrder());
+        return names;
+    }
+
+    /**
+     * Stops publishing and applying commands, and closes the file. Views that
+     * still map the file keep seeing the last snapshot.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        machine.removeOperationListener(listener);
+        LockSupport.unpark(commandLoop);
+        try {
+            commandLoop.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+}
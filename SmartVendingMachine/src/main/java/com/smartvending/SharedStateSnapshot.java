@@ -0,0 +1,74 @@
+package com.smartvending;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A consistent copy of the state published by a {@link SharedStateRegion},
+ * as read by {@link SharedStateView#readSnapshot()}.
+ */
+public class SharedStateSnapshot {
+    private final long version;
+    private final double balance;
+    private final List<Product> products;
+
+    SharedStateSnapshot(long version, double balance, List<Product> products) {
+        this.version = version;
+        this.balance = balance;
+        this.products = Collections.unmodifiableList(products);
+    }
+
+    /**
+     * Gets the version of the snapshot, which grows with every state change.
+     *
+     * @return the snapshot version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the balance inserted into the machine.
+     *
+     * @return the current balance
+     */
+    public double getBalance() {
+        return balance;
+    }
+
+    /**
+     * Gets copies of the machine's products. A product keeps its position
+     * from one snapshot to the next until it is removed.
+     *
+     * @return the products
+     */
+    public List<Product> getProducts() {
+        return products;
+    }
+
+    /**
+     * Gets a copy of a product by name.
+     *
+     * @param productName the name of the product
+     * @return the product, or null if it is not in the snapshot
+     */
+    public Product getProduct(String productName) {
+        for (Product product : products) {
+            if (product.getName().equals(productName)) {
+                return product;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a string representation of the snapshot.
+     *
+     * @return a string containing the version, balance and product count
+     */
+    @Override
+    public String toString() {
+        return String.format("SharedStateSnapshot{version=%d, balance=%.2f, products=%d}",
+                             version, balance, products.size());
+    }
+}
@@ -0,0 +1,228 @@
+package com.smartvending;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.smartvending.SharedStateLayout.*;
+
+/**
+ * Reads the state published by a {@link SharedStateRegion}, possibly in
+ * another process, and submits commands to its machine.
+ * <p>
+ * Snapshots are read without locking: a read is retried while the region is
+ * writing a new snapshot. Commands are written to the region's ring and
+ * identified by a sequence number, which can be used to wait for the command
+ * to be applied and to check whether the machine accepted it. The command ring
+ * has a single producer, so only one view may submit commands to a region;
+ * any number of views may read snapshots.
+ */
+public class SharedStateView implements AutoCloseable {
+    private static final int SPIN_LIMIT = 1_000;
+    private static final long IDLE_PARK_NANOS = 10_000;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int productCapacity;
+    private final int ringCapacity;
+    private final int ringOffset;
+
+    /**
+     * Constructs a new SharedStateView of the region in a file.
+     *
+     * @param file the file mapped by a {@link SharedStateRegion}
+     * @throws IOException if the file cannot be mapped or does not hold a region
+     * @throws IllegalArgumentException if file is null
+     */
+    public SharedStateView(Path file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < PRODUCTS_OFFSET) {
+                throw new IOException("Not a shared state region: " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, PRODUCTS_OFFSET);
+            header.order(ByteOrder.nativeOrder());
+            if ((int) INTS.getAcquire(header, MAGIC_OFFSET) != MAGIC) {
+                throw new IOException("Not a shared state region: " + file);
+            }
+            if (header.getInt(VERSION_OFFSET) != VERSION) {
+                throw new IOException("Unsupported shared state version: " + header.getInt(VERSION_OFFSET));
+            }
+            productCapacity = header.getInt(PRODUCT_CAPACITY_OFFSET);
+            ringCapacity = header.getInt(RING_CAPACITY_OFFSET);
+            ringOffset = ringOffset(productCapacity);
+            int size = size(productCapacity, ringCapacity);
+            if (channel.size() < size) {
+                throw new IOException("Truncated shared state region: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.nativeOrder());
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a consistent snapshot of the machine's state.
+     *
+     * @return the snapshot
+     */
+    public SharedStateSnapshot readSnapshot() {
+        long[] prices = new long[productCapacity];
+        int[] stocks = new int[productCapacity];
+        String[] names = new String[productCapacity];
+        int spins = 0;
+        while (true) {
+            long before = (long) LONGS.getAcquire(buffer, SEQUENCE_OFFSET);
+            if ((before & 1) == 0) {
+                long balanceCents = buffer.getLong(BALANCE_OFFSET);
+                int count = Math.min(Math.max(buffer.getInt(PRODUCT_COUNT_OFFSET), 0), productCapacity);
+                for (int i = 0; i < count; i++) {
+                    int entry = PRODUCTS_OFFSET + i * ENTRY_SIZE;
+                    prices[i] = buffer.getLong(entry + PRICE);
+                    stocks[i] = buffer.getInt(entry + STOCK);
+                    names[i] = getName(buffer, entry + PRODUCT_NAME);
+                }
+                VarHandle.loadLoadFence();
+                if ((long) LONGS.getOpaque(buffer, SEQUENCE_OFFSET) == before) {
+                    List<Product> products = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        products.add(new Product(names[i], prices[i] / 100.0, stocks[i]));
+                    }
+                    return new SharedStateSnapshot(before / 2, balanceCents / 100.0, products);
+                }
+            }
+            if (++spins < SPIN_LIMIT) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Submits money to be inserted into the machine.
+     *
+     * @param amount the amount of money to insert
+     * @return the sequence number of the command
+     * @throws IllegalArgumentException if amount is not positive
+     * @throws IllegalStateException if the command ring is full
+     */
+    public synchronized long submitInsertMoney(double amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive");
+        }
+        return submit(INSERT_MONEY, Math.round(amount * 100), new byte[0]);
+    }
+
+    /**
+     * Submits a product to be purchased with the balance.
+     *
+     * @param productName the name of the product to purchase
+     * @return the sequence number of the command
+     * @throws IllegalArgumentException if productName is null, empty or too long
+     * @throws IllegalStateException if the command ring is full
+     */
+    public synchronized long submitSelectProduct(String productName) {
+        if (productName == null || productName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Product name cannot be null or empty");
+        }
+        byte[] name = encodeName(productName);
+        if (name == null) {
+            throw new IllegalArgumentException("Product name is longer than " + NAME_BYTES + " bytes");
+        }
+        return submit(SELECT_PRODUCT, 0, name);
+    }
+
+    private long submit(int opcode, long amountCents, byte[] name) {
+        long tail = (long) LONGS.getOpaque(buffer, TAIL_OFFSET);
+        long head = (long) LONGS.getAcquire(buffer, HEAD_OFFSET);
+        if (tail - head >= ringCapacity) {
+            throw new IllegalStateException("Command ring is full");
+        }
+        int slot = slotOffset(tail);
+        buffer.putInt(slot + OPCODE, opcode);
+        buffer.putInt(slot + RESULT, PENDING);
+        buffer.putLong(slot + AMOUNT, amountCents);
+        putName(buffer, slot + COMMAND_NAME, name);
+        LONGS.setRelease(buffer, TAIL_OFFSET, tail + 1);
+        return tail;
+    }
+
+    private int slotOffset(long sequence) {
+        return ringOffset + (int) (sequence & (ringCapacity - 1)) * ENTRY_SIZE;
+    }
+
+    /**
+     * Checks if a command has been applied to the machine.
+     *
+     * @param sequence the sequence number of the command
+     * @return true if the command has been applied, false otherwise
+     */
+    public boolean isCompleted(long sequence) {
+        return (long) LONGS.getAcquire(buffer, HEAD_OFFSET) > sequence;
+    }
+
+    /**
+     * Waits for a command to be applied to the machine, spinning briefly and
+     * then parking.
+     *
+     * @param sequence the sequence number of the command
+     * @param timeout the maximum time to wait
+     * @return true if the command was applied, false if the timeout elapsed first
+     */
+    public boolean awaitCompletion(long sequence, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        int spins = 0;
+        while (!isCompleted(sequence)) {
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            if (++spins < SPIN_LIMIT) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the machine accepted a completed command. The result is kept
+     * until the command's slot is reused, that is for the next ring capacity
+     * submissions.
+     *
+     * @param sequence the sequence number of the command
+     * @return true if the command was accepted, false if the machine rejected it
+     * @throws IllegalStateException if the command has not completed or its slot was reused
+     */
+    public synchronized boolean isAccepted(long sequence) {
+        if (!isCompleted(sequence)) {
+            throw new IllegalStateException("Command has not completed: " + sequence);
+        }
+        if ((long) LONGS.getOpaque(buffer, TAIL_OFFSET) - sequence > ringCapacity) {
+            throw new IllegalStateException("Command result was overwritten: " + sequence);
+        }
+        return (int) INTS.getAcquire(buffer, slotOffset(sequence) + RESULT) == ACCEPTED;
+    }
+
+    /**
+     * Closes the file. Commands already submitted are still applied by the region.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,169 @@
+package com.smartvending;
+
+import java.util.Arrays;
+
+/**
+ * Summarizes the outcome of a load simulation run.
+ * Counts and revenue depend only on the seed and configuration of the run;
+ * latencies are measured in real time and vary between runs.
+ */
+public class SimulationReport {
+    private final long arrivals;
+    private final long sales;
+    private final long outOfStock;
+    private final long insufficientFunds;
+    private final long notFound;
+    private final double revenue;
+    private final double virtualSeconds;
+    private final long[] sortedLatencies;
+
+    /**
+     * Constructs a new SimulationReport.
+     *
+     * @param arrivals the number of customers that arrived
+     * @param sales the number of successful purchases
+     * @param outOfStock the number of purchases that failed because the product was out of stock
+     * @param insufficientFunds the number of purchases that failed because of insufficient funds
+     * @param notFound the number of purchases that failed because the product was not found
+     * @param revenue the total amount paid for successful purchases
+     * @param virtualSeconds the simulated duration in seconds
+     * @param latencies the real-time latency of every customer interaction in nanoseconds
+     */
+    public SimulationReport(long arrivals, long sales, long outOfStock, long insufficientFunds, long notFound,
+                            double revenue, double virtualSeconds, long[] latencies) {
+        this.arrivals = arrivals;
+        this.sales = sales;
+        this.outOfStock = outOfStock;
+        this.insufficientFunds = insufficientFunds;
+        this.notFound = notFound;
+        this.revenue = revenue;
+        this.virtualSeconds = virtualSeconds;
+        this.sortedLatencies = latencies.clone();
+        Arrays.sort(this.sortedLatencies);
+    }
+
+    /**
+     * Gets the number of customers that arrived.
+     *
+     * @return the number of arrivals
+     */
+    public long getArrivals() {
+        return arrivals;
+    }
+
+    /**
+     * Gets the number of successful purchases.
+     *
+     * @return the number of sales
+     */
+    public long getSales() {
+        return sales;
+    }
+
+    /**
+     * Gets the number of purchases that failed because the product was out of stock.
+     *
+     * @return the out of stock count
+     */
+    public long getOutOfStockCount() {
+        return outOfStock;
+    }
+
+    /**
+     * Gets the number of purchases that failed because of insufficient funds.
+     *
+     * @return the insufficient funds count
+     */
+    public long getInsufficientFundsCount() {
+        return insufficientFunds;
+    }
+
+    /**
+     * Gets the number of purchases that failed because the product was not found.
+     *
+     * @return the not found count
+     */
+    public long getNotFoundCount() {
+        return notFound;
+    }
+
+    /**
+     * Gets the share of arrivals that failed because the product was out of stock.
+     *
+     * @return the out of stock rate between 0 and 1
+     */
+    public double getOutOfStockRate() {
+        return rate(outOfStock);
+    }
+
+    /**
+     * Gets the share of arrivals that failed because of insufficient funds.
+     *
+     * @return the insufficient funds rate between 0 and 1
+     */
+    public double getInsufficientFundsRate() {
+        return rate(insufficientFunds);
+    }
+
+    /**
+     * Gets the total amount paid for successful purchases.
+     *
+     * @return the revenue
+     */
+    public double getRevenue() {
+        return revenue;
+    }
+
+    /**
+     * Gets the simulated duration.
+     *
+     * @return the duration in virtual seconds
+     */
+    public double getVirtualSeconds() {
+        return virtualSeconds;
+    }
+
+    /**
+     * Gets the number of successful purchases per virtual second.
+     *
+     * @return the throughput
+     */
+    public double getThroughput() {
+        return virtualSeconds > 0 ? sales / virtualSeconds : 0.0;
+    }
+
+    /**
+     * Gets a latency percentile of the customer interactions.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the latency in nanoseconds, or 0 if there were no arrivals
+     * @throws IllegalArgumentException if percentile is out of range
+     */
+    public long getLatencyPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        if (sortedLatencies.length == 0) {
+            return 0L;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)];
+    }
+
+    private double rate(long count) {
+        return arrivals > 0 ? (double) count / arrivals : 0.0;
+    }
+
+    /**
+     * Returns a string representation of the report.
+     *
+     * @return a string containing the main figures of the run
+     */
+    @Override
+    public String toString() {
+        return String.format("SimulationReport{arrivals=%d, sales=%d, outOfStock=%d, insufficientFunds=%d, "
+                           + "notFound=%d, throughput=%.2f/s, p50=%dns, p99=%dns}",
+                           arrivals, sales, outOfStock, insufficientFunds, notFound, getThroughput(),
+                           getLatencyPercentile(50), getLatencyPercentile(99));
+    }
+}
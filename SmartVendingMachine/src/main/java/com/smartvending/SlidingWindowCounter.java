@@ -0,0 +1,105 @@
+package com.smartvending;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts events over a sliding time window without locking.
+ * <p>
+ * The window is split into a ring of buckets. Each bucket is a single long
+ * holding the bucket's epoch in its upper bits and its count in the lower
+ * {@value #COUNT_BITS} bits, so claiming a stale bucket and counting into it
+ * is one compare-and-set. Counts older than the window are ignored when
+ * summing; the window therefore slides in steps of one bucket.
+ */
+public class SlidingWindowCounter {
+    static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long EPOCH_MASK = (1L << (Long.SIZE - COUNT_BITS)) - 1;
+
+    private final AtomicLongArray buckets;
+    private final long bucketMillis;
+
+    /**
+     * Constructs a new SlidingWindowCounter.
+     *
+     * @param window the length of the window (at least one millisecond per bucket)
+     * @param bucketCount the number of buckets the window is split into (must be positive)
+     * @throws IllegalArgumentException if window is null or shorter than bucketCount milliseconds,
+     *         or bucketCount is not positive
+     */
+    public SlidingWindowCounter(Duration window, int bucketCount) {
+        if (bucketCount <= 0) {
+            throw new IllegalArgumentException("Bucket count must be positive");
+        }
+        if (window == null || window.toMillis() < bucketCount) {
+            throw new IllegalArgumentException("Window must be at least one millisecond per bucket");
+        }
+        this.buckets = new AtomicLongArray(bucketCount);
+        this.bucketMillis = window.toMillis() / bucketCount;
+    }
+
+    /**
+     * Counts events.
+     *
+     * @param nowMillis the current time in milliseconds
+     * @param count the number of events (must not be negative)
+     * @throws IllegalArgumentException if count is negative
+     */
+    public void add(long nowMillis, long count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative");
+        }
+        long epoch = Math.floorDiv(nowMillis, bucketMillis);
+        long tag = epoch & EPOCH_MASK;
+        int index = (int) Math.floorMod(epoch, (long) buckets.length());
+        while (true) {
+            long bucket = buckets.get(index);
+            long current = (bucket >>> COUNT_BITS) == tag ? bucket & COUNT_MASK : 0;
+            long next = (tag << COUNT_BITS) | Math.min(current + count, COUNT_MASK);
+            if (buckets.compareAndSet(index, bucket, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Counts one event and returns the count in the window.
+     *
+     * @param nowMillis the current time in milliseconds
+     * @return the number of events in the window, including this one
+     */
+    public long increment(long nowMillis) {
+        add(nowMillis, 1);
+        return sum(nowMillis);
+    }
+
+    /**
+     * Gets the number of events in the window.
+     *
+     * @param nowMillis the current time in milliseconds
+     * @return the number of events counted within the window ending now
+     */
+    public long sum(long nowMillis) {
+        long tag = Math.floorDiv(nowMillis, bucketMillis) & EPOCH_MASK;
+        int length = buckets.length();
+        long sum = 0;
+        for (int i = 0; i < length; i++) {
+            long bucket = buckets.get(i);
+            long age = (tag - (bucket >>> COUNT_BITS)) & EPOCH_MASK;
+            if (age < length) {
+                sum += bucket & COUNT_MASK;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Forgets every counted event.
+     */
+    public void clear() {
+        for (int i = 0; i < buckets.length(); i++) {
+            buckets.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.smartvending;
+
+/**
+ * Represents a physical spiral slot of a vending machine.
+ * A slot is identified by its row and column, holds a single product and has
+ * a fixed capacity. Slot stock is maintained by the owning {@link Planogram}.
+ */
+public class Slot {
+    private final int row;
+    private final int column;
+    private final Product product;
+    private final int capacity;
+    private int stock;
+    private long dispenseCount;
+
+    /**
+     * Constructs a new empty Slot.
+     *
+     * @param row the row of the slot, starting at 0 for row "A"
+     * @param column the column of the slot, starting at 1
+     * @param product the product held by the slot
+     * @param capacity the number of units the slot holds (must be positive)
+     * @throws IllegalArgumentException if product is null, or row, column or capacity is out of range
+     */
+    public Slot(int row, int column, Product product, int capacity) {
+        if (row < 0 || row >= 26) {
+            throw new IllegalArgumentException("Row must be between 0 and 25");
+        }
+        if (column < 1) {
+            throw new IllegalArgumentException("Column must be positive");
+        }
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.row = row;
+        this.column = column;
+        this.product = product;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets the row of the slot.
+     *
+     * @return the row, starting at 0
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * Gets the column of the slot.
+     *
+     * @return the column, starting at 1
+     */
+    public int getColumn() {
+        return column;
+    }
+
+    /**
+     * Gets the code shown on the keypad, such as "A1".
+     *
+     * @return the slot code
+     */
+    public String getCode() {
+        return code(row, column);
+    }
+
+    /**
+     * Gets the product held by the slot.
+     *
+     * @return the product
+     */
+    public Product getProduct() {
+        return product;
+    }
+
+    /**
+     * Gets the number of units the slot holds when full.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Gets the number of units in the slot.
+     *
+     * @return the slot stock
+     */
+    public synchronized int getStock() {
+        return stock;
+    }
+
+    /**
+     * Gets the number of units dispensed from the slot so far.
+     *
+     * @return the dispense count
+     */
+    public synchronized long getDispenseCount() {
+        return dispenseCount;
+    }
+
+    synchronized int getFreeCapacity() {
+        return capacity - stock;
+    }
+
+    synchronized void add(int quantity) {
+        stock += quantity;
+    }
+
+    synchronized void dispense() {
+        stock--;
+        dispenseCount++;
+    }
+
+    static String code(int row, int column) {
+        return (char) ('A' + row) + Integer.toString(column);
+    }
+
+    /**
+     * Returns a string representation of the slot.
+     *
+     * @return a string containing the slot code, product and stock
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("Slot{code=%s, product='%s', stock=%d/%d}", getCode(), product.getName(), stock, capacity);
+    }
+}
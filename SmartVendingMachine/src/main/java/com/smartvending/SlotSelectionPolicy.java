@@ -0,0 +1,11 @@
+package com.smartvending;
+
+/**
+ * Decides which slot a product is dispensed from when it is stocked in several slots.
+ */
+public enum SlotSelectionPolicy {
+    /** Dispense from the slot holding the most units. */
+    FULLEST,
+    /** Rotate through the stocked slots so that their motors wear evenly. */
+    ROUND_ROBIN
+}
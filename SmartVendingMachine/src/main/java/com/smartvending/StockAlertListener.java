@@ -0,0 +1,17 @@
+package com.smartvending;
+
+/**
+ * Listener that is notified when the stock of a watched product falls to or
+ * below a threshold.
+ */
+public interface StockAlertListener {
+
+    /**
+     * Called when a product's stock has crossed a watched threshold.
+     *
+     * @param product the product that is running low
+     * @param threshold the threshold that was crossed
+     * @param stock the stock of the product when the alert is delivered
+     */
+    void lowStock(Product product, int threshold, int stock);
+}
@@ -0,0 +1,264 @@
+package com.smartvending;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Watches product stock levels and raises alerts when they fall to or below
+ * a threshold.
+ * The vend path only compares the old and new stock against the threshold;
+ * alerts are delivered asynchronously on a fixed-size thread pool. A watch
+ * has at most one alert pending at a time and never fires more often than
+ * once per debounce interval, so a burst of vends yields a single alert.
+ * An exception thrown by an alert listener is counted and passed to the
+ * delivery thread's uncaught exception handler; later alerts are still delivered.
+ */
+public class StockAlertService {
+    /** Default minimum time between two alerts of the same watch. */
+    public static final Duration DEFAULT_DEBOUNCE = Duration.ofSeconds(1);
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final long debounceNanos;
+    private final List<Watch> watches = new CopyOnWriteArrayList<>();
+    private final List<MachineWatch> machineWatches = new CopyOnWriteArrayList<>();
+    private final AtomicLong failedAlerts = new AtomicLong();
+
+    /**
+     * Constructs a new StockAlertService with one delivery thread and the default debounce interval.
+     */
+    public StockAlertService() {
+        this(1, DEFAULT_DEBOUNCE);
+    }
+
+    /**
+     * Constructs a new StockAlertService.
+     *
+     * @param threads the number of threads that deliver alerts (must be positive)
+     * @param debounce the minimum time between two alerts of the same watch (must not be negative)
+     * @throws IllegalArgumentException if threads is not positive or debounce is null or negative
+     */
+    public StockAlertService(int threads, Duration debounce) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive");
+        }
+        if (debounce == null || debounce.isNegative()) {
+            throw new IllegalArgumentException("Debounce cannot be null or negative");
+        }
+        this.executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "stock-alerts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.debounceNanos = debounce.toNanos();
+    }
+
+    /**
+     * Watches a single product for its stock falling to or below a threshold.
+     *
+     * @param product the product to watch
+     * @param threshold the stock level that triggers an alert (must not be negative)
+     * @param listener the listener to notify
+     * @throws IllegalArgumentException if product or listener is null or threshold is negative
+     */
+    public void watch(Product product, int threshold, StockAlertListener listener) {
+        if (product == null) {
+            throw new IllegalArgumentException("Product cannot be null");
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold cannot be negative");
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        addWatch(product, threshold, listener);
+    }
+
+    private Watch addWatch(Product product, int threshold, StockAlertListener listener) {
+        Watch watch = new Watch(product, threshold, listener);
+        watches.add(watch);
+        product.addProductListener(watch);
+        return watch;
+    }
+
+    private void removeWatch(Watch watch) {
+        if (watch != null && watches.remove(watch)) {
+            watch.product.removeProductListener(watch);
+        }
+    }
+
+    /**
+     * Watches every product in a machine with the same threshold, including
+     * products added to the machine later. Watches of removed or replaced
+     * products are dropped.
+     *
+     * @param machine the machine whose catalog is watched
+     * @param threshold the stock level that triggers an alert (must not be negative)
+     * @param listener the listener to notify
+     * @throws IllegalArgumentException if machine or listener is null or threshold is negative
+     */
+    public void watchAll(VendingMachine machine, int threshold, StockAlertListener listener) {
+        if (machine == null) {
+            throw new IllegalArgumentException("Machine cannot be null");
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Threshold cannot be negative");
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        MachineWatch machineWatch = new MachineWatch(machine, threshold, listener);
+        synchronized (machine) {
+            for (Product product : machine.getAllProducts()) {
+                machineWatch.watched.put(product.getName(), addWatch(product, threshold, listener));
+            }
+            machine.addOperationListener(machineWatch);
+        }
+        machineWatches.add(machineWatch);
+    }
+
+    /**
+     * Stops watching a product.
+     *
+     * @param product the product to stop watching
+     * @return the number of watches removed
+     */
+    public int unwatch(Product product) {
+        int removed = 0;
+        for (Watch watch : watches) {
+            if (watch.product == product && watches.remove(watch)) {
+                product.removeProductListener(watch);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Gets the number of active watches.
+     *
+     * @return the number of watches
+     */
+    public int getWatchCount() {
+        return watches.size();
+    }
+
+    /**
+     * Gets the number of alerts whose listener threw an exception.
+     *
+     * @return the failed alert count
+     */
+    public long getFailedAlertCount() {
+        return failedAlerts.get();
+    }
+
+    /**
+     * Removes all watches and stops the delivery threads.
+     * Alerts that are already pending are discarded.
+     */
+    public void shutdown() {
+        for (MachineWatch machineWatch : machineWatches) {
+            machineWatch.machine.removeOperationListener(machineWatch);
+        }
+        machineWatches.clear();
+        for (Watch watch : watches) {
+            watch.product.removeProductListener(watch);
+        }
+        watches.clear();
+        executor.shutdownNow();
+    }
+
+    /**
+     * A threshold on a single product; also the product listener that detects crossings.
+     */
+    private final class Watch implements ProductListener {
+        private final Product product;
+        private final int threshold;
+        private final StockAlertListener listener;
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private volatile long lastFiredNanos;
+        private volatile boolean fired;
+
+        Watch(Product product, int threshold, StockAlertListener listener) {
+            this.product = product;
+            this.threshold = threshold;
+            this.listener = listener;
+        }
+
+        @Override
+        public void stockChanged(Product changed, int oldStock, int newStock) {
+            if (oldStock > threshold && newStock <= threshold && pending.compareAndSet(false, true)) {
+                long delay = fired ? Math.max(0L, lastFiredNanos + debounceNanos - System.nanoTime()) : 0L;
+                try {
+                    executor.schedule(this::deliver, delay, TimeUnit.NANOSECONDS);
+                } catch (RuntimeException e) {
+                    // The service has been shut down
+                    pending.set(false);
+                }
+            }
+        }
+
+        private void deliver() {
+            lastFiredNanos = System.nanoTime();
+            fired = true;
+            pending.set(false);
+            int stock = product.getStock();
+            if (stock <= threshold) {
+                try {
+                    listener.lowStock(product, threshold, stock);
+                } catch (RuntimeException e) {
+                    // Otherwise the exception would vanish into the scheduled future
+                    failedAlerts.incrementAndGet();
+                    Thread thread = Thread.currentThread();
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The watches added by {@link #watchAll}; also the operation listener that
+     * follows the machine's catalog. Operations are delivered under the machine
+     * lock, so the watched map is only touched by one thread at a time.
+     */
+    private final class MachineWatch implements Consumer<MachineOperation> {
+        private final VendingMachine machine;
+        private final int threshold;
+        private final StockAlertListener listener;
+        private final Map<String, Watch> watched = new HashMap<>();
+
+        MachineWatch(VendingMachine machine, int threshold, StockAlertListener listener) {
+            this.machine = machine;
+            this.threshold = threshold;
+            this.listener = listener;
+        }
+
+        @Override
+        public void accept(MachineOperation operation) {
+            switch (operation.getType()) {
+                case ADD_PRODUCT:
+                    Product product = machine.getProduct(operation.getProductName());
+                    if (product != null) {
+                        removeWatch(watched.put(product.getName(), addWatch(product, threshold, listener)));
+                    }
+                    break;
+                case REMOVE_PRODUCT:
+                    removeWatch(watched.remove(operation.getProductName()));
+                    break;
+                case CLEAR_PRODUCTS:
+                    for (Watch watch : watched.values()) {
+                        removeWatch(watch);
+                    }
+                    watched.clear();
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.smartvending;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents the predicted time at which a product in a vending machine runs out of stock.
+ */
+public class StockoutPrediction {
+    private final VendingMachine machine;
+    private final String productName;
+    private final int stock;
+    private final LocalDateTime stockoutTime;
+
+    /**
+     * Constructs a new StockoutPrediction.
+     *
+     * @param machine the machine holding the product
+     * @param productName the name of the product
+     * @param stock the stock at the time of the prediction
+     * @param stockoutTime the predicted stockout time, or null if no stockout is expected
+     */
+    public StockoutPrediction(VendingMachine machine, String productName, int stock, LocalDateTime stockoutTime) {
+        this.machine = machine;
+        this.productName = productName;
+        this.stock = stock;
+        this.stockoutTime = stockoutTime;
+    }
+
+    /**
+     * Gets the machine holding the product.
+     *
+     * @return the machine
+     */
+    public VendingMachine getMachine() {
+        return machine;
+    }
+
+    /**
+     * Gets the name of the product.
+     *
+     * @return the product name
+     */
+    public String getProductName() {
+        return productName;
+    }
+
+    /**
+     * Gets the stock at the time of the prediction.
+     *
+     * @return the stock quantity
+     */
+    public int getStock() {
+        return stock;
+    }
+
+    /**
+     * Gets the predicted stockout time.
+     *
+     * @return the predicted stockout time, or null if no stockout is expected within the forecast horizon
+     */
+    public LocalDateTime getStockoutTime() {
+        return stockoutTime;
+    }
+
+    /**
+     * Returns a string representation of the prediction.
+     *
+     * @return a string containing the product name, stock and predicted stockout time
+     */
+    @Override
+    public String toString() {
+        return String.format("StockoutPrediction{product='%s', stock=%d, stockoutTime=%s}",
+                           productName, stock, stockoutTime);
+    }
+}
@@ -0,0 +1,113 @@
+package com.smartvending;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for a payment gateway that answers after a configurable latency.
+ * Tokens that start with "decline" are declined; all others are approved.
+ * Delays are timer-based, so any number of requests can be in flight without
+ * occupying a thread each.
+ */
+public class StubPaymentGateway implements PaymentGateway {
+    /** Prefix of payment tokens that the stub declines. */
+    public static final String DECLINE_PREFIX = "decline";
+
+    private final Executor delayed;
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong authorizations = new AtomicLong();
+    private final AtomicLong captured = new AtomicLong();
+    private final AtomicLong capturedCents = new AtomicLong();
+    private final AtomicLong captureBatches = new AtomicLong();
+    private final AtomicLong voided = new AtomicLong();
+
+    /**
+     * Constructs a new StubPaymentGateway.
+     *
+     * @param latency the time every request takes to answer (must not be negative)
+     * @throws IllegalArgumentException if latency is null or negative
+     */
+    public StubPaymentGateway(Duration latency) {
+        if (latency == null || latency.isNegative()) {
+            throw new IllegalArgumentException("Latency cannot be null or negative");
+        }
+        this.delayed = CompletableFuture.delayedExecutor(latency.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public CompletableFuture<PaymentAuthorization> authorize(String paymentToken, double amount) {
+        return CompletableFuture.supplyAsync(() -> {
+            authorizations.incrementAndGet();
+            String id = "auth-" + nextId.incrementAndGet();
+            if (paymentToken.startsWith(DECLINE_PREFIX)) {
+                return new PaymentAuthorization(id, paymentToken, amount, false, "Card declined");
+            }
+            return new PaymentAuthorization(id, paymentToken, amount, true, null);
+        }, delayed);
+    }
+
+    @Override
+    public CompletableFuture<Void> capture(List<PaymentAuthorization> batch) {
+        return CompletableFuture.runAsync(() -> {
+            captured.addAndGet(batch.size());
+            for (PaymentAuthorization authorization : batch) {
+                capturedCents.addAndGet(Math.round(authorization.getAmount() * 100));
+            }
+            captureBatches.incrementAndGet();
+        }, delayed);
+    }
+
+    @Override
+    public CompletableFuture<Void> voidAuthorization(PaymentAuthorization authorization) {
+        return CompletableFuture.runAsync(voided::incrementAndGet, delayed);
+    }
+
+    /**
+     * Gets the number of authorization requests answered.
+     *
+     * @return the authorization count
+     */
+    public long getAuthorizationCount() {
+        return authorizations.get();
+    }
+
+    /**
+     * Gets the number of authorizations captured.
+     *
+     * @return the captured count
+     */
+    public long getCapturedCount() {
+        return captured.get();
+    }
+
+    /**
+     * Gets the total amount of the captured authorizations.
+     *
+     * @return the captured amount
+     */
+    public double getCapturedAmount() {
+        return capturedCents.get() / 100.0;
+    }
+
+    /**
+     * Gets the number of capture requests received.
+     *
+     * @return the capture batch count
+     */
+    public long getCaptureBatchCount() {
+        return captureBatches.get();
+    }
+
+    /**
+     * Gets the number of authorizations voided.
+     *
+     * @return the voided count
+     */
+    public long getVoidedCount() {
+        return voided.get();
+    }
+}
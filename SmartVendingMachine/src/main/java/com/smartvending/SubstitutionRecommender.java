@@ -0,0 +1,381 @@
+package com.smartvending;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recommends available alternatives to a product that is out of stock.
+ * <p>
+ * Sales less than a session gap apart are taken to be one customer's
+ * session. Every pair of products bought in the same session adds to a
+ * sparse co-purchase matrix, and a product bought after a recommendation was
+ * asked for another product in the same session counts as a substitution,
+ * which weighs {@value #SUBSTITUTION_WEIGHT} times as much. The matrix is
+ * updated incrementally from every sale.
+ * <p>
+ * A refresh, run in the background or on demand, turns the rows that
+ * changed into ranked candidate lists: the best co-purchased products first,
+ * then products of the same category closest in price. {@link #recommend}
+ * only walks a published candidate list and keeps the available products
+ * priced within the price band, so it never ranks anything itself. It looks
+ * products up in a map that follows the machine's catalog, so it never locks
+ * the machine either.
+ */
+public class SubstitutionRecommender {
+    /** Default longest time between two sales of the same session. */
+    public static final Duration DEFAULT_SESSION_GAP = Duration.ofMinutes(2);
+    /** Default relative price difference an alternative may have. */
+    public static final double DEFAULT_PRICE_BAND = 0.25;
+    /** How much more a substitution weighs than a co-purchase. */
+    public static final int SUBSTITUTION_WEIGHT = 3;
+
+    // Length of a precomputed candidate list
+    static final int CANDIDATES = 32;
+    // Longest session basket remembered, so a refill run does not pair every can with every other
+    private static final int MAX_BASKET = 16;
+    /** Number of recent sales whose refund takes back what was learned from them. */
+    static final int REMEMBERED_SALES = 1024;
+
+    private final VendingMachine machine;
+    private final Clock clock;
+    private final Duration sessionGap;
+    private final double priceBand;
+    private final Map<String, Map<String, Long>> scores = new ConcurrentHashMap<>();
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+    private volatile Map<String, List<String>> candidates = Collections.emptyMap();
+    // The machine's products, kept up to date by an operation listener
+    private final Map<String, Product> products = new ConcurrentHashMap<>();
+    private ScheduledThreadPoolExecutor refresher;
+
+    // Guarded by session
+    private final Object session = new Object();
+    private final Deque<String> basket = new ArrayDeque<>();
+    private final Map<String, LocalDateTime> misses = new HashMap<>();
+    private LocalDateTime lastSale;
+    private final Map<Long, Learned> recentSales = new LinkedHashMap<Long, Learned>() {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Learned> eldest) {
+            return size() > REMEMBERED_SALES;
+        }
+    };
+
+    /**
+     * Constructs a new SubstitutionRecommender with the default session gap and price band.
+     *
+     * @param machine the machine to recommend for
+     * @throws IllegalArgumentException if machine is null
+     */
+    public SubstitutionRecommender(VendingMachine machine) {
+        this(machine, Clock.systemDefaultZone(), DEFAULT_SESSION_GAP, DEFAULT_PRICE_BAND);
+    }
+
+    /**
+     * Constructs a new SubstitutionRecommender.
+     * The recommender learns from the existing history, then listens for new
+     * transactions and publishes its first candidate lists.
+     *
+     * @param machine the machine to recommend for
+     * @param clock the clock that times recommendation requests
+     * @param sessionGap the longest time between two sales of the same session (must be positive)
+     * @param priceBand the relative price difference an alternative may have (must not be negative)
+     * @throws IllegalArgumentException if machine, clock or sessionGap is null, or a limit is out of range
+     */
+    public SubstitutionRecommender(VendingMachine machine, Clock clock, Duration sessionGap, double priceBand) {
+        if (machine == null || clock == null) {
+            throw new IllegalArgumentException("Machine and clock cannot be null");
+        }
+        if (sessionGap == null || sessionGap.isNegative() || sessionGap.isZero()) {
+            throw new IllegalArgumentException("Session gap must be positive");
+        }
+        if (!(priceBand >= 0)) {
+            throw new IllegalArgumentException("Price band cannot be negative");
+        }
+        this.machine = machine;
+        this.clock = clock;
+        this.sessionGap = sessionGap;
+        this.priceBand = priceBand;
+        synchronized (machine) {
+            for (Transaction transaction : machine.getTransactionHistory()) {
+                record(transaction);
+            }
+            machine.addTransactionListener(this::record);
+            for (Product product : machine.getAllProducts()) {
+                products.put(product.getName(), product);
+            }
+            machine.addOperationListener(this::catalogChanged);
+        }
+        refresh();
+    }
+
+    // The tails of the candidate lists depend on each category's prices, so catalog changes mark them for a refresh
+    private void catalogChanged(MachineOperation operation) {
+        switch (operation.getType()) {
+            case ADD_PRODUCT:
+                // Runs under the machine lock, so this is the product just added
+                Product product = machine.getProduct(operation.getProductName());
+                if (product != null) {
+                    products.put(product.getName(), product);
+                    markCategory(product.getCategory());
+                }
+                break;
+            case SET_PRICE:
+                Product repriced = products.get(operation.getProductName());
+                if (repriced != null) {
+                    markCategory(repriced.getCategory());
+                }
+                break;
+            case SET_CATEGORY:
+                // The old category is no longer known, so every list is re-ranked
+                changed.addAll(products.keySet());
+                break;
+            case REMOVE_PRODUCT:
+                Product removed = products.remove(operation.getProductName());
+                if (removed != null) {
+                    markCategory(removed.getCategory());
+                }
+                break;
+            case CLEAR_PRODUCTS:
+                products.clear();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void markCategory(String category) {
+        for (Product product : products.values()) {
+            if (Objects.equals(product.getCategory(), category)) {
+                changed.add(product.getName());
+            }
+        }
+    }
+
+    /**
+     * Updates the co-purchase matrix with a new sale. A refund takes its
+     * product out of the session and, if the sale is one of the last
+     * {@value #REMEMBERED_SALES}, takes back what was learned from it.
+     *
+     * @param transaction the sale or refund to learn from
+     * @throws IllegalArgumentException if transaction is null
+     */
+    public void record(Transaction transaction) {
+        if (transaction == null) {
+            throw new IllegalArgumentException("Transaction cannot be null");
+        }
+        String bought = transaction.getProductName();
+        LocalDateTime time = transaction.getDate();
+        synchronized (session) {
+            if (transaction.isRefund()) {
+                basket.remove(bought);
+                Learned learned = recentSales.remove(transaction.getRefundedId());
+                if (learned != null) {
+                    for (String other : learned.coPurchases) {
+                        add(other, bought, -1);
+                        add(bought, other, -1);
+                    }
+                    for (String wanted : learned.substitutions) {
+                        add(wanted, bought, -SUBSTITUTION_WEIGHT);
+                    }
+                }
+                return;
+            }
+            Learned learned = new Learned();
+            if (lastSale == null || time.isAfter(lastSale.plus(sessionGap))) {
+                basket.clear();
+            }
+            lastSale = time;
+            for (String other : basket) {
+                if (!other.equals(bought)) {
+                    add(other, bought, 1);
+                    add(bought, other, 1);
+                    learned.coPurchases.add(other);
+                }
+            }
+            for (Map.Entry<String, LocalDateTime> miss : misses.entrySet()) {
+                if (!miss.getKey().equals(bought) && !time.isAfter(miss.getValue().plus(sessionGap))) {
+                    add(miss.getKey(), bought, SUBSTITUTION_WEIGHT);
+                    learned.substitutions.add(miss.getKey());
+                }
+            }
+            recentSales.put(transaction.getId(), learned);
+            misses.clear();
+            basket.remove(bought);
+            basket.addLast(bought);
+            if (basket.size() > MAX_BASKET) {
+                basket.removeFirst();
+            }
+        }
+    }
+
+    private void add(String from, String to, long weight) {
+        // A pair whose weight drops back to zero is removed, as if it had never been seen
+        scores.computeIfAbsent(from, name -> new ConcurrentHashMap<>())
+              .merge(to, weight, (current, delta) -> current + delta == 0 ? null : current + delta);
+        changed.add(from);
+    }
+
+    /**
+     * Recommends available alternatives to a product, best first. The request
+     * is remembered, so a product bought instead in the same session is
+     * learned as a substitute.
+     *
+     * @param productName the product the customer wanted
+     * @param k the largest number of alternatives (must be positive)
+     * @return up to k available products priced within the price band
+     * @throws IllegalArgumentException if productName is null or k is not positive
+     */
+    public List<Product> recommend(String productName, int k) {
+        if (productName == null) {
+            throw new IllegalArgumentException("Product name cannot be null");
+        }
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive");
+        }
+        synchronized (session) {
+            misses.put(productName, LocalDateTime.now(clock));
+        }
+        List<String> names = candidates.get(productName);
+        if (names == null) {
+            return Collections.emptyList();
+        }
+        Product wanted = products.get(productName);
+        if (wanted == null) {
+            return Collections.emptyList();
+        }
+        List<Product> result = new ArrayList<>(k);
+        double low = wanted.getPrice() * (1 - priceBand);
+        double high = wanted.getPrice() * (1 + priceBand);
+        for (int i = 0; i < names.size() && result.size() < k; i++) {
+            Product candidate = products.get(names.get(i));
+            if (candidate == null) {
+                continue;
+            }
+            double price = candidate.getPrice();
+            if (candidate.isAvailable() && price >= low && price <= high) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Rebuilds the candidate lists of the products whose co-purchases changed,
+     * of the products in a category where a product was added, removed or
+     * repriced, and of the products that have no list yet, then publishes them.
+     */
+    public synchronized void refresh() {
+        List<Product> products = machine.getAllProducts();
+        Set<String> names = new HashSet<>();
+        Map<String, List<Product>> byCategory = new HashMap<>();
+        for (Product product : products) {
+            names.add(product.getName());
+            byCategory.computeIfAbsent(product.getCategory(), category -> new ArrayList<>()).add(product);
+        }
+        for (List<Product> category : byCategory.values()) {
+            category.sort(Comparator.comparingDouble(Product::getPrice).thenComparing(Product::getName));
+        }
+
+        Map<String, List<String>> published = candidates;
+        Map<String, List<String>> next = new HashMap<>(published);
+        next.keySet().retainAll(names);
+        // Rows of products no longer sold would otherwise stay marked forever
+        changed.retainAll(names);
+        for (List<Product> category : byCategory.values()) {
+            for (int i = 0; i < category.size(); i++) {
+                String name = category.get(i).getName();
+                if (changed.remove(name) || !published.containsKey(name)) {
+                    next.put(name, rank(name, category, i));
+                }
+            }
+        }
+        candidates = Collections.unmodifiableMap(next);
+    }
+
+    private List<String> rank(String name, List<Product> category, int position) {
+        List<String> ranked = new ArrayList<>(CANDIDATES);
+        Map<String, Long> row = scores.get(name);
+        if (row != null) {
+            row.entrySet().stream()
+               .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+               .limit(CANDIDATES)
+               .forEach(entry -> ranked.add(entry.getKey()));
+        }
+        // Fill up with the same category, nearest price first
+        double price = category.get(position).getPrice();
+        int below = position - 1;
+        int above = position + 1;
+        while (ranked.size() < CANDIDATES && (below >= 0 || above < category.size())) {
+            Product next;
+            if (above >= category.size()
+                    || (below >= 0 && price - category.get(below).getPrice() <= category.get(above).getPrice() - price)) {
+                next = category.get(below--);
+            } else {
+                next = category.get(above++);
+            }
+            if (!ranked.contains(next.getName())) {
+                ranked.add(next.getName());
+            }
+        }
+        return Collections.unmodifiableList(ranked);
+    }
+
+    /**
+     * Gets the weight with which one product is a substitute for another.
+     *
+     * @param productName the product wanted
+     * @param alternative the product bought with or instead of it
+     * @return the co-purchase count plus the weighted substitution count
+     */
+    public long getScore(String productName, String alternative) {
+        Map<String, Long> row = scores.get(productName);
+        return row == null ? 0 : row.getOrDefault(alternative, 0L);
+    }
+
+    /**
+     * Starts refreshing the candidate lists in the background.
+     *
+     * @param interval the time between two refreshes (must be positive)
+     * @throws IllegalArgumentException if interval is null or not positive
+     * @throws IllegalStateException if the refresher is already running
+     */
+    public synchronized void startRefresher(Duration interval) {
+        if (interval == null || interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("Interval must be positive");
+        }
+        if (refresher != null) {
+            throw new IllegalStateException("Refresher is already running");
+        }
+        refresher = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "substitution-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = interval.toNanos();
+        refresher.scheduleWithFixedDelay(this::refresh, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops the background refresher, if it is running.
+     */
+    public synchronized void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+            refresher = null;
+        }
+    }
+
+    /**
+     * The pairs a sale added to the matrix, so that a refund can take them back.
+     */
+    private static final class Learned {
+        private final List<String> coPurchases = new ArrayList<>();
+        private final List<String> substitutions = new ArrayList<>();
+    }
+}
@@ -0,0 +1,398 @@
+package com.smartvending;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Reports the sales and stock changes of a vending machine to headquarters.
+ * <p>
+ * The agent listens to the machine's operations and queues a {@link TelemetryRecord}
+ * for every sale, refund, restock, write-off, price change and added or
+ * removed product. A background thread
+ * packs the queue into frames with {@link TelemetryCodec} whenever
+ * {@code maxBatchSize} records are waiting or {@code maxBatchDelay} has passed,
+ * and hands them to a {@link TelemetryTransport}. Frames that cannot be
+ * delivered are written to a spool directory and sent, oldest first, before
+ * any newer frame once the transport works again; spooled frames survive a
+ * restart of the agent. Frames that cannot be spooled either are kept in
+ * memory and retried by the next flush.
+ */
+public class TelemetryAgent implements AutoCloseable {
+    /** Default number of records that triggers an upload. */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 500;
+    /** Default longest time a record waits before it is uploaded. */
+    public static final Duration DEFAULT_MAX_BATCH_DELAY = Duration.ofSeconds(30);
+
+    private static final String SPOOL_SUFFIX = ".frame";
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final VendingMachine machine;
+    private final TelemetryTransport transport;
+    private final Path spoolDirectory;
+    private final int maxBatchSize;
+    private final Clock clock;
+    private final Consumer<MachineOperation> listener = this::record;
+    private final ConcurrentLinkedQueue<TelemetryRecord> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledThreadPoolExecutor uploader;
+
+    // Guarded by this; unsaved holds encoded frames not yet sent or spooled, oldest first
+    private final Deque<EncodedFrame> unsaved = new ArrayDeque<>();
+    private long nextSpoolSequence;
+    private long framesSent;
+    private long bytesSent;
+    private long transactionsSent;
+    private long framesEncoded;
+    private long encodeCpuNanos;
+    private boolean closed;
+
+    /**
+     * Constructs a new TelemetryAgent with the default batch size and delay.
+     *
+     * @param machine the machine to report on
+     * @param transport the transport frames are sent through
+     * @param spoolDirectory the directory undelivered frames are kept in; created if missing
+     * @throws IllegalArgumentException if any argument is null
+     * @throws UncheckedIOException if the spool directory cannot be created or read
+     */
+    public TelemetryAgent(VendingMachine machine, TelemetryTransport transport, Path spoolDirectory) {
+        this(machine, transport, spoolDirectory, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_BATCH_DELAY,
+             Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructs a new TelemetryAgent.
+     *
+     * @param machine the machine to report on
+     * @param transport the transport frames are sent through
+     * @param spoolDirectory the directory undelivered frames are kept in; created if missing
+     * @param maxBatchSize the number of records that triggers an upload (must be positive)
+     * @param maxBatchDelay the longest time a record waits before it is uploaded (must be positive)
+     * @param clock the clock stock changes are timestamped with
+     * @throws IllegalArgumentException if any argument is null, or maxBatchSize or maxBatchDelay is not positive
+     * @throws UncheckedIOException if the spool directory cannot be created or read
+     */
+    public TelemetryAgent(VendingMachine machine, TelemetryTransport transport, Path spoolDirectory,
+                          int maxBatchSize, Duration maxBatchDelay, Clock clock) {
+        if (machine == null) {
+            throw new IllegalArgumentException("Machine cannot be null");
+        }
+        if (transport == null) {
+            throw new IllegalArgumentException("Transport cannot be null");
+        }
+        if (spoolDirectory == null) {
+            throw new IllegalArgumentException("Spool directory cannot be null");
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        if (maxBatchDelay == null || maxBatchDelay.isNegative() || maxBatchDelay.isZero()) {
+            throw new IllegalArgumentException("Batch delay must be positive");
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null");
+        }
+        this.machine = machine;
+        this.transport = transport;
+        this.spoolDirectory = spoolDirectory;
+        this.maxBatchSize = maxBatchSize;
+        this.clock = clock;
+        try {
+            Files.createDirectories(spoolDirectory);
+            nextSpoolSequence = spooledFrames().stream()
+                    .mapToLong(TelemetryAgent::spoolSequence)
+                    .max().orElse(-1) + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open spool directory " + spoolDirectory, e);
+        }
+
+        uploader = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "telemetry-uplink");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long delayNanos = maxBatchDelay.toNanos();
+        uploader.scheduleWithFixedDelay(this::flushQuietly, delayNanos, delayNanos, TimeUnit.NANOSECONDS);
+        machine.addOperationListener(listener);
+    }
+
+    private void record(MachineOperation operation) {
+        TelemetryRecord record;
+        switch (operation.getType()) {
+            case SELECT_PRODUCT:
+            case PREPAID_SALE:
+                // Transaction dates are the machine's local time; other records use the agent's clock
+                record = TelemetryRecord.sale(operation.getTransaction(), machine.getZone());
+                break;
+            case REFUND:
+                record = TelemetryRecord.refund(operation.getTransaction(), machine.getZone());
+                break;
+            case ADD_PRODUCT:
+            case RESTOCK:
+                record = TelemetryRecord.stockChange(operation.getProductName(), operation.getQuantity(),
+                                                     clock.millis());
+                break;
+            case WRITE_OFF:
+                record = TelemetryRecord.stockChange(operation.getProductName(), -operation.getQuantity(),
+                                                     clock.millis());
+                break;
+            case SET_PRICE:
+                record = TelemetryRecord.priceChange(operation.getProductName(),
+                                                     Math.round(operation.getAmount() * 100), clock.millis());
+                break;
+            case REMOVE_PRODUCT:
+                record = TelemetryRecord.removal(operation.getProductName(), clock.millis());
+                break;
+            case CLEAR_PRODUCTS:
+                record = TelemetryRecord.clear(clock.millis());
+                break;
+            default:
+                return;
+        }
+        pending.add(record);
+        if (pendingCount.incrementAndGet() >= maxBatchSize && flushScheduled.compareAndSet(false, true)) {
+            try {
+                uploader.execute(this::flushQuietly);
+            } catch (RejectedExecutionException e) {
+                // Closing; close() flushes what is left
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // A spool failure must not cancel the scheduled uploads
+        }
+    }
+
+    /**
+     * Packs every queued record into frames and uploads them, sending any
+     * spooled frames first. Frames that cannot be delivered are spooled.
+     *
+     * @return true if nothing is left in the spool
+     * @throws UncheckedIOException if a frame cannot be written to the spool; the
+     *         frames not yet spooled are kept and retried by the next flush
+     */
+    public synchronized boolean flush() {
+        flushScheduled.set(false);
+        while (pendingCount.get() > 0) {
+            List<TelemetryRecord> batch = new ArrayList<>(Math.min(pendingCount.get(), maxBatchSize));
+            TelemetryRecord record;
+            while (batch.size() < maxBatchSize && (record = pending.poll()) != null) {
+                batch.add(record);
+            }
+            if (batch.isEmpty()) {
+                break;
+            }
+            pendingCount.addAndGet(-batch.size());
+            long startCpu = cpuTime();
+            byte[] frame = TelemetryCodec.encode(batch);
+            encodeCpuNanos += cpuTime() - startCpu;
+            framesEncoded++;
+            int transactions = (int) batch.stream().filter(r -> r.getType() == TelemetryRecord.Type.SALE
+                    || r.getType() == TelemetryRecord.Type.REFUND).count();
+            unsaved.add(new EncodedFrame(frame, transactions));
+        }
+
+        try {
+            boolean online = sendSpooled();
+            while (!unsaved.isEmpty()) {
+                EncodedFrame frame = unsaved.peek();
+                if (!online || !send(frame.bytes, frame.transactions)) {
+                    online = false;
+                    spool(frame.bytes, frame.transactions);
+                }
+                // Only dropped once it is delivered or safe on disk
+                unsaved.remove();
+            }
+            return online;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write telemetry spool " + spoolDirectory, e);
+        }
+    }
+
+    private boolean sendSpooled() throws IOException {
+        for (Path file : spooledFrames()) {
+            byte[] contents = Files.readAllBytes(file);
+            // The first four bytes hold the number of transactions in the frame
+            int transactions = ByteBuffer.wrap(contents).getInt();
+            byte[] frame = Arrays.copyOfRange(contents, Integer.BYTES, contents.length);
+            if (!send(frame, transactions)) {
+                return false;
+            }
+            Files.delete(file);
+        }
+        return true;
+    }
+
+    private boolean send(byte[] frame, int transactions) {
+        try {
+            transport.send(frame);
+        } catch (IOException e) {
+            return false;
+        }
+        framesSent++;
+        bytesSent += frame.length;
+        transactionsSent += transactions;
+        return true;
+    }
+
+    private void spool(byte[] frame, int transactions) throws IOException {
+        byte[] contents = ByteBuffer.allocate(Integer.BYTES + frame.length)
+                .putInt(transactions).put(frame).array();
+        Path file = spoolDirectory.resolve(String.format("%020d%s", nextSpoolSequence++, SPOOL_SUFFIX));
+        Path temporary = spoolDirectory.resolve(file.getFileName() + ".tmp");
+        Files.write(temporary, contents);
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<Path> spooledFrames() throws IOException {
+        try (Stream<Path> files = Files.list(spoolDirectory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SPOOL_SUFFIX))
+                        .sorted()
+                        .collect(Collectors.toList());
+        }
+    }
+
+    private static long spoolSequence(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SPOOL_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    /**
+     * Gets the number of records waiting to be packed into a frame.
+     *
+     * @return the number of queued records
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * Gets the number of frames waiting in the spool.
+     *
+     * @return the number of spooled frames
+     * @throws UncheckedIOException if the spool directory cannot be read
+     */
+    public synchronized int getSpooledFrameCount() {
+        try {
+            return spooledFrames().size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Gets the number of frames delivered.
+     *
+     * @return the number of frames sent
+     */
+    public synchronized long getSentFrameCount() {
+        return framesSent;
+    }
+
+    /**
+     * Gets the number of frame bytes delivered.
+     *
+     * @return the number of bytes sent
+     */
+    public synchronized long getSentBytes() {
+        return bytesSent;
+    }
+
+    /**
+     * Gets the number of sales delivered.
+     *
+     * @return the number of transactions sent
+     */
+    public synchronized long getSentTransactionCount() {
+        return transactionsSent;
+    }
+
+    /**
+     * Gets the average number of bytes sent per sale, including the stock
+     * records and framing sent alongside.
+     *
+     * @return the bytes per transaction, or 0 if no sale has been sent
+     */
+    public synchronized double getBytesPerTransaction() {
+        return transactionsSent == 0 ? 0 : (double) bytesSent / transactionsSent;
+    }
+
+    /**
+     * Gets the average CPU time spent encoding and compressing a frame.
+     * Wall-clock time is used where thread CPU time is not supported.
+     *
+     * @return the CPU nanoseconds per batch, or 0 if no frame has been encoded
+     */
+    public synchronized double getCpuNanosPerBatch() {
+        return framesEncoded == 0 ? 0 : (double) encodeCpuNanos / framesEncoded;
+    }
+
+    /**
+     * Stops listening to the machine, uploads or spools the remaining records
+     * and stops the background thread. Closing twice has no effect.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        machine.removeOperationListener(listener);
+        uploader.shutdownNow();
+        try {
+            uploader.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /**
+     * A frame waiting to be sent or spooled, with the number of sales it holds.
+     */
+    private static final class EncodedFrame {
+        private final byte[] bytes;
+        private final int transactions;
+
+        EncodedFrame(byte[] bytes, int transactions) {
+            this.bytes = bytes;
+            this.transactions = transactions;
+        }
+    }
+}
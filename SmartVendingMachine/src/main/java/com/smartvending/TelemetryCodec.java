@@ -0,0 +1,218 @@
+package com.smartvending;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes batches of {@link TelemetryRecord}s into compact frames for the uplink.
+ * Records are delta-encoded: timestamps and transaction ids are written as
+ * variable-length differences from the previous record, and product names
+ * are written once per frame and then referred to by index. The encoded
+ * records are then compressed with {@link Deflater}.
+ * <p>
+ * Frame layout: the magic "SVTF", a version byte, the encoded length as an
+ * int, then the deflated records. Version 2 added the price, removal and
+ * clear records and version 3 the refund records; older frames are still decoded.
+ */
+public final class TelemetryCodec {
+    /** Current frame format version. */
+    public static final int VERSION = 3;
+
+    private static final byte[] MAGIC = {'S', 'V', 'T', 'F'};
+    private static final int HEADER_LENGTH = MAGIC.length + 1 + Integer.BYTES;
+
+    private TelemetryCodec() {
+    }
+
+    /**
+     * Encodes and compresses a batch of records.
+     *
+     * @param records the records, in the order they happened
+     * @return the frame
+     * @throws IllegalArgumentException if records is null
+     */
+    public static byte[] encode(List<TelemetryRecord> records) {
+        if (records == null) {
+            throw new IllegalArgumentException("Records cannot be null");
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream(records.size() * 8 + 16);
+        Map<String, Integer> names = new HashMap<>();
+        long previousTime = 0;
+        long previousId = 0;
+        writeVarLong(body, records.size());
+        for (TelemetryRecord record : records) {
+            body.write(record.getType().ordinal());
+            writeVarLong(body, zigZag(record.getTimestamp() - previousTime));
+            previousTime = record.getTimestamp();
+            Integer index = names.get(record.getProductName());
+            if (index == null) {
+                // An index one past the table introduces a new name
+                writeVarLong(body, names.size());
+                byte[] name = record.getProductName().getBytes(StandardCharsets.UTF_8);
+                writeVarLong(body, name.length);
+                body.write(name, 0, name.length);
+                names.put(record.getProductName(), names.size());
+            } else {
+                writeVarLong(body, index);
+            }
+            if (record.getType() == TelemetryRecord.Type.SALE) {
+                writeVarLong(body, zigZag(record.getTransactionId() - previousId));
+                previousId = record.getTransactionId();
+                writeVarLong(body, zigZag(record.getAmountCents()));
+                writeVarLong(body, zigZag(record.getChangeCents()));
+            } else if (record.getType() == TelemetryRecord.Type.STOCK) {
+                writeVarLong(body, zigZag(record.getStockDelta()));
+            } else if (record.getType() == TelemetryRecord.Type.PRICE) {
+                writeVarLong(body, zigZag(record.getAmountCents()));
+            } else if (record.getType() == TelemetryRecord.Type.REFUND) {
+                // Refunds share the id sequence of sales and usually follow the sale closely
+                writeVarLong(body, zigZag(record.getTransactionId() - previousId));
+                previousId = record.getTransactionId();
+                writeVarLong(body, zigZag(record.getAmountCents()));
+                writeVarLong(body, zigZag(record.getTransactionId() - record.getRefundedId()));
+            }
+        }
+        byte[] encoded = body.toByteArray();
+
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(encoded);
+            deflater.finish();
+            ByteArrayOutputStream frame = new ByteArrayOutputStream(HEADER_LENGTH + encoded.length / 2 + 16);
+            frame.write(MAGIC, 0, MAGIC.length);
+            frame.write(VERSION);
+            frame.write(ByteBuffer.allocate(Integer.BYTES).putInt(encoded.length).array(), 0, Integer.BYTES);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                frame.write(buffer, 0, length);
+            }
+            return frame.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Decompresses and decodes a frame written by {@link #encode(List)}.
+     *
+     * @param frame the frame
+     * @return the records, in the order they were encoded
+     * @throws IOException if the frame is malformed
+     */
+    public static List<TelemetryRecord> decode(byte[] frame) throws IOException {
+        if (frame == null || frame.length < HEADER_LENGTH
+                || !Arrays.equals(Arrays.copyOf(frame, MAGIC.length), MAGIC)) {
+            throw new IOException("Not a telemetry frame");
+        }
+        if (frame[MAGIC.length] < 1 || frame[MAGIC.length] > VERSION) {
+            throw new IOException("Unsupported telemetry frame version: " + frame[MAGIC.length]);
+        }
+        int encodedLength = ByteBuffer.wrap(frame, MAGIC.length + 1, Integer.BYTES).getInt();
+        if (encodedLength < 0) {
+            throw new IOException("Invalid telemetry frame length: " + encodedLength);
+        }
+        byte[] encoded = new byte[encodedLength];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(frame, HEADER_LENGTH, frame.length - HEADER_LENGTH);
+            int read = 0;
+            while (read < encodedLength) {
+                int length = inflater.inflate(encoded, read, encodedLength - read);
+                if (length == 0 && (inflater.finished() || inflater.needsInput())) {
+                    throw new IOException("Truncated telemetry frame");
+                }
+                read += length;
+            }
+            if (inflater.inflate(new byte[1]) != 0 || !inflater.finished()) {
+                throw new IOException("Telemetry frame does not match its length");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt telemetry frame", e);
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer body = ByteBuffer.wrap(encoded);
+        try {
+            int count = (int) readVarLong(body);
+            List<TelemetryRecord> records = new ArrayList<>(count);
+            List<String> names = new ArrayList<>();
+            long time = 0;
+            long id = 0;
+            for (int i = 0; i < count; i++) {
+                int typeOrdinal = body.get();
+                if (typeOrdinal < 0 || typeOrdinal >= TelemetryRecord.Type.values().length) {
+                    throw new IOException("Unknown telemetry record type: " + typeOrdinal);
+                }
+                TelemetryRecord.Type type = TelemetryRecord.Type.values()[typeOrdinal];
+                time += unZigZag(readVarLong(body));
+                int index = (int) readVarLong(body);
+                if (index == names.size()) {
+                    byte[] name = new byte[(int) readVarLong(body)];
+                    body.get(name);
+                    names.add(new String(name, StandardCharsets.UTF_8));
+                } else if (index > names.size()) {
+                    throw new IOException("Invalid product index: " + index);
+                }
+                String productName = names.get(index);
+                if (type == TelemetryRecord.Type.SALE) {
+                    id += unZigZag(readVarLong(body));
+                    long amount = unZigZag(readVarLong(body));
+                    long change = unZigZag(readVarLong(body));
+                    records.add(new TelemetryRecord(type, time, productName, id, amount, change, -1, 0));
+                } else if (type == TelemetryRecord.Type.STOCK) {
+                    int delta = (int) unZigZag(readVarLong(body));
+                    records.add(new TelemetryRecord(type, time, productName, 0, 0, 0, delta, 0));
+                } else if (type == TelemetryRecord.Type.PRICE) {
+                    long price = unZigZag(readVarLong(body));
+                    records.add(new TelemetryRecord(type, time, productName, 0, price, 0, 0, 0));
+                } else if (type == TelemetryRecord.Type.REFUND) {
+                    id += unZigZag(readVarLong(body));
+                    long amount = unZigZag(readVarLong(body));
+                    long refundedId = id - unZigZag(readVarLong(body));
+                    records.add(new TelemetryRecord(type, time, productName, id, amount, 0, 1, refundedId));
+                } else {
+                    records.add(new TelemetryRecord(type, time, productName, 0, 0, 0, 0, 0));
+                }
+            }
+            return records;
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed telemetry frame", e);
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Variable-length number is too long");
+    }
+}
@@ -0,0 +1,230 @@
+package com.smartvending;
+
+import java.time.ZoneId;
+
+/**
+ * Represents an event reported to headquarters by a {@link TelemetryAgent}:
+ * a sale or refund, a change in the stock or price of a product, or a
+ * product taken out of the machine.
+ * Money is held in cents and times in milliseconds since the epoch (UTC).
+ */
+public class TelemetryRecord {
+
+    /**
+     * The kinds of telemetry record.
+     */
+    public enum Type {
+        /** A product was sold. */
+        SALE,
+        /** The stock of a product changed outside a sale. */
+        STOCK,
+        /** The price of a product changed. */
+        PRICE,
+        /** A product was removed from the machine. */
+        REMOVAL,
+        /** Every product was removed from the machine; the record has an empty product name. */
+        CLEAR,
+        /** A sale was refunded and its unit returned to stock. */
+        REFUND
+    }
+
+    private final Type type;
+    private final long timestamp;
+    private final String productName;
+    private final long transactionId;
+    private final long amountCents;
+    private final long changeCents;
+    private final int stockDelta;
+    private final long refundedId;
+
+    TelemetryRecord(Type type, long timestamp, String productName, long transactionId,
+                    long amountCents, long changeCents, int stockDelta, long refundedId) {
+        this.type = type;
+        this.timestamp = timestamp;
+        this.productName = productName;
+        this.transactionId = transactionId;
+        this.amountCents = amountCents;
+        this.changeCents = changeCents;
+        this.stockDelta = stockDelta;
+        this.refundedId = refundedId;
+    }
+
+    /**
+     * Creates a record of a sale.
+     *
+     * @param transaction the sale
+     * @param zone the zone in which the sale's date is a local time
+     * @return the record
+     * @throws IllegalArgumentException if transaction or zone is null
+     */
+    public static TelemetryRecord sale(Transaction transaction, ZoneId zone) {
+        if (transaction == null || zone == null) {
+            throw new IllegalArgumentException("Transaction and zone cannot be null");
+        }
+        long timestamp = transaction.getDate().atZone(zone).toInstant().toEpochMilli();
+        return new TelemetryRecord(Type.SALE, timestamp, transaction.getProductName(), transaction.getId(),
+                                   Math.round(transaction.getAmountPaid() * 100),
+                                   Math.round(transaction.getChangeGiven() * 100), -1, 0);
+    }
+
+    /**
+     * Creates a record of a refund.
+     *
+     * @param refund the refund transaction
+     * @param zone the zone in which the refund's date is a local time
+     * @return the record
+     * @throws IllegalArgumentException if refund is null or is not a refund, or zone is null
+     */
+    public static TelemetryRecord refund(Transaction refund, ZoneId zone) {
+        if (refund == null || !refund.isRefund()) {
+            throw new IllegalArgumentException("Transaction must be a refund");
+        }
+        if (zone == null) {
+            throw new IllegalArgumentException("Zone cannot be null");
+        }
+        long timestamp = refund.getDate().atZone(zone).toInstant().toEpochMilli();
+        return new TelemetryRecord(Type.REFUND, timestamp, refund.getProductName(), refund.getId(),
+                                   Math.round(refund.getAmountPaid() * 100), 0, 1, refund.getRefundedId());
+    }
+
+    /**
+     * Creates a record of a stock change.
+     *
+     * @param productName the name of the product
+     * @param stockDelta the number of units added, or removed if negative
+     * @param timestamp the time of the change in milliseconds since the epoch
+     * @return the record
+     * @throws IllegalArgumentException if productName is null
+     */
+    public static TelemetryRecord stockChange(String productName, int stockDelta, long timestamp) {
+        if (productName == null) {
+            throw new IllegalArgumentException("Product name cannot be null");
+        }
+        return new TelemetryRecord(Type.STOCK, timestamp, productName, 0, 0, 0, stockDelta, 0);
+    }
+
+    /**
+     * Creates a record of a price change.
+     *
+     * @param productName the name of the product
+     * @param priceCents the new price in cents
+     * @param timestamp the time of the change in milliseconds since the epoch
+     * @return the record
+     * @throws IllegalArgumentException if productName is null
+     */
+    public static TelemetryRecord priceChange(String productName, long priceCents, long timestamp) {
+        if (productName == null) {
+            throw new IllegalArgumentException("Product name cannot be null");
+        }
+        return new TelemetryRecord(Type.PRICE, timestamp, productName, 0, priceCents, 0, 0, 0);
+    }
+
+    /**
+     * Creates a record of a product removed from the machine.
+     *
+     * @param productName the name of the product
+     * @param timestamp the time of the removal in milliseconds since the epoch
+     * @return the record
+     * @throws IllegalArgumentException if productName is null
+     */
+    public static TelemetryRecord removal(String productName, long timestamp) {
+        if (productName == null) {
+            throw new IllegalArgumentException("Product name cannot be null");
+        }
+        return new TelemetryRecord(Type.REMOVAL, timestamp, productName, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Creates a record of every product removed from the machine.
+     *
+     * @param timestamp the time of the removal in milliseconds since the epoch
+     * @return the record
+     */
+    public static TelemetryRecord clear(long timestamp) {
+        return new TelemetryRecord(Type.CLEAR, timestamp, "", 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Gets the type of the record.
+     *
+     * @return the record type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the time of the event.
+     *
+     * @return milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Gets the product the event applies to.
+     *
+     * @return the product name
+     */
+    public String getProductName() {
+        return productName;
+    }
+
+    /**
+     * Gets the id of the sale or refund.
+     *
+     * @return the transaction id, or 0 for other records
+     */
+    public long getTransactionId() {
+        return transactionId;
+    }
+
+    /**
+     * Gets the amount paid for the sale, the amount refunded, or the new price of a price change.
+     *
+     * @return the amount in cents, or 0 for other records
+     */
+    public long getAmountCents() {
+        return amountCents;
+    }
+
+    /**
+     * Gets the change given for the sale.
+     *
+     * @return the change in cents, or 0 for other records
+     */
+    public long getChangeCents() {
+        return changeCents;
+    }
+
+    /**
+     * Gets the change in stock caused by the event.
+     *
+     * @return the units added, or removed if negative; -1 for a sale, 1 for a refund and 0 for other records
+     */
+    public int getStockDelta() {
+        return stockDelta;
+    }
+
+    /**
+     * Gets the id of the sale a refund pays back.
+     *
+     * @return the refunded transaction id, or 0 for other records
+     */
+    public long getRefundedId() {
+        return refundedId;
+    }
+
+    /**
+     * Returns a string representation of the record.
+     *
+     * @return a string containing the record type and fields
+     */
+    @Override
+    public String toString() {
+        return String.format("TelemetryRecord{type=%s, product='%s', id=%d, amount=%d, change=%d, delta=%d, refunded=%d, time=%d}",
+                           type, productName, transactionId, amountCents, changeCents, stockDelta, refundedId,
+                           timestamp);
+    }
+}
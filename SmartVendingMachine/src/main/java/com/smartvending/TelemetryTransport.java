@@ -0,0 +1,18 @@
+package com.smartvending;
+
+import java.io.IOException;
+
+/**
+ * Carries telemetry frames from a {@link TelemetryAgent} to headquarters.
+ * Implementations may block; the agent calls them from its own thread.
+ */
+public interface TelemetryTransport {
+
+    /**
+     * Delivers a frame.
+     *
+     * @param frame the frame written by {@link TelemetryCodec#encode(java.util.List)}
+     * @throws IOException if the frame could not be delivered and should be retried later
+     */
+    void send(byte[] frame) throws IOException;
+}
@@ -0,0 +1,71 @@
+package com.smartvending;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the rate of events without locking.
+ * <p>
+ * The bucket holds up to {@code burst} tokens and refills at a steady rate.
+ * Its whole state is the time at which it will next be full, kept in one
+ * {@link AtomicLong}, so taking a token is a single compare-and-set.
+ */
+public class TokenBucket {
+    private final long refillNanos;
+    private final long capacityNanos;
+    private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * Constructs a new TokenBucket that starts full.
+     *
+     * @param ratePerSecond the number of tokens added per second (must be positive)
+     * @param burst the number of tokens the bucket holds (must be positive)
+     * @throws IllegalArgumentException if ratePerSecond or burst is not positive
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        if (!(ratePerSecond > 0) || Double.isInfinite(ratePerSecond)) {
+            throw new IllegalArgumentException("Rate must be positive");
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("Burst must be positive");
+        }
+        this.refillNanos = Math.max(1, Math.round(1_000_000_000L / ratePerSecond));
+        this.capacityNanos = refillNanos * burst;
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @param nowNanos the current time in nanoseconds
+     * @return true if a token was taken, false if the bucket is empty
+     */
+    public boolean tryAcquire(long nowNanos) {
+        while (true) {
+            long full = fullAt.get();
+            long next = Math.max(full, nowNanos) + refillNanos;
+            if (next - nowNanos > capacityNanos) {
+                return false;
+            }
+            if (fullAt.compareAndSet(full, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Gets the number of whole tokens in the bucket.
+     *
+     * @param nowNanos the current time in nanoseconds
+     * @return the available tokens
+     */
+    public long getAvailableTokens(long nowNanos) {
+        long used = Math.max(fullAt.get(), nowNanos) - nowNanos;
+        return (capacityNanos - used) / refillNanos;
+    }
+
+    /**
+     * Refills the bucket.
+     */
+    public void reset() {
+        fullAt.set(Long.MIN_VALUE);
+    }
+}
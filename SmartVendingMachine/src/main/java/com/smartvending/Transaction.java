@@ -8,13 +8,20 @@ import java.time.format.DateTimeFormatter;
  * Contains information about the product purchased, amount paid, change given, and timestamp.
  */
 public class Transaction {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    private long id;
     private String productName;
     private double amountPaid;
     private double changeGiven;
     private LocalDateTime date;
+    private long refundedId;
+    private boolean refund;
+    private boolean prepaid;
     
     /**
-     * Constructs a new Transaction with the specified details.
+     * Constructs a new Transaction with the specified details and an id from the
+     * default {@link TransactionIdGenerator}.
      * 
      * @param productName the name of the product purchased
      * @param amountPaid the amount paid for the product
@@ -23,6 +30,20 @@ public class Transaction {
      * @throws IllegalArgumentException if any parameter is invalid
      */
     public Transaction(String productName, double amountPaid, double changeGiven, LocalDateTime date) {
+        this(TransactionIdGenerator.getDefault().nextId(), productName, amountPaid, changeGiven, date);
+    }
+    
+    /**
+     * Constructs a new Transaction with the specified id and details.
+     * 
+     * @param id the unique id of the transaction
+     * @param productName the name of the product purchased
+     * @param amountPaid the amount paid for the product
+     * @param changeGiven the change returned to the customer
+     * @param date the date and time of the transaction
+     * @throws IllegalArgumentException if any parameter is invalid
+     */
+    public Transaction(long id, String productName, double amountPaid, double changeGiven, LocalDateTime date) {
         if (productName == null || productName.trim().isEmpty()) {
             throw new IllegalArgumentException("Product name cannot be null or empty");
         }
@@ -36,12 +57,59 @@ public class Transaction {
             throw new IllegalArgumentException("Transaction date cannot be null");
         }
         
+        this.id = id;
         this.productName = productName.trim();
         this.amountPaid = amountPaid;
         this.changeGiven = changeGiven;
         this.date = date;
     }
     
+    /**
+     * Creates the compensating entry of a refunded sale.
+     * 
+     * @param id the unique id of the refund
+     * @param refundedId the id of the refunded sale
+     * @param productName the name of the product returned to stock
+     * @param amountRefunded the amount paid back
+     * @param date the date and time of the refund
+     * @return the refund
+     * @throws IllegalArgumentException if any parameter is invalid
+     */
+    static Transaction refund(long id, long refundedId, String productName, double amountRefunded,
+                              LocalDateTime date) {
+        Transaction refund = new Transaction(id, productName, amountRefunded, 0.0, date);
+        refund.refundedId = refundedId;
+        refund.refund = true;
+        return refund;
+    }
+    
+    /**
+     * Creates a sale paid outside the machine, such as by card.
+     * 
+     * @param id the unique id of the sale
+     * @param productName the name of the product purchased
+     * @param amountPaid the amount charged for the product
+     * @param changeGiven the part of the charge above the price
+     * @param date the date and time of the sale
+     * @return the sale
+     * @throws IllegalArgumentException if any parameter is invalid
+     */
+    static Transaction prepaid(long id, String productName, double amountPaid, double changeGiven,
+                               LocalDateTime date) {
+        Transaction sale = new Transaction(id, productName, amountPaid, changeGiven, date);
+        sale.prepaid = true;
+        return sale;
+    }
+    
+    /**
+     * Gets the unique id of the transaction.
+     * 
+     * @return the transaction id
+     */
+    public long getId() {
+        return id;
+    }
+    
     /**
      * Gets the name of the product purchased.
      * 
@@ -78,6 +146,35 @@ public class Transaction {
         return date;
     }
     
+    /**
+     * Checks if this transaction is the refund of an earlier sale, in which case
+     * the amount paid is the amount paid back.
+     * 
+     * @return true if this is a refund, false if it is a sale
+     */
+    public boolean isRefund() {
+        return refund;
+    }
+    
+    /**
+     * Checks if this transaction is a sale paid outside the machine, such as by
+     * card, rather than from the cash balance.
+     * 
+     * @return true if the sale was prepaid, false if it was paid in cash or is a refund
+     */
+    public boolean isPrepaid() {
+        return prepaid;
+    }
+    
+    /**
+     * Gets the id of the sale this transaction refunds.
+     * 
+     * @return the refunded transaction id, or 0 if this is a sale
+     */
+    public long getRefundedId() {
+        return refundedId;
+    }
+    
     /**
      * Gets the total amount inserted (amount paid + change given).
      * 
@@ -103,9 +200,12 @@ public class Transaction {
      */
     @Override
     public String toString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-        return String.format("Transaction{product='%s', amountPaid=%.2f, changeGiven=%.2f, date=%s}", 
-                           productName, amountPaid, changeGiven, date.format(formatter));
+        if (refund) {
+            return String.format("Transaction{id=%d, refund of %d, product='%s', amountRefunded=%.2f, date=%s}",
+                               id, refundedId, productName, amountPaid, date.format(DATE_FORMATTER));
+        }
+        return String.format("Transaction{id=%d, product='%s', amountPaid=%.2f, changeGiven=%.2f, date=%s}", 
+                           id, productName, amountPaid, changeGiven, date.format(DATE_FORMATTER));
     }
     
     /**
@@ -114,9 +214,8 @@ public class Transaction {
      * @return a detailed formatted string
      */
     public String toDetailedString() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
         return String.format("Purchase: %s | Amount Paid: $%.2f | Change: $%.2f | Date: %s", 
-                           productName, amountPaid, changeGiven, date.format(formatter));
+                           productName, amountPaid, changeGiven, date.format(DATE_FORMATTER));
     }
     
     /**
@@ -0,0 +1,426 @@
+package com.smartvending;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the transaction history of a vending machine to CSV or to a compact
+ * columnar binary format.
+ * The history is read in chunks and written through a buffered file channel,
+ * so exports never copy the whole history into memory. Each exporter keeps a
+ * cursor into the history so that every export only writes the transactions
+ * recorded since the previous one.
+ */
+public class TransactionExporter {
+    /** Magic number at the start of every binary export ("SVTX"). */
+    public static final int BINARY_MAGIC = 0x53565458;
+    /** Version of the binary export format. */
+    public static final int BINARY_VERSION = 3;
+
+    private static final DateTimeFormatter CSV_DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+    private static final String CSV_HEADER = "id,product,amountPaid,changeGiven,date,refundedId\n";
+    private static final int CHUNK_SIZE = 4096;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final VendingMachine machine;
+    private int cursor;
+
+    /**
+     * Constructs a new TransactionExporter that starts at the beginning of the history.
+     *
+     * @param machine the machine whose history is exported
+     * @throws IllegalArgumentException if machine is null
+     */
+    public TransactionExporter(VendingMachine machine) {
+        this(machine, 0);
+    }
+
+    /**
+     * Constructs a new TransactionExporter that resumes from a saved cursor.
+     *
+     * @param machine the machine whose history is exported
+     * @param cursor the number of transactions already exported
+     * @throws IllegalArgumentException if machine is null or cursor is negative
+     */
+    public TransactionExporter(VendingMachine machine, int cursor) {
+        if (machine == null) {
+            throw new IllegalArgumentException("Machine cannot be null");
+        }
+        if (cursor < 0) {
+            throw new IllegalArgumentException("Cursor cannot be negative");
+        }
+        this.machine = machine;
+        this.cursor = cursor;
+    }
+
+    /**
+     * Gets the number of transactions exported so far.
+     * The value can be stored and passed back to the constructor to resume exports.
+     *
+     * @return the export cursor
+     */
+    public synchronized int getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Writes every transaction recorded since the last export to a CSV file.
+     * The refundedId column is empty for sales; for a refund, amountPaid is
+     * the amount refunded.
+     *
+     * @param file the file to write, replaced if it exists
+     * @param gzip true to gzip-compress the output
+     * @return the number of transactions written
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized int exportCsv(Path file, boolean gzip) throws IOException {
+        int position = cursor;
+        try (ChannelWriter out = new ChannelWriter(file, gzip)) {
+            out.put(CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+            StringBuilder line = new StringBuilder(128);
+            int end = machine.getTransactionCount();
+            while (position < end) {
+                List<Transaction> chunk = machine.getTransactionHistory(position, Math.min(CHUNK_SIZE, end - position));
+                for (Transaction transaction : chunk) {
+                    line.setLength(0);
+                    line.append(transaction.getId()).append(',');
+                    appendCsvField(line, transaction.getProductName());
+                    line.append(',').append(formatAmount(transaction.getAmountPaid()));
+                    line.append(',').append(formatAmount(transaction.getChangeGiven()));
+                    line.append(',');
+                    CSV_DATE_FORMATTER.formatTo(transaction.getDate(), line);
+                    line.append(',');
+                    if (transaction.isRefund()) {
+                        line.append(transaction.getRefundedId());
+                    }
+                    line.append('\n');
+                    out.put(line.toString().getBytes(StandardCharsets.UTF_8));
+                }
+                position += chunk.size();
+            }
+        }
+        // Only advance once the file has been closed, and so fully written
+        int written = position - cursor;
+        cursor = position;
+        return written;
+    }
+
+    /**
+     * Writes every transaction recorded since the last export to a binary file.
+     * Records are grouped in blocks; each block stores its columns (transaction id,
+     * product id, amount paid in cents, change in cents and epoch milliseconds) one after
+     * another, followed by the row and refunded id of each refund in the block.
+     * Product names are dictionary-encoded across the whole file.
+     * Dates are kept to the millisecond.
+     *
+     * @param file the file to write, replaced if it exists
+     * @param gzip true to gzip-compress the output
+     * @return the number of transactions written
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized int exportBinary(Path file, boolean gzip) throws IOException {
+        int position = cursor;
+        try (ChannelWriter out = new ChannelWriter(file, gzip)) {
+            out.putInt(BINARY_MAGIC);
+            out.putInt(BINARY_VERSION);
+            Map<String, Integer> dictionary = new HashMap<>();
+            int end = machine.getTransactionCount();
+            while (position < end) {
+                List<Transaction> chunk = machine.getTransactionHistory(position, Math.min(CHUNK_SIZE, end - position));
+                writeBlock(out, chunk, dictionary);
+                position += chunk.size();
+            }
+            // An empty block marks the end of the stream
+            out.putInt(0);
+            out.putInt(0);
+        }
+        int written = position - cursor;
+        cursor = position;
+        return written;
+    }
+
+    /**
+     * Reads a binary export and passes every transaction to the consumer in order.
+     * Gzip-compressed files are detected automatically.
+     *
+     * @param file the file to read
+     * @param consumer the consumer that receives each transaction
+     * @return the number of transactions read
+     * @throws IOException if the file cannot be read or is not a binary export
+     */
+    public static int readBinary(Path file, Consumer<Transaction> consumer) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return readBinary(in, consumer);
+        }
+    }
+
+    /**
+     * Reads a binary export from a stream and passes every transaction to the consumer in order.
+     * Gzip-compressed streams are detected automatically.
+     *
+     * @param input the stream to read
+     * @param consumer the consumer that receives each transaction
+     * @return the number of transactions read
+     * @throws IOException if the stream cannot be read or is not a binary export
+     */
+    public static int readBinary(InputStream input, Consumer<Transaction> consumer) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+        InputStream source = (first == 0x1f && second == 0x8b)
+                ? new BufferedInputStream(new GZIPInputStream(buffered, BUFFER_SIZE), BUFFER_SIZE)
+                : buffered;
+        DataInputStream in = new DataInputStream(source);
+        try {
+            if (in.readInt() != BINARY_MAGIC) {
+                throw new IOException("Not a transaction export");
+            }
+            int version = in.readInt();
+            if (version < 1 || version > BINARY_VERSION) {
+                throw new IOException("Unsupported export version: " + version);
+            }
+            List<String> dictionary = new ArrayList<>();
+            int total = 0;
+            while (true) {
+                int count = in.readInt();
+                int newNames = in.readInt();
+                if (count == 0 && newNames == 0) {
+                    return total;
+                }
+                for (int i = 0; i < newNames; i++) {
+                    // Names are standard UTF-8, not the modified UTF-8 of readUTF
+                    byte[] name = new byte[in.readUnsignedShort()];
+                    in.readFully(name);
+                    dictionary.add(new String(name, StandardCharsets.UTF_8));
+                }
+                long[] ids = new long[count];
+                if (version >= 2) {
+                    for (int i = 0; i < count; i++) {
+                        ids[i] = in.readLong();
+                    }
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        ids[i] = TransactionIdGenerator.getDefault().nextId();
+                    }
+                }
+                int[] productIds = new int[count];
+                int[] paidCents = new int[count];
+                int[] changeCents = new int[count];
+                for (int i = 0; i < count; i++) {
+                    productIds[i] = in.readInt();
+                }
+                for (int i = 0; i < count; i++) {
+                    paidCents[i] = in.readInt();
+                }
+                for (int i = 0; i < count; i++) {
+                    changeCents[i] = in.readInt();
+                }
+                LocalDateTime[] dates = new LocalDateTime[count];
+                for (int i = 0; i < count; i++) {
+                    long epochMillis = in.readLong();
+                    dates[i] = LocalDateTime.ofEpochSecond(Math.floorDiv(epochMillis, 1000L),
+                            (int) Math.floorMod(epochMillis, 1000L) * 1_000_000, ZoneOffset.UTC);
+                }
+                // Refunds are rare, so they are listed by row rather than stored as a column
+                boolean[] refunds = new boolean[count];
+                long[] refundedIds = new long[count];
+                int refundCount = version >= 3 ? in.readInt() : 0;
+                for (int i = 0; i < refundCount; i++) {
+                    int row = in.readInt();
+                    if (row < 0 || row >= count) {
+                        throw new IOException("Refund row out of range: " + row);
+                    }
+                    refunds[row] = true;
+                    refundedIds[row] = in.readLong();
+                }
+                for (int i = 0; i < count; i++) {
+                    String productName = dictionary.get(productIds[i]);
+                    consumer.accept(refunds[i]
+                            ? Transaction.refund(ids[i], refundedIds[i], productName, paidCents[i] / 100.0, dates[i])
+                            : new Transaction(ids[i], productName, paidCents[i] / 100.0, changeCents[i] / 100.0,
+                                              dates[i]));
+                }
+                total += count;
+            }
+        } catch (EOFException e) {
+            throw new IOException("Truncated transaction export", e);
+        }
+    }
+
+    private static void writeBlock(ChannelWriter out, List<Transaction> chunk, Map<String, Integer> dictionary)
+            throws IOException {
+        List<String> newNames = new ArrayList<>();
+        int[] productIds = new int[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            String name = chunk.get(i).getProductName();
+            Integer id = dictionary.get(name);
+            if (id == null) {
+                id = dictionary.size();
+                dictionary.put(name, id);
+                newNames.add(name);
+            }
+            productIds[i] = id;
+        }
+        out.putInt(chunk.size());
+        out.putInt(newNames.size());
+        for (String name : newNames) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IOException("Product name too long: " + name);
+            }
+            out.putShort((short) bytes.length);
+            out.put(bytes);
+        }
+        for (Transaction transaction : chunk) {
+            out.putLong(transaction.getId());
+        }
+        for (int id : productIds) {
+            out.putInt(id);
+        }
+        for (Transaction transaction : chunk) {
+            out.putInt(toCents(transaction.getAmountPaid()));
+        }
+        for (Transaction transaction : chunk) {
+            out.putInt(toCents(transaction.getChangeGiven()));
+        }
+        for (Transaction transaction : chunk) {
+            LocalDateTime date = transaction.getDate();
+            out.putLong(date.toEpochSecond(ZoneOffset.UTC) * 1000L + date.getNano() / 1_000_000);
+        }
+        int refundCount = 0;
+        for (Transaction transaction : chunk) {
+            if (transaction.isRefund()) {
+                refundCount++;
+            }
+        }
+        out.putInt(refundCount);
+        for (int i = 0; i < chunk.size(); i++) {
+            if (chunk.get(i).isRefund()) {
+                out.putInt(i);
+                out.putLong(chunk.get(i).getRefundedId());
+            }
+        }
+    }
+
+    private static int toCents(double amount) {
+        return Math.toIntExact(Math.round(amount * 100.0));
+    }
+
+    private static String formatAmount(double amount) {
+        long cents = Math.round(amount * 100.0);
+        long fraction = cents % 100;
+        return (cents / 100) + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    private static void appendCsvField(StringBuilder line, String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+
+    /**
+     * Buffers primitive writes and flushes them to a file channel, optionally
+     * through a gzip stream.
+     */
+    private static final class ChannelWriter implements AutoCloseable {
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final WritableByteChannel channel;
+        private boolean closed;
+
+        ChannelWriter(Path file, boolean gzip) throws IOException {
+            FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            if (gzip) {
+                OutputStream compressed = new GZIPOutputStream(Channels.newOutputStream(fileChannel), BUFFER_SIZE);
+                this.channel = Channels.newChannel(compressed);
+            } else {
+                this.channel = fileChannel;
+            }
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        void putShort(short value) throws IOException {
+            ensure(Short.BYTES);
+            buffer.putShort(value);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.smartvending;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates unique, monotonically increasing transaction ids without locking.
+ * Ids follow the Snowflake layout: 41 bits of milliseconds since a custom
+ * epoch, 10 bits of node id and 12 bits of sequence within the millisecond.
+ * Generators with different node ids never produce the same id. When more
+ * than 4096 ids are needed in one millisecond, the generator borrows the next
+ * millisecond rather than waiting.
+ */
+public class TransactionIdGenerator {
+    /** Milliseconds of the custom epoch (2024-01-01T00:00:00Z). */
+    public static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    /** Largest allowed node id. */
+    public static final int MAX_NODE_ID = 1023;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int NODE_BITS = 10;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = SEQUENCE_BITS + NODE_BITS;
+    private static final TransactionIdGenerator DEFAULT = new TransactionIdGenerator(0);
+
+    private final long nodeBits;
+    private final Clock clock;
+    private final AtomicLong lastId = new AtomicLong();
+
+    /**
+     * Constructs a new TransactionIdGenerator that uses the system clock.
+     *
+     * @param nodeId the id of this node, between 0 and {@link #MAX_NODE_ID}
+     * @throws IllegalArgumentException if nodeId is out of range
+     */
+    public TransactionIdGenerator(int nodeId) {
+        this(nodeId, Clock.systemUTC());
+    }
+
+    /**
+     * Constructs a new TransactionIdGenerator.
+     *
+     * @param nodeId the id of this node, between 0 and {@link #MAX_NODE_ID}
+     * @param clock the clock that supplies the timestamp bits
+     * @throws IllegalArgumentException if nodeId is out of range or clock is null
+     */
+    public TransactionIdGenerator(int nodeId, Clock clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID);
+        }
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null");
+        }
+        this.nodeBits = (long) nodeId << SEQUENCE_BITS;
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the generator shared by machines that are not given one explicitly.
+     *
+     * @return the default generator with node id 0
+     */
+    public static TransactionIdGenerator getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Generates the next id.
+     *
+     * @return an id greater than every id previously returned by this generator
+     */
+    public long nextId() {
+        while (true) {
+            long last = lastId.get();
+            long now = Math.max(0L, clock.millis() - EPOCH_MILLIS);
+            long lastTimestamp = last >>> TIMESTAMP_SHIFT;
+            long next;
+            if (now > lastTimestamp) {
+                next = (now << TIMESTAMP_SHIFT) | nodeBits;
+            } else if ((last & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                next = last + 1;
+            } else {
+                next = ((lastTimestamp + 1) << TIMESTAMP_SHIFT) | nodeBits;
+            }
+            if (lastId.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Gets the time encoded in an id.
+     *
+     * @param id an id produced by a generator
+     * @return the milliseconds since the Unix epoch
+     */
+    public static long getTimestampMillis(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + EPOCH_MILLIS;
+    }
+
+    /**
+     * Gets the node id encoded in an id.
+     *
+     * @param id an id produced by a generator
+     * @return the node id
+     */
+    public static int getNodeId(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_NODE_ID);
+    }
+}
@@ -0,0 +1,345 @@
+package com.smartvending;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Publishes transactions to any number of {@link Flow.Subscriber}s.
+ * Transactions are written once into a ring buffer shared by all subscribers.
+ * Each subscriber reads the ring at its own pace on the executor and honours
+ * the demand it requested. Publishing is lock-free: it stores the transaction,
+ * advances a sequence number and wakes idle subscribers. What happens when a
+ * subscriber falls a full ring behind is decided per subscriber by its
+ * {@link BackpressureStrategy}.
+ * A publisher has a single producer: {@link #publish(Transaction)} must not be
+ * called concurrently, which holds when it is a machine's transaction listener.
+ * Subscribers receive only the transactions published after they subscribed.
+ */
+public class TransactionPublisher implements Flow.Publisher<Transaction>, AutoCloseable {
+    /** Default number of transactions the ring buffer holds. */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    // Transactions a subscriber receives before its drain gives the executor thread up
+    private static final int DRAIN_BATCH = 256;
+    private static final int TERMINATED = 0;
+    private static final int IDLE = 1;
+    private static final int MORE = 2;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Transaction[].class);
+    private static final VarHandle SEQUENCES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final Transaction[] ring;
+    // The sequence of the transaction in each slot, or -1 while the slot is being overwritten
+    private final long[] sequences;
+    private final int mask;
+    private final BackpressureStrategy defaultStrategy;
+    private final Executor executor;
+    private final List<RingSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    // Number of transactions published; the next one goes to slot published & mask
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new TransactionPublisher with the default capacity that drops
+     * transactions for slow subscribers and delivers on the common pool.
+     */
+    public TransactionPublisher() {
+        this(DEFAULT_CAPACITY, BackpressureStrategy.DROP, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new TransactionPublisher.
+     *
+     * @param capacity the number of transactions a subscriber may fall behind, rounded up to a power of two
+     * @param defaultStrategy the strategy of subscribers that do not choose one
+     * @param executor the executor that delivers transactions to subscribers
+     * @throws IllegalArgumentException if capacity is not positive or strategy or executor is null
+     */
+    public TransactionPublisher(int capacity, BackpressureStrategy defaultStrategy, Executor executor) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30");
+        }
+        if (defaultStrategy == null || executor == null) {
+            throw new IllegalArgumentException("Strategy and executor cannot be null");
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        this.ring = new Transaction[size];
+        this.sequences = new long[size];
+        Arrays.fill(sequences, -1);
+        this.mask = size - 1;
+        this.defaultStrategy = defaultStrategy;
+        this.executor = executor;
+    }
+
+    /**
+     * Subscribes with the publisher's default backpressure strategy.
+     *
+     * @param subscriber the subscriber
+     * @throws NullPointerException if subscriber is null
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super Transaction> subscriber) {
+        subscribe(subscriber, defaultStrategy);
+    }
+
+    /**
+     * Subscribes with a chosen backpressure strategy.
+     *
+     * @param subscriber the subscriber
+     * @param strategy what to do when the subscriber falls a full buffer behind
+     * @throws NullPointerException if subscriber or strategy is null
+     */
+    public void subscribe(Flow.Subscriber<? super Transaction> subscriber, BackpressureStrategy strategy) {
+        Objects.requireNonNull(subscriber, "Subscriber cannot be null");
+        Objects.requireNonNull(strategy, "Strategy cannot be null");
+        RingSubscription subscription = new RingSubscription(subscriber, strategy);
+        subscription.next = published.get();
+        subscription.consumed.set(subscription.next);
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        if (closed) {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * Publishes a transaction to every subscriber.
+     * Only subscribers with the BLOCK strategy can make this method wait.
+     * Transactions published after the publisher is closed are discarded.
+     *
+     * @param transaction the transaction to publish
+     * @throws IllegalArgumentException if transaction is null
+     */
+    public void publish(Transaction transaction) {
+        if (transaction == null) {
+            throw new IllegalArgumentException("Transaction cannot be null");
+        }
+        if (closed) {
+            return;
+        }
+        long sequence = published.get();
+        for (RingSubscription subscription : subscriptions) {
+            if (sequence - subscription.consumed.get() < ring.length) {
+                continue;
+            }
+            if (subscription.strategy == BackpressureStrategy.BLOCK) {
+                while (sequence - subscription.consumed.get() >= ring.length && !subscription.isTerminated()) {
+                    LockSupport.parkNanos(1_000);
+                }
+            } else if (subscription.strategy == BackpressureStrategy.BUFFER) {
+                subscription.overflow();
+            }
+        }
+        int slot = (int) sequence & mask;
+        // A subscriber that reads the new transaction is then guaranteed to see the stamp change
+        SEQUENCES.setOpaque(sequences, slot, -1L);
+        SLOTS.setRelease(ring, slot, transaction);
+        SEQUENCES.setRelease(sequences, slot, sequence);
+        // The ordered write publishes the slot to subscribers that read the sequence
+        published.lazySet(sequence + 1);
+        for (RingSubscription subscription : subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * Gets the number of transactions published.
+     *
+     * @return the published count
+     */
+    public long getPublishedCount() {
+        return published.get();
+    }
+
+    /**
+     * Gets how far the slowest subscriber is behind the publisher.
+     *
+     * @return the largest number of published transactions a subscriber has not received
+     */
+    public long getMaxLag() {
+        long sequence = published.get();
+        long lag = 0;
+        for (RingSubscription subscription : subscriptions) {
+            lag = Math.max(lag, sequence - subscription.consumed.get());
+        }
+        return lag;
+    }
+
+    /**
+     * Gets the number of transactions skipped for subscribers with the DROP strategy.
+     *
+     * @return the dropped count, summed over all subscribers since the publisher was created
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the number of current subscribers.
+     *
+     * @return the subscriber count
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Completes every subscriber once it has received the transactions already published.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (RingSubscription subscription : subscriptions) {
+            subscription.signal();
+        }
+    }
+
+    /**
+     * A subscriber's position in the ring and its outstanding demand.
+     * Delivery runs on the executor, with at most one drain of a subscription at a time.
+     * A subscriber whose onNext throws is unsubscribed and receives the exception in onError.
+     */
+    private final class RingSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super Transaction> subscriber;
+        private final BackpressureStrategy strategy;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicLong consumed = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable error;
+        // Only read and written by the draining thread after subscribe() has set it
+        private long next;
+
+        RingSubscription(Flow.Subscriber<? super Transaction> subscriber, BackpressureStrategy strategy) {
+            this.subscriber = subscriber;
+            this.strategy = strategy;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Requested count must be positive: " + n);
+            } else {
+                requested.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        boolean isTerminated() {
+            return cancelled || error != null;
+        }
+
+        void overflow() {
+            error = new IllegalStateException("Subscriber fell more than " + ring.length + " transactions behind");
+            subscriptions.remove(this);
+            signal();
+        }
+
+        void signal() {
+            if (wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            while (true) {
+                int state = drain();
+                if (state == TERMINATED) {
+                    return;
+                }
+                if (state == MORE) {
+                    // Resubmit, still owning the drain, so a slow subscriber cannot hog a thread
+                    executor.execute(this);
+                    return;
+                }
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Delivers what the demand allows, up to one batch.
+         *
+         * @return TERMINATED if the subscription has ended, MORE if a full batch was delivered, IDLE otherwise
+         */
+        private int drain() {
+            long demand = requested.get();
+            long emitted = 0;
+            while (true) {
+                if (cancelled) {
+                    return TERMINATED;
+                }
+                Throwable failure = error;
+                if (failure != null) {
+                    terminate();
+                    subscriber.onError(failure);
+                    return TERMINATED;
+                }
+                long available = published.get();
+                if (next == available) {
+                    if (closed) {
+                        terminate();
+                        subscriber.onComplete();
+                        return TERMINATED;
+                    }
+                    break;
+                }
+                if (emitted == demand || emitted == DRAIN_BATCH) {
+                    break;
+                }
+                if (available - next > ring.length) {
+                    // Only DROP subscribers are ever overrun
+                    dropped.addAndGet(available - ring.length - next);
+                    next = available - ring.length;
+                }
+                int slot = (int) next & mask;
+                Transaction transaction = (Transaction) SLOTS.getAcquire(ring, slot);
+                if ((long) SEQUENCES.getAcquire(sequences, slot) != next) {
+                    // The slot is being overwritten or already was; retry once the publisher moves on
+                    continue;
+                }
+                next++;
+                consumed.lazySet(next);
+                emitted++;
+                try {
+                    subscriber.onNext(transaction);
+                } catch (RuntimeException e) {
+                    // Otherwise the drain would stay claimed and a BLOCK publisher would wait forever
+                    terminate();
+                    subscriber.onError(e);
+                    return TERMINATED;
+                }
+            }
+            if (emitted > 0 && demand != Long.MAX_VALUE) {
+                requested.addAndGet(-emitted);
+            }
+            return emitted == DRAIN_BATCH ? MORE : IDLE;
+        }
+
+        private void terminate() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+    }
+}
@@ -1,21 +1,75 @@
 package com.smartvending;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 /**
  * Represents a smart vending machine that manages products and handles transactions.
  * Provides functionality to insert money, select products, and process purchases.
+ * All public operations are synchronized on the machine, so a single instance
+ * may be driven from several threads at once.
  */
 public class VendingMachine {
+    /** Most refunds applied per acquisition of the machine lock by {@link #refundAll}. */
+    static final int REFUND_BATCH_SIZE = 64;
+    
     private Map<String, Product> products;
     private double currentBalance;
     private List<Transaction> transactionHistory;
+    private final Map<Long, Transaction> transactionsById = new HashMap<>();
+    private final Map<Long, Transaction> refundsBySaleId = new HashMap<>();
+    private final List<Transaction> refundHistory = new ArrayList<>();
+    private long revenueCents;
+    private final Clock clock;
+    private final TransactionIdGenerator idGenerator;
+    private PurchaseDedupeCache dedupeCache;
+    private TransactionPublisher transactionPublisher;
+    private FraudDetector fraudDetector;
+    private LotTracker lotTracker;
+    private int sessionPayments;
+    private final List<Consumer<Transaction>> transactionListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<MachineOperation>> operationListeners = new CopyOnWriteArrayList<>();
     
     /**
      * Constructs a new VendingMachine with empty product list and zero balance.
      */
     public VendingMachine() {
+        this(Clock.systemDefaultZone());
+    }
+    
+    /**
+     * Constructs a new VendingMachine that timestamps transactions with the given clock.
+     * 
+     * @param clock the clock used for transaction dates
+     * @throws IllegalArgumentException if clock is null
+     */
+    public VendingMachine(Clock clock) {
+        this(clock, TransactionIdGenerator.getDefault());
+    }
+    
+    /**
+     * Constructs a new VendingMachine with the given clock and transaction id generator.
+     * 
+     * @param clock the clock used for transaction dates
+     * @param idGenerator the generator of transaction ids
+     * @throws IllegalArgumentException if clock or idGenerator is null
+     */
+    public VendingMachine(Clock clock, TransactionIdGenerator idGenerator) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock cannot be null");
+        }
+        if (idGenerator == null) {
+            throw new IllegalArgumentException("Id generator cannot be null");
+        }
+        this.clock = clock;
+        this.idGenerator = idGenerator;
         this.products = new HashMap<>();
         this.currentBalance = 0.0;
         this.transactionHistory = new ArrayList<>();
@@ -27,11 +81,14 @@ public class VendingMachine {
      * @param product the product to add
      * @throws IllegalArgumentException if product is null
      */
-    public void addProduct(Product product) {
+    public synchronized void addProduct(Product product) {
         if (product == null) {
             throw new IllegalArgumentException("Product cannot be null");
         }
         products.put(product.getName(), product);
+        if (!operationListeners.isEmpty()) {
+            fireOperation(addProductOperation(product));
+        }
     }
     
     /**
@@ -39,12 +96,18 @@ public class VendingMachine {
      * 
      * @param amount the amount to insert (must be positive)
      * @throws IllegalArgumentException if amount is not positive
+     * @throws IllegalStateException if the fraud detector has suspended cash
      */
-    public void insertMoney(double amount) {
+    public synchronized void insertMoney(double amount) {
         if (amount <= 0) {
             throw new IllegalArgumentException("Amount must be positive");
         }
+        if (fraudDetector != null) {
+            fraudDetector.checkInsertMoney();
+        }
         currentBalance += amount;
+        sessionPayments++;
+        fireOperation(MachineOperation.Type.INSERT_MONEY, null, amount, 0);
     }
     
     /**
@@ -53,9 +116,24 @@ public class VendingMachine {
      * @param productName the name of the product to purchase
      * @return a Transaction object representing the completed purchase
      * @throws IllegalArgumentException if product name is null or empty
-     * @throws IllegalStateException if product is not available or insufficient funds
+     * @throws IllegalStateException if product is not available, insufficient funds,
+     *         or the fraud detector has suspended selections
      */
-    public Transaction selectProduct(String productName) {
+    public synchronized Transaction selectProduct(String productName) {
+        FraudDetector detector = fraudDetector;
+        if (detector == null) {
+            return sellForCash(productName);
+        }
+        detector.checkSelection();
+        try {
+            return sellForCash(productName);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            detector.selectionFailed();
+            throw e;
+        }
+    }
+    
+    private Transaction sellForCash(String productName) {
         if (productName == null || productName.trim().isEmpty()) {
             throw new IllegalArgumentException("Product name cannot be null or empty");
         }
@@ -64,6 +142,9 @@ public class VendingMachine {
         if (product == null) {
             throw new IllegalStateException("Product not found: " + productName);
         }
+        if (lotTracker != null) {
+            lotTracker.expireBeforeSale(product);
+        }
         
         if (!product.isAvailable()) {
             throw new IllegalStateException("Product is out of stock: " + productName);
@@ -78,25 +159,492 @@ public class VendingMachine {
         double amountPaid = product.getPrice();
         double change = currentBalance - amountPaid;
         
+        // Create and record transaction
+        Transaction transaction = new Transaction(idGenerator.nextId(), productName, amountPaid, change,
+                                                  LocalDateTime.now(clock));
+        recordSale(product, transaction, true);
+        
+        return transaction;
+    }
+    
+    /**
+     * Sells a product that has already been paid for outside the machine, such as by card.
+     * The current cash balance is left untouched.
+     * 
+     * @param productName the name of the product to purchase
+     * @param amountPaid the amount the customer was charged (must cover the price)
+     * @return a Transaction object representing the completed purchase
+     * @throws IllegalArgumentException if product name is null or empty
+     * @throws IllegalStateException if product is not available or the amount does not cover the price
+     */
+    public synchronized Transaction selectProductPrepaid(String productName, double amountPaid) {
+        if (productName == null || productName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Product name cannot be null or empty");
+        }
+        
+        Product product = products.get(productName.trim());
+        if (product == null) {
+            throw new IllegalStateException("Product not found: " + productName);
+        }
+        if (lotTracker != null) {
+            lotTracker.expireBeforeSale(product);
+        }
+        
+        if (!product.isAvailable()) {
+            throw new IllegalStateException("Product is out of stock: " + productName);
+        }
+        
+        if (amountPaid < product.getPrice()) {
+            throw new IllegalStateException("Insufficient funds. Required: " + 
+                                          product.getPrice() + ", Available: " + amountPaid);
+        }
+        
+        Transaction transaction = Transaction.prepaid(idGenerator.nextId(), productName, product.getPrice(),
+                                                      amountPaid - product.getPrice(), LocalDateTime.now(clock));
+        recordSale(product, transaction, false);
+        
+        return transaction;
+    }
+    
+    private void recordSale(Product product, Transaction transaction, boolean cash) {
         // Reduce stock and update balance
         product.reduceStock();
-        currentBalance = 0.0; // Reset balance after purchase
+        if (cash) {
+            currentBalance = 0.0; // Reset balance after purchase
+            sessionPayments = 0;
+        }
         
-        // Create and record transaction
-        Transaction transaction = new Transaction(productName, amountPaid, change, LocalDateTime.now());
         transactionHistory.add(transaction);
-        
+        transactionsById.put(transaction.getId(), transaction);
+        revenueCents += Math.round(transaction.getAmountPaid() * 100);
+        for (Consumer<Transaction> listener : transactionListeners) {
+            listener.accept(transaction);
+        }
+        if (!operationListeners.isEmpty()) {
+            MachineOperation.Type type = cash ? MachineOperation.Type.SELECT_PRODUCT
+                                              : MachineOperation.Type.PREPAID_SALE;
+            fireOperation(new MachineOperation(type, product.getName(), transaction.getAmountPaid(), 1, transaction));
+        }
+    }
+    
+    /**
+     * Refunds a sale: its unit is returned to stock, its amount is taken off the
+     * revenue and a compensating refund transaction is recorded, all under the
+     * machine lock. The balance is untouched, since the customer is paid back
+     * from the cash box. The refund is added to the transaction history and
+     * passed to transaction listeners like a sale, marked by {@link Transaction#isRefund()}.
+     * Only cash sales can be refunded: a {@link Transaction#isPrepaid() prepaid} sale was
+     * charged by a payment provider and must be refunded through it.
+     * 
+     * @param transactionId the id of the sale
+     * @return the refund transaction
+     * @throws IllegalStateException if the sale is not found, was prepaid, is already
+     *         refunded or its product is no longer in the machine
+     */
+    public synchronized Transaction refund(long transactionId) {
+        Transaction sale = transactionsById.get(transactionId);
+        if (sale == null) {
+            throw new IllegalStateException("Transaction not found: " + transactionId);
+        }
+        if (sale.isPrepaid()) {
+            // Cash from the box would pay back a card charge that stays in place
+            throw new IllegalStateException("Prepaid transaction must be refunded by its payment provider: "
+                                            + transactionId);
+        }
+        if (refundsBySaleId.containsKey(transactionId)) {
+            throw new IllegalStateException("Transaction already refunded: " + transactionId);
+        }
+        Product product = products.get(sale.getProductName());
+        if (product == null) {
+            throw new IllegalStateException("Product not found: " + sale.getProductName());
+        }
+        Transaction refund = Transaction.refund(idGenerator.nextId(), transactionId, product.getName(),
+                                                sale.getAmountPaid(), LocalDateTime.now(clock));
+        recordRefund(product, refund);
+        return refund;
+    }
+    
+    /**
+     * Refunds every sale matching a filter, such as all sales of a faulty slot today.
+     * The history is filtered in parallel without holding the machine lock, and the
+     * refunds are then applied in small batches so that purchases can run in between.
+     * Prepaid sales, sales that are already refunded and sales whose product is no
+     * longer in the machine are skipped.
+     * 
+     * @param filter selects the sales to refund
+     * @return the refund transactions, in history order
+     * @throws IllegalArgumentException if filter is null
+     */
+    public List<Transaction> refundAll(Predicate<Transaction> filter) {
+        if (filter == null) {
+            throw new IllegalArgumentException("Filter cannot be null");
+        }
+        List<Long> ids = getTransactionHistory().parallelStream()
+                .filter(transaction -> !transaction.isRefund() && !transaction.isPrepaid() && filter.test(transaction))
+                .map(Transaction::getId)
+                .collect(Collectors.toList());
+        List<Transaction> refunds = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += REFUND_BATCH_SIZE) {
+            List<Long> batch = ids.subList(start, Math.min(start + REFUND_BATCH_SIZE, ids.size()));
+            synchronized (this) {
+                for (long id : batch) {
+                    Transaction sale = transactionsById.get(id);
+                    if (!refundsBySaleId.containsKey(id) && products.containsKey(sale.getProductName())) {
+                        refunds.add(refund(id));
+                    }
+                }
+            }
+        }
+        return refunds;
+    }
+    
+    private void recordRefund(Product product, Transaction refund) {
+        product.restock(1);
+        revenueCents -= Math.round(refund.getAmountPaid() * 100);
+        refundsBySaleId.put(refund.getRefundedId(), refund);
+        refundHistory.add(refund);
+        transactionHistory.add(refund);
+        for (Consumer<Transaction> listener : transactionListeners) {
+            listener.accept(refund);
+        }
+        if (!operationListeners.isEmpty()) {
+            fireOperation(new MachineOperation(MachineOperation.Type.REFUND, product.getName(),
+                                               refund.getAmountPaid(), 1, refund));
+        }
+    }
+    
+    /**
+     * Selects a product for purchase unless the same request has already been served.
+     * If a purchase with the same request key succeeded within the dedupe window,
+     * the original transaction is returned and nothing is charged or vended.
+     * Failed purchases are not remembered, so they can be retried.
+     * 
+     * @param productName the name of the product to purchase
+     * @param requestKey the client's key for this purchase request, or null to disable deduplication
+     * @return the Transaction of this purchase or of the original request
+     * @throws IllegalArgumentException if product name is null or empty
+     * @throws IllegalStateException if product is not available or insufficient funds
+     */
+    public synchronized Transaction selectProduct(String productName, String requestKey) {
+        if (requestKey == null) {
+            return selectProduct(productName);
+        }
+        long now = clock.millis();
+        if (dedupeCache == null) {
+            dedupeCache = new PurchaseDedupeCache(PurchaseDedupeCache.DEFAULT_WINDOW,
+                                                  PurchaseDedupeCache.DEFAULT_MAX_ENTRIES);
+        }
+        Transaction original = dedupeCache.get(requestKey, now);
+        if (original != null) {
+            return original;
+        }
+        Transaction transaction = selectProduct(productName);
+        dedupeCache.put(requestKey, transaction, now);
         return transaction;
     }
     
+    /**
+     * Sets the detector that watches this machine for cash cycling and
+     * selection probing, and refuses cash or selections while it has them
+     * suspended.
+     * 
+     * @param detector the detector, or null to stop detecting
+     */
+    public synchronized void setFraudDetector(FraudDetector detector) {
+        fraudDetector = detector;
+    }
+    
+    /**
+     * Sets the tracker whose expired lots are written off before a product is
+     * sold, so expired units are never vended between sweeps.
+     * 
+     * @param tracker the lot tracker, or null to stop checking expiry
+     */
+    public synchronized void setLotTracker(LotTracker tracker) {
+        lotTracker = tracker;
+    }
+    
+    /**
+     * Gets the detector that watches this machine.
+     * 
+     * @return the fraud detector, or null if none is set
+     */
+    public synchronized FraudDetector getFraudDetector() {
+        return fraudDetector;
+    }
+    
+    /**
+     * Configures how long and how many purchase request keys are remembered.
+     * Replaces the current dedupe cache, forgetting all remembered keys.
+     * 
+     * @param window how long a request key is remembered (must be positive)
+     * @param maxEntries the maximum number of remembered keys (must be positive)
+     * @throws IllegalArgumentException if window or maxEntries is not positive
+     */
+    public synchronized void setDedupeWindow(Duration window, int maxEntries) {
+        dedupeCache = new PurchaseDedupeCache(window, maxEntries);
+    }
+    
+    /**
+     * Restocks a product in the machine.
+     * 
+     * @param productName the name of the product to restock
+     * @param quantity the amount to add to stock (must be positive)
+     * @throws IllegalStateException if the product is not found
+     * @throws IllegalArgumentException if quantity is not positive
+     */
+    public synchronized void restock(String productName, int quantity) {
+        Product product = products.get(productName);
+        if (product == null) {
+            throw new IllegalStateException("Product not found: " + productName);
+        }
+        product.restock(quantity);
+        fireOperation(MachineOperation.Type.RESTOCK, product.getName(), 0.0, quantity);
+    }
+    
+    /**
+     * Removes unsold units of a product from the machine, for example because they expired.
+     * 
+     * @param productName the name of the product
+     * @param quantity the amount to remove (must be positive)
+     * @throws IllegalStateException if the product is not found or quantity exceeds its stock
+     * @throws IllegalArgumentException if quantity is not positive
+     */
+    public synchronized void writeOffStock(String productName, int quantity) {
+        Product product = products.get(productName);
+        if (product == null) {
+            throw new IllegalStateException("Product not found: " + productName);
+        }
+        product.removeStock(quantity);
+        fireOperation(MachineOperation.Type.WRITE_OFF, product.getName(), 0.0, quantity);
+    }
+    
+    /**
+     * Sets the price of a product in the machine.
+     * 
+     * @param productName the name of the product
+     * @param price the new price (must be non-negative)
+     * @throws IllegalStateException if the product is not found
+     * @throws IllegalArgumentException if price is negative
+     */
+    public synchronized void setPrice(String productName, double price) {
+        Product product = products.get(productName);
+        if (product == null) {
+            throw new IllegalStateException("Product not found: " + productName);
+        }
+        product.setPrice(price);
+        fireOperation(MachineOperation.Type.SET_PRICE, product.getName(), price, 0);
+    }
+    
+    /**
+     * Moves a product in the machine to another category. The product keeps
+     * its stock, price and listeners.
+     * 
+     * @param productName the name of the product
+     * @param category the new category, or null for none
+     * @throws IllegalStateException if the product is not found
+     */
+    public synchronized void setCategory(String productName, String category) {
+        Product product = products.get(productName);
+        if (product == null) {
+            throw new IllegalStateException("Product not found: " + productName);
+        }
+        product.setCategory(category);
+        if (!operationListeners.isEmpty()) {
+            fireOperation(new MachineOperation(MachineOperation.Type.SET_CATEGORY, product.getName(), 0.0, 0, null,
+                                               category));
+        }
+    }
+    
+    /**
+     * Registers a listener that is called with every new transaction, sales
+     * and refunds alike; refunds are marked by {@link Transaction#isRefund()}.
+     * Listeners run on the purchasing thread while the machine is locked,
+     * so they should return quickly.
+     * 
+     * @param listener the listener to add
+     * @throws IllegalArgumentException if listener is null
+     */
+    public void addTransactionListener(Consumer<Transaction> listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        transactionListeners.add(listener);
+    }
+    
+    /**
+     * Removes a previously registered transaction listener.
+     * 
+     * @param listener the listener to remove
+     * @return true if the listener was registered, false otherwise
+     */
+    public boolean removeTransactionListener(Consumer<Transaction> listener) {
+        return transactionListeners.remove(listener);
+    }
+    
+    /**
+     * Gets the publisher that streams this machine's transactions to
+     * {@link java.util.concurrent.Flow.Subscriber}s.
+     * The publisher is created on first use with the default capacity, drops
+     * transactions for subscribers that fall too far behind and delivers on the
+     * common pool, so a slow subscriber never delays a sale unless it
+     * subscribes with {@link BackpressureStrategy#BLOCK}.
+     * 
+     * @return the transaction publisher
+     */
+    public synchronized TransactionPublisher getTransactionPublisher() {
+        if (transactionPublisher == null) {
+            transactionPublisher = new TransactionPublisher();
+            addTransactionListener(transactionPublisher::publish);
+        }
+        return transactionPublisher;
+    }
+    
+    /**
+     * Registers a listener that is called after every state-changing operation,
+     * in the order the operations were applied.
+     * Only changes made through the machine are published; changing a Product
+     * object directly bypasses the listeners. Listeners run while the machine is
+     * locked, so they should return quickly.
+     * 
+     * @param listener the listener to add
+     * @throws IllegalArgumentException if listener is null
+     */
+    public void addOperationListener(Consumer<MachineOperation> listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Listener cannot be null");
+        }
+        operationListeners.add(listener);
+    }
+    
+    /**
+     * Removes a previously registered operation listener.
+     * 
+     * @param listener the listener to remove
+     * @return true if the listener was registered, false otherwise
+     */
+    public boolean removeOperationListener(Consumer<MachineOperation> listener) {
+        return operationListeners.remove(listener);
+    }
+    
+    /**
+     * Gets the operations that rebuild the current catalog and balance of the machine
+     * on an empty machine. Transaction history is not included.
+     * Callers that need the snapshot to line up with an operation listener should
+     * take it and register the listener while synchronized on the machine.
+     * 
+     * @return a list of operations describing the current state
+     */
+    public synchronized List<MachineOperation> snapshotOperations() {
+        List<MachineOperation> snapshot = new ArrayList<>();
+        snapshot.add(new MachineOperation(MachineOperation.Type.CLEAR_PRODUCTS, null, 0.0, 0, null));
+        for (Product product : products.values()) {
+            snapshot.add(addProductOperation(product));
+        }
+        if (currentBalance > 0) {
+            snapshot.add(new MachineOperation(MachineOperation.Type.INSERT_MONEY, null, currentBalance, 0, null));
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Applies an operation published by another machine, such as a replication primary.
+     * Sales and refunds are recorded with the original transaction rather than a new one, and
+     * the operation is published again to this machine's own listeners.
+     * 
+     * @param operation the operation to apply
+     * @throws IllegalArgumentException if operation is null or invalid
+     * @throws IllegalStateException if the operation does not fit the current state
+     */
+    public synchronized void applyOperation(MachineOperation operation) {
+        if (operation == null) {
+            throw new IllegalArgumentException("Operation cannot be null");
+        }
+        switch (operation.getType()) {
+            case ADD_PRODUCT:
+                addProduct(new Product(operation.getProductName(), operation.getAmount(), operation.getQuantity(),
+                                       operation.getCategory()));
+                break;
+            case REMOVE_PRODUCT:
+                removeProduct(operation.getProductName());
+                break;
+            case CLEAR_PRODUCTS:
+                clearProducts();
+                break;
+            case INSERT_MONEY:
+                insertMoney(operation.getAmount());
+                break;
+            case SELECT_PRODUCT:
+            case PREPAID_SALE:
+                Product product = products.get(operation.getProductName());
+                if (product == null) {
+                    throw new IllegalStateException("Product not found: " + operation.getProductName());
+                }
+                recordSale(product, operation.getTransaction(),
+                           operation.getType() == MachineOperation.Type.SELECT_PRODUCT);
+                break;
+            case GET_CHANGE:
+                getChange();
+                break;
+            case RESTOCK:
+                restock(operation.getProductName(), operation.getQuantity());
+                break;
+            case SET_PRICE:
+                setPrice(operation.getProductName(), operation.getAmount());
+                break;
+            case SET_CATEGORY:
+                setCategory(operation.getProductName(), operation.getCategory());
+                break;
+            case WRITE_OFF:
+                writeOffStock(operation.getProductName(), operation.getQuantity());
+                break;
+            case REFUND:
+                Transaction refund = operation.getTransaction();
+                if (refundsBySaleId.containsKey(refund.getRefundedId())) {
+                    throw new IllegalStateException("Transaction already refunded: " + refund.getRefundedId());
+                }
+                Product refunded = products.get(operation.getProductName());
+                if (refunded == null) {
+                    throw new IllegalStateException("Product not found: " + operation.getProductName());
+                }
+                recordRefund(refunded, refund);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operation: " + operation.getType());
+        }
+    }
+    
+    private static MachineOperation addProductOperation(Product product) {
+        return new MachineOperation(MachineOperation.Type.ADD_PRODUCT, product.getName(), product.getPrice(),
+                                    product.getStock(), null, product.getCategory());
+    }
+    
+    private void fireOperation(MachineOperation.Type type, String productName, double amount, int quantity) {
+        if (operationListeners.isEmpty()) {
+            return;
+        }
+        fireOperation(new MachineOperation(type, productName, amount, quantity, null));
+    }
+    
+    private void fireOperation(MachineOperation operation) {
+        for (Consumer<MachineOperation> listener : operationListeners) {
+            listener.accept(operation);
+        }
+    }
+    
     /**
      * Gets the change from the current balance without making a purchase.
      * 
      * @return the current balance as change
      */
-    public double getChange() {
+    public synchronized double getChange() {
         double change = currentBalance;
         currentBalance = 0.0;
+        if (fraudDetector != null && change > 0) {
+            fraudDetector.cashReturned(sessionPayments);
+        }
+        sessionPayments = 0;
+        fireOperation(MachineOperation.Type.GET_CHANGE, null, change, 0);
         return change;
     }
     
@@ -105,7 +653,7 @@ public class VendingMachine {
      * 
      * @return the current balance
      */
-    public double getCurrentBalance() {
+    public synchronized double getCurrentBalance() {
         return currentBalance;
     }
     
@@ -115,7 +663,7 @@ public class VendingMachine {
      * @param productName the name of the product
      * @return the Product object, or null if not found
      */
-    public Product getProduct(String productName) {
+    public synchronized Product getProduct(String productName) {
         return products.get(productName);
     }
     
@@ -124,7 +672,7 @@ public class VendingMachine {
      * 
      * @return a list of available products
      */
-    public List<Product> getAvailableProducts() {
+    public synchronized List<Product> getAvailableProducts() {
         List<Product> available = new ArrayList<>();
         for (Product product : products.values()) {
             if (product.isAvailable()) {
@@ -139,25 +687,99 @@ public class VendingMachine {
      * 
      * @return a list of all products
      */
-    public List<Product> getAllProducts() {
+    public synchronized List<Product> getAllProducts() {
         return new ArrayList<>(products.values());
     }
     
     /**
-     * Gets the transaction history.
+     * Gets the time zone of the machine's clock, in which transaction dates are local times.
+     * 
+     * @return the zone of the clock
+     */
+    public ZoneId getZone() {
+        return clock.getZone();
+    }
+    
+    /**
+     * Gets the transaction history: the sales and refunds, in the order they were made.
      * 
      * @return a list of all transactions
      */
-    public List<Transaction> getTransactionHistory() {
+    public synchronized List<Transaction> getTransactionHistory() {
         return new ArrayList<>(transactionHistory);
     }
     
+    /**
+     * Gets a chunk of the transaction history starting at the given position.
+     * Allows callers to walk a large history without copying all of it at once.
+     * 
+     * @param fromIndex the position of the first transaction to return
+     * @param maxCount the maximum number of transactions to return
+     * @return a list of at most maxCount transactions, empty if fromIndex is at the end
+     * @throws IllegalArgumentException if fromIndex or maxCount is negative
+     */
+    public synchronized List<Transaction> getTransactionHistory(int fromIndex, int maxCount) {
+        if (fromIndex < 0 || maxCount < 0) {
+            throw new IllegalArgumentException("Index and count cannot be negative");
+        }
+        int from = Math.min(fromIndex, transactionHistory.size());
+        int to = (int) Math.min((long) from + maxCount, transactionHistory.size());
+        return new ArrayList<>(transactionHistory.subList(from, to));
+    }
+    
+    /**
+     * Looks up a sale by id.
+     * 
+     * @param transactionId the id of the sale
+     * @return the sale, or null if the machine has not recorded it
+     */
+    public synchronized Transaction getTransaction(long transactionId) {
+        return transactionsById.get(transactionId);
+    }
+    
+    /**
+     * Gets the refund of a sale.
+     * 
+     * @param transactionId the id of the sale
+     * @return the refund transaction, or null if the sale has not been refunded
+     */
+    public synchronized Transaction getRefund(long transactionId) {
+        return refundsBySaleId.get(transactionId);
+    }
+    
+    /**
+     * Gets the refunds made by the machine, oldest first.
+     * 
+     * @return a list of all refund transactions
+     */
+    public synchronized List<Transaction> getRefundHistory() {
+        return new ArrayList<>(refundHistory);
+    }
+    
+    /**
+     * Gets the amount taken by the machine's sales, less the refunds.
+     * 
+     * @return the net revenue
+     */
+    public synchronized double getRevenue() {
+        return revenueCents / 100.0;
+    }
+    
+    /**
+     * Gets the number of transactions recorded by the machine, refunds included.
+     * 
+     * @return the number of transactions
+     */
+    public synchronized int getTransactionCount() {
+        return transactionHistory.size();
+    }
+    
     /**
      * Gets the total number of products in the machine.
      * 
      * @return the number of products
      */
-    public int getProductCount() {
+    public synchronized int getProductCount() {
         return products.size();
     }
     
@@ -167,7 +789,7 @@ public class VendingMachine {
      * @param productName the name of the product
      * @return true if the product exists, false otherwise
      */
-    public boolean hasProduct(String productName) {
+    public synchronized boolean hasProduct(String productName) {
         return products.containsKey(productName);
     }
     
@@ -177,15 +799,20 @@ public class VendingMachine {
      * @param productName the name of the product to remove
      * @return the removed product, or null if not found
      */
-    public Product removeProduct(String productName) {
-        return products.remove(productName);
+    public synchronized Product removeProduct(String productName) {
+        Product removed = products.remove(productName);
+        if (removed != null) {
+            fireOperation(MachineOperation.Type.REMOVE_PRODUCT, removed.getName(), 0.0, 0);
+        }
+        return removed;
     }
     
     /**
      * Clears all products from the machine.
      */
-    public void clearProducts() {
+    public synchronized void clearProducts() {
         products.clear();
+        fireOperation(MachineOperation.Type.CLEAR_PRODUCTS, null, 0.0, 0);
     }
     
     /**
@@ -193,7 +820,7 @@ public class VendingMachine {
      * 
      * @return the total inventory value
      */
-    public double getTotalInventoryValue() {
+    public synchronized double getTotalInventoryValue() {
         double total = 0.0;
         for (Product product : products.values()) {
             total += product.getPrice() * product.getStock();
@@ -207,7 +834,7 @@ public class VendingMachine {
      * @return a string containing machine status information
      */
     @Override
-    public String toString() {
+    public synchronized String toString() {
         return String.format("VendingMachine{products=%d, balance=%.2f, transactions=%d}", 
                            products.size(), currentBalance, transactionHistory.size());
     }
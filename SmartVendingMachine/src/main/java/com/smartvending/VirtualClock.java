@@ -0,0 +1,82 @@
+package com.smartvending;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * A clock whose time only moves when it is advanced explicitly.
+ * Used to run simulations in virtual time.
+ */
+public class VirtualClock extends Clock {
+    private final ZoneId zone;
+    private volatile Instant instant;
+
+    /**
+     * Constructs a new VirtualClock in UTC starting at the given instant.
+     *
+     * @param start the initial time of the clock
+     * @throws IllegalArgumentException if start is null
+     */
+    public VirtualClock(Instant start) {
+        this(start, ZoneOffset.UTC);
+    }
+
+    /**
+     * Constructs a new VirtualClock in the given zone starting at the given instant.
+     *
+     * @param start the initial time of the clock
+     * @param zone the time zone of the clock
+     * @throws IllegalArgumentException if start or zone is null
+     */
+    public VirtualClock(Instant start, ZoneId zone) {
+        if (start == null || zone == null) {
+            throw new IllegalArgumentException("Start and zone cannot be null");
+        }
+        this.instant = start;
+        this.zone = zone;
+    }
+
+    /**
+     * Moves the clock forward.
+     *
+     * @param duration the amount of time to advance (must not be negative)
+     * @throws IllegalArgumentException if duration is null or negative
+     */
+    public void advance(Duration duration) {
+        if (duration == null || duration.isNegative()) {
+            throw new IllegalArgumentException("Duration cannot be null or negative");
+        }
+        instant = instant.plus(duration);
+    }
+
+    /**
+     * Sets the clock to the given instant.
+     *
+     * @param instant the new time of the clock
+     * @throws IllegalArgumentException if instant is null
+     */
+    public void setInstant(Instant instant) {
+        if (instant == null) {
+            throw new IllegalArgumentException("Instant cannot be null");
+        }
+        this.instant = instant;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new VirtualClock(instant, zone);
+    }
+
+    @Override
+    public Instant instant() {
+        return instant;
+    }
+}
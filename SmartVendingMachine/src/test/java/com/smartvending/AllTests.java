@@ -13,7 +13,27 @@ import org.junit.platform.suite.api.SuiteDisplayName;
 @SelectClasses({
     ProductTest.class,
     VendingMachineTest.class,
-    TransactionTest.class
+    TransactionTest.class,
+    ConcurrencyStressTest.class,
+    TransactionExporterTest.class,
+    DemandForecasterTest.class,
+    StockAlertServiceTest.class,
+    LoadSimulatorTest.class,
+    TransactionIdGeneratorTest.class,
+    PurchaseDedupeCacheTest.class,
+    ReplicationTest.class,
+    CardPaymentProcessorTest.class,
+    PlanogramTest.class,
+    LotTrackerTest.class,
+    CatalogIndexTest.class,
+    ProductSearchIndexTest.class,
+    TransactionPublisherTest.class,
+    TelemetryAgentTest.class,
+    CatalogLoaderTest.class,
+    FraudDetectorTest.class,
+    SubstitutionRecommenderTest.class,
+    SalesCubeTest.class,
+    SharedStateRegionTest.class
 })
 public class AllTests {
     // This class serves as a test suite container.
@@ -0,0 +1,181 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CardPaymentProcessor Tests")
+class CardPaymentProcessorTest {
+
+    private VendingMachine vendingMachine;
+    private StubPaymentGateway gateway;
+    private CardPaymentProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        vendingMachine = new VendingMachine();
+        vendingMachine.addProduct(new Product("Coca Cola", 1.50, 1000));
+        vendingMachine.addProduct(new Product("Pepsi", 2.00, 1));
+        gateway = new StubPaymentGateway(Duration.ofMillis(100));
+        processor = new CardPaymentProcessor(vendingMachine, gateway, 10, Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void tearDown() {
+        processor.close();
+    }
+
+    private Throwable failureOf(CompletableFuture<Transaction> future) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        return e.getCause();
+    }
+
+    @Test
+    @DisplayName("An approved payment should vend without touching the cash balance")
+    void testApprovedPurchase() throws Exception {
+        vendingMachine.insertMoney(1.00);
+
+        Transaction transaction = processor.purchase("Coca Cola", "card-1").get(5, TimeUnit.SECONDS);
+
+        assertEquals(1.50, transaction.getAmountPaid());
+        assertEquals(0.0, transaction.getChangeGiven());
+        assertEquals(999, vendingMachine.getProduct("Coca Cola").getStock());
+        assertEquals(1.00, vendingMachine.getCurrentBalance());
+    }
+
+    @Test
+    @DisplayName("A declined payment should not vend")
+    void testDeclinedPurchase() {
+        Throwable cause = failureOf(processor.purchase("Coca Cola", "decline-card"));
+
+        assertTrue(cause instanceof IllegalStateException);
+        assertEquals(1000, vendingMachine.getProduct("Coca Cola").getStock());
+        assertEquals(1, processor.getDeclinedCount());
+    }
+
+    @Test
+    @DisplayName("A vend that fails after authorization should void the payment")
+    void testVoidWhenSoldOutInFlight() throws Exception {
+        CompletableFuture<Transaction> first = processor.purchase("Pepsi", "card-1");
+        CompletableFuture<Transaction> second = processor.purchase("Pepsi", "card-2");
+
+        first.exceptionally(e -> null).get(5, TimeUnit.SECONDS);
+        second.exceptionally(e -> null).get(5, TimeUnit.SECONDS);
+        Thread.sleep(300);
+
+        assertEquals(1, vendingMachine.getTransactionCount());
+        assertEquals(1, gateway.getVoidedCount());
+    }
+
+    @Test
+    @DisplayName("Unknown or sold out products should fail before authorizing")
+    void testFailFast() {
+        assertTrue(failureOf(processor.purchase("Missing", "card-1")) instanceof IllegalStateException);
+        vendingMachine.selectProductPrepaid("Pepsi", 2.00);
+        assertTrue(failureOf(processor.purchase("Pepsi", "card-1")) instanceof IllegalStateException);
+        assertEquals(0, gateway.getAuthorizationCount());
+    }
+
+    @Test
+    @DisplayName("Approved sales should be captured in batches")
+    void testCapturesAreBatched() throws Exception {
+        // A long interval leaves only full batches to trigger captures
+        processor.close();
+        processor = new CardPaymentProcessor(vendingMachine, gateway, 5, Duration.ofMinutes(1));
+        List<CompletableFuture<Transaction>> futures = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            futures.add(processor.purchase("Coca Cola", "card-" + i));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (gateway.getCapturedCount() < 25 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(25, gateway.getCapturedCount());
+        assertEquals(5, gateway.getCaptureBatchCount());
+        assertEquals(0, processor.getPendingCaptureCount());
+    }
+
+    @Test
+    @DisplayName("A slow gateway should not serialize concurrent sessions")
+    void testSlowGatewayDoesNotBlock() throws Exception {
+        long start = System.nanoTime();
+        List<CompletableFuture<Transaction>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(processor.purchase("Coca Cola", "card-" + i));
+        }
+        long submitMillis = (System.nanoTime() - start) / 1_000_000;
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+        long totalMillis = (System.nanoTime() - start) / 1_000_000;
+
+        // 200 sequential authorizations at 100ms each would take 20 seconds
+        assertTrue(submitMillis < 1000, "submit took " + submitMillis + "ms");
+        assertTrue(totalMillis < 3000, "purchases took " + totalMillis + "ms");
+        assertEquals(800, vendingMachine.getProduct("Coca Cola").getStock());
+    }
+
+    @Test
+    @DisplayName("A price drop during authorization should only charge and capture the new price")
+    void testPriceDropInFlight() throws Exception {
+        CompletableFuture<Transaction> future = processor.purchase("Coca Cola", "card-1");
+        vendingMachine.setPrice("Coca Cola", 1.25);
+
+        Transaction transaction = future.get(5, TimeUnit.SECONDS);
+        processor.flushCaptures();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (gateway.getCapturedCount() < 1 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(1.25, transaction.getAmountPaid());
+        assertEquals(0.0, transaction.getChangeGiven());
+        assertEquals(1.25, gateway.getCapturedAmount());
+    }
+
+    @Test
+    @DisplayName("A capture that fails synchronously should be left for the timer to retry")
+    void testSynchronousCaptureFailure() throws Exception {
+        processor.close();
+        PaymentGateway failing = new PaymentGateway() {
+            @Override
+            public CompletableFuture<PaymentAuthorization> authorize(String paymentToken, double amount) {
+                return gateway.authorize(paymentToken, amount);
+            }
+
+            @Override
+            public CompletableFuture<Void> capture(List<PaymentAuthorization> authorizations) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Gateway unavailable"));
+            }
+
+            @Override
+            public CompletableFuture<Void> voidAuthorization(PaymentAuthorization authorization) {
+                return gateway.voidAuthorization(authorization);
+            }
+        };
+        processor = new CardPaymentProcessor(vendingMachine, failing, 2, Duration.ofMinutes(1));
+
+        processor.purchase("Coca Cola", "card-1").get(5, TimeUnit.SECONDS);
+        processor.purchase("Coca Cola", "card-2").get(5, TimeUnit.SECONDS);
+        processor.flushCaptures();
+
+        assertEquals(2, processor.getPendingCaptureCount());
+        assertEquals(2, processor.getCaptureFailureCount());
+    }
+
+    @Test
+    @DisplayName("Constructor should throw exception for invalid arguments")
+    void testConstructorWithInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new CardPaymentProcessor(null, gateway));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CardPaymentProcessor(vendingMachine, gateway, 0, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> processor.purchase("Coca Cola", ""));
+    }
+}
@@ -0,0 +1,123 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CatalogIndex Tests")
+class CatalogIndexTest {
+
+    private VendingMachine vendingMachine;
+    private CatalogIndex index;
+
+    @BeforeEach
+    void setUp() {
+        vendingMachine = new VendingMachine();
+        vendingMachine.addProduct(new Product("Coca Cola", 1.50, 5, "Drinks"));
+        vendingMachine.addProduct(new Product("Pepsi", 2.00, 3, "Drinks"));
+        vendingMachine.addProduct(new Product("Water", 1.00, 0, "Drinks"));
+        vendingMachine.addProduct(new Product("Chips", 1.25, 4, "Snacks"));
+        vendingMachine.addProduct(new Product("Gum", 0.75, 2));
+        index = new CatalogIndex(vendingMachine);
+    }
+
+    private static List<String> names(Stream<Product> products) {
+        return products.map(Product::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Range queries should return products cheapest first")
+    void testFindByPrice() {
+        assertEquals(Arrays.asList("Gum", "Water", "Chips", "Coca Cola"), names(index.findByPrice(0.0, 2.00, false)));
+        assertEquals(Arrays.asList("Gum", "Chips", "Coca Cola"), names(index.findByPrice(0.0, 2.00, true)));
+        assertEquals(Arrays.asList("Chips", "Coca Cola", "Pepsi"), names(index.findByPrice(1.25, 2.01, true)));
+    }
+
+    @Test
+    @DisplayName("Category queries should only return products of the category")
+    void testFindByCategory() {
+        assertEquals(Arrays.asList("Coca Cola"), names(index.findByPrice("Drinks", 0.0, 2.00, true)));
+        assertEquals(Arrays.asList("Water", "Coca Cola", "Pepsi"), names(index.findByPrice("Drinks", 0.0, 5.00, false)));
+        assertTrue(names(index.findByPrice("Candy", 0.0, 5.00, false)).isEmpty());
+        assertEquals(new TreeSet<>(Arrays.asList("Drinks", "Snacks")), index.getCategories());
+    }
+
+    @Test
+    @DisplayName("The index should follow price changes")
+    void testPriceChanges() {
+        vendingMachine.setPrice("Pepsi", 0.50);
+        vendingMachine.getProduct("Coca Cola").setPrice(3.00);
+
+        assertEquals(Arrays.asList("Pepsi", "Gum", "Chips"), names(index.findByPrice(0.0, 2.00, true)));
+        assertEquals(Arrays.asList("Coca Cola"), names(index.findByPrice("Drinks", 2.00, 5.00, true)));
+    }
+
+    @Test
+    @DisplayName("The index should follow products running out and being restocked")
+    void testAvailabilityChanges() {
+        vendingMachine.insertMoney(1.00);
+        vendingMachine.selectProduct("Gum");
+        vendingMachine.insertMoney(1.00);
+        vendingMachine.selectProduct("Gum");
+        vendingMachine.restock("Water", 6);
+
+        assertEquals(Arrays.asList("Water", "Chips"), names(index.findByPrice(0.0, 1.50, true)));
+        assertEquals(Arrays.asList("Gum", "Water", "Chips"), names(index.findByPrice(0.0, 1.50, false)));
+    }
+
+    @Test
+    @DisplayName("The index should follow added and removed products")
+    void testCatalogChanges() {
+        vendingMachine.addProduct(new Product("Sprite", 1.10, 2, "Drinks"));
+        vendingMachine.removeProduct("Water");
+        vendingMachine.addProduct(new Product("Chips", 1.40, 4, "Snacks"));
+
+        assertEquals(Arrays.asList("Sprite", "Coca Cola", "Pepsi"), names(index.findByPrice("Drinks", 0.0, 5.00, false)));
+        assertEquals(Arrays.asList("Chips"), names(index.findByPrice("Snacks", 1.30, 1.50, false)));
+        assertEquals(5, index.size());
+
+        vendingMachine.clearProducts();
+        assertEquals(0, index.size());
+        assertTrue(names(index.findByPrice(0.0, 10.00, false)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Closing the index should stop it following the machine")
+    void testClose() {
+        index.close();
+        vendingMachine.addProduct(new Product("Sprite", 1.10, 2, "Drinks"));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    @DisplayName("An inverted range should be rejected")
+    void testInvertedRange() {
+        assertThrows(IllegalArgumentException.class, () -> index.findByPrice(2.00, 1.00, false));
+        assertThrows(IllegalArgumentException.class, () -> index.findByPrice("Candy", 2.00, 1.00, false));
+    }
+
+    @Test
+    @DisplayName("Added product operations should carry the category")
+    void testCategoryIsReplicated() throws IOException {
+        MachineOperation operation = vendingMachine.snapshotOperations().stream()
+                .filter(op -> "Chips".equals(op.getProductName()))
+                .findFirst().orElseThrow(AssertionError::new);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        operation.writeTo(new DataOutputStream(bytes));
+
+        MachineOperation read = MachineOperation.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        VendingMachine replica = new VendingMachine();
+        replica.applyOperation(read);
+
+        assertEquals("Snacks", replica.getProduct("Chips").getCategory());
+    }
+}
@@ -0,0 +1,193 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CatalogLoader Tests")
+class CatalogLoaderTest {
+
+    @TempDir
+    Path directory;
+
+    private Path catalog;
+    private VendingMachine vendingMachine;
+    private CatalogLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        catalog = directory.resolve("catalog.csv");
+        vendingMachine = new VendingMachine();
+        loader = new CatalogLoader(vendingMachine, catalog);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        loader.close();
+    }
+
+    private void write(String... lines) throws IOException {
+        Path temporary = directory.resolve("catalog.tmp");
+        Files.write(temporary, Arrays.asList(lines), StandardCharsets.UTF_8);
+        Files.move(temporary, catalog, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Test
+    @DisplayName("The first reload should make the machine match the file")
+    void testFirstReloadMatchesFile() throws IOException {
+        vendingMachine.addProduct(new Product("Fanta", 1.00, 4));
+        vendingMachine.addProduct(new Product("Pepsi", 2.00, 7));
+        write("name,price,stock,category",
+              "# drinks",
+              "Coca Cola,1.50,10,Drinks",
+              "Pepsi,2.00,3",
+              "\"Chips, salted\",1.25,5,Snacks");
+
+        CatalogDiff diff = loader.reload();
+
+        assertEquals(Arrays.asList("Coca Cola", "Chips, salted"), diff.getAdded());
+        assertEquals(Collections.singletonList("Fanta"), diff.getRemoved());
+        assertTrue(diff.getUpdated().isEmpty());
+        assertEquals(3, vendingMachine.getProductCount());
+        assertEquals(10, vendingMachine.getProduct("Coca Cola").getStock());
+        assertEquals("Drinks", vendingMachine.getProduct("Coca Cola").getCategory());
+        assertEquals(7, vendingMachine.getProduct("Pepsi").getStock());
+        assertEquals("Snacks", vendingMachine.getProduct("Chips, salted").getCategory());
+    }
+
+    @Test
+    @DisplayName("Later reloads should apply only the lines that changed")
+    void testReloadAppliesChanges() throws IOException {
+        write("Coca Cola,1.50,10,Drinks", "Pepsi,2.00,5,Drinks", "Fanta,1.00,5");
+        loader.reload();
+        vendingMachine.insertMoney(2.00);
+        vendingMachine.selectProduct("Coca Cola");
+
+        write("Coca Cola,1.75,50,Drinks", "Pepsi,2.00,5,Soda", "Water,0.80,12");
+        CatalogDiff diff = loader.reload();
+
+        assertEquals(Collections.singletonList("Water"), diff.getAdded());
+        assertEquals(Arrays.asList("Coca Cola", "Pepsi"), diff.getUpdated());
+        assertEquals(Collections.singletonList("Fanta"), diff.getRemoved());
+        Product coke = vendingMachine.getProduct("Coca Cola");
+        assertEquals(1.75, coke.getPrice(), 0.001);
+        assertEquals(9, coke.getStock());
+        assertEquals("Soda", vendingMachine.getProduct("Pepsi").getCategory());
+        assertEquals(5, vendingMachine.getProduct("Pepsi").getStock());
+        assertEquals(12, vendingMachine.getProduct("Water").getStock());
+        assertEquals(1, vendingMachine.getTransactionCount());
+
+        assertTrue(loader.reload().isEmpty());
+    }
+
+    @Test
+    @DisplayName("A category change should keep the product and its listeners")
+    void testCategoryChangeKeepsProduct() throws IOException {
+        write("Pepsi,2.00,5,Drinks");
+        loader.reload();
+        Product pepsi = vendingMachine.getProduct("Pepsi");
+        List<Integer> stocks = new ArrayList<>();
+        pepsi.addProductListener((product, oldStock, newStock) -> stocks.add(newStock));
+        CatalogIndex index = new CatalogIndex(vendingMachine);
+
+        write("Pepsi,2.25,5,Soda");
+        assertEquals(Collections.singletonList("Pepsi"), loader.reload().getUpdated());
+        vendingMachine.restock("Pepsi", 1);
+
+        assertSame(pepsi, vendingMachine.getProduct("Pepsi"));
+        assertEquals("Soda", pepsi.getCategory());
+        assertEquals(2.25, pepsi.getPrice(), 0.001);
+        assertEquals(Collections.singletonList(6), stocks);
+        assertEquals(1, index.findByPrice("Soda", 0.0, 5.00, false).count());
+        assertEquals(0, index.findByPrice("Drinks", 0.0, 5.00, false).count());
+    }
+
+    @Test
+    @DisplayName("Names should be matched without surrounding spaces")
+    void testNamesAreTrimmed() throws IOException {
+        write(" Pepsi ,2.00,5", "Coca Cola,1.50,10");
+        loader.reload();
+        assertNotNull(vendingMachine.getProduct("Pepsi"));
+
+        write("Pepsi,2.50,5", "Coca Cola,1.50,10");
+        CatalogDiff diff = loader.reload();
+        assertEquals(Collections.singletonList("Pepsi"), diff.getUpdated());
+        assertTrue(diff.getRemoved().isEmpty());
+
+        write("Coca Cola,1.50,10");
+        assertEquals(Collections.singletonList("Pepsi"), loader.reload().getRemoved());
+        assertNull(vendingMachine.getProduct("Pepsi"));
+    }
+
+    @Test
+    @DisplayName("A malformed file should leave the machine unchanged")
+    void testMalformedFileChangesNothing() throws IOException {
+        write("Coca Cola,1.50,10", "Pepsi,2.00,5");
+        loader.reload();
+
+        write("Coca Cola,1.99,10", "Pepsi,abc,5");
+        IOException error = assertThrows(IOException.class, () -> loader.reload());
+        assertTrue(error.getMessage().startsWith("Line 2"));
+        write("Coca Cola,1.99,10", "Coca Cola,1.50,10");
+        assertThrows(IOException.class, () -> loader.reload());
+        write("\"Coca Cola,1.99,10");
+        assertThrows(IOException.class, () -> loader.reload());
+
+        assertEquals(1.50, vendingMachine.getProduct("Coca Cola").getPrice(), 0.001);
+        assertEquals(1, loader.getReloadCount());
+
+        write("Coca Cola,1.99,10", "Pepsi,2.00,5");
+        assertEquals(Collections.singletonList("Coca Cola"), loader.reload().getUpdated());
+    }
+
+    @Test
+    @DisplayName("A large catalog with a few changes should apply only those changes")
+    void testLargeCatalogAppliesFewChanges() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) {
+            lines.add("Product " + i + ",1.00,5,Category " + (i % 20));
+        }
+        write(lines.toArray(new String[0]));
+        assertEquals(100_000, loader.reload().getAdded().size());
+
+        for (int i = 0; i < 10; i++) {
+            lines.set(i * 9_973, "Product " + (i * 9_973) + ",2.00,5,Category " + (i * 9_973 % 20));
+        }
+        write(lines.toArray(new String[0]));
+        CatalogDiff diff = loader.reload();
+
+        assertEquals(10, diff.size());
+        assertEquals(10, diff.getUpdated().size());
+        assertEquals(2.00, vendingMachine.getProduct("Product 9973").getPrice(), 0.001);
+        assertEquals(100_000, loader.size());
+    }
+
+    @Test
+    @DisplayName("Watching should reload the catalog when the file changes")
+    void testWatchingReloadsOnChange() throws Exception {
+        write("Coca Cola,1.50,10");
+        loader.startWatching();
+        assertEquals(1, loader.getReloadCount());
+        assertThrows(IllegalStateException.class, () -> loader.startWatching());
+
+        write("Coca Cola,1.80,10", "Pepsi,2.00,5");
+        long deadline = System.nanoTime() + Duration.ofSeconds(20).toNanos();
+        while (!vendingMachine.hasProduct("Pepsi") && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+
+        assertTrue(vendingMachine.hasProduct("Pepsi"));
+        assertEquals(1.80, vendingMachine.getProduct("Coca Cola").getPrice(), 0.001);
+        assertNull(loader.getLastError());
+    }
+}
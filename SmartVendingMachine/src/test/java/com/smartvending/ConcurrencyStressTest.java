@@ -0,0 +1,157 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("VendingMachine Concurrency Tests")
+class ConcurrencyStressTest {
+
+    // Amounts and prices are exact binary fractions so money sums compare exactly
+    private static final double[] AMOUNTS = {0.25, 0.50, 1.00, 2.00};
+    private static final String[] NAMES = {"Coca Cola", "Pepsi", "Water", "Missing"};
+
+    private Map<String, Double> prices;
+    private Map<String, Integer> initialStock;
+
+    @BeforeEach
+    void setUp() {
+        prices = new HashMap<>();
+        prices.put("Coca Cola", 1.50);
+        prices.put("Pepsi", 2.00);
+        prices.put("Water", 0.75);
+        initialStock = new HashMap<>();
+        initialStock.put("Coca Cola", 20);
+        initialStock.put("Pepsi", 5);
+        initialStock.put("Water", 1);
+    }
+
+    private VendingMachine newMachine() {
+        VendingMachine machine = new VendingMachine();
+        for (String name : prices.keySet()) {
+            machine.addProduct(new Product(name, prices.get(name), initialStock.get(name)));
+        }
+        return machine;
+    }
+
+    private OperationHistory.Operation randomOperation(int thread, Random random) {
+        int roll = random.nextInt(10);
+        if (roll < 4) {
+            return new OperationHistory.Operation(thread, OperationHistory.Kind.INSERT_MONEY, null,
+                    AMOUNTS[random.nextInt(AMOUNTS.length)], 0);
+        }
+        if (roll < 7) {
+            return new OperationHistory.Operation(thread, OperationHistory.Kind.SELECT_PRODUCT,
+                    NAMES[random.nextInt(NAMES.length)], 0, 0);
+        }
+        if (roll < 8) {
+            return new OperationHistory.Operation(thread, OperationHistory.Kind.RESTOCK,
+                    NAMES[random.nextInt(NAMES.length)], 0, 1 + random.nextInt(3));
+        }
+        return new OperationHistory.Operation(thread, OperationHistory.Kind.GET_CHANGE, null, 0, 0);
+    }
+
+    private OperationHistory runConcurrently(VendingMachine machine, int threads, int opsPerThread, long seed)
+            throws Exception {
+        OperationHistory history = new OperationHistory();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(pool.submit(() -> {
+                    Random random = new Random(seed * 31 + thread);
+                    start.await();
+                    for (int i = 0; i < opsPerThread; i++) {
+                        history.run(machine, randomOperation(thread, random));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return history;
+    }
+
+    @Test
+    @DisplayName("Concurrent operations should conserve money")
+    void testMoneyIsConserved() throws Exception {
+        VendingMachine machine = newMachine();
+        OperationHistory history = runConcurrently(machine, 8, 5000, 42);
+
+        double inserted = 0.0;
+        double returned = 0.0;
+        for (OperationHistory.Operation op : history.getOperations()) {
+            if (op.kind == OperationHistory.Kind.INSERT_MONEY) {
+                inserted += op.amount;
+            } else if (op.succeeded() && op.kind == OperationHistory.Kind.SELECT_PRODUCT) {
+                returned += op.paid + op.change;
+            } else if (op.kind == OperationHistory.Kind.GET_CHANGE) {
+                returned += op.change;
+            }
+        }
+        assertEquals(inserted, returned + machine.getCurrentBalance());
+    }
+
+    @Test
+    @DisplayName("Concurrent operations should conserve stock")
+    void testStockIsConserved() throws Exception {
+        VendingMachine machine = newMachine();
+        OperationHistory history = runConcurrently(machine, 8, 5000, 7);
+
+        Map<String, Integer> expected = new HashMap<>(initialStock);
+        for (OperationHistory.Operation op : history.getOperations()) {
+            if (!op.succeeded()) {
+                continue;
+            }
+            if (op.kind == OperationHistory.Kind.RESTOCK) {
+                expected.merge(op.productName, op.quantity, Integer::sum);
+            } else if (op.kind == OperationHistory.Kind.SELECT_PRODUCT) {
+                expected.merge(op.productName, -1, Integer::sum);
+            }
+        }
+        for (String name : expected.keySet()) {
+            assertEquals(expected.get(name), machine.getProduct(name).getStock(), name);
+        }
+        assertEquals(history.getOperations().stream()
+                .filter(op -> op.succeeded() && op.kind == OperationHistory.Kind.SELECT_PRODUCT)
+                .count(), machine.getTransactionHistory().size());
+    }
+
+    @Test
+    @DisplayName("Short concurrent histories should be linearizable")
+    void testHistoriesAreLinearizable() throws Exception {
+        for (long seed = 0; seed < 50; seed++) {
+            VendingMachine machine = newMachine();
+            OperationHistory history = runConcurrently(machine, 3, 4, seed);
+            assertTrue(history.isLinearizable(prices, initialStock, 0.0),
+                    () -> "Not linearizable: " + history.getOperations());
+        }
+    }
+
+    @Test
+    @DisplayName("Checker should reject a history that no sequential order explains")
+    void testCheckerRejectsImpossibleHistory() {
+        VendingMachine machine = newMachine();
+        OperationHistory history = new OperationHistory();
+        history.run(machine, new OperationHistory.Operation(0, OperationHistory.Kind.INSERT_MONEY, null, 2.00, 0));
+        history.run(machine, new OperationHistory.Operation(0, OperationHistory.Kind.GET_CHANGE, null, 0, 0));
+        // Replaying the same recorded history against a model that starts with
+        // extra money cannot explain the observed change
+        assertFalse(history.isLinearizable(prices, initialStock, 1.00));
+        assertTrue(history.isLinearizable(prices, initialStock, 0.0));
+    }
+}
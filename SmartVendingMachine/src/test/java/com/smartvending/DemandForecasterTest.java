@@ -0,0 +1,145 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("DemandForecaster Tests")
+class DemandForecasterTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private VendingMachine vendingMachine;
+    private DemandForecaster forecaster;
+
+    @BeforeEach
+    void setUp() {
+        vendingMachine = new VendingMachine();
+        vendingMachine.addProduct(new Product("Coca Cola", 1.50, 10));
+        vendingMachine.addProduct(new Product("Pepsi", 2.00, 5));
+        forecaster = new DemandForecaster(vendingMachine, 0.5);
+    }
+
+    private void sellEvery(String productName, int minutes, int count) {
+        for (int i = 0; i < count; i++) {
+            forecaster.record(new Transaction(productName, 1.50, 0.0, START.plusMinutes((long) i * minutes)));
+        }
+    }
+
+    @Test
+    @DisplayName("Unknown demand should not predict a stockout")
+    void testNoDemand() {
+        assertEquals(0.0, forecaster.getHourlyRate("Coca Cola", START));
+        assertNull(forecaster.predictStockout("Coca Cola", START));
+        assertNull(forecaster.predictStockout("Missing", START));
+    }
+
+    @Test
+    @DisplayName("Steady sales should give a steady hourly rate")
+    void testSteadyRate() {
+        sellEvery("Coca Cola", 10, 10);
+        assertEquals(6.0, forecaster.getHourlyRate("Coca Cola", START), 1e-9);
+    }
+
+    @Test
+    @DisplayName("predictStockout should divide stock by the sales rate")
+    void testPredictStockout() {
+        sellEvery("Coca Cola", 10, 10);
+        // 10 in stock at 6 per hour runs out after 100 minutes
+        LocalDateTime stockout = forecaster.predictStockout("Coca Cola", START);
+        assertEquals(START.plusMinutes(100), stockout.withNano(0).withSecond(0));
+    }
+
+    @Test
+    @DisplayName("Out of stock products should be predicted to run out now")
+    void testOutOfStock() {
+        vendingMachine.addProduct(new Product("Water", 1.00, 0));
+        assertEquals(START, forecaster.predictStockout("Water", START));
+    }
+
+    @Test
+    @DisplayName("Time-of-day profile should shift demand to busy hours")
+    void testSeasonality() {
+        // Sell only between 12:00 and 13:00 every day for a week
+        for (int day = 0; day < 7; day++) {
+            LocalDateTime noon = START.plusDays(day).withHour(12);
+            for (int i = 0; i < 6; i++) {
+                forecaster.record(new Transaction("Pepsi", 2.00, 0.0, noon.plusMinutes(i * 10L)));
+            }
+        }
+        assertTrue(forecaster.getHourlyRate("Pepsi", START.withHour(12))
+                > forecaster.getHourlyRate("Pepsi", START.withHour(3)));
+        assertEquals(0.0, forecaster.getHourlyRate("Pepsi", START.withHour(3)));
+        LocalDateTime stockout = forecaster.predictStockout("Pepsi", START.plusDays(8));
+        assertEquals(12, stockout.getHour());
+    }
+
+    @Test
+    @DisplayName("Forecaster should learn from purchases made on the machine")
+    void testLearnsFromMachine() {
+        vendingMachine.insertMoney(2.00);
+        vendingMachine.selectProduct("Coca Cola");
+        vendingMachine.insertMoney(2.00);
+        vendingMachine.selectProduct("Coca Cola");
+        assertTrue(forecaster.getHourlyRate("Coca Cola", LocalDateTime.now()) > 0.0);
+    }
+
+    @Test
+    @DisplayName("Refunded sales should be taken back out of the time-of-day profile")
+    void testRefundsAreForgotten() {
+        VirtualClock clock = new VirtualClock(START.withHour(12).toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        VendingMachine machine = new VendingMachine(clock);
+        machine.addProduct(new Product("Pepsi", 2.00, 100));
+        DemandForecaster machineForecaster = new DemandForecaster(machine);
+        for (int day = 0; day < 7; day++) {
+            for (int i = 0; i < 6; i++) {
+                machine.selectProductPrepaid("Pepsi", 2.00);
+                clock.advance(Duration.ofMinutes(10));
+            }
+            clock.advance(Duration.ofHours(23));
+        }
+        clock.advance(Duration.ofHours(15));
+        machine.insertMoney(2.00);
+        Transaction mistake = machine.selectProduct("Pepsi");
+        assertTrue(machineForecaster.getHourlyRate("Pepsi", START.withHour(3)) > 0.0);
+
+        machine.refund(mistake.getId());
+        assertEquals(0.0, machineForecaster.getHourlyRate("Pepsi", START.withHour(3)));
+        assertTrue(machineForecaster.getHourlyRate("Pepsi", START.withHour(12)) > 0.0);
+    }
+
+    @Test
+    @DisplayName("predictFleetStockouts should cover every product of every machine")
+    void testPredictFleetStockouts() {
+        VendingMachine other = new VendingMachine();
+        other.addProduct(new Product("Water", 1.00, 3));
+        DemandForecaster otherForecaster = new DemandForecaster(other);
+        sellEvery("Coca Cola", 10, 10);
+
+        List<StockoutPrediction> predictions = DemandForecaster.predictFleetStockouts(
+                Arrays.asList(forecaster, otherForecaster), START);
+
+        assertEquals(3, predictions.size());
+        for (StockoutPrediction prediction : predictions) {
+            if (prediction.getProductName().equals("Coca Cola")) {
+                assertNotNull(prediction.getStockoutTime());
+                assertEquals(10, prediction.getStock());
+            } else {
+                assertNull(prediction.getStockoutTime());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Constructor should throw exception for invalid arguments")
+    void testConstructorWithInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new DemandForecaster(null));
+        assertThrows(IllegalArgumentException.class, () -> new DemandForecaster(vendingMachine, 0.0));
+        assertThrows(IllegalArgumentException.class, () -> new DemandForecaster(vendingMachine, 1.5));
+    }
+}
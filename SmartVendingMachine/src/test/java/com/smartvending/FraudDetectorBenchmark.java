@@ -0,0 +1,38 @@
+package com.smartvending;
+
+import java.time.Clock;
+
+/**
+ * Measures what a fraud detector adds to legitimate cash sales.
+ * Each round times insertMoney followed by selectProduct on a machine
+ * without a detector and on a machine with one.
+ * <pre>
+ * java -cp target/classes:target/test-classes com.smartvending.FraudDetectorBenchmark [sales]
+ * </pre>
+ */
+public class FraudDetectorBenchmark {
+
+    public static void main(String[] args) {
+        int sales = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        for (int round = 0; round < 5; round++) {
+            double without = run(sales, false);
+            double with = run(sales, true);
+            System.out.printf("round %d: %6.1f ns/sale without detector, %6.1f ns/sale with detector (%+.1f ns)%n",
+                    round, without, with, with - without);
+        }
+    }
+
+    private static double run(int sales, boolean detect) {
+        VendingMachine machine = new VendingMachine();
+        machine.addProduct(new Product("Water", 1.00, sales));
+        if (detect) {
+            machine.setFraudDetector(new FraudDetector(Clock.systemUTC()));
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < sales; i++) {
+            machine.insertMoney(1.00);
+            machine.selectProduct("Water");
+        }
+        return (double) (System.nanoTime() - start) / sales;
+    }
+}
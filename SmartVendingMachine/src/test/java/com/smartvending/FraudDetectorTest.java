@@ -0,0 +1,200 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("FraudDetector Tests")
+class FraudDetectorTest {
+
+    private VirtualClock clock;
+    private VendingMachine vendingMachine;
+    private FraudDetector detector;
+    private List<FraudAlert> alerts;
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualClock(Instant.parse("2024-06-01T10:00:00Z"), ZoneOffset.UTC);
+        vendingMachine = new VendingMachine(clock);
+        vendingMachine.addProduct(new Product("Coca Cola", 1.50, 100));
+        detector = new FraudDetector(clock, 3, Duration.ofMinutes(1), 3, 0.1, Duration.ofMinutes(5));
+        alerts = new CopyOnWriteArrayList<>();
+        detector.addAlertListener(alerts::add);
+        vendingMachine.setFraudDetector(detector);
+    }
+
+    private void cycleCash() {
+        vendingMachine.insertMoney(5.00);
+        vendingMachine.getChange();
+    }
+
+    @Test
+    @DisplayName("Repeated cash cycling should raise an alert and suspend cash")
+    void testCashCyclingSuspendsCash() {
+        for (int i = 0; i < 3; i++) {
+            cycleCash();
+        }
+        assertTrue(alerts.isEmpty());
+        assertEquals(3, detector.getCashCycleCount());
+
+        cycleCash();
+        assertEquals(1, alerts.size());
+        FraudAlert alert = alerts.get(0);
+        assertEquals(FraudAlert.Type.CASH_CYCLING, alert.getType());
+        assertEquals(4, alert.getCount());
+        assertEquals(clock.instant().plus(Duration.ofMinutes(5)), alert.getSuspendedUntil());
+        assertTrue(detector.isCashSuspended());
+        assertThrows(IllegalStateException.class, () -> vendingMachine.insertMoney(1.00));
+        assertEquals(0.0, vendingMachine.getCurrentBalance(), 0.001);
+
+        clock.advance(Duration.ofMinutes(5));
+        vendingMachine.insertMoney(2.00);
+        vendingMachine.selectProduct("Coca Cola");
+        assertEquals(1, detector.getAlertCount(FraudAlert.Type.CASH_CYCLING));
+    }
+
+    @Test
+    @DisplayName("Every payment returned in one session should count as a cycle")
+    void testPaymentsInOneSessionCount() {
+        for (int i = 0; i < 4; i++) {
+            vendingMachine.insertMoney(1.00);
+        }
+        assertEquals(4.00, vendingMachine.getChange(), 0.001);
+
+        assertEquals(1, alerts.size());
+        assertTrue(detector.isCashSuspended());
+    }
+
+    @Test
+    @DisplayName("Purchases and empty refunds should not count as cycles")
+    void testPurchasesDoNotCount() {
+        for (int i = 0; i < 10; i++) {
+            vendingMachine.insertMoney(1.00);
+            vendingMachine.insertMoney(1.00);
+            vendingMachine.selectProduct("Coca Cola");
+            vendingMachine.getChange();
+        }
+        assertEquals(0, detector.getCashCycleCount());
+        assertTrue(alerts.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Cash cycles should expire when the window slides past them")
+    void testCashCyclesExpire() {
+        for (int i = 0; i < 3; i++) {
+            cycleCash();
+        }
+        clock.advance(Duration.ofSeconds(61));
+        assertEquals(0, detector.getCashCycleCount());
+        for (int i = 0; i < 3; i++) {
+            cycleCash();
+        }
+        assertTrue(alerts.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Rapid failed selections should suspend selections")
+    void testFailedSelectionsSuspendSelections() {
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IllegalStateException.class, () -> vendingMachine.selectProduct("Pepsi"));
+        }
+        assertTrue(alerts.isEmpty());
+
+        assertThrows(IllegalStateException.class, () -> vendingMachine.selectProduct("Coca Cola"));
+        assertEquals(1, alerts.size());
+        assertEquals(FraudAlert.Type.FAILED_SELECTIONS, alerts.get(0).getType());
+        assertEquals(4, alerts.get(0).getCount());
+
+        vendingMachine.insertMoney(2.00);
+        IllegalStateException refused = assertThrows(IllegalStateException.class,
+                                                     () -> vendingMachine.selectProduct("Coca Cola"));
+        assertTrue(refused.getMessage().startsWith("Selections are not accepted"));
+        assertEquals(4, detector.getFailedSelectionCount());
+
+        clock.advance(Duration.ofMinutes(5));
+        assertNotNull(vendingMachine.selectProduct("Coca Cola"));
+    }
+
+    @Test
+    @DisplayName("Slow failed selections should be tolerated")
+    void testSlowFailuresAreTolerated() {
+        for (int i = 0; i < 10; i++) {
+            assertThrows(IllegalStateException.class, () -> vendingMachine.selectProduct("Pepsi"));
+            clock.advance(Duration.ofSeconds(10));
+        }
+        assertTrue(alerts.isEmpty());
+        assertFalse(detector.isSelectionSuspended());
+    }
+
+    @Test
+    @DisplayName("Reset should lift suspensions")
+    void testReset() {
+        for (int i = 0; i < 4; i++) {
+            cycleCash();
+        }
+        assertTrue(detector.isCashSuspended());
+
+        detector.reset();
+        assertFalse(detector.isCashSuspended());
+        assertEquals(0, detector.getCashCycleCount());
+        vendingMachine.insertMoney(1.00);
+        assertEquals(1, detector.getAlertCount(FraudAlert.Type.CASH_CYCLING));
+    }
+
+    @Test
+    @DisplayName("Removing the detector should stop throttling")
+    void testRemoveDetector() {
+        for (int i = 0; i < 4; i++) {
+            cycleCash();
+        }
+        vendingMachine.setFraudDetector(null);
+        assertNull(vendingMachine.getFraudDetector());
+        vendingMachine.insertMoney(1.00);
+        assertEquals(1.00, vendingMachine.getCurrentBalance(), 0.001);
+    }
+
+    @Test
+    @DisplayName("Sliding window counters should count concurrent events exactly")
+    void testSlidingWindowCounterConcurrency() throws InterruptedException {
+        SlidingWindowCounter counter = new SlidingWindowCounter(Duration.ofMinutes(1), 12);
+        long now = clock.millis();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    counter.add(now + i % 1000, 1);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, counter.sum(now + 999));
+        assertEquals(0, counter.sum(now + Duration.ofMinutes(2).toMillis()));
+    }
+
+    @Test
+    @DisplayName("Token buckets should allow a burst and then refill")
+    void testTokenBucket() {
+        TokenBucket bucket = new TokenBucket(2.0, 3);
+        long now = 1_000_000_000L;
+        assertEquals(3, bucket.getAvailableTokens(now));
+        assertTrue(bucket.tryAcquire(now));
+        assertTrue(bucket.tryAcquire(now));
+        assertTrue(bucket.tryAcquire(now));
+        assertFalse(bucket.tryAcquire(now));
+        assertEquals(0, bucket.getAvailableTokens(now));
+
+        assertTrue(bucket.tryAcquire(now + 500_000_000L));
+        assertFalse(bucket.tryAcquire(now + 500_000_000L));
+        assertEquals(3, bucket.getAvailableTokens(now + 5_000_000_000L));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+    }
+}
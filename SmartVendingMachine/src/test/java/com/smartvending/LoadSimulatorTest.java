@@ -0,0 +1,177 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LoadSimulator Tests")
+class LoadSimulatorTest {
+
+    private static final Instant START = Instant.parse("2024-01-01T08:00:00Z");
+
+    @TempDir
+    Path tempDir;
+
+    private VendingMachine stockedMachine(LoadSimulator simulator) {
+        VendingMachine machine = simulator.newMachine();
+        machine.addProduct(new Product("Coca Cola", 1.50, 50));
+        machine.addProduct(new Product("Pepsi", 2.00, 5));
+        machine.addProduct(new Product("Water", 1.00, 100));
+        return machine;
+    }
+
+    private List<String> describe(VendingMachine machine) {
+        return machine.getTransactionHistory().stream()
+                .map(Transaction::toString)
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Runs with the same seed should be reproducible")
+    void testSameSeedIsReproducible() {
+        List<List<String>> histories = new ArrayList<>();
+        List<SimulationReport> reports = new ArrayList<>();
+        for (int run = 0; run < 2; run++) {
+            LoadSimulator simulator = new LoadSimulator(1234L, START);
+            VendingMachine first = stockedMachine(simulator);
+            VendingMachine second = stockedMachine(simulator);
+            simulator.addMachine(first, ArrivalProcesses.poisson(0.05));
+            simulator.addMachine(second, ArrivalProcesses.bursty(0.01, 0.5, 600, 60));
+            reports.add(simulator.run(Duration.ofHours(4)));
+            List<String> history = describe(first);
+            history.addAll(describe(second));
+            histories.add(history);
+        }
+        assertEquals(histories.get(0), histories.get(1));
+        assertEquals(reports.get(0).getArrivals(), reports.get(1).getArrivals());
+        assertEquals(reports.get(0).getOutOfStockCount(), reports.get(1).getOutOfStockCount());
+        assertEquals(reports.get(0).getInsufficientFundsCount(), reports.get(1).getInsufficientFundsCount());
+        assertEquals(reports.get(0).getRevenue(), reports.get(1).getRevenue());
+    }
+
+    @Test
+    @DisplayName("Report should account for every arrival")
+    void testReportAccountsForArrivals() {
+        LoadSimulator simulator = new LoadSimulator(99L, START);
+        VendingMachine machine = stockedMachine(simulator);
+        simulator.addMachine(machine, ArrivalProcesses.poisson(0.1));
+
+        SimulationReport report = simulator.run(Duration.ofHours(2));
+
+        assertTrue(report.getArrivals() > 0);
+        assertEquals(report.getArrivals(), report.getSales() + report.getOutOfStockCount()
+                + report.getInsufficientFundsCount() + report.getNotFoundCount());
+        assertEquals(report.getSales(), machine.getTransactionCount());
+        assertTrue(report.getOutOfStockCount() > 0, "Pepsi should sell out");
+        assertTrue(report.getInsufficientFundsCount() > 0);
+        assertEquals(0.0, machine.getCurrentBalance());
+        assertTrue(report.getLatencyPercentile(50) <= report.getLatencyPercentile(99));
+        assertEquals(7200.0, report.getVirtualSeconds());
+    }
+
+    @Test
+    @DisplayName("Poisson arrivals should match the configured rate")
+    void testPoissonRate() {
+        LoadSimulator simulator = new LoadSimulator(5L, START);
+        VendingMachine machine = simulator.newMachine();
+        machine.addProduct(new Product("Water", 1.00, 1_000_000));
+        simulator.addMachine(machine, ArrivalProcesses.poisson(1.0));
+
+        SimulationReport report = simulator.run(Duration.ofHours(1));
+
+        assertEquals(3600.0, report.getArrivals(), 300.0);
+    }
+
+    @Test
+    @DisplayName("Transactions should carry virtual time")
+    void testTransactionsUseVirtualTime() {
+        LoadSimulator simulator = new LoadSimulator(1L, START);
+        VendingMachine machine = stockedMachine(simulator);
+        simulator.addMachine(machine, ArrivalProcesses.poisson(0.01));
+
+        simulator.run(Duration.ofDays(1));
+
+        LocalDateTime begin = LocalDateTime.ofInstant(START, simulator.getClock().getZone());
+        for (Transaction transaction : machine.getTransactionHistory()) {
+            assertFalse(transaction.getDate().isBefore(begin));
+            assertFalse(transaction.getDate().isAfter(begin.plusDays(1)));
+        }
+    }
+
+    @Test
+    @DisplayName("Replaying an exported log should repeat the recorded purchases")
+    void testReplayExportedLog() throws IOException {
+        LoadSimulator original = new LoadSimulator(7L, START);
+        VendingMachine recorded = stockedMachine(original);
+        original.addMachine(recorded, ArrivalProcesses.poisson(0.02));
+        original.run(Duration.ofHours(3));
+        Path file = tempDir.resolve("log.bin");
+        new TransactionExporter(recorded).exportBinary(file, true);
+
+        LoadSimulator replay = new LoadSimulator(8L, START);
+        VendingMachine replayed = stockedMachine(replay);
+        replay.addMachine(replayed, ArrivalProcesses.replay(file));
+        SimulationReport report = replay.run(Duration.ofHours(4));
+
+        assertEquals(recorded.getTransactionCount(), report.getSales());
+        List<String> expected = recorded.getTransactionHistory().stream()
+                .map(Transaction::getProductName).collect(Collectors.toList());
+        List<String> actual = replayed.getTransactionHistory().stream()
+                .map(Transaction::getProductName).collect(Collectors.toList());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("Replays should leave out refunds and the sales they refund")
+    void testReplaySkipsRefunds() throws IOException {
+        LoadSimulator original = new LoadSimulator(7L, START);
+        VendingMachine recorded = stockedMachine(original);
+        original.addMachine(recorded, ArrivalProcesses.poisson(0.02));
+        original.run(Duration.ofHours(3));
+        Transaction refunded = recorded.getTransactionHistory().get(0);
+        recorded.refund(refunded.getId());
+        Path file = tempDir.resolve("log.bin");
+        new TransactionExporter(recorded).exportBinary(file, false);
+
+        List<String> expected = recorded.getTransactionHistory().stream()
+                .filter(transaction -> !transaction.isRefund() && transaction != refunded)
+                .map(Transaction::getProductName).collect(Collectors.toList());
+        for (ArrivalProcess process : Arrays.asList(ArrivalProcesses.replay(recorded.getTransactionHistory()),
+                                                    ArrivalProcesses.replay(file))) {
+            LoadSimulator replay = new LoadSimulator(8L, START);
+            VendingMachine replayed = stockedMachine(replay);
+            replay.addMachine(replayed, process);
+            SimulationReport report = replay.run(Duration.ofHours(4));
+
+            assertEquals(recorded.getTransactionCount() - 2, report.getSales());
+            assertEquals(expected, replayed.getTransactionHistory().stream()
+                    .map(Transaction::getProductName).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    @DisplayName("Simulator should only run once")
+    void testRunOnlyOnce() {
+        LoadSimulator simulator = new LoadSimulator(1L, START);
+        simulator.run(Duration.ofMinutes(1));
+        assertThrows(IllegalStateException.class, () -> simulator.run(Duration.ofMinutes(1)));
+        assertThrows(IllegalStateException.class,
+                () -> simulator.addMachine(simulator.newMachine(), ArrivalProcesses.poisson(1)));
+    }
+
+    @Test
+    @DisplayName("Arrival processes should reject invalid rates")
+    void testInvalidArrivalProcesses() {
+        assertThrows(IllegalArgumentException.class, () -> ArrivalProcesses.poisson(0));
+        assertThrows(IllegalArgumentException.class, () -> ArrivalProcesses.bursty(1, -1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> ArrivalProcesses.replay((List<Transaction>) null));
+    }
+}
@@ -0,0 +1,197 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("LotTracker Tests")
+class LotTrackerTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 1);
+
+    private VirtualClock clock;
+    private VendingMachine vendingMachine;
+    private LotTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualClock(TODAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        vendingMachine = new VendingMachine(clock);
+        vendingMachine.addProduct(new Product("Coca Cola", 1.50, 0));
+        vendingMachine.addProduct(new Product("Pepsi", 2.00, 2));
+        tracker = new LotTracker(vendingMachine, clock);
+    }
+
+    private void buy(String productName) {
+        vendingMachine.insertMoney(2.00);
+        vendingMachine.selectProduct(productName);
+    }
+
+    @Test
+    @DisplayName("Received lots should be ordered by expiry")
+    void testReceiveOrdersLotsByExpiry() {
+        tracker.receive("Coca Cola", 3, TODAY.plusDays(10));
+        tracker.receive("Coca Cola", 2, TODAY.plusDays(5));
+
+        List<Lot> lots = tracker.getLots("Coca Cola");
+        assertEquals(2, lots.size());
+        assertEquals(TODAY.plusDays(5), lots.get(0).getExpiry());
+        assertEquals(5, vendingMachine.getProduct("Coca Cola").getStock());
+    }
+
+    @Test
+    @DisplayName("Vends should consume the lot that expires first")
+    void testVendsConsumeOldestLot() {
+        tracker.receive("Coca Cola", 3, TODAY.plusDays(10));
+        tracker.receive("Coca Cola", 2, TODAY.plusDays(5));
+
+        buy("Coca Cola");
+        buy("Coca Cola");
+        buy("Coca Cola");
+
+        List<Lot> lots = tracker.getLots("Coca Cola");
+        assertEquals(1, lots.size());
+        assertEquals(TODAY.plusDays(10), lots.get(0).getExpiry());
+        assertEquals(2, lots.get(0).getQuantity());
+    }
+
+    @Test
+    @DisplayName("Existing stock should be undated and sold after dated lots")
+    void testUndatedStock() {
+        tracker.receive("Pepsi", 1, TODAY.plusDays(3));
+        assertEquals(2, tracker.getUndatedStock("Pepsi"));
+
+        buy("Pepsi");
+        assertTrue(tracker.getLots("Pepsi").isEmpty());
+        assertEquals(2, tracker.getUndatedStock("Pepsi"));
+
+        buy("Pepsi");
+        assertEquals(1, tracker.getUndatedStock("Pepsi"));
+    }
+
+    @Test
+    @DisplayName("Sweeping should write expired lots off the machine")
+    void testSweepWritesOffExpiredLots() {
+        tracker.receive("Coca Cola", 3, TODAY.plusDays(1));
+        tracker.receive("Coca Cola", 4, TODAY.plusDays(2));
+        tracker.receive("Coca Cola", 5, TODAY.plusDays(7));
+        List<MachineOperation> operations = new ArrayList<>();
+        vendingMachine.addOperationListener(operations::add);
+
+        clock.advance(Duration.ofDays(3));
+        assertEquals(Collections.singletonMap("Coca Cola", 7), tracker.getExpiredStock());
+
+        assertEquals(7, tracker.sweep());
+        assertEquals(5, vendingMachine.getProduct("Coca Cola").getStock());
+        assertEquals(1, tracker.getLots("Coca Cola").size());
+        assertTrue(tracker.getExpiredStock().isEmpty());
+        assertEquals(1, operations.size());
+        assertEquals(MachineOperation.Type.WRITE_OFF, operations.get(0).getType());
+        assertEquals(7, operations.get(0).getQuantity());
+    }
+
+    @Test
+    @DisplayName("A vend should never sell expired stock, even between sweeps")
+    void testVendWritesOffExpiredLots() {
+        tracker.receive("Coca Cola", 2, TODAY.plusDays(1));
+        tracker.receive("Coca Cola", 1, TODAY.plusDays(5));
+        clock.advance(Duration.ofDays(2));
+
+        buy("Coca Cola");
+
+        assertEquals(0, vendingMachine.getProduct("Coca Cola").getStock());
+        assertTrue(tracker.getLots("Coca Cola").isEmpty());
+        assertThrows(IllegalStateException.class, () -> vendingMachine.selectProductPrepaid("Coca Cola", 2.00));
+    }
+
+    @Test
+    @DisplayName("A vend of only expired stock should fail as out of stock")
+    void testVendOfExpiredStockFails() {
+        tracker.receive("Coca Cola", 2, TODAY.plusDays(1));
+        clock.advance(Duration.ofDays(2));
+        vendingMachine.insertMoney(2.00);
+
+        assertThrows(IllegalStateException.class, () -> vendingMachine.selectProduct("Coca Cola"));
+        assertEquals(0, vendingMachine.getProduct("Coca Cola").getStock());
+        assertEquals(2.00, vendingMachine.getCurrentBalance());
+    }
+
+    @Test
+    @DisplayName("Sweeping should keep tracking products still in the machine and drop removed ones")
+    void testSweepKeepsTrackingLiveProducts() {
+        tracker.receive("Coca Cola", 2, TODAY.plusDays(1));
+        tracker.receive("Coca Cola", 3, TODAY.plusDays(5));
+        tracker.receive("Pepsi", 1, TODAY.plusDays(1));
+        vendingMachine.removeProduct("Pepsi");
+        clock.advance(Duration.ofDays(2));
+
+        assertEquals(2, tracker.sweep());
+        assertEquals(1, tracker.getLots("Coca Cola").size());
+        assertTrue(tracker.getLots("Pepsi").isEmpty());
+
+        vendingMachine.addProduct(new Product("Pepsi", 2.00, 0));
+        tracker.receive("Pepsi", 4, TODAY.plusDays(5));
+        assertEquals(4, tracker.getLots("Pepsi").get(0).getQuantity());
+        assertEquals(0, tracker.getUndatedStock("Pepsi"));
+    }
+
+    @Test
+    @DisplayName("Stock expiring today should still be sellable")
+    void testExpiryDayIsNotExpired() {
+        tracker.receive("Coca Cola", 2, TODAY);
+        assertEquals(0, tracker.sweep());
+        assertEquals(2, vendingMachine.getProduct("Coca Cola").getStock());
+    }
+
+    @Test
+    @DisplayName("The background sweeper should write off expired lots")
+    void testBackgroundSweeper() throws InterruptedException {
+        tracker.receive("Coca Cola", 3, TODAY.minusDays(1));
+        tracker.startSweeper(Duration.ofMillis(10));
+        try {
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (vendingMachine.getProduct("Coca Cola").getStock() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        } finally {
+            tracker.shutdown();
+        }
+        assertEquals(0, vendingMachine.getProduct("Coca Cola").getStock());
+    }
+
+    @Test
+    @DisplayName("The fleet report should add up expired stock across machines")
+    void testFleetExpiredStock() {
+        List<LotTracker> fleet = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            VendingMachine machine = new VendingMachine(clock);
+            machine.addProduct(new Product("Coca Cola", 1.50, 0));
+            machine.addProduct(new Product("Pepsi", 2.00, 0));
+            LotTracker machineTracker = new LotTracker(machine, clock);
+            machineTracker.receive("Coca Cola", 2, TODAY.minusDays(1));
+            machineTracker.receive("Pepsi", 1, TODAY.minusDays(2));
+            machineTracker.receive("Pepsi", 5, TODAY.plusDays(2));
+            fleet.add(machineTracker);
+        }
+
+        Map<String, Integer> report = LotTracker.fleetExpiredStock(fleet);
+
+        assertEquals(8, report.get("Coca Cola"));
+        assertEquals(4, report.get("Pepsi"));
+    }
+
+    @Test
+    @DisplayName("Receiving should validate its arguments")
+    void testReceiveValidation() {
+        assertThrows(IllegalStateException.class, () -> tracker.receive("Sprite", 1, TODAY));
+        assertThrows(IllegalArgumentException.class, () -> tracker.receive("Coca Cola", 1, null));
+        assertThrows(IllegalArgumentException.class, () -> tracker.receive("Coca Cola", 0, TODAY));
+        assertTrue(tracker.getLots("Coca Cola").isEmpty());
+    }
+}
@@ -0,0 +1,220 @@
+package com.smartvending;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records concurrent operations against a VendingMachine and checks the
+ * resulting history against a sequential model of the machine.
+ * Invocation and response points are taken from a shared logical clock, so the
+ * real-time order between non-overlapping operations is exact.
+ */
+final class OperationHistory {
+
+    /**
+     * The kinds of operation the history can record.
+     */
+    enum Kind { INSERT_MONEY, SELECT_PRODUCT, RESTOCK, GET_CHANGE }
+
+    /**
+     * A single completed operation with its arguments and observed outcome.
+     */
+    static final class Operation {
+        final int thread;
+        final Kind kind;
+        final String productName;
+        final double amount;
+        final int quantity;
+        long invokedAt;
+        long respondedAt;
+        String failure;
+        double paid;
+        double change;
+
+        Operation(int thread, Kind kind, String productName, double amount, int quantity) {
+            this.thread = thread;
+            this.kind = kind;
+            this.productName = productName;
+            this.amount = amount;
+            this.quantity = quantity;
+        }
+
+        boolean succeeded() {
+            return failure == null;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("T%d %s(%s, %.2f, %d) [%d..%d] -> %s paid=%.2f change=%.2f",
+                    thread, kind, productName, amount, quantity, invokedAt, respondedAt,
+                    failure == null ? "ok" : failure, paid, change);
+        }
+    }
+
+    private final AtomicLong clock = new AtomicLong();
+    private final Queue<Operation> operations = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Runs an operation against the machine and records it with its outcome.
+     * Expected failures are recorded rather than rethrown.
+     *
+     * @param machine the machine under test
+     * @param op the operation to perform
+     */
+    void run(VendingMachine machine, Operation op) {
+        op.invokedAt = clock.incrementAndGet();
+        try {
+            switch (op.kind) {
+                case INSERT_MONEY:
+                    machine.insertMoney(op.amount);
+                    break;
+                case SELECT_PRODUCT:
+                    Transaction t = machine.selectProduct(op.productName);
+                    op.paid = t.getAmountPaid();
+                    op.change = t.getChangeGiven();
+                    break;
+                case RESTOCK:
+                    machine.restock(op.productName, op.quantity);
+                    break;
+                case GET_CHANGE:
+                    op.change = machine.getChange();
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown operation: " + op.kind);
+            }
+        } catch (IllegalStateException e) {
+            op.failure = classify(e.getMessage());
+        }
+        op.respondedAt = clock.incrementAndGet();
+        operations.add(op);
+    }
+
+    /**
+     * Gets all recorded operations.
+     *
+     * @return a list of the recorded operations
+     */
+    List<Operation> getOperations() {
+        return new ArrayList<>(operations);
+    }
+
+    /**
+     * Checks whether the recorded history is linearizable with respect to a
+     * sequential machine that starts from the given state.
+     * Uses a Wing and Gong style backtracking search, so it is only meant for
+     * short histories.
+     *
+     * @param prices the price of every product
+     * @param initialStock the initial stock of every product
+     * @param initialBalance the initial balance
+     * @return true if a legal sequential order exists, false otherwise
+     */
+    boolean isLinearizable(Map<String, Double> prices, Map<String, Integer> initialStock,
+                           double initialBalance) {
+        List<Operation> ops = getOperations();
+        Model model = new Model(prices, new HashMap<>(initialStock), initialBalance);
+        return search(ops, new BitSet(ops.size()), model, new HashSet<>());
+    }
+
+    private boolean search(List<Operation> ops, BitSet done, Model model, Set<String> visited) {
+        if (done.cardinality() == ops.size()) {
+            return true;
+        }
+        if (!visited.add(done + "|" + model)) {
+            return false;
+        }
+        long earliestResponse = Long.MAX_VALUE;
+        for (int i = done.nextClearBit(0); i < ops.size(); i = done.nextClearBit(i + 1)) {
+            earliestResponse = Math.min(earliestResponse, ops.get(i).respondedAt);
+        }
+        for (int i = done.nextClearBit(0); i < ops.size(); i = done.nextClearBit(i + 1)) {
+            Operation op = ops.get(i);
+            if (op.invokedAt > earliestResponse) {
+                continue;
+            }
+            Model next = model.copy();
+            if (next.apply(op)) {
+                done.set(i);
+                if (search(ops, done, next, visited)) {
+                    return true;
+                }
+                done.clear(i);
+            }
+        }
+        return false;
+    }
+
+    private static String classify(String message) {
+        if (message.startsWith("Product not found")) {
+            return "not found";
+        }
+        if (message.startsWith("Product is out of stock")) {
+            return "out of stock";
+        }
+        if (message.startsWith("Insufficient funds")) {
+            return "insufficient funds";
+        }
+        return message;
+    }
+
+    /**
+     * Sequential specification of the machine used by the checker.
+     */
+    private static final class Model {
+        private final Map<String, Double> prices;
+        private final Map<String, Integer> stock;
+        private double balance;
+
+        Model(Map<String, Double> prices, Map<String, Integer> stock, double balance) {
+            this.prices = prices;
+            this.stock = stock;
+            this.balance = balance;
+        }
+
+        Model copy() {
+            return new Model(prices, new HashMap<>(stock), balance);
+        }
+
+        boolean apply(Operation op) {
+            switch (op.kind) {
+                case INSERT_MONEY:
+                    balance += op.amount;
+                    return op.succeeded();
+                case RESTOCK:
+                    if (!stock.containsKey(op.productName)) {
+                        return "not found".equals(op.failure);
+                    }
+                    stock.merge(op.productName, op.quantity, Integer::sum);
+                    return op.succeeded();
+                case GET_CHANGE:
+                    double change = balance;
+                    balance = 0.0;
+                    return op.succeeded() && change == op.change;
+                case SELECT_PRODUCT:
+                    Integer left = stock.get(op.productName);
+                    if (left == null) {
+                        return "not found".equals(op.failure);
+                    }
+                    if (left <= 0) {
+                        return "out of stock".equals(op.failure);
+                    }
+                    double price = prices.get(op.productName);
+                    if (balance < price) {
+                        return "insufficient funds".equals(op.failure);
+                    }
+                    boolean matches = op.succeeded() && op.paid == price && op.change == balance - price;
+                    stock.put(op.productName, left - 1);
+                    balance = 0.0;
+                    return matches;
+                default:
+                    return false;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return new TreeMap<>(stock) + "/" + balance;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.smartvending;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Measures card purchase throughput against a stub gateway with 100ms latency.
+ * <pre>
+ * java -cp target/classes:target/test-classes com.smartvending.PaymentThroughputBenchmark [purchases] [latencyMillis]
+ * </pre>
+ */
+public class PaymentThroughputBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int purchases = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long latencyMillis = args.length > 1 ? Long.parseLong(args[1]) : 100;
+
+        VendingMachine machine = new VendingMachine();
+        machine.addProduct(new Product("Water", 1.00, purchases));
+        StubPaymentGateway gateway = new StubPaymentGateway(Duration.ofMillis(latencyMillis));
+        try (CardPaymentProcessor processor = new CardPaymentProcessor(machine, gateway)) {
+            long start = System.nanoTime();
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[purchases];
+            for (int i = 0; i < purchases; i++) {
+                futures[i] = processor.purchase("Water", "card-" + i);
+            }
+            CompletableFuture.allOf(futures).join();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d purchases at %dms gateway latency in %.2fs: %.0f purchases/s%n",
+                    purchases, latencyMillis, seconds, purchases / seconds);
+        }
+        Thread.sleep(latencyMillis * 2);
+        System.out.printf("captured=%d in %d batches%n", gateway.getCapturedCount(), gateway.getCaptureBatchCount());
+    }
+}
@@ -0,0 +1,140 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Planogram Tests")
+class PlanogramTest {
+
+    private VendingMachine vendingMachine;
+
+    @BeforeEach
+    void setUp() {
+        vendingMachine = new VendingMachine();
+        vendingMachine.addProduct(new Product("Coca Cola", 1.50, 0));
+        vendingMachine.addProduct(new Product("Pepsi", 2.00, 0));
+    }
+
+    private void buy(String productName) {
+        vendingMachine.insertMoney(2.00);
+        vendingMachine.selectProduct(productName);
+    }
+
+    @Test
+    @DisplayName("Loading slots should add to the product stock")
+    void testLoadAddsToProductStock() {
+        Planogram planogram = new Planogram(vendingMachine, SlotSelectionPolicy.FULLEST);
+        planogram.assign(0, 1, "Coca Cola", 10);
+        planogram.assign(0, 2, "Coca Cola", 10);
+
+        planogram.load(0, 1, 4);
+        planogram.load(0, 2, 6);
+
+        Product coke = vendingMachine.getProduct("Coca Cola");
+        assertEquals(10, coke.getStock());
+        assertTrue(coke.isAvailable());
+        assertEquals(4, planogram.getSlot("A1").getStock());
+        assertEquals(6, planogram.getSlot(0, 2).getStock());
+        assertEquals(2, planogram.getSlots("Coca Cola").size());
+    }
+
+    @Test
+    @DisplayName("FULLEST should dispense from the slot holding the most units")
+    void testFullestPolicy() {
+        Planogram planogram = new Planogram(vendingMachine, SlotSelectionPolicy.FULLEST);
+        planogram.assign(0, 1, "Coca Cola", 10);
+        planogram.assign(0, 2, "Coca Cola", 10);
+        planogram.load(0, 1, 2);
+        planogram.load(0, 2, 5);
+
+        for (int i = 0; i < 3; i++) {
+            buy("Coca Cola");
+        }
+
+        assertEquals(2, planogram.getSlot("A1").getStock());
+        assertEquals(2, planogram.getSlot("A2").getStock());
+        assertEquals("A2", planogram.getLastDispensedSlot("Coca Cola").getCode());
+    }
+
+    @Test
+    @DisplayName("ROUND_ROBIN should rotate through the stocked slots")
+    void testRoundRobinPolicy() {
+        Planogram planogram = new Planogram(vendingMachine, SlotSelectionPolicy.ROUND_ROBIN);
+        planogram.assign(0, 1, "Coca Cola", 10);
+        planogram.assign(0, 2, "Coca Cola", 10);
+        planogram.assign(0, 3, "Coca Cola", 10);
+        planogram.load(0, 1, 1);
+        planogram.load(0, 2, 5);
+        planogram.load(0, 3, 5);
+
+        for (int i = 0; i < 6; i++) {
+            buy("Coca Cola");
+        }
+
+        assertEquals(0, planogram.getSlot("A1").getStock());
+        assertEquals(2, planogram.getSlot("A2").getStock());
+        assertEquals(3, planogram.getSlot("A3").getStock());
+        assertEquals(1, planogram.getSlot("A1").getDispenseCount());
+        assertEquals(3, planogram.getSlot("A2").getDispenseCount());
+        assertEquals(2, planogram.getSlot("A3").getDispenseCount());
+    }
+
+    @Test
+    @DisplayName("An emptied product should become unavailable")
+    void testEmptySlotsMakeProductUnavailable() {
+        Planogram planogram = new Planogram(vendingMachine, SlotSelectionPolicy.FULLEST);
+        planogram.assign(1, 1, "Pepsi", 2);
+        planogram.load(1, 1, 2);
+
+        buy("Pepsi");
+        buy("Pepsi");
+
+        assertFalse(vendingMachine.getProduct("Pepsi").isAvailable());
+        assertEquals(0, planogram.getSlot("B1").getStock());
+        vendingMachine.insertMoney(2.00);
+        assertThrows(IllegalStateException.class, () -> vendingMachine.selectProduct("Pepsi"));
+    }
+
+    @Test
+    @DisplayName("Restocking through the machine should fill the emptiest slots first")
+    void testMachineRestockFillsSlots() {
+        Planogram planogram = new Planogram(vendingMachine, SlotSelectionPolicy.FULLEST);
+        planogram.assign(0, 1, "Coca Cola", 5);
+        planogram.assign(0, 2, "Coca Cola", 5);
+        planogram.load(0, 1, 3);
+
+        vendingMachine.restock("Coca Cola", 9);
+
+        assertEquals(5, planogram.getSlot("A1").getStock());
+        assertEquals(5, planogram.getSlot("A2").getStock());
+        assertEquals(2, planogram.getUnslottedStock("Coca Cola"));
+        assertEquals(12, vendingMachine.getProduct("Coca Cola").getStock());
+    }
+
+    @Test
+    @DisplayName("Loading past capacity should be rejected")
+    void testLoadOverCapacity() {
+        Planogram planogram = new Planogram(vendingMachine, SlotSelectionPolicy.FULLEST);
+        planogram.assign(0, 1, "Coca Cola", 5);
+        planogram.load(0, 1, 4);
+
+        assertThrows(IllegalStateException.class, () -> planogram.load(0, 1, 2));
+        assertThrows(IllegalArgumentException.class, () -> planogram.load(0, 1, 0));
+        assertThrows(IllegalStateException.class, () -> planogram.load(3, 3, 1));
+        assertEquals(4, vendingMachine.getProduct("Coca Cola").getStock());
+    }
+
+    @Test
+    @DisplayName("Assigning should validate the product and slot")
+    void testAssignValidation() {
+        Planogram planogram = new Planogram(vendingMachine, SlotSelectionPolicy.FULLEST);
+        planogram.assign(0, 1, "Coca Cola", 5);
+
+        assertThrows(IllegalStateException.class, () -> planogram.assign(0, 1, "Pepsi", 5));
+        assertThrows(IllegalStateException.class, () -> planogram.assign(0, 2, "Sprite", 5));
+        assertThrows(IllegalArgumentException.class, () -> planogram.assign(0, 0, "Pepsi", 5));
+        assertThrows(IllegalArgumentException.class, () -> planogram.assign(0, 2, "Pepsi", 0));
+    }
+}
@@ -0,0 +1,68 @@
+package com.smartvending;
+
+import java.util.Random;
+
+/**
+ * Measures prefix and fuzzy search latency on a large generated catalog.
+ * <pre>
+ * java -cp target/classes:target/test-classes com.smartvending.ProductSearchBenchmark [products] [queries]
+ * </pre>
+ */
+public class ProductSearchBenchmark {
+
+    private static final String[] SYLLABLES = {
+        "ka", "lo", "mi", "ra", "to", "ne", "su", "vi", "da", "po", "ze", "qu", "ri", "ba", "fe", "go"
+    };
+    private static final String[] FLAVOURS = {
+        "cola", "zero", "lemon", "lime", "orange", "sparkling", "water", "energy", "tea", "coffee",
+        "chips", "salted", "paprika", "chocolate", "bar", "nuts", "gum", "mint", "cookie", "protein"
+    };
+
+    public static void main(String[] args) {
+        int products = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+
+        Random random = new Random(42);
+        // Brand names of three syllables give a vocabulary of a few thousand words
+        String[] brands = new String[SYLLABLES.length * SYLLABLES.length * SYLLABLES.length];
+        for (int i = 0; i < brands.length; i++) {
+            brands[i] = SYLLABLES[i % SYLLABLES.length] + SYLLABLES[i / SYLLABLES.length % SYLLABLES.length]
+                    + SYLLABLES[i / SYLLABLES.length / SYLLABLES.length];
+        }
+        VendingMachine machine = new VendingMachine();
+        String[] names = new String[products];
+        for (int i = 0; i < products; i++) {
+            names[i] = brands[random.nextInt(brands.length)] + " " + FLAVOURS[random.nextInt(FLAVOURS.length)]
+                    + " " + FLAVOURS[random.nextInt(FLAVOURS.length)];
+            machine.addProduct(new Product(names[i], 1.00, random.nextInt(4)));
+        }
+        long buildStart = System.nanoTime();
+        ProductSearchIndex index = new ProductSearchIndex(machine);
+        System.out.printf("indexed %d products in %.0fms%n", products, (System.nanoTime() - buildStart) / 1e6);
+
+        String[] prefixes = new String[queries];
+        String[] typos = new String[queries];
+        for (int i = 0; i < queries; i++) {
+            String name = names[random.nextInt(products)];
+            prefixes[i] = name.substring(0, 1 + random.nextInt(name.length()));
+            // Drop one letter of the brand to simulate a typo
+            int typo = random.nextInt(6);
+            typos[i] = name.substring(0, typo) + name.substring(typo + 1, name.indexOf(' '));
+        }
+        for (int round = 0; round < 3; round++) {
+            long found = 0;
+            long start = System.nanoTime();
+            for (String prefix : prefixes) {
+                found += index.searchPrefix(prefix, 10).size();
+            }
+            double prefixMicros = (System.nanoTime() - start) / 1e3 / queries;
+            start = System.nanoTime();
+            for (String typo : typos) {
+                found += index.searchFuzzy(typo, 10).size();
+            }
+            double fuzzyMicros = (System.nanoTime() - start) / 1e3 / queries;
+            System.out.printf("round %d: prefix %.2fus/query, fuzzy %.1fus/query (%d results)%n",
+                    round, prefixMicros, fuzzyMicros, found);
+        }
+    }
+}
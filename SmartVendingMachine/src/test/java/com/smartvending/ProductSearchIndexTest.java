@@ -0,0 +1,116 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ProductSearchIndex Tests")
+class ProductSearchIndexTest {
+
+    private VendingMachine vendingMachine;
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        vendingMachine = new VendingMachine();
+        vendingMachine.addProduct(new Product("Coca Cola", 1.50, 5));
+        vendingMachine.addProduct(new Product("Coffee", 2.50, 3));
+        vendingMachine.addProduct(new Product("Cola Zero", 1.50, 0));
+        vendingMachine.addProduct(new Product("Pepsi", 2.00, 3));
+        vendingMachine.addProduct(new Product("Chips", 1.25, 4));
+        index = new ProductSearchIndex(vendingMachine);
+    }
+
+    private static List<String> names(List<Product> products) {
+        return products.stream().map(Product::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Prefix search should match the start of any word, ignoring case")
+    void testSearchPrefix() {
+        assertEquals(Arrays.asList("Coca Cola", "Coffee"), names(index.searchPrefix("co", 10)));
+        assertEquals(Arrays.asList("Coca Cola"), names(index.searchPrefix("COLA", 10)));
+        assertEquals(Arrays.asList("Coca Cola"), names(index.searchPrefix("co", 1)));
+        assertTrue(index.searchPrefix("", 10).isEmpty());
+        assertTrue(index.searchPrefix("water", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Prefix search should only return available products")
+    void testSearchPrefixSkipsUnavailable() {
+        vendingMachine.restock("Cola Zero", 2);
+        assertEquals(Arrays.asList("Coca Cola", "Cola Zero"), names(index.searchPrefix("cola", 10)));
+    }
+
+    @Test
+    @DisplayName("Fuzzy search should tolerate typos")
+    void testSearchFuzzy() {
+        assertEquals("Pepsi", names(index.searchFuzzy("pepsy", 3)).get(0));
+        assertEquals("Coca Cola", names(index.searchFuzzy("koka cola", 3)).get(0));
+        assertEquals("Chips", names(index.searchFuzzy("chpis", 3)).get(0));
+        assertTrue(index.searchFuzzy("xyz", 3).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Search should list prefix matches before fuzzy matches")
+    void testSearch() {
+        List<String> results = names(index.search("cof", 3));
+        assertEquals("Coffee", results.get(0));
+        assertTrue(results.size() <= 3);
+        assertEquals(new HashSet<>(results).size(), results.size());
+    }
+
+    @Test
+    @DisplayName("The index should follow added and removed products")
+    void testIncrementalUpdates() {
+        vendingMachine.addProduct(new Product("Sprite", 1.75, 2));
+        vendingMachine.removeProduct("Pepsi");
+
+        assertEquals(Arrays.asList("Sprite"), names(index.searchPrefix("spr", 5)));
+        assertTrue(index.searchPrefix("pep", 5).isEmpty());
+        assertTrue(index.searchFuzzy("pepsi", 5).isEmpty());
+        assertEquals(5, index.size());
+
+        vendingMachine.clearProducts();
+        assertEquals(0, index.size());
+        assertTrue(index.search("co", 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Fuzzy matches should not be credited to products added during a search")
+    void testFuzzySearchDuringChurn() throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; running.get(); i++) {
+                // Each removal frees an id that the next product added would take
+                vendingMachine.addProduct(new Product("Pepsi Max " + i, 2.00, 1));
+                vendingMachine.removeProduct("Pepsi Max " + i);
+                vendingMachine.addProduct(new Product("Water " + i, 1.00, 1));
+                vendingMachine.removeProduct("Water " + i);
+            }
+        });
+        writer.start();
+        try {
+            for (int i = 0; i < 20_000; i++) {
+                for (String name : names(index.searchFuzzy("pepsi max", 5))) {
+                    assertTrue(name.startsWith("Pepsi"), name);
+                }
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    @Test
+    @DisplayName("Queries should validate their arguments")
+    void testValidation() {
+        assertThrows(IllegalArgumentException.class, () -> index.searchPrefix(null, 5));
+        assertThrows(IllegalArgumentException.class, () -> index.searchFuzzy("co", 0));
+        assertThrows(IllegalArgumentException.class, () -> new ProductSearchIndex(vendingMachine, 1.5));
+    }
+}
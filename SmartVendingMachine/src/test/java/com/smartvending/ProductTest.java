@@ -91,6 +91,16 @@ class ProductTest {
         assertThrows(IllegalArgumentException.class, () -> product.restock(-5));
     }
     
+    @Test
+    @DisplayName("removeStock should decrease stock by specified amount")
+    void testRemoveStock() {
+        int initialStock = product.getStock();
+        product.removeStock(3);
+        assertEquals(initialStock - 3, product.getStock());
+        assertThrows(IllegalArgumentException.class, () -> product.removeStock(0));
+        assertThrows(IllegalStateException.class, () -> product.removeStock(initialStock));
+    }
+    
     @Test
     @DisplayName("isAvailable should return true when stock > 0")
     void testIsAvailableWithStock() {
@@ -125,6 +135,54 @@ class ProductTest {
         assertEquals(price, product.getPrice());
     }
     
+    @Test
+    @DisplayName("Stock changes should notify product listeners")
+    void testProductListener() {
+        int[] changes = new int[2];
+        ProductListener listener = (p, oldStock, newStock) -> {
+            changes[0] = oldStock;
+            changes[1] = newStock;
+        };
+        product.addProductListener(listener);
+        product.reduceStock();
+        assertArrayEquals(new int[] {10, 9}, changes);
+        product.restock(5);
+        assertArrayEquals(new int[] {9, 14}, changes);
+        assertTrue(product.removeProductListener(listener));
+    }
+    
+    @Test
+    @DisplayName("Price changes should notify product listeners")
+    void testPriceListener() {
+        double[] changes = new double[2];
+        product.addProductListener(new ProductListener() {
+            @Override
+            public void stockChanged(Product p, int oldStock, int newStock) {
+            }
+
+            @Override
+            public void priceChanged(Product p, double oldPrice, double newPrice) {
+                changes[0] = oldPrice;
+                changes[1] = newPrice;
+            }
+        });
+        product.setPrice(1.75);
+        assertArrayEquals(new double[] {1.50, 1.75}, changes);
+    }
+    
+    @Test
+    @DisplayName("Category should be optional")
+    void testCategory() {
+        assertNull(product.getCategory());
+        assertEquals("Drinks", new Product("Pepsi", 2.00, 1, "Drinks").getCategory());
+    }
+    
+    @Test
+    @DisplayName("addProductListener should throw exception for null listener")
+    void testAddProductListenerWithNull() {
+        assertThrows(IllegalArgumentException.class, () -> product.addProductListener(null));
+    }
+    
     @Test
     @DisplayName("toString should return formatted string")
     void testToString() {
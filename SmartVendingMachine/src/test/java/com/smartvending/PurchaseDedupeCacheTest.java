@@ -0,0 +1,93 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("PurchaseDedupeCache Tests")
+class PurchaseDedupeCacheTest {
+
+    private VirtualClock clock;
+    private VendingMachine vendingMachine;
+    private Product coke;
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualClock(Instant.parse("2024-01-01T10:00:00Z"));
+        vendingMachine = new VendingMachine(clock);
+        coke = new Product("Coca Cola", 1.50, 10);
+        vendingMachine.addProduct(coke);
+    }
+
+    @Test
+    @DisplayName("A retried request should return the original transaction")
+    void testRetryReturnsOriginal() {
+        vendingMachine.insertMoney(2.00);
+        Transaction first = vendingMachine.selectProduct("Coca Cola", "req-1");
+        Transaction retry = vendingMachine.selectProduct("Coca Cola", "req-1");
+
+        assertSame(first, retry);
+        assertEquals(9, coke.getStock());
+        assertEquals(1, vendingMachine.getTransactionCount());
+    }
+
+    @Test
+    @DisplayName("Different request keys should make separate purchases")
+    void testDifferentKeys() {
+        vendingMachine.insertMoney(2.00);
+        Transaction first = vendingMachine.selectProduct("Coca Cola", "req-1");
+        vendingMachine.insertMoney(2.00);
+        Transaction second = vendingMachine.selectProduct("Coca Cola", "req-2");
+
+        assertNotEquals(first.getId(), second.getId());
+        assertEquals(8, coke.getStock());
+    }
+
+    @Test
+    @DisplayName("A request key should be forgotten after the window")
+    void testWindowExpiry() {
+        vendingMachine.setDedupeWindow(Duration.ofSeconds(30), 100);
+        vendingMachine.insertMoney(2.00);
+        Transaction first = vendingMachine.selectProduct("Coca Cola", "req-1");
+        clock.advance(Duration.ofSeconds(31));
+        vendingMachine.insertMoney(2.00);
+        Transaction second = vendingMachine.selectProduct("Coca Cola", "req-1");
+
+        assertNotSame(first, second);
+        assertEquals(8, coke.getStock());
+    }
+
+    @Test
+    @DisplayName("Failed purchases should not be remembered")
+    void testFailureIsNotRemembered() {
+        assertThrows(IllegalStateException.class, () -> vendingMachine.selectProduct("Coca Cola", "req-1"));
+        vendingMachine.insertMoney(2.00);
+        assertNotNull(vendingMachine.selectProduct("Coca Cola", "req-1"));
+        assertEquals(9, coke.getStock());
+    }
+
+    @Test
+    @DisplayName("Cache should drop the oldest keys when full")
+    void testBoundedSize() {
+        PurchaseDedupeCache cache = new PurchaseDedupeCache(Duration.ofMinutes(1), 2);
+        Transaction transaction = new Transaction("Coca Cola", 1.50, 0.0, LocalDateTime.now());
+        cache.put("a", transaction, 0);
+        cache.put("b", transaction, 1);
+        cache.put("c", transaction, 2);
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("a", 3));
+        assertSame(transaction, cache.get("c", 3));
+    }
+
+    @Test
+    @DisplayName("Constructor should throw exception for invalid arguments")
+    void testConstructorWithInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new PurchaseDedupeCache(Duration.ZERO, 1));
+        assertThrows(IllegalArgumentException.class, () -> new PurchaseDedupeCache(Duration.ofSeconds(1), 0));
+    }
+}
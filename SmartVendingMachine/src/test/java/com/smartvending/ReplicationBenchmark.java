@@ -0,0 +1,66 @@
+package com.smartvending;
+
+import java.time.Duration;
+
+/**
+ * Measures replication throughput and lag between two local JVMs.
+ * Start the standby first, then the primary in a second JVM:
+ * <pre>
+ * java -cp target/classes:target/test-classes com.smartvending.ReplicationBenchmark standby 9400
+ * java -cp target/classes:target/test-classes com.smartvending.ReplicationBenchmark primary 9400 1000000 async
+ * </pre>
+ */
+public class ReplicationBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 2 && args[0].equals("standby")) {
+            runStandby(Integer.parseInt(args[1]));
+        } else if (args.length >= 4 && args[0].equals("primary")) {
+            runPrimary(Integer.parseInt(args[1]), Integer.parseInt(args[2]), args[3].equals("sync"));
+        } else {
+            System.err.println("usage: standby <port> | primary <port> <operations> <async|sync>");
+        }
+    }
+
+    private static void runStandby(int port) throws Exception {
+        ReplicationStandby standby = new ReplicationStandby(new VendingMachine(), port);
+        System.out.println("standby listening on " + standby.getPort());
+        while (!standby.isConnected()) {
+            Thread.sleep(10);
+        }
+        while (standby.isConnected()) {
+            Thread.sleep(1000);
+            System.out.println("applied=" + standby.getAppliedSequence()
+                    + " rejected=" + standby.getRejectedOperations());
+        }
+        long start = System.nanoTime();
+        VendingMachine replica = standby.promote();
+        System.out.printf("promoted in %.3f ms: %s%n", (System.nanoTime() - start) / 1e6, replica);
+    }
+
+    private static void runPrimary(int port, int operations, boolean synchronous) throws Exception {
+        VendingMachine machine = new VendingMachine();
+        machine.addProduct(new Product("Water", 1.00, Integer.MAX_VALUE / 2));
+        try (ReplicationPrimary primary = new ReplicationPrimary(machine, "localhost", port, synchronous,
+                ReplicationPrimary.DEFAULT_SYNC_TIMEOUT)) {
+            long maxLag = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < operations / 2; i++) {
+                machine.insertMoney(1.00);
+                machine.selectProduct("Water");
+                if ((i & 1023) == 0) {
+                    maxLag = Math.max(maxLag, primary.getLag());
+                }
+            }
+            long vendNanos = System.nanoTime() - start;
+            primary.awaitReplication(Duration.ofMinutes(1));
+            long totalNanos = System.nanoTime() - start;
+            System.out.printf("mode=%s operations=%d%n", synchronous ? "sync" : "async", primary.getEnqueuedSequence());
+            System.out.printf("vend path: %.0f ops/s, replicated: %.0f ops/s%n",
+                    operations / (vendNanos / 1e9), operations / (totalNanos / 1e9));
+            System.out.printf("batches=%d maxLag=%d ops lastAckLatency=%.3f ms syncTimeouts=%d%n",
+                    primary.getBatchesSent(), maxLag, primary.getLastAckLatencyNanos() / 1e6,
+                    primary.getSyncTimeouts());
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("Replication Tests")
+class ReplicationTest {
+
+    private VendingMachine primaryMachine;
+    private ReplicationStandby standby;
+    private ReplicationPrimary primary;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        primaryMachine = new VendingMachine();
+        primaryMachine.addProduct(new Product("Coca Cola", 1.50, 10));
+        primaryMachine.addProduct(new Product("Pepsi", 2.00, 5));
+        primaryMachine.insertMoney(0.50);
+        standby = new ReplicationStandby(new VendingMachine(), 0);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (primary != null) {
+            primary.close();
+        }
+        standby.close();
+    }
+
+    private void assertSameState(VendingMachine expected, VendingMachine actual) {
+        assertEquals(expected.getCurrentBalance(), actual.getCurrentBalance());
+        assertEquals(expected.getProductCount(), actual.getProductCount());
+        for (Product product : expected.getAllProducts()) {
+            Product replica = actual.getProduct(product.getName());
+            assertNotNull(replica, product.getName());
+            assertEquals(product.getStock(), replica.getStock(), product.getName());
+            assertEquals(product.getPrice(), replica.getPrice(), product.getName());
+        }
+        assertEquals(expected.getTransactionHistory().stream().map(Transaction::getId).collect(Collectors.toList()),
+                     actual.getTransactionHistory().stream().map(Transaction::getId).collect(Collectors.toList()));
+        assertEquals(expected.getRefundHistory().stream().map(Transaction::getId).collect(Collectors.toList()),
+                     actual.getRefundHistory().stream().map(Transaction::getId).collect(Collectors.toList()));
+        assertEquals(expected.getRevenue(), actual.getRevenue());
+    }
+
+    private void runWorkload() {
+        primaryMachine.insertMoney(2.00);
+        Transaction sale = primaryMachine.selectProduct("Coca Cola");
+        primaryMachine.restock("Pepsi", 3);
+        primaryMachine.setPrice("Pepsi", 2.25);
+        primaryMachine.addProduct(new Product("Water", 1.00, 20));
+        primaryMachine.insertMoney(1.00);
+        primaryMachine.selectProduct("Water");
+        primaryMachine.refund(sale.getId());
+        primaryMachine.removeProduct("Coca Cola");
+        primaryMachine.insertMoney(0.25);
+        primaryMachine.getChange();
+        primaryMachine.insertMoney(1.00);
+    }
+
+    @Test
+    @DisplayName("Asynchronous replication should reproduce the primary state")
+    void testAsynchronousReplication() throws IOException {
+        primary = new ReplicationPrimary(primaryMachine, "localhost", standby.getPort());
+        runWorkload();
+
+        assertTrue(primary.awaitReplication(Duration.ofSeconds(5)));
+        assertEquals(0, primary.getLag());
+        assertEquals(primary.getEnqueuedSequence(), standby.getAppliedSequence());
+        assertEquals(0, standby.getRejectedOperations());
+        assertSameState(primaryMachine, standby.getReplica());
+    }
+
+    @Test
+    @DisplayName("Synchronous replication should apply each operation before returning")
+    void testSynchronousReplication() throws IOException {
+        primary = new ReplicationPrimary(primaryMachine, "localhost", standby.getPort(), true, Duration.ofSeconds(5));
+
+        primaryMachine.insertMoney(2.00);
+        assertEquals(2.50, standby.getReplica().getCurrentBalance());
+        Transaction sale = primaryMachine.selectProduct("Pepsi");
+        assertEquals(sale.getId(), standby.getReplica().getTransactionHistory().get(0).getId());
+        assertEquals(0, primary.getLag());
+        assertEquals(0, primary.getSyncTimeouts());
+    }
+
+    @Test
+    @DisplayName("A promoted standby should take over with the replicated state")
+    void testPromote() throws IOException {
+        primary = new ReplicationPrimary(primaryMachine, "localhost", standby.getPort());
+        runWorkload();
+        assertTrue(primary.awaitReplication(Duration.ofSeconds(5)));
+
+        long start = System.nanoTime();
+        VendingMachine takeover = standby.promote();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 1000, "promote took " + elapsedMillis + "ms");
+        assertSameState(primaryMachine, takeover);
+        takeover.selectProduct("Water");
+        assertEquals(18, takeover.getProduct("Water").getStock());
+    }
+
+    @Test
+    @DisplayName("Many operations should be sent in batches")
+    void testBatching() throws IOException {
+        primary = new ReplicationPrimary(primaryMachine, "localhost", standby.getPort());
+        for (int i = 0; i < 10_000; i++) {
+            primaryMachine.insertMoney(0.25);
+        }
+
+        assertTrue(primary.awaitReplication(Duration.ofSeconds(10)));
+        assertTrue(primary.getBatchesSent() < 10_000);
+        assertEquals(primaryMachine.getCurrentBalance(), standby.getReplica().getCurrentBalance());
+    }
+
+    @Test
+    @DisplayName("A standby that stops reading should fail replication instead of blocking the machine")
+    void testStalledStandby() throws IOException {
+        try (ServerSocket server = new ServerSocket(0)) {
+            primary = new ReplicationPrimary(primaryMachine, "localhost", server.getLocalPort());
+            try (Socket stalled = server.accept()) {
+                // The standby side stays connected but never reads
+                assertTrue(stalled.isConnected());
+                assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+                    for (int i = 0; i < 5_000_000 && !primary.isFailed(); i++) {
+                        primaryMachine.insertMoney(0.25);
+                    }
+                });
+                assertTrue(primary.isFailed());
+                long enqueued = primary.getEnqueuedSequence();
+                primaryMachine.insertMoney(0.25);
+                assertEquals(enqueued, primary.getEnqueuedSequence());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Operations should round-trip through their binary form")
+    void testOperationCodec() throws IOException {
+        Transaction sale = new Transaction(99L, "Pepsi", 2.00, 0.50, LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123456789));
+        Transaction refund = Transaction.refund(100L, 99L, "Pepsi", 2.00, LocalDateTime.of(2024, 3, 1, 9, 45));
+        List<MachineOperation> operations = Arrays.asList(
+                new MachineOperation(MachineOperation.Type.ADD_PRODUCT, "Pepsi", 2.00, 5, null),
+                new MachineOperation(MachineOperation.Type.SELECT_PRODUCT, "Pepsi", 2.00, 1, sale),
+                new MachineOperation(MachineOperation.Type.REFUND, "Pepsi", 2.00, 1, refund),
+                new MachineOperation(MachineOperation.Type.PREPAID_SALE, "Pepsi", 2.00, 1,
+                                     Transaction.prepaid(101L, "Pepsi", 2.00, 0.0, LocalDateTime.of(2024, 3, 1, 10, 0))),
+                new MachineOperation(MachineOperation.Type.CLEAR_PRODUCTS, null, 0.0, 0, null));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (MachineOperation operation : operations) {
+            operation.writeTo(out);
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (MachineOperation expected : operations) {
+            MachineOperation actual = MachineOperation.readFrom(in);
+            assertEquals(expected.getType(), actual.getType());
+            assertEquals(expected.getProductName(), actual.getProductName());
+            assertEquals(expected.getAmount(), actual.getAmount());
+            assertEquals(expected.getQuantity(), actual.getQuantity());
+        }
+        DataInputStream again = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        MachineOperation.readFrom(again);
+        Transaction decoded = MachineOperation.readFrom(again).getTransaction();
+        assertEquals(99L, decoded.getId());
+        assertEquals(sale.getDate(), decoded.getDate());
+        assertFalse(decoded.isRefund());
+        assertFalse(decoded.isPrepaid());
+        Transaction decodedRefund = MachineOperation.readFrom(again).getTransaction();
+        assertTrue(decodedRefund.isRefund());
+        assertEquals(99L, decodedRefund.getRefundedId());
+        assertEquals(refund.getDate(), decodedRefund.getDate());
+        assertTrue(MachineOperation.readFrom(again).getTransaction().isPrepaid());
+    }
+
+    @Test
+    @DisplayName("applyOperation should reject a sale of an unknown product")
+    void testApplyOperationUnknownProduct() {
+        Transaction sale = new Transaction("Missing", 1.00, 0.0, LocalDateTime.now());
+        MachineOperation operation = new MachineOperation(MachineOperation.Type.SELECT_PRODUCT, "Missing", 1.00, 1, sale);
+        assertThrows(IllegalStateException.class, () -> new VendingMachine().applyOperation(operation));
+        assertThrows(IllegalArgumentException.class, () -> new VendingMachine().applyOperation(null));
+    }
+}
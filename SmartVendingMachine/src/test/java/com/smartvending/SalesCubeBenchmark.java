@@ -0,0 +1,55 @@
+package com.smartvending;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Compares a product by hour by machine rollup over a {@link SalesCube} with
+ * the naive loop over {@link Transaction} objects that sums {@code getAmountPaid()}.
+ * <pre>
+ * java -cp target/classes:target/test-classes com.smartvending.SalesCubeBenchmark [transactions]
+ * </pre>
+ */
+public class SalesCubeBenchmark {
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        String[] products = new String[200];
+        for (int i = 0; i < products.length; i++) {
+            products[i] = "Product " + i;
+        }
+        String[] machines = {"lobby", "gym", "library", "station"};
+        LocalDateTime start = LocalDateTime.of(2024, 6, 1, 0, 0);
+        Random random = new Random(1);
+        List<Transaction> transactions = new ArrayList<>(count);
+        List<String> machineOf = new ArrayList<>(count);
+        SalesCube cube = new SalesCube();
+        for (int i = 0; i < count; i++) {
+            Transaction transaction = new Transaction(i, products[random.nextInt(products.length)],
+                    1.00 + random.nextInt(200) / 100.0, 0.0, start.plusMinutes(random.nextInt(60 * 24 * 30)));
+            String machine = machines[random.nextInt(machines.length)];
+            transactions.add(transaction);
+            machineOf.add(machine);
+            cube.add(machine, transaction);
+        }
+
+        for (int round = 0; round < 5; round++) {
+            long begin = System.nanoTime();
+            Map<String, Double> naive = new HashMap<>();
+            for (int i = 0; i < transactions.size(); i++) {
+                Transaction transaction = transactions.get(i);
+                String key = transaction.getProductName() + '|' + transaction.getDate().getHour() + '|' + machineOf.get(i);
+                naive.merge(key, transaction.getAmountPaid(), Double::sum);
+            }
+            long naiveNanos = System.nanoTime() - begin;
+
+            begin = System.nanoTime();
+            SalesRollup rollup = cube.rollup();
+            long cubeNanos = System.nanoTime() - begin;
+
+            System.out.printf("round %d: naive %6.1f ms, cube %6.1f ms (%.1fx), %d cells, total $%.2f%n",
+                    round, naiveNanos / 1e6, cubeNanos / 1e6, (double) naiveNanos / cubeNanos, naive.size(),
+                    rollup.getTotalRevenueCents() / 100.0);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SalesCube Tests")
+class SalesCubeTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 6, 1, 8, 15);
+
+    @TempDir
+    Path directory;
+
+    private VirtualClock clock;
+    private VendingMachine lobby;
+    private SalesCube cube;
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualClock(START.toInstant(ZoneOffset.UTC), ZoneOffset.UTC);
+        lobby = new VendingMachine(clock);
+        lobby.addProduct(new Product("Coca Cola", 1.50, 100));
+        lobby.addProduct(new Product("Pepsi", 2.00, 100));
+        cube = new SalesCube();
+    }
+
+    private void buy(VendingMachine machine, String productName) {
+        machine.insertMoney(2.00);
+        machine.selectProduct(productName);
+    }
+
+    @Test
+    @DisplayName("Rollups should aggregate the history by product, hour and machine")
+    void testRollupFromHistory() {
+        buy(lobby, "Coca Cola");
+        buy(lobby, "Coca Cola");
+        clock.advance(Duration.ofHours(1));
+        buy(lobby, "Pepsi");
+        VendingMachine gym = new VendingMachine(clock);
+        gym.addProduct(new Product("Coca Cola", 1.50, 100));
+        buy(gym, "Coca Cola");
+
+        assertEquals(3, cube.addHistory("lobby", lobby));
+        assertEquals(1, cube.addHistory("gym", gym));
+        SalesRollup rollup = cube.rollup();
+
+        assertEquals(4, cube.size());
+        assertEquals(Arrays.asList("lobby", "gym"), rollup.getMachineNames());
+        assertEquals(2, rollup.getCount("Coca Cola", 8, "lobby"));
+        assertEquals(300, rollup.getRevenueCents("Coca Cola", 8, "lobby"));
+        assertEquals(100, rollup.getChangeCents("Coca Cola", 8, "lobby"));
+        assertEquals(1, rollup.getCount("Coca Cola", 9, "gym"));
+        assertEquals(200, rollup.getRevenueCents("Pepsi", 9, "lobby"));
+        assertEquals(0, rollup.getCount("Pepsi", 8, "lobby"));
+        assertEquals(3, rollup.getCount("Coca Cola"));
+        assertEquals(450, rollup.getRevenueCents("Coca Cola"));
+        assertEquals(650, rollup.getTotalRevenueCents());
+        assertEquals(350, rollup.getHourlyRevenueCents("lobby")[9] + rollup.getHourlyRevenueCents("gym")[9]);
+        assertEquals(0, rollup.getCount("Fanta", 8, "lobby"));
+        assertThrows(IllegalArgumentException.class, () -> rollup.getCount("Pepsi", 24, "lobby"));
+    }
+
+    @Test
+    @DisplayName("A binary export should load the same sales as the history")
+    void testAddExport() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            buy(lobby, i % 2 == 0 ? "Coca Cola" : "Pepsi");
+            clock.advance(Duration.ofMinutes(20));
+        }
+        Path file = directory.resolve("sales.bin.gz");
+        new TransactionExporter(lobby).exportBinary(file, true);
+
+        SalesCube fromHistory = new SalesCube();
+        fromHistory.addHistory("lobby", lobby);
+        assertEquals(10, cube.addExport("lobby", file));
+
+        SalesRollup expected = fromHistory.rollup();
+        SalesRollup actual = cube.rollup();
+        for (int hour = 0; hour < SalesRollup.HOURS; hour++) {
+            for (String product : Arrays.asList("Coca Cola", "Pepsi")) {
+                assertEquals(expected.getRevenueCents(product, hour, "lobby"),
+                             actual.getRevenueCents(product, hour, "lobby"));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Rollups over a range should only include sales in the range")
+    void testRollupRange() {
+        for (int i = 0; i < 48; i++) {
+            buy(lobby, "Coca Cola");
+            clock.advance(Duration.ofHours(1));
+        }
+        cube.addHistory("lobby", lobby);
+
+        SalesRollup firstDay = cube.rollup(START, START.plusDays(1));
+        assertEquals(24, firstDay.getTotalCount());
+        assertEquals(1, firstDay.getCount("Coca Cola", 8, "lobby"));
+        assertEquals(0, cube.rollup(START.minusDays(1), START).getTotalCount());
+    }
+
+    @Test
+    @DisplayName("Parallel rollups should match a naive loop over the transactions")
+    void testParallelRollupMatchesNaiveLoop() {
+        Random random = new Random(42);
+        List<Transaction> transactions = new ArrayList<>();
+        String[] products = {"Coca Cola", "Pepsi", "Fanta", "Water", "Chips"};
+        for (int i = 0; i < 300_000; i++) {
+            double price = 1.00 + random.nextInt(100) / 100.0;
+            transactions.add(new Transaction(i, products[random.nextInt(products.length)], price, 0.25,
+                                             START.plusMinutes(random.nextInt(60 * 24 * 30))));
+        }
+        for (Transaction transaction : transactions) {
+            cube.add(transaction.getId() % 3 == 0 ? "gym" : "lobby", transaction);
+        }
+
+        long[] naive = new long[SalesRollup.HOURS];
+        long naiveTotal = 0;
+        for (Transaction transaction : transactions) {
+            if (transaction.getProductName().equals("Fanta") && transaction.getId() % 3 != 0) {
+                naive[transaction.getDate().getHour()] += Math.round(transaction.getAmountPaid() * 100);
+            }
+            naiveTotal += Math.round(transaction.getAmountPaid() * 100);
+        }
+
+        SalesRollup rollup = cube.rollup();
+        assertEquals(naiveTotal, rollup.getTotalRevenueCents());
+        assertEquals(300_000, rollup.getTotalCount());
+        for (int hour = 0; hour < SalesRollup.HOURS; hour++) {
+            assertEquals(naive[hour], rollup.getRevenueCents("Fanta", hour, "lobby"));
+        }
+    }
+
+    @Test
+    @DisplayName("A cube with more cells than rows should still roll up correctly")
+    void testSparseRollup() {
+        Random random = new Random(7);
+        Map<String, Long> naive = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            String product = "Product " + random.nextInt(2_000);
+            String machine = "Machine " + random.nextInt(50);
+            LocalDateTime date = START.plusMinutes(random.nextInt(60 * 24));
+            cube.add(machine, new Transaction(i, product, 1.25, 0.0, date));
+            naive.merge(product + "/" + date.getHour() + "/" + machine, 125L, Long::sum);
+        }
+
+        SalesRollup rollup = cube.rollup();
+        assertEquals(200_000, rollup.getTotalCount());
+        assertEquals(200_000 * 125L, rollup.getTotalRevenueCents());
+        for (Map.Entry<String, Long> cell : naive.entrySet()) {
+            String[] key = cell.getKey().split("/");
+            assertEquals((long) cell.getValue(),
+                         rollup.getRevenueCents(key[0], Integer.parseInt(key[1]), key[2]), cell.getKey());
+        }
+    }
+
+    @Test
+    @DisplayName("Refunds should be subtracted in the hour they were made")
+    void testRefundsAreSubtracted() {
+        buy(lobby, "Coca Cola");
+        long refunded = lobby.getTransactionHistory().get(0).getId();
+        buy(lobby, "Coca Cola");
+        clock.advance(Duration.ofHours(1));
+        lobby.refund(refunded);
+
+        assertEquals(3, cube.addHistory("lobby", lobby));
+        SalesRollup rollup = cube.rollup();
+
+        assertEquals(2, rollup.getCount("Coca Cola", 8, "lobby"));
+        assertEquals(-1, rollup.getCount("Coca Cola", 9, "lobby"));
+        assertEquals(-150, rollup.getRevenueCents("Coca Cola", 9, "lobby"));
+        assertEquals(0, rollup.getChangeCents("Coca Cola", 9, "lobby"));
+        assertEquals(1, rollup.getCount("Coca Cola"));
+        assertEquals(150, rollup.getTotalRevenueCents());
+    }
+
+    @Test
+    @DisplayName("A small cube should keep the change of a sale refunded in the same hour")
+    void testChangeSurvivesRefund() {
+        buy(lobby, "Coca Cola");
+        lobby.refund(lobby.getTransactionHistory().get(0).getId());
+        clock.advance(Duration.ofHours(2));
+        // Enough rows for the one-product cube to be summed densely
+        for (int i = 0; i < SalesRollup.HOURS; i++) {
+            buy(lobby, "Coca Cola");
+        }
+
+        cube.addHistory("lobby", lobby);
+        SalesRollup rollup = cube.rollup();
+
+        assertEquals(0, rollup.getCount("Coca Cola", 8, "lobby"));
+        assertEquals(0, rollup.getRevenueCents("Coca Cola", 8, "lobby"));
+        assertEquals(50, rollup.getChangeCents("Coca Cola", 8, "lobby"));
+        assertEquals(25 * 50, rollup.getChangeCents("Coca Cola", 8, "lobby")
+                              + rollup.getChangeCents("Coca Cola", 10, "lobby"));
+    }
+
+    @Test
+    @DisplayName("A rollup too large to allocate should be refused clearly")
+    void testRollupTooLarge() {
+        for (int i = 0; i < 50_000; i++) {
+            cube.add("Machine " + (i % 2_000), new Transaction(i, "Product " + i, 1.00, 0.0, START));
+        }
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> cube.rollup());
+        assertTrue(e.getMessage().contains("50000 products by 24 hours by 2000 machines"), e.getMessage());
+    }
+}
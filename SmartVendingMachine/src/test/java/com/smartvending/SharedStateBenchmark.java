@@ -0,0 +1,50 @@
+package com.smartvending;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Measures the latency of snapshot reads and of command round trips through a
+ * {@link SharedStateRegion}, with the view mapping the same file as a UI process would.
+ * <pre>
+ * java -cp target/classes:target/test-classes com.smartvending.SharedStateBenchmark [commands]
+ * </pre>
+ */
+public class SharedStateBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Path file = Files.createTempFile("shared-state", ".shm");
+        VendingMachine machine = new VendingMachine();
+        for (int i = 0; i < 32; i++) {
+            machine.addProduct(new Product("Product " + i, 1.00 + i * 0.05, Integer.MAX_VALUE / 2));
+        }
+        try (SharedStateRegion region = new SharedStateRegion(machine, file);
+             SharedStateView view = new SharedStateView(file)) {
+            for (int round = 0; round < 5; round++) {
+                long begin = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    view.readSnapshot();
+                }
+                long snapshotNanos = (System.nanoTime() - begin) / count;
+
+                long[] roundTrips = new long[count];
+                for (int i = 0; i < count; i++) {
+                    long start = System.nanoTime();
+                    long sequence = i % 2 == 0 ? view.submitInsertMoney(2.00)
+                                               : view.submitSelectProduct("Product " + (i % 20));
+                    view.awaitCompletion(sequence, Duration.ofSeconds(1));
+                    roundTrips[i] = System.nanoTime() - start;
+                }
+                Arrays.sort(roundTrips);
+                System.out.printf("round %d: snapshot %5.1f us, command p50 %5.1f us, p99 %6.1f us, rejected %d%n",
+                        round, snapshotNanos / 1e3, roundTrips[count / 2] / 1e3, roundTrips[count * 99 / 100] / 1e3,
+                        region.getRejectedCommandCount());
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
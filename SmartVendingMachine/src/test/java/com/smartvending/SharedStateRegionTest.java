@@ -0,0 +1,208 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SharedStateRegion Tests")
+class SharedStateRegionTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private VendingMachine vendingMachine;
+    private SharedStateRegion region;
+    private SharedStateView view;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = directory.resolve("machine.shm");
+        vendingMachine = new VendingMachine();
+        vendingMachine.addProduct(new Product("Pepsi", 2.00, 5));
+        vendingMachine.addProduct(new Product("Coca Cola", 1.50, 10));
+        region = new SharedStateRegion(vendingMachine, file, 4, 8);
+        view = new SharedStateView(file);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        view.close();
+        region.close();
+    }
+
+    @Test
+    @DisplayName("The snapshot should follow the machine state")
+    void testSnapshotFollowsMachine() {
+        SharedStateSnapshot initial = view.readSnapshot();
+        assertEquals(0.0, initial.getBalance());
+        assertEquals(Arrays.asList("Coca Cola", "Pepsi"),
+                     Arrays.asList(initial.getProducts().get(0).getName(), initial.getProducts().get(1).getName()));
+        assertEquals(1.50, initial.getProduct("Coca Cola").getPrice());
+        assertEquals(10, initial.getProduct("Coca Cola").getStock());
+
+        vendingMachine.insertMoney(1.25);
+        vendingMachine.setPrice("Pepsi", 2.25);
+        vendingMachine.addProduct(new Product("Water", 1.00, 3));
+        SharedStateSnapshot changed = view.readSnapshot();
+
+        assertTrue(changed.getVersion() > initial.getVersion());
+        assertEquals(1.25, changed.getBalance());
+        assertEquals(2.25, changed.getProduct("Pepsi").getPrice());
+        assertEquals(3, changed.getProduct("Water").getStock());
+        assertNull(changed.getProduct("Fanta"));
+    }
+
+    @Test
+    @DisplayName("Submitted commands should be applied to the machine in order")
+    void testCommands() {
+        view.submitInsertMoney(1.00);
+        long insert = view.submitInsertMoney(1.00);
+        long purchase = view.submitSelectProduct("Coca Cola");
+        long rejected = view.submitSelectProduct("Pepsi");
+
+        assertTrue(view.awaitCompletion(rejected, TIMEOUT));
+        assertTrue(view.isAccepted(insert));
+        assertTrue(view.isAccepted(purchase));
+        assertFalse(view.isAccepted(rejected));
+        assertEquals(9, vendingMachine.getProduct("Coca Cola").getStock());
+        assertEquals(1, vendingMachine.getTransactionCount());
+        assertEquals(4, region.getProcessedCommandCount());
+        assertEquals(1, region.getRejectedCommandCount());
+
+        SharedStateSnapshot snapshot = view.readSnapshot();
+        assertEquals(0.0, snapshot.getBalance());
+        assertEquals(9, snapshot.getProduct("Coca Cola").getStock());
+    }
+
+    @Test
+    @DisplayName("Invalid commands should be rejected before they reach the ring")
+    void testInvalidCommands() {
+        assertThrows(IllegalArgumentException.class, () -> view.submitInsertMoney(0));
+        assertThrows(IllegalArgumentException.class, () -> view.submitSelectProduct(" "));
+        assertThrows(IllegalArgumentException.class, () -> view.submitSelectProduct(String.join("", Collections.nCopies(50, "x"))));
+        assertThrows(IllegalStateException.class, () -> view.isAccepted(100));
+    }
+
+    @Test
+    @DisplayName("A full ring should refuse commands until the region catches up")
+    void testRingFull() throws IOException {
+        region.close();
+        for (int i = 0; i < 8; i++) {
+            view.submitInsertMoney(0.25);
+        }
+        assertThrows(IllegalStateException.class, () -> view.submitInsertMoney(0.25));
+        assertFalse(view.awaitCompletion(0, Duration.ofMillis(10)));
+    }
+
+    @Test
+    @DisplayName("Products that do not fit should be left out of the snapshot")
+    void testOmittedProducts() {
+        String longName = String.join("", Collections.nCopies(50, "x"));
+        vendingMachine.addProduct(new Product(longName, 1.00, 1));
+        for (String name : Arrays.asList("Apple", "Banana", "Water")) {
+            vendingMachine.addProduct(new Product(name, 1.00, 1));
+        }
+
+        assertEquals(4, view.readSnapshot().getProducts().size());
+        assertEquals(Arrays.asList("Water", longName), region.getOmittedProducts());
+
+        vendingMachine.removeProduct("Pepsi");
+        assertEquals(Arrays.asList("Coca Cola", "Water", "Apple", "Banana"), names(view.readSnapshot()));
+        assertEquals(Collections.singletonList(longName), region.getOmittedProducts());
+    }
+
+    @Test
+    @DisplayName("Products should keep their entries until they are removed")
+    void testStableOrder() {
+        vendingMachine.addProduct(new Product("Apple", 1.00, 1));
+        vendingMachine.addProduct(new Product("Water", 1.00, 1));
+        vendingMachine.restock("Coca Cola", 2);
+        assertEquals(Arrays.asList("Coca Cola", "Pepsi", "Apple", "Water"), names(view.readSnapshot()));
+
+        vendingMachine.removeProduct("Coca Cola");
+        SharedStateSnapshot snapshot = view.readSnapshot();
+        assertEquals(Arrays.asList("Water", "Pepsi", "Apple"), names(snapshot));
+        assertEquals(1, snapshot.getProduct("Water").getStock());
+        assertEquals(2.00, snapshot.getProduct("Pepsi").getPrice());
+
+        vendingMachine.clearProducts();
+        vendingMachine.addProduct(new Product("Fanta", 1.40, 4));
+        assertEquals(Collections.singletonList("Fanta"), names(view.readSnapshot()));
+    }
+
+    @Test
+    @DisplayName("A command that fails unexpectedly should be rejected without stopping the loop")
+    void testFailingCommandIsRejected() {
+        AtomicBoolean failed = new AtomicBoolean();
+        vendingMachine.addOperationListener(operation -> {
+            if (failed.compareAndSet(false, true)) {
+                throw new UnsupportedOperationException("listener failure");
+            }
+        });
+        long failing = view.submitInsertMoney(1.00);
+        long next = view.submitInsertMoney(1.00);
+
+        assertTrue(view.awaitCompletion(next, TIMEOUT));
+        assertFalse(view.isAccepted(failing));
+        assertTrue(view.isAccepted(next));
+        assertEquals(1, region.getRejectedCommandCount());
+    }
+
+    private static List<String> names(SharedStateSnapshot snapshot) {
+        List<String> names = new ArrayList<>();
+        for (Product product : snapshot.getProducts()) {
+            names.add(product.getName());
+        }
+        return names;
+    }
+
+    @Test
+    @DisplayName("A file that does not hold a region should not be opened")
+    void testNotARegion() throws IOException {
+        Path other = directory.resolve("other.shm");
+        Files.write(other, new byte[1024]);
+        assertThrows(IOException.class, () -> new SharedStateView(other));
+        assertThrows(IllegalArgumentException.class, () -> new SharedStateRegion(vendingMachine, other, 4, 6));
+    }
+
+    @Test
+    @DisplayName("Snapshots read during concurrent updates should be consistent")
+    void testConsistentSnapshots() throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            while (running.get()) {
+                synchronized (vendingMachine) {
+                    vendingMachine.restock("Coca Cola", 1);
+                    vendingMachine.restock("Pepsi", 1);
+                }
+            }
+        });
+        writer.start();
+        try {
+            long lastVersion = -1;
+            for (int i = 0; i < 20_000; i++) {
+                SharedStateSnapshot snapshot = view.readSnapshot();
+                assertTrue(snapshot.getVersion() >= lastVersion);
+                lastVersion = snapshot.getVersion();
+                int difference = snapshot.getProduct("Coca Cola").getStock() - snapshot.getProduct("Pepsi").getStock();
+                // Every version is published after one restock, so the stocks differ by 5 or 6
+                assertTrue(difference == 5 || difference == 6, "difference " + difference);
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("StockAlertService Tests")
+class StockAlertServiceTest {
+
+    private VendingMachine vendingMachine;
+    private Product coke;
+    private StockAlertService service;
+
+    @BeforeEach
+    void setUp() {
+        vendingMachine = new VendingMachine();
+        coke = new Product("Coca Cola", 1.50, 5);
+        vendingMachine.addProduct(coke);
+        vendingMachine.addProduct(new Product("Pepsi", 2.00, 3));
+        service = new StockAlertService(1, Duration.ofMillis(200));
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    private void buy(String productName) {
+        vendingMachine.insertMoney(2.00);
+        vendingMachine.selectProduct(productName);
+    }
+
+    @Test
+    @DisplayName("Crossing a threshold should raise an alert")
+    void testAlertOnThresholdCrossing() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Integer> stocks = Collections.synchronizedList(new ArrayList<>());
+        service.watch(coke, 3, (product, threshold, stock) -> {
+            stocks.add(stock);
+            latch.countDown();
+        });
+
+        buy("Coca Cola");
+        assertEquals(1, latch.getCount());
+        buy("Coca Cola");
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(3), stocks);
+    }
+
+    @Test
+    @DisplayName("A burst of vends should be coalesced into one alert")
+    void testBurstIsCoalesced() throws InterruptedException {
+        AtomicInteger alerts = new AtomicInteger();
+        service.watch(coke, 4, (product, threshold, stock) -> alerts.incrementAndGet());
+
+        for (int i = 0; i < 5; i++) {
+            buy("Coca Cola");
+            vendingMachine.restock("Coca Cola", 1);
+        }
+        buy("Coca Cola");
+        Thread.sleep(600);
+
+        // At most the first crossing and one debounced alert for the rest
+        assertTrue(alerts.get() <= 2, "alerts: " + alerts.get());
+        assertTrue(alerts.get() >= 1);
+    }
+
+    @Test
+    @DisplayName("Restocking should not raise an alert")
+    void testRestockDoesNotAlert() throws InterruptedException {
+        Product water = new Product("Water", 1.00, 0);
+        AtomicInteger alerts = new AtomicInteger();
+        service.watch(water, 2, (product, threshold, stock) -> alerts.incrementAndGet());
+
+        water.restock(1);
+        Thread.sleep(100);
+
+        assertEquals(0, alerts.get());
+    }
+
+    @Test
+    @DisplayName("watchAll should watch every product in the machine")
+    void testWatchAll() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(2);
+        service.watchAll(vendingMachine, 2, (product, threshold, stock) -> latch.countDown());
+        assertEquals(2, service.getWatchCount());
+
+        for (int i = 0; i < 3; i++) {
+            buy("Coca Cola");
+        }
+        buy("Pepsi");
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("watchAll should follow products added to and removed from the machine")
+    void testWatchAllFollowsCatalog() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        List<String> alerted = Collections.synchronizedList(new ArrayList<>());
+        service.watchAll(vendingMachine, 0, (product, threshold, stock) -> {
+            alerted.add(product.getName());
+            latch.countDown();
+        });
+
+        vendingMachine.addProduct(new Product("Water", 1.00, 1));
+        assertEquals(3, service.getWatchCount());
+        vendingMachine.removeProduct("Pepsi");
+        assertEquals(2, service.getWatchCount());
+        vendingMachine.addProduct(new Product("Coca Cola", 1.50, 5));
+        assertEquals(2, service.getWatchCount());
+
+        buy("Water");
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("Water"), alerted);
+
+        service.shutdown();
+        vendingMachine.addProduct(new Product("Fanta", 1.40, 1));
+        assertEquals(0, service.getWatchCount());
+    }
+
+    @Test
+    @DisplayName("A failing listener should be reported and not stop later alerts")
+    void testFailingListenerIsReported() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        service.watch(coke, 4, (product, threshold, stock) -> {
+            throw new IllegalStateException("listener failure");
+        });
+        service.watch(coke, 3, (product, threshold, stock) -> latch.countDown());
+
+        buy("Coca Cola");
+        buy("Coca Cola");
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.getFailedAlertCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, service.getFailedAlertCount());
+    }
+
+    @Test
+    @DisplayName("unwatch should remove the watches of a product")
+    void testUnwatch() throws InterruptedException {
+        AtomicInteger alerts = new AtomicInteger();
+        service.watch(coke, 4, (product, threshold, stock) -> alerts.incrementAndGet());
+
+        assertEquals(1, service.unwatch(coke));
+        buy("Coca Cola");
+        Thread.sleep(100);
+
+        assertEquals(0, alerts.get());
+        assertEquals(0, service.getWatchCount());
+    }
+
+    @Test
+    @DisplayName("watch should throw exception for invalid arguments")
+    void testWatchWithInvalidArguments() {
+        StockAlertListener listener = (product, threshold, stock) -> { };
+        assertThrows(IllegalArgumentException.class, () -> service.watch(null, 1, listener));
+        assertThrows(IllegalArgumentException.class, () -> service.watch(coke, -1, listener));
+        assertThrows(IllegalArgumentException.class, () -> service.watch(coke, 1, null));
+        assertThrows(IllegalArgumentException.class, () -> new StockAlertService(0, Duration.ZERO));
+    }
+}
@@ -0,0 +1,221 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("SubstitutionRecommender Tests")
+class SubstitutionRecommenderTest {
+
+    private VirtualClock clock;
+    private VendingMachine vendingMachine;
+    private SubstitutionRecommender recommender;
+
+    @BeforeEach
+    void setUp() {
+        clock = new VirtualClock(Instant.parse("2024-06-01T10:00:00Z"), ZoneOffset.UTC);
+        vendingMachine = new VendingMachine(clock);
+        vendingMachine.addProduct(new Product("Coca Cola", 1.50, 50, "Drinks"));
+        vendingMachine.addProduct(new Product("Pepsi", 1.50, 50, "Drinks"));
+        vendingMachine.addProduct(new Product("Fanta", 1.40, 50, "Drinks"));
+        vendingMachine.addProduct(new Product("Water", 1.00, 50, "Drinks"));
+        vendingMachine.addProduct(new Product("Energy Drink", 3.50, 50, "Drinks"));
+        vendingMachine.addProduct(new Product("Chips", 1.60, 50, "Snacks"));
+        recommender = new SubstitutionRecommender(vendingMachine, clock, Duration.ofMinutes(2), 0.25);
+    }
+
+    @AfterEach
+    void tearDown() {
+        recommender.shutdown();
+    }
+
+    private void buy(String productName) {
+        vendingMachine.insertMoney(5.00);
+        vendingMachine.selectProduct(productName);
+        clock.advance(Duration.ofSeconds(10));
+    }
+
+    private void endSession() {
+        clock.advance(Duration.ofMinutes(10));
+    }
+
+    private List<String> recommend(String productName, int k) {
+        return recommender.recommend(productName, k).stream().map(Product::getName).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Products bought together should be recommended first")
+    void testCoPurchasesRankFirst() {
+        for (int i = 0; i < 3; i++) {
+            buy("Coca Cola");
+            buy("Chips");
+            endSession();
+        }
+        buy("Coca Cola");
+        buy("Pepsi");
+        endSession();
+        vendingMachine.writeOffStock("Coca Cola", vendingMachine.getProduct("Coca Cola").getStock());
+
+        recommender.refresh();
+
+        assertEquals(3, recommender.getScore("Coca Cola", "Chips"));
+        assertEquals(Arrays.asList("Chips", "Pepsi", "Fanta"), recommend("Coca Cola", 3));
+    }
+
+    @Test
+    @DisplayName("Sales in different sessions should not count as co-purchases")
+    void testSessionsAreSeparate() {
+        buy("Coca Cola");
+        endSession();
+        buy("Chips");
+
+        assertEquals(0, recommender.getScore("Coca Cola", "Chips"));
+    }
+
+    @Test
+    @DisplayName("A product bought after a recommendation should be learned as a substitute")
+    void testSubstitutionIsLearned() {
+        recommender.recommend("Coca Cola", 3);
+        clock.advance(Duration.ofSeconds(30));
+        buy("Water");
+
+        assertEquals(SubstitutionRecommender.SUBSTITUTION_WEIGHT, recommender.getScore("Coca Cola", "Water"));
+        assertEquals(0, recommender.getScore("Water", "Coca Cola"));
+
+        recommender.recommend("Pepsi", 3);
+        clock.advance(Duration.ofMinutes(5));
+        buy("Water");
+        assertEquals(0, recommender.getScore("Pepsi", "Water"));
+    }
+
+    @Test
+    @DisplayName("Unavailable products and products outside the price band should be skipped")
+    void testFiltersAvailabilityAndPrice() {
+        buy("Coca Cola");
+        buy("Energy Drink");
+        buy("Pepsi");
+        endSession();
+        recommender.refresh();
+
+        vendingMachine.writeOffStock("Pepsi", vendingMachine.getProduct("Pepsi").getStock());
+        List<String> alternatives = recommend("Coca Cola", 5);
+
+        assertFalse(alternatives.contains("Pepsi"));
+        assertFalse(alternatives.contains("Energy Drink"));
+        assertFalse(alternatives.contains("Water"));
+        assertEquals(Collections.singletonList("Fanta"), alternatives);
+    }
+
+    @Test
+    @DisplayName("Recommendations should follow the catalog without locking the machine")
+    void testRecommendWithoutMachineLock() throws Exception {
+        vendingMachine.removeProduct("Pepsi");
+        assertEquals(Collections.singletonList("Fanta"), recommend("Coca Cola", 1));
+        vendingMachine.addProduct(new Product("Pepsi", 1.50, 50, "Drinks"));
+        assertEquals(Collections.singletonList("Pepsi"), recommend("Coca Cola", 1));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            synchronized (vendingMachine) {
+                Future<List<String>> alternatives = executor.submit(() -> recommend("Coca Cola", 2));
+                assertEquals(Arrays.asList("Pepsi", "Fanta"), alternatives.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Without co-purchases the nearest priced products of the category should be recommended")
+    void testCategoryFallback() {
+        assertEquals(Arrays.asList("Pepsi", "Fanta"), recommend("Coca Cola", 2));
+        assertTrue(recommend("Chips", 3).isEmpty());
+        assertTrue(recommend("Unknown", 3).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> recommender.recommend("Coca Cola", 0));
+    }
+
+    @Test
+    @DisplayName("Added and repriced products should re-rank the rest of their category")
+    void testCatalogChangesReRankCategory() {
+        assertTrue(recommend("Chips", 3).isEmpty());
+        assertEquals(Arrays.asList("Pepsi", "Fanta"), recommend("Coca Cola", 2));
+
+        vendingMachine.addProduct(new Product("Pretzels", 1.70, 50, "Snacks"));
+        vendingMachine.setPrice("Water", 1.50);
+        recommender.refresh();
+
+        assertEquals(Collections.singletonList("Pretzels"), recommend("Chips", 3));
+        assertEquals(Arrays.asList("Pepsi", "Water"), recommend("Coca Cola", 2));
+    }
+
+    @Test
+    @DisplayName("New co-purchases should only be served after a refresh")
+    void testListsArePublishedByRefresh() throws InterruptedException {
+        buy("Fanta");
+        buy("Chips");
+        endSession();
+        assertEquals(Collections.singletonList("Coca Cola"), recommend("Fanta", 1));
+
+        recommender.startRefresher(Duration.ofMillis(10));
+        assertThrows(IllegalStateException.class, () -> recommender.startRefresher(Duration.ofMillis(10)));
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!recommend("Fanta", 1).equals(Collections.singletonList("Chips")) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Collections.singletonList("Chips"), recommend("Fanta", 1));
+    }
+
+    @Test
+    @DisplayName("Recommendations should be served in well under a millisecond")
+    void testRecommendationLatency() {
+        VendingMachine large = new VendingMachine(clock);
+        for (int i = 0; i < 2_000; i++) {
+            large.addProduct(new Product("Product " + i, 1.00 + (i % 50) * 0.01, 5, "Category " + (i % 10)));
+        }
+        for (int i = 0; i < 5_000; i++) {
+            large.insertMoney(5.00);
+            large.selectProduct("Product " + (i * 7 % 2_000));
+            clock.advance(Duration.ofSeconds(i % 3 == 0 ? 300 : 10));
+        }
+        SubstitutionRecommender largeRecommender =
+                new SubstitutionRecommender(large, clock, Duration.ofMinutes(2), 0.25);
+
+        int requests = 20_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            largeRecommender.recommend("Product " + (i % 2_000), 5);
+        }
+        long nanosPerRequest = (System.nanoTime() - start) / requests;
+        assertTrue(nanosPerRequest < 1_000_000, "nanos per request: " + nanosPerRequest);
+        assertEquals(5, largeRecommender.recommend("Product 7", 5).size());
+    }
+
+    @Test
+    @DisplayName("A refunded sale should no longer count as a co-purchase")
+    void testRefundsAreTakenBack() {
+        buy("Coca Cola");
+        buy("Chips");
+        endSession();
+        buy("Coca Cola");
+        buy("Chips");
+        List<Transaction> history = vendingMachine.getTransactionHistory();
+        vendingMachine.refund(history.get(history.size() - 1).getId());
+        buy("Water");
+
+        assertEquals(1, recommender.getScore("Coca Cola", "Chips"));
+        assertEquals(1, recommender.getScore("Chips", "Coca Cola"));
+        assertEquals(1, recommender.getScore("Coca Cola", "Water"));
+        assertEquals(0, recommender.getScore("Chips", "Water"));
+    }
+}
@@ -0,0 +1,281 @@
+package com.smartvending;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TelemetryAgent Tests")
+class TelemetryAgentTest {
+
+    @TempDir
+    Path spool;
+
+    private HttpServer server;
+    private final List<byte[]> frames = new CopyOnWriteArrayList<>();
+    private volatile boolean online = true;
+    private TelemetryTransport transport;
+    private VendingMachine vendingMachine;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/telemetry", exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                byte[] frame = body.readAllBytes();
+                if (online) {
+                    frames.add(frame);
+                }
+                exchange.sendResponseHeaders(online ? 204 : 503, -1);
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+        URI endpoint = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/telemetry");
+        transport = new HttpTelemetryTransport(endpoint, Duration.ofSeconds(5));
+
+        vendingMachine = new VendingMachine();
+        vendingMachine.addProduct(new Product("Coca Cola", 1.50, 100));
+        vendingMachine.addProduct(new Product("Pepsi", 2.00, 100));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private TelemetryAgent newAgent(int maxBatchSize) {
+        return new TelemetryAgent(vendingMachine, transport, spool, maxBatchSize, Duration.ofMinutes(10),
+                                  Clock.systemUTC());
+    }
+
+    private void buy(String productName) {
+        vendingMachine.insertMoney(2.00);
+        vendingMachine.selectProduct(productName);
+    }
+
+    private List<TelemetryRecord> received() throws IOException {
+        List<TelemetryRecord> records = new ArrayList<>();
+        for (byte[] frame : frames) {
+            records.addAll(TelemetryCodec.decode(frame));
+        }
+        return records;
+    }
+
+    @Test
+    @DisplayName("Flushing should upload sales and stock changes in order")
+    void testFlushUploadsRecords() throws IOException {
+        try (TelemetryAgent agent = newAgent(100)) {
+            buy("Coca Cola");
+            vendingMachine.restock("Pepsi", 5);
+            buy("Pepsi");
+            vendingMachine.writeOffStock("Coca Cola", 2);
+
+            assertEquals(4, agent.getPendingCount());
+            assertTrue(agent.flush());
+            assertEquals(0, agent.getPendingCount());
+            assertEquals(1, agent.getSentFrameCount());
+            assertEquals(2, agent.getSentTransactionCount());
+        }
+
+        List<TelemetryRecord> records = received();
+        assertEquals(4, records.size());
+        TelemetryRecord sale = records.get(0);
+        assertEquals(TelemetryRecord.Type.SALE, sale.getType());
+        assertEquals("Coca Cola", sale.getProductName());
+        assertEquals(150, sale.getAmountCents());
+        assertEquals(50, sale.getChangeCents());
+        assertEquals(vendingMachine.getTransactionHistory().get(0).getId(), sale.getTransactionId());
+        assertEquals(5, records.get(1).getStockDelta());
+        assertEquals("Pepsi", records.get(2).getProductName());
+        assertEquals(-2, records.get(3).getStockDelta());
+    }
+
+    @Test
+    @DisplayName("A full batch should be uploaded without waiting for the delay")
+    void testFullBatchIsUploaded() throws Exception {
+        try (TelemetryAgent agent = newAgent(10)) {
+            for (int i = 0; i < 25; i++) {
+                buy("Coca Cola");
+            }
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (agent.getSentTransactionCount() < 20 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(agent.getSentTransactionCount() >= 20);
+        }
+        assertEquals(25, received().size());
+    }
+
+    @Test
+    @DisplayName("Frames should be spooled while offline and sent in order once online")
+    void testSpoolWhileOffline() throws IOException {
+        try (TelemetryAgent agent = newAgent(100)) {
+            online = false;
+            buy("Coca Cola");
+            assertFalse(agent.flush());
+            buy("Pepsi");
+            assertFalse(agent.flush());
+            assertEquals(2, agent.getSpooledFrameCount());
+            assertTrue(frames.isEmpty());
+
+            online = true;
+            buy("Coca Cola");
+            assertTrue(agent.flush());
+            assertEquals(0, agent.getSpooledFrameCount());
+            assertEquals(3, agent.getSentFrameCount());
+        }
+
+        List<TelemetryRecord> records = received();
+        assertEquals(Arrays.asList("Coca Cola", "Pepsi", "Coca Cola"),
+                     Arrays.asList(records.get(0).getProductName(), records.get(1).getProductName(),
+                                   records.get(2).getProductName()));
+    }
+
+    @Test
+    @DisplayName("Frames that cannot be spooled should be kept for the next flush")
+    void testSpoolFailureKeepsFrames() throws IOException {
+        try (TelemetryAgent agent = newAgent(1)) {
+            online = false;
+            // A file in place of the spool directory makes every spool write fail
+            Files.delete(spool);
+            Files.createFile(spool);
+            buy("Coca Cola");
+            buy("Pepsi");
+            assertThrows(UncheckedIOException.class, agent::flush);
+
+            Files.delete(spool);
+            Files.createDirectory(spool);
+            online = true;
+            assertTrue(agent.flush());
+            assertEquals(2, agent.getSentTransactionCount());
+        }
+        assertEquals(Arrays.asList("Coca Cola", "Pepsi"),
+                     Arrays.asList(received().get(0).getProductName(), received().get(1).getProductName()));
+    }
+
+    @Test
+    @DisplayName("Price changes and removed products should be reported")
+    void testCatalogChangesAreReported() throws IOException {
+        try (TelemetryAgent agent = newAgent(100)) {
+            vendingMachine.setPrice("Pepsi", 2.25);
+            vendingMachine.removeProduct("Pepsi");
+            vendingMachine.clearProducts();
+            assertTrue(agent.flush());
+        }
+
+        List<TelemetryRecord> records = received();
+        assertEquals(Arrays.asList(TelemetryRecord.Type.PRICE, TelemetryRecord.Type.REMOVAL, TelemetryRecord.Type.CLEAR),
+                     Arrays.asList(records.get(0).getType(), records.get(1).getType(), records.get(2).getType()));
+        assertEquals(225, records.get(0).getAmountCents());
+        assertEquals("Pepsi", records.get(1).getProductName());
+    }
+
+    @Test
+    @DisplayName("Refunds should be reported with the amount and the refunded sale")
+    void testRefundsAreReported() throws IOException {
+        try (TelemetryAgent agent = newAgent(100)) {
+            buy("Coca Cola");
+            long sale = vendingMachine.getTransactionHistory().get(0).getId();
+            Transaction refund = vendingMachine.refund(sale);
+            assertTrue(agent.flush());
+            assertEquals(2, agent.getSentTransactionCount());
+
+            List<TelemetryRecord> records = received();
+            assertEquals(2, records.size());
+            TelemetryRecord record = records.get(1);
+            assertEquals(TelemetryRecord.Type.REFUND, record.getType());
+            assertEquals(refund.getId(), record.getTransactionId());
+            assertEquals(sale, record.getRefundedId());
+            assertEquals(150, record.getAmountCents());
+            assertEquals(1, record.getStockDelta());
+        }
+    }
+
+    @Test
+    @DisplayName("Sales and stock changes should share one time base outside UTC")
+    void testTimestampsOutsideUtc() throws IOException {
+        VirtualClock clock = new VirtualClock(Instant.parse("2024-06-01T10:00:00Z"), ZoneId.of("Asia/Kolkata"));
+        vendingMachine = new VendingMachine(clock);
+        vendingMachine.addProduct(new Product("Coca Cola", 1.50, 100));
+        try (TelemetryAgent agent = new TelemetryAgent(vendingMachine, transport, spool, 100,
+                                                       Duration.ofMinutes(10), clock)) {
+            buy("Coca Cola");
+            vendingMachine.restock("Coca Cola", 1);
+            vendingMachine.refund(vendingMachine.getTransactionHistory().get(0).getId());
+            assertTrue(agent.flush());
+        }
+
+        for (TelemetryRecord record : received()) {
+            assertEquals(clock.millis(), record.getTimestamp(), record.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Spooled frames should survive a restart of the agent")
+    void testSpoolSurvivesRestart() throws IOException {
+        online = false;
+        try (TelemetryAgent agent = newAgent(100)) {
+            buy("Coca Cola");
+            buy("Pepsi");
+            assertEquals(2, agent.getPendingCount());
+        }
+        TelemetryAgent restarted = newAgent(100);
+        assertEquals(1, restarted.getSpooledFrameCount());
+
+        online = true;
+        buy("Coca Cola");
+        assertTrue(restarted.flush());
+        restarted.close();
+
+        assertEquals(2, frames.size());
+        assertEquals(3, received().size());
+        assertEquals(3, restarted.getSentTransactionCount());
+    }
+
+    @Test
+    @DisplayName("Delta encoding and compression should keep frames small")
+    void testFramesAreCompact() throws IOException {
+        vendingMachine.restock("Coca Cola", 1000);
+        try (TelemetryAgent agent = newAgent(2000)) {
+            for (int i = 0; i < 1000; i++) {
+                buy(i % 3 == 0 ? "Pepsi" : "Coca Cola");
+                if (vendingMachine.getProduct("Pepsi").getStock() == 0) {
+                    vendingMachine.restock("Pepsi", 100);
+                }
+            }
+            assertTrue(agent.flush());
+            assertEquals(1000, agent.getSentTransactionCount());
+            assertTrue(agent.getBytesPerTransaction() < 8, "bytes per transaction: " + agent.getBytesPerTransaction());
+            assertTrue(agent.getCpuNanosPerBatch() > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Decoding should reject data that is not a frame")
+    void testDecodeRejectsGarbage() {
+        assertThrows(IOException.class, () -> TelemetryCodec.decode(new byte[] {1, 2, 3}));
+        byte[] frame = TelemetryCodec.encode(Collections.singletonList(
+                TelemetryRecord.stockChange("Pepsi", 3, 1000)));
+        assertThrows(IOException.class, () -> TelemetryCodec.decode(Arrays.copyOf(frame, frame.length - 2)));
+    }
+}
@@ -0,0 +1,191 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TransactionExporter Tests")
+class TransactionExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private VendingMachine vendingMachine;
+    private TransactionExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        vendingMachine = new VendingMachine();
+        vendingMachine.addProduct(new Product("Coca Cola", 1.50, 100));
+        vendingMachine.addProduct(new Product("Chips, Salted", 0.75, 100));
+        exporter = new TransactionExporter(vendingMachine);
+    }
+
+    private void buy(String productName, double amount) {
+        vendingMachine.insertMoney(amount);
+        vendingMachine.selectProduct(productName);
+    }
+
+    private List<String> readLines(Path file, boolean gzip) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(gzip
+                ? new GZIPInputStream(Files.newInputStream(file))
+                : Files.newInputStream(file), StandardCharsets.UTF_8))) {
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+            return lines;
+        }
+    }
+
+    @Test
+    @DisplayName("exportCsv should write a header and one line per transaction")
+    void testExportCsv() throws IOException {
+        buy("Coca Cola", 2.00);
+        buy("Chips, Salted", 1.00);
+        Path file = tempDir.resolve("history.csv");
+
+        assertEquals(2, exporter.exportCsv(file, false));
+
+        List<String> lines = readLines(file, false);
+        assertEquals(3, lines.size());
+        assertEquals("id,product,amountPaid,changeGiven,date,refundedId", lines.get(0));
+        List<Transaction> history = vendingMachine.getTransactionHistory();
+        assertTrue(lines.get(1).startsWith(history.get(0).getId() + ",Coca Cola,1.50,0.50,"));
+        assertTrue(lines.get(2).startsWith(history.get(1).getId() + ",\"Chips, Salted\",0.75,0.25,"));
+    }
+
+    @Test
+    @DisplayName("exportCsv should gzip the output when asked")
+    void testExportCsvGzip() throws IOException {
+        buy("Coca Cola", 1.50);
+        Path file = tempDir.resolve("history.csv.gz");
+
+        exporter.exportCsv(file, true);
+
+        List<String> lines = readLines(file, true);
+        assertTrue(lines.get(1).contains(",Coca Cola,1.50,0.00,"));
+    }
+
+    @Test
+    @DisplayName("Exports should only contain transactions since the last export")
+    void testCursorAdvancesBetweenExports() throws IOException {
+        buy("Coca Cola", 2.00);
+        assertEquals(1, exporter.exportCsv(tempDir.resolve("first.csv"), false));
+        buy("Chips, Salted", 1.00);
+        buy("Coca Cola", 1.50);
+
+        assertEquals(2, exporter.exportCsv(tempDir.resolve("second.csv"), false));
+        assertEquals(3, exporter.getCursor());
+        assertEquals(0, exporter.exportCsv(tempDir.resolve("third.csv"), false));
+    }
+
+    @Test
+    @DisplayName("Exporter should resume from a saved cursor")
+    void testResumeFromCursor() throws IOException {
+        buy("Coca Cola", 2.00);
+        buy("Chips, Salted", 1.00);
+        TransactionExporter resumed = new TransactionExporter(vendingMachine, 1);
+
+        assertEquals(1, resumed.exportCsv(tempDir.resolve("resumed.csv"), false));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    @DisplayName("Binary export should round-trip through readBinary")
+    void testBinaryRoundTrip(boolean gzip) throws IOException {
+        for (int i = 0; i < 5000; i++) {
+            buy(i % 3 == 0 ? "Chips, Salted" : "Coca Cola", 2.00);
+            if (vendingMachine.getProduct("Coca Cola").getStock() < 2) {
+                vendingMachine.restock("Coca Cola", 100);
+                vendingMachine.restock("Chips, Salted", 100);
+            }
+        }
+        Path file = tempDir.resolve("history.bin");
+
+        assertEquals(5000, exporter.exportBinary(file, gzip));
+
+        List<Transaction> expected = vendingMachine.getTransactionHistory();
+        List<Transaction> actual = new ArrayList<>();
+        assertEquals(5000, TransactionExporter.readBinary(file, actual::add));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getProductName(), actual.get(i).getProductName());
+            assertEquals(expected.get(i).getAmountPaid(), actual.get(i).getAmountPaid());
+            assertEquals(expected.get(i).getChangeGiven(), actual.get(i).getChangeGiven());
+            assertEquals(expected.get(i).getDate().withNano(0), actual.get(i).getDate().withNano(0));
+        }
+    }
+
+    @Test
+    @DisplayName("Refunds should be exported with the id of the sale they refund")
+    void testRefundsAreExported() throws IOException {
+        buy("Coca Cola", 2.00);
+        buy("Chips, Salted", 1.00);
+        long refunded = vendingMachine.getTransactionHistory().get(0).getId();
+        Transaction refund = vendingMachine.refund(refunded);
+        Path csv = tempDir.resolve("history.csv");
+        Path binary = tempDir.resolve("history.bin");
+
+        assertEquals(3, new TransactionExporter(vendingMachine).exportCsv(csv, false));
+        assertEquals(3, exporter.exportBinary(binary, false));
+
+        List<String> lines = readLines(csv, false);
+        assertTrue(lines.get(1).endsWith(","));
+        assertTrue(lines.get(3).startsWith(refund.getId() + ",Coca Cola,1.50,0.00,"));
+        assertTrue(lines.get(3).endsWith("," + refunded));
+        List<Transaction> actual = new ArrayList<>();
+        TransactionExporter.readBinary(binary, actual::add);
+        assertFalse(actual.get(0).isRefund());
+        assertFalse(actual.get(1).isRefund());
+        assertTrue(actual.get(2).isRefund());
+        assertEquals(refund.getId(), actual.get(2).getId());
+        assertEquals(refunded, actual.get(2).getRefundedId());
+        assertEquals(1.50, actual.get(2).getAmountPaid());
+    }
+
+    @Test
+    @DisplayName("Binary export should round-trip names outside modified UTF-8")
+    void testBinaryRoundTripUnicodeNames() throws IOException {
+        List<String> names = Arrays.asList("Cola \uD83E\uDD64", "Snack\u0000Bar", "Caf\u00e9 au lait");
+        for (String name : names) {
+            vendingMachine.addProduct(new Product(name, 1.00, 10));
+            buy(name, 1.00);
+        }
+        Path file = tempDir.resolve("unicode.bin");
+        exporter.exportBinary(file, false);
+
+        List<String> actual = new ArrayList<>();
+        TransactionExporter.readBinary(file, transaction -> actual.add(transaction.getProductName()));
+        assertEquals(names, actual);
+    }
+
+    @Test
+    @DisplayName("readBinary should reject files that are not exports")
+    void testReadBinaryRejectsOtherFiles() throws IOException {
+        Path file = tempDir.resolve("other.bin");
+        Files.write(file, "not an export".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IOException.class, () -> TransactionExporter.readBinary(file, t -> { }));
+    }
+
+    @Test
+    @DisplayName("Constructor should throw exception for invalid arguments")
+    void testConstructorWithInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new TransactionExporter(null));
+        assertThrows(IllegalArgumentException.class, () -> new TransactionExporter(vendingMachine, -1));
+    }
+}
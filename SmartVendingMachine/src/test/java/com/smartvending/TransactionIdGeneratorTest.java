@@ -0,0 +1,90 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TransactionIdGenerator Tests")
+class TransactionIdGeneratorTest {
+
+    private static final Instant NOW = Instant.parse("2024-06-01T12:00:00Z");
+
+    @Test
+    @DisplayName("Ids should be strictly increasing")
+    void testIdsIncrease() {
+        TransactionIdGenerator generator = new TransactionIdGenerator(3);
+        long previous = generator.nextId();
+        for (int i = 0; i < 100_000; i++) {
+            long next = generator.nextId();
+            assertTrue(next > previous);
+            previous = next;
+        }
+    }
+
+    @Test
+    @DisplayName("Ids should encode the timestamp and node id")
+    void testIdLayout() {
+        TransactionIdGenerator generator = new TransactionIdGenerator(517, Clock.fixed(NOW, ZoneOffset.UTC));
+        long id = generator.nextId();
+        assertEquals(NOW.toEpochMilli(), TransactionIdGenerator.getTimestampMillis(id));
+        assertEquals(517, TransactionIdGenerator.getNodeId(id));
+    }
+
+    @Test
+    @DisplayName("Exhausting the sequence should borrow the next millisecond")
+    void testSequenceOverflow() {
+        TransactionIdGenerator generator = new TransactionIdGenerator(1, Clock.fixed(NOW, ZoneOffset.UTC));
+        long last = 0;
+        for (int i = 0; i < 4097; i++) {
+            last = generator.nextId();
+        }
+        assertEquals(NOW.toEpochMilli() + 1, TransactionIdGenerator.getTimestampMillis(last));
+        assertEquals(1, TransactionIdGenerator.getNodeId(last));
+    }
+
+    @Test
+    @DisplayName("Concurrent callers should never receive the same id")
+    void testConcurrentUniqueness() throws Exception {
+        TransactionIdGenerator generator = new TransactionIdGenerator(0);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        assertTrue(ids.add(generator.nextId()));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(160_000, ids.size());
+    }
+
+    @Test
+    @DisplayName("Different nodes should not collide")
+    void testDifferentNodes() {
+        Clock clock = Clock.fixed(NOW, ZoneOffset.UTC);
+        assertNotEquals(new TransactionIdGenerator(1, clock).nextId(), new TransactionIdGenerator(2, clock).nextId());
+    }
+
+    @Test
+    @DisplayName("Constructor should throw exception for invalid node id")
+    void testConstructorWithInvalidNodeId() {
+        assertThrows(IllegalArgumentException.class, () -> new TransactionIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new TransactionIdGenerator(1024));
+    }
+}
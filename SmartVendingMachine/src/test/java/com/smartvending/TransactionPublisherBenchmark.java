@@ -0,0 +1,89 @@
+package com.smartvending;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the cost of publishing sales to subscribers and how far the subscribers lag.
+ * Each round sells the same number of products with no subscriber, with a fast
+ * counting subscriber and with a fast subscriber next to a slow logging sink.
+ * <pre>
+ * java -cp target/classes:target/test-classes com.smartvending.TransactionPublisherBenchmark [sales]
+ * </pre>
+ */
+public class TransactionPublisherBenchmark {
+
+    /**
+     * Counts transactions, optionally spending some time on each one.
+     */
+    private static class CountingSubscriber implements Flow.Subscriber<Transaction> {
+        final AtomicLong received = new AtomicLong();
+        private final long workNanos;
+
+        CountingSubscriber(long workNanos) {
+            this.workNanos = workNanos;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(Transaction item) {
+            received.incrementAndGet();
+            long until = System.nanoTime() + workNanos;
+            while (workNanos > 0 && System.nanoTime() < until) {
+                Thread.onSpinWait();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throwable.printStackTrace();
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int sales = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        for (int round = 0; round < 3; round++) {
+            System.out.printf("round %d%n", round);
+            run("no subscribers", sales, false, false);
+            run("fast subscriber", sales, true, false);
+            run("fast and slow subscribers", sales, true, true);
+        }
+    }
+
+    private static void run(String label, int sales, boolean fast, boolean slow) throws InterruptedException {
+        VendingMachine machine = new VendingMachine();
+        machine.addProduct(new Product("Water", 1.00, sales));
+        TransactionPublisher publisher = machine.getTransactionPublisher();
+        CountingSubscriber fastSubscriber = new CountingSubscriber(0);
+        CountingSubscriber slowSubscriber = new CountingSubscriber(50_000);
+        if (fast) {
+            publisher.subscribe(fastSubscriber);
+        }
+        if (slow) {
+            publisher.subscribe(slowSubscriber);
+        }
+
+        long maxLag = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < sales; i++) {
+            machine.selectProductPrepaid("Water", 1.00);
+            if ((i & 0xFFF) == 0) {
+                maxLag = Math.max(maxLag, publisher.getMaxLag());
+            }
+        }
+        double nanosPerSale = (double) (System.nanoTime() - start) / sales;
+        Thread.sleep(100);
+        publisher.close();
+        System.out.printf("  %-26s %6.0f ns/sale, max lag %4d, fast received %d, slow received %d, dropped %d%n",
+                label, nanosPerSale, maxLag, fastSubscriber.received.get(), slowSubscriber.received.get(),
+                publisher.getDroppedCount());
+    }
+}
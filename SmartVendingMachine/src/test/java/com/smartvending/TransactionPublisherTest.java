@@ -0,0 +1,304 @@
+package com.smartvending;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.DisplayName;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("TransactionPublisher Tests")
+class TransactionPublisherTest {
+
+    // Delivers on the publishing thread, so each test observes deliveries deterministically
+    private static final Executor DIRECT = Runnable::run;
+
+    private static Transaction sale(int i) {
+        return new Transaction(i, "Coca Cola", 1.50, 0.0, LocalDateTime.of(2024, 1, 1, 12, 0));
+    }
+
+    /**
+     * Records every signal it receives and requests on demand.
+     */
+    private static class RecordingSubscriber implements Flow.Subscriber<Transaction> {
+        final List<Long> ids = Collections.synchronizedList(new ArrayList<>());
+        final long initialRequest;
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+        volatile boolean completed;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public void onNext(Transaction item) {
+            ids.add(item.getId());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Test
+    @DisplayName("Subscribers should receive transactions in order")
+    void testDeliversInOrder() {
+        TransactionPublisher publisher = new TransactionPublisher(8, BackpressureStrategy.DROP, DIRECT);
+        RecordingSubscriber first = new RecordingSubscriber(Long.MAX_VALUE);
+        RecordingSubscriber second = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(first);
+        publisher.subscribe(second);
+
+        for (int i = 1; i <= 20; i++) {
+            publisher.publish(sale(i));
+        }
+
+        List<Long> expected = new ArrayList<>();
+        for (long i = 1; i <= 20; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, first.ids);
+        assertEquals(expected, second.ids);
+        assertEquals(0, publisher.getMaxLag());
+    }
+
+    @Test
+    @DisplayName("Delivery should honour the requested demand")
+    void testHonoursDemand() {
+        TransactionPublisher publisher = new TransactionPublisher(8, BackpressureStrategy.DROP, DIRECT);
+        RecordingSubscriber subscriber = new RecordingSubscriber(2);
+        publisher.subscribe(subscriber);
+
+        for (int i = 1; i <= 5; i++) {
+            publisher.publish(sale(i));
+        }
+        assertEquals(Arrays.asList(1L, 2L), subscriber.ids);
+        assertEquals(3, publisher.getMaxLag());
+
+        subscriber.subscription.request(3);
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), subscriber.ids);
+    }
+
+    @Test
+    @DisplayName("A subscriber whose onNext throws should be unsubscribed without blocking the publisher")
+    void testThrowingSubscriber() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            TransactionPublisher publisher = new TransactionPublisher(2, BackpressureStrategy.BLOCK, executor);
+            CountDownLatch failed = new CountDownLatch(1);
+            RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE) {
+                @Override
+                public void onNext(Transaction item) {
+                    super.onNext(item);
+                    if (item.getId() == 2) {
+                        throw new IllegalStateException("subscriber failure");
+                    }
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    super.onError(throwable);
+                    failed.countDown();
+                }
+            };
+            publisher.subscribe(subscriber);
+
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+                for (int i = 1; i <= 100; i++) {
+                    publisher.publish(sale(i));
+                }
+            });
+
+            assertTrue(failed.await(5, TimeUnit.SECONDS));
+            assertEquals("subscriber failure", subscriber.error.getMessage());
+            assertEquals(Arrays.asList(1L, 2L), subscriber.ids);
+            assertEquals(0, publisher.getSubscriberCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("DROP should skip the oldest transactions of a slow subscriber")
+    void testDropStrategy() {
+        TransactionPublisher publisher = new TransactionPublisher(4, BackpressureStrategy.DROP, DIRECT);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+
+        for (int i = 1; i <= 10; i++) {
+            publisher.publish(sale(i));
+        }
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(Arrays.asList(7L, 8L, 9L, 10L), subscriber.ids);
+        assertEquals(6, publisher.getDroppedCount());
+        assertNull(subscriber.error);
+    }
+
+    @Test
+    @DisplayName("BUFFER should fail a subscriber that overflows the buffer")
+    void testBufferStrategy() {
+        TransactionPublisher publisher = new TransactionPublisher(4, BackpressureStrategy.DROP, DIRECT);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber, BackpressureStrategy.BUFFER);
+
+        for (int i = 1; i <= 4; i++) {
+            publisher.publish(sale(i));
+        }
+        assertNull(subscriber.error);
+        publisher.publish(sale(5));
+
+        assertTrue(subscriber.error instanceof IllegalStateException);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+
+    @Test
+    @DisplayName("BLOCK should make the publisher wait for a slow subscriber")
+    void testBlockStrategy() throws InterruptedException {
+        TransactionPublisher publisher = new TransactionPublisher(2, BackpressureStrategy.BLOCK, ForkJoinPool.commonPool());
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            for (int i = 1; i <= 5; i++) {
+                publisher.publish(sale(i));
+            }
+            done.countDown();
+        });
+        producer.start();
+
+        assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+        assertEquals(2, publisher.getPublishedCount());
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (subscriber.ids.size() < 5 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L), subscriber.ids);
+    }
+
+    @Test
+    @DisplayName("A DROP subscriber overrun while reading a slot should not receive a newer transaction early")
+    void testRingWrapsDuringRead() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            TransactionPublisher publisher = new TransactionPublisher(2, BackpressureStrategy.DROP, executor);
+            List<Long> outOfOrder = Collections.synchronizedList(new ArrayList<>());
+            RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE) {
+                private long last;
+
+                @Override
+                public void onNext(Transaction item) {
+                    if (item.getId() <= last) {
+                        outOfOrder.add(item.getId());
+                    }
+                    last = item.getId();
+                }
+            };
+            publisher.subscribe(subscriber);
+            // A two-slot ring wraps constantly, so the subscriber often reads a slot being overwritten
+            for (int i = 1; i <= 500_000; i++) {
+                publisher.publish(sale(i));
+            }
+            publisher.close();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!subscriber.completed && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertTrue(subscriber.completed);
+            assertEquals(Collections.emptyList(), outOfOrder);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("A slow subscriber should not block the publisher by default")
+    void testSlowSubscriberDoesNotBlockSales() throws InterruptedException {
+        VendingMachine vendingMachine = new VendingMachine();
+        vendingMachine.addProduct(new Product("Coca Cola", 1.50, 5_000));
+        CountDownLatch firstDelivery = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        vendingMachine.getTransactionPublisher().subscribe(new RecordingSubscriber(Long.MAX_VALUE) {
+            @Override
+            public void onNext(Transaction item) {
+                firstDelivery.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        for (int i = 0; i < 5_000; i++) {
+            vendingMachine.selectProductPrepaid("Coca Cola", 1.50);
+        }
+        assertTrue(firstDelivery.await(5, TimeUnit.SECONDS));
+        release.countDown();
+
+        assertEquals(5_000, vendingMachine.getTransactionCount());
+        assertEquals(5_000, vendingMachine.getTransactionPublisher().getPublishedCount());
+    }
+
+    @Test
+    @DisplayName("The machine publisher should stream new sales")
+    void testMachinePublisher() {
+        VendingMachine vendingMachine = new VendingMachine();
+        vendingMachine.addProduct(new Product("Coca Cola", 1.50, 5));
+        TransactionPublisher publisher = vendingMachine.getTransactionPublisher();
+        assertSame(publisher, vendingMachine.getTransactionPublisher());
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+
+        vendingMachine.insertMoney(2.00);
+        Transaction transaction = vendingMachine.selectProduct("Coca Cola");
+        publisher.close();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!subscriber.completed && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        assertEquals(Collections.singletonList(transaction.getId()), subscriber.ids);
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    @DisplayName("Requesting a non-positive count should fail the subscription")
+    void testInvalidRequest() {
+        TransactionPublisher publisher = new TransactionPublisher(4, BackpressureStrategy.DROP, DIRECT);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertThrows(NullPointerException.class, () -> publisher.subscribe(null));
+        assertThrows(IllegalArgumentException.class, () -> new TransactionPublisher(0, BackpressureStrategy.DROP, DIRECT));
+    }
+}
@@ -28,6 +28,20 @@ class TransactionTest {
         assertEquals("Pepsi", testTransaction.getProductName());
     }
     
+    @Test
+    @DisplayName("Constructor should keep an explicit id")
+    void testConstructorWithId() {
+        Transaction testTransaction = new Transaction(42L, "Pepsi", 2.00, 0.25, testDate);
+        assertEquals(42L, testTransaction.getId());
+    }
+    
+    @Test
+    @DisplayName("Constructor should assign increasing ids by default")
+    void testConstructorAssignsIds() {
+        Transaction next = new Transaction("Pepsi", 2.00, 0.25, testDate);
+        assertTrue(next.getId() > transaction.getId());
+    }
+    
     @Test
     @DisplayName("Constructor should throw exception for null product name")
     void testConstructorWithNullProductName() {
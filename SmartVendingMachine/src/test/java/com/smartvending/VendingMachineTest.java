@@ -7,6 +7,7 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.junit.jupiter.params.provider.CsvSource;
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
 
 @DisplayName("VendingMachine Tests")
 class VendingMachineTest {
@@ -178,4 +179,109 @@ class VendingMachineTest {
         Transaction transaction = vendingMachine.selectProduct(productName);
         assertEquals(expectedChange, transaction.getChangeGiven());
     }
+
+    @Test
+    @DisplayName("setPrice should update the product price")
+    void testSetPrice() {
+        vendingMachine.setPrice("Coca Cola", 1.75);
+        assertEquals(1.75, coke.getPrice());
+        assertThrows(IllegalStateException.class, () -> vendingMachine.setPrice("Missing", 1.00));
+    }
+    
+    @Test
+    @DisplayName("writeOffStock should remove unsold units")
+    void testWriteOffStock() {
+        int initialStock = coke.getStock();
+        vendingMachine.writeOffStock("Coca Cola", 2);
+        assertEquals(initialStock - 2, coke.getStock());
+        assertThrows(IllegalStateException.class, () -> vendingMachine.writeOffStock("Missing", 1));
+        assertThrows(IllegalStateException.class, () -> vendingMachine.writeOffStock("Coca Cola", initialStock));
+    }
+    
+    @Test
+    @DisplayName("Operation listeners should see state changes in order")
+    void testOperationListener() {
+        List<MachineOperation.Type> types = new ArrayList<>();
+        vendingMachine.addOperationListener(operation -> types.add(operation.getType()));
+        vendingMachine.insertMoney(2.00);
+        vendingMachine.selectProduct("Coca Cola");
+        vendingMachine.restock("Coca Cola", 1);
+        vendingMachine.getChange();
+        assertEquals(Arrays.asList(MachineOperation.Type.INSERT_MONEY, MachineOperation.Type.SELECT_PRODUCT,
+                MachineOperation.Type.RESTOCK, MachineOperation.Type.GET_CHANGE), types);
+    }
+
+    @Test
+    @DisplayName("refund should restore stock and revenue and record a compensating entry")
+    void testRefund() {
+        List<Transaction> heard = new ArrayList<>();
+        vendingMachine.addTransactionListener(heard::add);
+        vendingMachine.insertMoney(2.00);
+        Transaction sale = vendingMachine.selectProduct("Coca Cola");
+        assertEquals(1.50, vendingMachine.getRevenue());
+        assertSame(sale, vendingMachine.getTransaction(sale.getId()));
+        
+        Transaction refund = vendingMachine.refund(sale.getId());
+        
+        assertEquals(10, coke.getStock());
+        assertEquals(0.0, vendingMachine.getRevenue());
+        assertTrue(refund.isRefund());
+        assertEquals(sale.getId(), refund.getRefundedId());
+        assertEquals(1.50, refund.getAmountPaid());
+        assertSame(refund, vendingMachine.getRefund(sale.getId()));
+        assertEquals(Collections.singletonList(refund), vendingMachine.getRefundHistory());
+        assertEquals(Arrays.asList(sale, refund), vendingMachine.getTransactionHistory());
+        assertEquals(Arrays.asList(sale, refund), heard);
+    }
+    
+    @Test
+    @DisplayName("refund should reject unknown, prepaid, refunded and removed sales")
+    void testRefundRejected() {
+        vendingMachine.insertMoney(2.00);
+        Transaction coke = vendingMachine.selectProduct("Coca Cola");
+        vendingMachine.insertMoney(2.00);
+        Transaction pepsi = vendingMachine.selectProduct("Pepsi");
+        Transaction card = vendingMachine.selectProductPrepaid("Coca Cola", 1.50);
+        vendingMachine.refund(coke.getId());
+        vendingMachine.removeProduct("Pepsi");
+        
+        assertFalse(coke.isPrepaid());
+        assertTrue(card.isPrepaid());
+        assertThrows(IllegalStateException.class, () -> vendingMachine.refund(card.getId()));
+        assertTrue(vendingMachine.refundAll(sale -> true).isEmpty());
+        assertThrows(IllegalStateException.class, () -> vendingMachine.refund(coke.getId()));
+        assertThrows(IllegalStateException.class, () -> vendingMachine.refund(pepsi.getId()));
+        assertThrows(IllegalStateException.class, () -> vendingMachine.refund(-1L));
+        assertEquals(1, vendingMachine.getRefundHistory().size());
+        assertNull(vendingMachine.getRefund(pepsi.getId()));
+    }
+    
+    @Test
+    @DisplayName("refundAll should refund every matching sale while purchases continue")
+    void testRefundAll() throws InterruptedException {
+        VendingMachine machine = new VendingMachine();
+        machine.addProduct(new Product("Coca Cola", 1.50, 5_000));
+        machine.addProduct(new Product("Pepsi", 2.00, 5_000));
+        for (int i = 0; i < 2_000; i++) {
+            machine.insertMoney(2.00);
+            machine.selectProduct(i % 2 == 0 ? "Coca Cola" : "Pepsi");
+        }
+        Thread buyer = new Thread(() -> {
+            for (int i = 0; i < 500; i++) {
+                machine.insertMoney(2.00);
+                machine.selectProduct("Pepsi");
+            }
+        });
+        buyer.start();
+        
+        List<Transaction> refunds = machine.refundAll(sale -> sale.getProductName().equals("Coca Cola"));
+        buyer.join();
+        
+        assertEquals(1_000, refunds.size());
+        assertEquals(5_000, machine.getProduct("Coca Cola").getStock());
+        assertEquals(3_500, machine.getProduct("Pepsi").getStock());
+        assertEquals(1_500 * 2.00, machine.getRevenue(), 0.001);
+        assertTrue(machine.refundAll(sale -> sale.getProductName().equals("Coca Cola")).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> machine.refundAll(null));
+    }
 }